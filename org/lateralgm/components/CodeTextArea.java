@@ -11,20 +11,16 @@
 package org.lateralgm.components;
 
 import java.awt.Color;
-import java.awt.Font;
 import java.awt.Frame;
 import java.awt.Graphics;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.print.PrinterException;
-import java.util.HashSet;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,14 +40,11 @@ import javax.swing.SwingUtilities;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 
-import org.lateralgm.file.ProjectFile.ResourceHolder;
-import org.lateralgm.file.ResourceList;
 import org.lateralgm.joshedit.Code;
 import org.lateralgm.joshedit.CompletionMenu;
 import org.lateralgm.joshedit.DefaultKeywords;
 import org.lateralgm.joshedit.DefaultTokenMarker;
 import org.lateralgm.joshedit.CompletionMenu.Completion;
-import org.lateralgm.joshedit.DefaultTokenMarker.KeywordSet;
 import org.lateralgm.joshedit.DefaultKeywords.HasKeywords;
 import org.lateralgm.joshedit.JoshText;
 import org.lateralgm.joshedit.JoshText.CodeMetrics;
@@ -60,13 +53,12 @@ import org.lateralgm.joshedit.JoshText.Highlighter;
 import org.lateralgm.joshedit.Runner;
 import org.lateralgm.joshedit.Runner.EditorInterface;
 import org.lateralgm.joshedit.JoshTextPanel;
+import org.lateralgm.main.CodeAnalyzer.Diagnostic;
 import org.lateralgm.main.LGM;
 import org.lateralgm.main.Prefs;
 import org.lateralgm.main.UpdateSource.UpdateEvent;
 import org.lateralgm.main.UpdateSource.UpdateListener;
 import org.lateralgm.messages.Messages;
-import org.lateralgm.resources.Resource;
-import org.lateralgm.resources.Script;
 
 public class CodeTextArea extends JoshTextPanel implements UpdateListener,ActionListener
 	{
@@ -95,17 +87,12 @@ public class CodeTextArea extends JoshTextPanel implements UpdateListener,Action
 			};
 		}
 
-	protected static Timer timer;
-	protected Integer lastUpdateTaskID = 0;
-	private static Set<SortedSet<String>> resourceKeywords = new HashSet<SortedSet<String>>();
-	protected static Completion[] completions;
+	static final ResourceKeywords resourceKeywords = new ResourceKeywords();
+	/** The completions of the keywords of the token marker, and their names in the same order. */
+	protected Completion[] completions;
+	private String[] completionNames;
 	protected DefaultTokenMarker tokenMarker;
 
-	private static final Color PURPLE = new Color(138,54,186);
-	private static final Color FUNCTION = new Color(0,100,150);
-
-	static KeywordSet resNames, scrNames;
-
 	public CodeTextArea()
 		{
 		this(null,MarkerCache.getMarker("gml"));
@@ -124,11 +111,10 @@ public class CodeTextArea extends JoshTextPanel implements UpdateListener,Action
 
 		setTabSize(Prefs.tabSize);
 		setTokenMarker(tokenMarker);
-		setupKeywords();
-		updateResourceKeywords();
+		resourceKeywords.attach(tokenMarker);
 		//painter.setStyles(PrefsStore.getSyntaxStyles());
 		text.getActionMap().put("COMPLETIONS",completionAction);
-		LGM.currentFile.updateSource.addListener(this);
+		resourceKeywords.updateSource.addListener(this);
 
 		// build popup menu
 		final JPopupMenu popup = new JPopupMenu();
@@ -283,77 +269,54 @@ public class CodeTextArea extends JoshTextPanel implements UpdateListener,Action
 		return f.getIntValue();
 		}
 
-	private void setupKeywords()
-		{
-		resNames = tokenMarker.addKeywordSet("Resource Names",PURPLE,Font.PLAIN);
-		scrNames = tokenMarker.addKeywordSet("Script Names",FUNCTION,Font.PLAIN);
-		}
-
-	public static void updateResourceKeywords()
+	protected void updateCompletions(DefaultTokenMarker tokenMarker2)
 		{
-		resNames.words.clear();
-		scrNames.words.clear();
-		resourceKeywords.clear();
-		for (Entry<Class<?>,ResourceHolder<?>> e : LGM.currentFile.resMap.entrySet())
+		DefaultKeywords.Keyword[] keywords = new DefaultKeywords.Keyword[0];
+		if (tokenMarker2 instanceof HasKeywords)
 			{
-			if (!(e.getValue() instanceof ResourceList<?>)) continue;
-			ResourceList<?> rl = (ResourceList<?>) e.getValue();
-			if (rl.isEmpty()) continue;
-			
-			KeywordSet ks = e.getKey() == Script.class ? scrNames : resNames;
-
-			// create a set used for the completion window
-			SortedSet<String> resSet = new TreeSet<String>();
-
-			for (Resource<?,?> r : rl)
+			List<DefaultKeywords.Keyword> list = new ArrayList<DefaultKeywords.Keyword>();
+			for (DefaultKeywords.Keyword[] a : ((HasKeywords) tokenMarker2).getKeywords())
+				list.addAll(Arrays.asList(a));
+			keywords = list.toArray(keywords);
+			Arrays.sort(keywords,new Comparator<DefaultKeywords.Keyword>()
 				{
-				ks.words.add(r.getName());
-				resSet.add(r.getName());
-				}
-
-			resourceKeywords.add(resSet);
+					public int compare(DefaultKeywords.Keyword a, DefaultKeywords.Keyword b)
+						{
+						return ResourceKeywords.ORDER.compare(a.getName(),b.getName());
+						}
+				});
 			}
-		if (!resourceKeywords.isEmpty()) completions = null;
-		}
 
-	protected void updateCompletions(DefaultTokenMarker tokenMarker2)
-		{
-		int l = 0;
-		for (Set<String> a : resourceKeywords)
+		completions = new Completion[keywords.length];
+		completionNames = new String[keywords.length];
+		for (int i = 0; i < keywords.length; i++)
 			{
-			l += a.size();
+			DefaultKeywords.Keyword k = keywords[i];
+			if (k instanceof DefaultKeywords.Function)
+				completions[i] = new FunctionCompletion((DefaultKeywords.Function) k);
+			else if (k instanceof DefaultKeywords.Variable)
+				completions[i] = new VariableCompletion((DefaultKeywords.Variable) k);
+			else
+				completions[i] = new CompletionMenu.WordCompletion(k.getName());
+			completionNames[i] = k.getName();
 			}
-		DefaultKeywords.Keyword[][] keywords = null;
-		if (tokenMarker2 instanceof HasKeywords) {
-			HasKeywords hk = (HasKeywords) tokenMarker2;
-			keywords = hk.getKeywords();
-			for (DefaultKeywords.Keyword[] a : keywords)
-				l += a.length;
 		}
 
-		completions = new Completion[l];
-		int i = 0;
-		for (Set<String> a : resourceKeywords)
+	/**
+	 * Gathers the resource names and keywords starting with the given prefix, in any case, by
+	 * looking up where they start in the sorted names instead of going through all of them.
+	 */
+	protected Completion[] getCompletions(String prefix)
+		{
+		List<Completion> list = new ArrayList<Completion>();
+		resourceKeywords.complete(prefix,list);
+		int i = Arrays.binarySearch(completionNames,prefix.toUpperCase(),ResourceKeywords.ORDER);
+		for (i = i < 0 ? -i - 1 : i; i < completionNames.length; i++)
 			{
-			for (String s : a)
-				{
-				completions[i] = new CompletionMenu.WordCompletion(s);
-				i += 1;
-				}
+			if (!ResourceKeywords.startsWith(completionNames[i],prefix)) break;
+			list.add(completions[i]);
 			}
-
-		if (keywords == null) return;
-		for (DefaultKeywords.Keyword[] a : keywords)
-			for (DefaultKeywords.Keyword k : a)
-				{
-				if (k instanceof DefaultKeywords.Function)
-					completions[i] = new FunctionCompletion((DefaultKeywords.Function) k);
-				else if (k instanceof DefaultKeywords.Variable)
-					completions[i] = new VariableCompletion((DefaultKeywords.Variable) k);
-				else
-					completions[i] = new CompletionMenu.WordCompletion(k.getName());
-				i++;
-				}
+		return list.toArray(new Completion[list.size()]);
 		}
 
 	public class VariableCompletion extends CompletionMenu.Completion
@@ -485,44 +448,15 @@ public class CodeTextArea extends JoshTextPanel implements UpdateListener,Action
 				String lt = getLineText(row);
 				int x1 = pos - find(lt.substring(0,pos),W_BEFORE).length();
 				int x2 = pos + find(lt.substring(pos),W_AFTER).length();
-				if (completions == null) updateCompletions(tokenMarker);
-				new CompletionMenu(LGM.frame,text,row,x1,x2,pos,completions);
+				Completion[] c = getCompletions(lt.substring(x1,pos));
+				new CompletionMenu(LGM.frame,text,row,x1,x2,pos,c);
 				}
 		};
 
+	/** The resource names changed, which may change the highlighting. */
 	public void updated(UpdateEvent e)
 		{
-		if (timer == null) timer = new Timer();
-		timer.schedule(new UpdateTask(),500);
-		}
-
-	private class UpdateTask extends TimerTask
-		{
-		private int id;
-
-		public UpdateTask()
-			{
-			synchronized (lastUpdateTaskID)
-				{
-				id = ++lastUpdateTaskID;
-				}
-			}
-
-		public void run()
-			{
-			synchronized (lastUpdateTaskID)
-				{
-				if (id != lastUpdateTaskID) return;
-				}
-			SwingUtilities.invokeLater(new Runnable()
-				{
-					public void run()
-						{
-						updateResourceKeywords();
-						text.repaint();
-						}
-				});
-			}
+		text.repaint();
 		}
 
 	public boolean requestFocusInWindow()
@@ -545,6 +479,59 @@ public class CodeTextArea extends JoshTextPanel implements UpdateListener,Action
 		text.repaint();
 		}
 
+	private Highlighter diagnosticHighlighter;
+
+	/**
+	 * Underlines the names the given diagnostics are about, replacing the ones underlined before.
+	 * Diagnostics that are not about a line of this code are left out.
+	 */
+	public void setDiagnostics(List<Diagnostic> diagnostics)
+		{
+		if (diagnosticHighlighter != null) text.highlighters.remove(diagnosticHighlighter);
+		diagnosticHighlighter = null;
+		List<Diagnostic> list = new ArrayList<Diagnostic>();
+		for (Diagnostic d : diagnostics)
+			if (d.line >= 0) list.add(d);
+		if (!list.isEmpty())
+			{
+			diagnosticHighlighter = new DiagnosticHighlighter(list);
+			text.highlighters.add(diagnosticHighlighter);
+			}
+		text.repaint();
+		}
+
+	class DiagnosticHighlighter implements Highlighter
+		{
+		protected final Color COL_SQ = Color.ORANGE;
+		protected final List<Diagnostic> diagnostics;
+
+		public DiagnosticHighlighter(List<Diagnostic> diagnostics)
+			{
+			this.diagnostics = diagnostics;
+			}
+
+		public void paint(Graphics g, Insets i, CodeMetrics cm, int line_start, int line_end)
+			{
+			int gh = cm.lineHeight();
+			g.setColor(COL_SQ);
+			for (Diagnostic d : diagnostics)
+				{
+				// The code may have changed since it was analyzed
+				if (d.line < line_start || d.line > line_end || d.line >= getLineCount()) continue;
+				int y = i.top + d.line * gh + gh;
+				int x2 = Math.min(d.column + d.name.length(),getLineText(d.line).length());
+				int start = i.left + cm.lineWidth(d.line,d.column);
+				int end = i.left + cm.lineWidth(d.line,x2);
+
+				for (int x = start; x < end; x += 2)
+					{
+					g.drawLine(x,y,x + 1,y - 1);
+					g.drawLine(x + 1,y - 1,x + 2,y);
+					}
+				}
+			}
+		}
+
 	class ErrorHighlighter implements Highlighter
 		{
 		protected final Color COL_SQ = Color.RED;
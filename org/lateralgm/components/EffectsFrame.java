@@ -33,8 +33,10 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.DefaultListCellRenderer;
@@ -44,8 +46,11 @@ import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.GroupLayout.Alignment;
 
+import org.lateralgm.components.ImageEffects.EffectFilter;
 import org.lateralgm.components.ImageEffects.EffectOptionListener;
 import org.lateralgm.components.ImageEffects.ImageEffect;
 import org.lateralgm.main.LGM;
@@ -70,6 +75,12 @@ public class EffectsFrame extends JFrame implements ActionListener, EffectOption
 	private EffectsFrameListener listener = null;
 	private ImageEffectPreview beforePreview;
 	private ImageEffectPreview afterPreview;
+	/**
+	 * Renders the after preview at full resolution once the options stop changing. Until then,
+	 * large images are previewed at the size they are displayed at.
+	 */
+	private Timer fullPreviewTimer;
+	private int previewGeneration;
 
 	public abstract interface EffectsFrameListener {
 		public abstract void applyEffects(List<BufferedImage> imgs);
@@ -227,14 +238,21 @@ public class EffectsFrame extends JFrame implements ActionListener, EffectOption
 					CardLayout cl = (CardLayout)(effectsOptions.getLayout());
 					cl.show(effectsOptions, effect.getKey());
 
-					if (images == null || images.size() <= 0) return;
-					BufferedImage img = images.get(0);
-					if (img == null) return;
-					afterPreview.setImage(effect.getAppliedImage(img));
+					updatePreviews();
 				}
 
 		});
 
+		fullPreviewTimer = new Timer(250,new ActionListener()
+			{
+				@Override
+				public void actionPerformed(ActionEvent e)
+					{
+					updateFullPreview();
+					}
+			});
+		fullPreviewTimer.setRepeats(false);
+
 		applyButton = new JButton(Messages.getString("EffectsFrame.APPLY")); //$NON-NLS-1$
 		applyButton.addActionListener(this);
 		closeButton = new JButton(Messages.getString("EffectsFrame.CLOSE")); //$NON-NLS-1$
@@ -279,9 +297,10 @@ public class EffectsFrame extends JFrame implements ActionListener, EffectOption
 	public void actionPerformed(ActionEvent e)
 		{
 		if (e.getSource() == applyButton) {
+			ImageEffect effect = (ImageEffect) effectsCombo.getSelectedItem();
+			List<BufferedImage> applied = ImageEffects.applyAll(effect.createFilter(),images);
 			for (int i = 0; i < images.size(); i++){
-				ImageEffect effect = (ImageEffect) effectsCombo.getSelectedItem();
-				images.set(i,effect.getAppliedImage(images.get(i)));
+				images.set(i,applied.get(i));
 			}
 			if (listener != null) {
 				listener.applyEffects(images);
@@ -306,7 +325,72 @@ public class EffectsFrame extends JFrame implements ActionListener, EffectOption
 		BufferedImage img = images.get(0);
 		if (img == null) return;
 		beforePreview.setImage(img);
-		afterPreview.setImage(effect.getAppliedImage(img));
+		previewGeneration++;
+		BufferedImage scaled = getPreviewImage(img);
+		afterPreview.setImage(effect.getAppliedImage(scaled));
+		if (scaled == img)
+			fullPreviewTimer.stop();
+		else
+			fullPreviewTimer.restart();
+	}
+
+	/**
+	 * Returns the image scaled down to the size the after preview displays it at, or the image
+	 * itself if it is not displayed any smaller.
+	 */
+	private BufferedImage getPreviewImage(BufferedImage img) {
+		int width = afterPreview.getWidth();
+		int height = afterPreview.getHeight();
+		if (width <= 0 || height <= 0) return img;
+		double factor = Math.min((double) width / img.getWidth(),(double) height / img.getHeight());
+		if (factor >= 1) return img;
+		int swidth = Math.max(1,(int) (img.getWidth() * factor));
+		int sheight = Math.max(1,(int) (img.getHeight() * factor));
+		BufferedImage scaled = new BufferedImage(swidth,sheight,BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = scaled.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(img,0,0,swidth,sheight,null);
+		g.dispose();
+		return scaled;
+	}
+
+	/** Replaces a scaled after preview by the effect applied to the whole image. */
+	private void updateFullPreview() {
+		ImageEffect effect = (ImageEffect) effectsCombo.getSelectedItem();
+		if (effect == null || images == null || images.size() <= 0) return;
+		final BufferedImage img = images.get(0);
+		if (img == null) return;
+		final int generation = previewGeneration;
+		// the options are read here, as the worker must not touch the options panel
+		final EffectFilter filter = effect.createFilter();
+		new SwingWorker<BufferedImage,Void>()
+			{
+				@Override
+				protected BufferedImage doInBackground()
+					{
+					return filter.apply(img);
+					}
+
+				@Override
+				protected void done()
+					{
+					// the options or images changed while this was running
+					if (generation != previewGeneration) return;
+					try
+						{
+						afterPreview.setImage(get());
+						}
+					catch (InterruptedException e)
+						{
+						LGM.showDefaultExceptionHandler(e);
+						}
+					catch (ExecutionException e)
+						{
+						LGM.showDefaultExceptionHandler(e);
+						}
+					}
+			}.execute();
 	}
 
 	}
@@ -26,7 +26,6 @@ package org.lateralgm.components;
 import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Toolkit;
 import java.awt.color.ColorSpace;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
@@ -34,13 +33,12 @@ import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
 import java.awt.image.ColorConvertOp;
 import java.awt.image.ConvolveOp;
-import java.awt.image.FilteredImageSource;
-import java.awt.image.ImageFilter;
-import java.awt.image.ImageProducer;
 import java.awt.image.Kernel;
-import java.awt.image.RGBImageFilter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import javax.swing.GroupLayout;
 import javax.swing.JCheckBox;
@@ -65,10 +63,28 @@ public class ImageEffects
 		public abstract void optionsUpdated();
 	}
 
+	/**
+	 * An effect with its options fixed at the time it was created. A filter holds no Swing
+	 * components, so that it can be applied on any thread.
+	 */
+	public static abstract class EffectFilter {
+		public abstract BufferedImage apply(BufferedImage img);
+	}
+
 	public static abstract class ImageEffect {
 		private List<EffectOptionListener> listeners = new ArrayList<EffectOptionListener>();
 
-		public abstract BufferedImage getAppliedImage(BufferedImage img);
+		/**
+		 * Creates a filter for the current options. This reads the options panel, so it must be
+		 * called on the event dispatch thread.
+		 */
+		public abstract EffectFilter createFilter();
+
+		public BufferedImage getAppliedImage(BufferedImage img)
+			{
+			return createFilter().apply(img);
+			}
+
 		public abstract JPanel getOptionsPanel();
 		public String getName() {
 			return Messages.getString("ImageEffects." + getKey()); //$NON-NLS-1$
@@ -91,15 +107,205 @@ public class ImageEffects
 			}
 	}
 
+	/**
+	 * Works on the pixels of an image as packed ARGB ints. A kernel holds everything it needs,
+	 * such as the current options of its effect, so that it can run on any thread.
+	 */
+	public static abstract class PixelKernel {
+		/**
+		 * Filters rows y0 (inclusive) to y1 (exclusive) of src into dst. Both arrays hold width
+		 * by height pixels, row after row. Kernels may read any row of src, but must only write
+		 * the given rows of dst, since other rows are filtered at the same time.
+		 */
+		public abstract void filter(int[] src, int[] dst, int width, int height, int y0, int y1);
+	}
+
+	/**
+	 * An effect that is computed pixel by pixel. Images are split into bands of rows that are
+	 * filtered in parallel, straight on int arrays rather than through getRGB and setRGB.
+	 */
+	public static abstract class PixelEffect extends ImageEffect {
+		/** Creates a kernel for the current options. Called on the event dispatch thread. */
+		protected abstract PixelKernel createKernel();
+
+		/** Returns the type of the images created, which must be an int packed type. */
+		protected int getImageType() {
+			return BufferedImage.TYPE_INT_ARGB;
+		}
+
+		@Override
+		public EffectFilter createFilter()
+			{
+			final PixelKernel kernel = createKernel();
+			final int type = getImageType();
+			return new EffectFilter()
+				{
+					@Override
+					public BufferedImage apply(BufferedImage img)
+						{
+						return ImageEffects.apply(kernel,type,img);
+						}
+				};
+			}
+	}
+
+	/** The number of pixels below which a band of rows is not split any further. */
+	private static final int BAND_PIXELS = 1 << 14;
+
+	private static ForkJoinPool pool;
+
+	private static synchronized ForkJoinPool getPool()
+		{
+		if (pool == null) pool = new ForkJoinPool();
+		return pool;
+		}
+
+	private static void run(ForkJoinTask<?> task)
+		{
+		if (ForkJoinTask.inForkJoinPool())
+			task.invoke();
+		else
+			getPool().invoke(task);
+		}
+
+	/**
+	 * Applies a filter to every image, returning the results in the same order. Frames are
+	 * processed in parallel, and the frames of pixel effects are split further into bands.
+	 */
+	public static List<BufferedImage> applyAll(final EffectFilter filter,
+			final List<BufferedImage> imgs)
+		{
+		final BufferedImage[] out = new BufferedImage[imgs.size()];
+		run(new RecursiveAction()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute()
+					{
+					List<RecursiveAction> frames = new ArrayList<RecursiveAction>(out.length);
+					for (int i = 0; i < out.length; i++)
+						{
+						final int index = i;
+						frames.add(new RecursiveAction()
+							{
+								private static final long serialVersionUID = 1L;
+
+								@Override
+								protected void compute()
+									{
+									out[index] = filter.apply(imgs.get(index));
+									}
+							});
+						}
+					invokeAll(frames);
+					}
+			});
+		List<BufferedImage> result = new ArrayList<BufferedImage>(out.length);
+		for (BufferedImage img : out)
+			result.add(img);
+		return result;
+		}
+
+	/** Filters an image with the given kernel into a new image of the given int packed type. */
+	public static BufferedImage apply(PixelKernel kernel, int type, BufferedImage img)
+		{
+		int width = img.getWidth();
+		int height = img.getHeight();
+		int[] out = new int[width * height];
+		run(new Band(kernel,getPixels(img),out,width,height,0,height));
+		// the pixels are copied in and out rather than filtered in the images' own buffers, which
+		// Java2D stops accelerating once their arrays have been handed out
+		BufferedImage dst = new BufferedImage(width,height,type);
+		dst.getRaster().setDataElements(0,0,width,height,out);
+		return dst;
+		}
+
+	/** Returns a copy of the pixels of an image as packed ARGB ints, row after row. */
+	public static int[] getPixels(BufferedImage img)
+		{
+		int width = img.getWidth();
+		int height = img.getHeight();
+		if (img.getType() == BufferedImage.TYPE_INT_ARGB)
+			return (int[]) img.getRaster().getDataElements(0,0,width,height,null);
+		return img.getRGB(0,0,width,height,null,0,width);
+		}
+
+	private static class Band extends RecursiveAction
+		{
+		private static final long serialVersionUID = 1L;
+
+		private final PixelKernel kernel;
+		private final int[] src, dst;
+		private final int width, height, y0, y1;
+
+		Band(PixelKernel kernel, int[] src, int[] dst, int width, int height, int y0, int y1)
+			{
+			this.kernel = kernel;
+			this.src = src;
+			this.dst = dst;
+			this.width = width;
+			this.height = height;
+			this.y0 = y0;
+			this.y1 = y1;
+			}
+
+		@Override
+		protected void compute()
+			{
+			if (y1 - y0 < 2 || (long) (y1 - y0) * width <= BAND_PIXELS)
+				{
+				kernel.filter(src,dst,width,height,y0,y1);
+				return;
+				}
+			int mid = (y0 + y1) >>> 1;
+			invokeAll(new Band(kernel,src,dst,width,height,y0,mid),
+					new Band(kernel,src,dst,width,height,mid,y1));
+			}
+		}
+
+	/** Convolves an image with a 3 by 3 kernel, the given number of times over. */
+	private static class ConvolveFilter extends EffectFilter
+		{
+		private final BufferedImageOp op;
+		private final int repeats;
+
+		ConvolveFilter(float[] matrix, int repeats)
+			{
+			op = new ConvolveOp(new Kernel(3,3,matrix),ConvolveOp.EDGE_ZERO_FILL,null);
+			this.repeats = repeats;
+			}
+
+		@Override
+		public BufferedImage apply(BufferedImage img)
+			{
+			img = Util.convertImage(img,BufferedImage.TYPE_INT_ARGB);
+			BufferedImage dst = new BufferedImage(img.getWidth(),img.getHeight(), img.getType());
+			dst = op.filter(img, dst);
+			for (int i = 0; i < repeats - 1; i++) {
+				dst = op.filter(dst,null);
+			}
+			return dst;
+			}
+		}
+
 	public static class BlackAndWhiteEffect extends ImageEffect {
 		private final String key = "BlackAndWhiteEffect"; //$NON-NLS-1$
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		public EffectFilter createFilter()
 			{
-			ColorConvertOp op = new ColorConvertOp(ColorSpace.getInstance(ColorSpace.CS_GRAY), null);
-			BufferedImage dest = op.createCompatibleDestImage(img, img.getColorModel());
-			return op.filter(img, dest);
+			return new EffectFilter()
+				{
+					@Override
+					public BufferedImage apply(BufferedImage img)
+						{
+						ColorConvertOp op = new ColorConvertOp(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+								null);
+						BufferedImage dest = op.createCompatibleDestImage(img, img.getColorModel());
+						return op.filter(img, dest);
+						}
+				};
 			}
 
 		@Override
@@ -123,21 +329,28 @@ public class ImageEffects
 		private JSlider alphaSlider = null;
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		public EffectFilter createFilter()
 			{
-			BufferedImage target = new BufferedImage(img.getWidth(),
-					img.getHeight(), BufferedImage.TYPE_INT_ARGB);
-			// Get the images graphics
-			Graphics2D g = target.createGraphics();
-			// Set the Graphics composite to Alpha
-			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER,
-					(float) alphaSlider.getValue()/255));
-			// Draw the image into the prepared reciver image
-			g.drawImage(img, null, 0, 0);
-			// let go of all system resources in this Graphics
-			g.dispose();
-			// Return the image
-			return target;
+			final float alpha = (float) alphaSlider.getValue()/255;
+			return new EffectFilter()
+				{
+					@Override
+					public BufferedImage apply(BufferedImage img)
+						{
+						BufferedImage target = new BufferedImage(img.getWidth(),
+								img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+						// Get the images graphics
+						Graphics2D g = target.createGraphics();
+						// Set the Graphics composite to Alpha
+						g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER,alpha));
+						// Draw the image into the prepared reciver image
+						g.drawImage(img, null, 0, 0);
+						// let go of all system resources in this Graphics
+						g.dispose();
+						// Return the image
+						return target;
+						}
+				};
 			}
 
 		@Override
@@ -196,27 +409,20 @@ public class ImageEffects
 			}
 	}
 
-	public static class InvertEffect extends ImageEffect {
+	public static class InvertEffect extends PixelEffect {
 		private final String key = "InvertEffect"; //$NON-NLS-1$
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		protected PixelKernel createKernel()
 			{
-			int width = img.getWidth();
-			int height = img.getHeight();
-			BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-			for (int i = 0; i < width; i++) {
-				for (int ii = 0; ii < height; ii++) {
-					int rgba = img.getRGB(i,ii);
-					Color col = new Color(rgba, true);
-					col = new Color(255 - col.getRed(),
-													255 - col.getGreen(),
-													255 - col.getBlue(),
-													col.getAlpha());
-					dst.setRGB(i,ii,col.getRGB());
-				}
-			}
-			return dst;
+			return new PixelKernel() {
+				@Override
+				public void filter(int[] src, int[] dst, int width, int height, int y0, int y1)
+					{
+					for (int i = y0 * width, end = y1 * width; i < end; i++)
+						dst[i] = src[i] ^ 0x00FFFFFF;
+					}
+			};
 			}
 
 		@Override
@@ -238,20 +444,12 @@ public class ImageEffects
 		private final String key = "EdgeDetectEffect"; //$NON-NLS-1$
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		public EffectFilter createFilter()
 			{
-			img = Util.convertImage(img,BufferedImage.TYPE_INT_ARGB);
-			BufferedImage dst = new BufferedImage(img.getWidth(),img.getHeight(), img.getType());
-
-			Kernel kernel = new Kernel(3, 3,
-													new float[]{
-															-1, -1, -1,
-															-1, 8, -1,
-															-1, -1, -1});
-
-			BufferedImageOp op = new ConvolveOp(kernel,ConvolveOp.EDGE_ZERO_FILL,null);
-
-			return op.filter(img, dst);
+			return new ConvolveFilter(new float[] {
+					-1, -1, -1,
+					-1, 8, -1,
+					-1, -1, -1},1);
 			}
 
 		@Override
@@ -269,50 +467,54 @@ public class ImageEffects
 			}
 	}
 
-	public static class EmbossEffect extends ImageEffect {
+	public static class EmbossEffect extends PixelEffect {
 		private final String key = "EmbossColorEffect"; //$NON-NLS-1$
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		protected int getImageType()
 			{
-			int width = img.getWidth();
-			int height = img.getHeight();
-			BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-			for (int i = 0; i < height; i++)
-				for (int j = 0; j < width; j++) {
-					int upperLeft = 0;
-					int lowerRight = 0;
-
-					if (i > 0 && j > 0)
-						upperLeft = img.getRGB(j - 1, i - 1);
+			return BufferedImage.TYPE_INT_RGB;
+			}
 
-					if (i < height - 1 && j < width - 1)
-						lowerRight = img.getRGB(j + 1, i + 1);
+		@Override
+		protected PixelKernel createKernel()
+			{
+			return new PixelKernel() {
+				@Override
+				public void filter(int[] src, int[] dst, int width, int height, int y0, int y1)
+					{
+					for (int i = y0; i < y1; i++)
+						for (int j = 0; j < width; j++) {
+							int upperLeft = 0;
+							int lowerRight = 0;
 
-					int redDiff = ((lowerRight >> 16) & 255) - ((upperLeft >> 16) & 255);
-					int greenDiff = ((lowerRight >> 8) & 255) - ((upperLeft >> 8) & 255);
-					int blueDiff = (lowerRight & 255) - (upperLeft & 255);
+							if (i > 0 && j > 0)
+								upperLeft = src[(i - 1) * width + j - 1];
 
-					int diff = redDiff;
-					if (Math.abs(greenDiff) > Math.abs(diff))
-						diff = greenDiff;
-					if (Math.abs(blueDiff) > Math.abs(diff))
-						diff = blueDiff;
+							if (i < height - 1 && j < width - 1)
+								lowerRight = src[(i + 1) * width + j + 1];
 
-					int grayColor = 128 + diff;
+							int redDiff = ((lowerRight >> 16) & 255) - ((upperLeft >> 16) & 255);
+							int greenDiff = ((lowerRight >> 8) & 255) - ((upperLeft >> 8) & 255);
+							int blueDiff = (lowerRight & 255) - (upperLeft & 255);
 
-					if (grayColor > 255)
-						grayColor = 255;
-					else if (grayColor < 0)
-						grayColor = 0;
+							int diff = redDiff;
+							if (Math.abs(greenDiff) > Math.abs(diff))
+								diff = greenDiff;
+							if (Math.abs(blueDiff) > Math.abs(diff))
+								diff = blueDiff;
 
-					int newColor = (grayColor << 16) + (grayColor << 8) + grayColor;
+							int grayColor = 128 + diff;
 
-					dst.setRGB(j, i, newColor);
-				}
+							if (grayColor > 255)
+								grayColor = 255;
+							else if (grayColor < 0)
+								grayColor = 0;
 
-			return dst;
+							dst[i * width + j] = (grayColor << 16) + (grayColor << 8) + grayColor;
+						}
+					}
+			};
 			}
 
 		@Override
@@ -335,25 +537,12 @@ public class ImageEffects
 		private JSlider repeatSlider;
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		public EffectFilter createFilter()
 			{
-			img = Util.convertImage(img,BufferedImage.TYPE_INT_ARGB);
-			BufferedImage dst = new BufferedImage(img.getWidth(),img.getHeight(), img.getType());
-
-			Kernel kernel = new Kernel(3, 3,
-													new float[]{
-															1f/9f, 1f/9f, 1f/9f,
-															1f/9f, 1f/9f, 1f/9f,
-															1f/9f, 1f/9f, 1f/9f});
-
-			BufferedImageOp op = new ConvolveOp(kernel,ConvolveOp.EDGE_ZERO_FILL,null);
-
-			dst = op.filter(img, dst);
-
-			for (int i = 0; i < repeatSlider.getValue() - 1; i++) {
-				dst = op.filter(dst,null);
-			}
-			return dst;
+			return new ConvolveFilter(new float[] {
+					1f/9f, 1f/9f, 1f/9f,
+					1f/9f, 1f/9f, 1f/9f,
+					1f/9f, 1f/9f, 1f/9f},repeatSlider.getValue());
 			}
 
 		@Override
@@ -405,24 +594,12 @@ public class ImageEffects
 		private JSlider repeatSlider;
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		public EffectFilter createFilter()
 			{
-			img = Util.convertImage(img,BufferedImage.TYPE_INT_ARGB);
-			BufferedImage dst = new BufferedImage(img.getWidth(),img.getHeight(), img.getType());
-
-			Kernel kernel = new Kernel(3, 3,
-													new float[]{
-															-1, -1, -1,
-															-1, 9, -1,
-															-1, -1, -1});
-
-			BufferedImageOp op = new ConvolveOp(kernel,ConvolveOp.EDGE_ZERO_FILL,null);
-
-			dst = op.filter(img, dst);
-			for (int i = 0; i < repeatSlider.getValue() - 1; i++) {
-				dst = op.filter(dst,null);
-			}
-			return dst;
+			return new ConvolveFilter(new float[] {
+					-1, -1, -1,
+					-1, 9, -1,
+					-1, -1, -1},repeatSlider.getValue());
 			}
 
 		@Override
@@ -474,11 +651,18 @@ public class ImageEffects
 		private ColorSelect colorSelect;
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		public EffectFilter createFilter()
 			{
-			BufferedImage dst = Util.clearBackground(img,colorSelect.getSelectedColor());
-			return dst;
-		}
+			final Color color = colorSelect.getSelectedColor();
+			return new EffectFilter()
+				{
+					@Override
+					public BufferedImage apply(BufferedImage img)
+						{
+						return Util.clearBackground(img,color);
+						}
+				};
+			}
 
 		@Override
 		public JPanel getOptionsPanel()
@@ -521,39 +705,45 @@ public class ImageEffects
 
 	public static double ColourDistance(Color c1, Color c2)
 		{
-		double rmean = ( c1.getRed() + c2.getRed() )/2;
-		int r = c1.getRed() - c2.getRed();
-		int g = c1.getGreen() - c2.getGreen();
-		int b = c1.getBlue() - c2.getBlue();
+		return ColourDistance(c1.getRGB(),c2.getRGB());
+		}
+
+	/** As {@link #ColourDistance(Color,Color)}, for packed RGB colours. Alpha is ignored. */
+	public static double ColourDistance(int c1, int c2)
+		{
+		int r1 = (c1 >> 16) & 0xFF, r2 = (c2 >> 16) & 0xFF;
+		double rmean = ( r1 + r2 )/2;
+		int r = r1 - r2;
+		int g = ((c1 >> 8) & 0xFF) - ((c2 >> 8) & 0xFF);
+		int b = (c1 & 0xFF) - (c2 & 0xFF);
 		double weightR = 2 + rmean/256;
 		double weightG = 4.0;
 		double weightB = 2 + (255-rmean)/256;
 		return Math.sqrt(weightR*r*r + weightG*g*g + weightB*b*b);
 		}
 
-	public static class RemoveColorEffect extends ImageEffect {
+	public static class RemoveColorEffect extends PixelEffect {
 		private final String key = "RemoveColorEffect"; //$NON-NLS-1$
 		private ColorSelect colorSelect;
 		private JSlider toleranceSlider;
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		protected PixelKernel createKernel()
 			{
 			final int col = colorSelect.getSelectedColor().getRGB();
-			ImageFilter filter = new RGBImageFilter()
-				{
-					@Override
-					public int filterRGB(int x, int y, int rgb)
+			final int tolerance = toleranceSlider.getValue();
+			return new PixelKernel() {
+				@Override
+				public void filter(int[] src, int[] dst, int width, int height, int y0, int y1)
+					{
+					for (int i = y0 * width, end = y1 * width; i < end; i++)
 						{
-
-						if (ColourDistance(new Color(rgb), new Color(col)) < toleranceSlider.getValue())
-							return col & 0x00FFFFFF;
-						return rgb;
+						int rgb = src[i];
+						dst[i] = ColourDistance(rgb,col) < tolerance ? col & 0x00FFFFFF : rgb;
 						}
-				};
-			ImageProducer ip = new FilteredImageSource(img.getSource(),filter);
-			return Util.toBufferedImage(Toolkit.getDefaultToolkit().createImage(ip));
-		}
+					}
+			};
+			}
 
 		@Override
 		public JPanel getOptionsPanel()
@@ -620,23 +810,31 @@ public class ImageEffects
 		private JSlider intensitySlider;
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		public EffectFilter createFilter()
 			{
-			BufferedImage target = new BufferedImage(img.getWidth(),
-					img.getHeight(), BufferedImage.TYPE_INT_ARGB);
-			// Get the images graphics
-			Graphics2D g = target.createGraphics();
-			// Draw the image into the prepared reciver image
-			g.drawImage(img, null, 0, 0);
-			// Set the Graphics composite to Alpha
-			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_ATOP,
-					(float) intensitySlider.getValue()/255));
-			g.setColor(colorSelect.getSelectedColor());
-			g.fillRect(0,0,img.getWidth(),img.getHeight());
-			// let go of all system resources in this Graphics
-			g.dispose();
-			// Return the image
-			return target;
+			final float intensity = (float) intensitySlider.getValue()/255;
+			final Color color = colorSelect.getSelectedColor();
+			return new EffectFilter()
+				{
+					@Override
+					public BufferedImage apply(BufferedImage img)
+						{
+						BufferedImage target = new BufferedImage(img.getWidth(),
+								img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+						// Get the images graphics
+						Graphics2D g = target.createGraphics();
+						// Draw the image into the prepared reciver image
+						g.drawImage(img, null, 0, 0);
+						// Set the Graphics composite to Alpha
+						g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_ATOP,intensity));
+						g.setColor(color);
+						g.fillRect(0,0,img.getWidth(),img.getHeight());
+						// let go of all system resources in this Graphics
+						g.dispose();
+						// Return the image
+						return target;
+						}
+				};
 			}
 
 		@Override
@@ -709,7 +907,7 @@ public class ImageEffects
 		return val;
 	}
 
-	public static class ColorizeEffect extends ImageEffect {
+	public static class ColorizeEffect extends PixelEffect {
 		private final String key = "ColorizeEffect"; //$NON-NLS-1$
 		private JSlider hueSlider;
 		private JCheckBox hueShift;
@@ -719,32 +917,34 @@ public class ImageEffects
 		private JCheckBox valShift;
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		protected PixelKernel createKernel()
 			{
-			int width = img.getWidth();
-			int height = img.getHeight();
-			BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-			for (int i = 0; i < width; i++) {
-				for (int ii = 0; ii < height; ii++) {
-					int rgba = img.getRGB(i,ii);
-					Color col = new Color(rgba, true);
-
+			final int hue = hueSlider.getValue();
+			final boolean hueRelative = hueShift.isSelected();
+			final int sat = satSlider.getValue();
+			final boolean satRelative = satShift.isSelected();
+			final int val = valSlider.getValue();
+			final boolean valRelative = valShift.isSelected();
+			return new PixelKernel() {
+				@Override
+				public void filter(int[] src, int[] dst, int width, int height, int y0, int y1)
+					{
 					float[] hslVals = new float[3];
-					int alpha = col.getAlpha();
-					Color.RGBtoHSB(col.getRed(), col.getGreen(), col.getBlue(), hslVals);
-
-					// Pass .5 (= 180 degrees) as HUE
-					col = new Color(Color.HSBtoRGB(
-							wrap((hueShift.isSelected() ? hslVals[0] : 0) + hueSlider.getValue() / 360.0f,0,1),
-							satShift.isSelected() ? clamp(hslVals[1] + satSlider.getValue() / 100.0f, 0.0f, 1.0f)
-									: (100.0f + satSlider.getValue()) / 200.0f,
-							valShift.isSelected() ? clamp(hslVals[2] + valSlider.getValue() / 100.0f, 0.0f, 1.0f)
-									: (100.0f + valSlider.getValue()) / 200.0f));
-					col = new Color(col.getRed(), col.getGreen(), col.getBlue(), alpha);
-					dst.setRGB(i,ii,col.getRGB());
-				}
-			}
-			return dst;
+					for (int i = y0 * width, end = y1 * width; i < end; i++)
+						{
+						int rgba = src[i];
+						Color.RGBtoHSB((rgba >> 16) & 0xFF,(rgba >> 8) & 0xFF,rgba & 0xFF,hslVals);
+
+						// Pass .5 (= 180 degrees) as HUE
+						int rgb = Color.HSBtoRGB(wrap((hueRelative ? hslVals[0] : 0) + hue / 360.0f,0,1),
+								satRelative ? clamp(hslVals[1] + sat / 100.0f, 0.0f, 1.0f)
+										: (100.0f + sat) / 200.0f,
+								valRelative ? clamp(hslVals[2] + val / 100.0f, 0.0f, 1.0f)
+										: (100.0f + val) / 200.0f);
+						dst[i] = (rgba & 0xFF000000) | (rgb & 0x00FFFFFF);
+						}
+					}
+			};
 			}
 
 		@Override
@@ -866,7 +1066,7 @@ public class ImageEffects
 			}
 	}
 
-	public static class IntensityEffect extends ImageEffect {
+	public static class IntensityEffect extends PixelEffect {
 		private final String key = "IntensityEffect"; //$NON-NLS-1$
 		private JSlider brightnessSlider;
 		private JSlider contrastSlider;
@@ -874,6 +1074,10 @@ public class ImageEffects
 			//from David Fichtmüller
 			public BufferedImage applyBrightnessAndContrast(BufferedImage bi, double brightness,
 					double contrast) {
+				return apply(createKernel(brightness,contrast),BufferedImage.TYPE_INT_ARGB,bi);
+			}
+
+			private static PixelKernel createKernel(double brightness, double contrast) {
 				final double gamma = 0.25;
 
 				if (contrast > 0) {
@@ -894,75 +1098,76 @@ public class ImageEffects
 							1 / gamma) / Math.pow(100, 1 / gamma)) + 1);
 				}
 
-				final int w = bi.getWidth();
-				final int h = bi.getHeight();
-				final BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-
-				for (int x = 0; x < w; x++) {
-						for (int y = 0; y < h; y++) {
-							int rgb = bi.getRGB(x, y);
-
-							// get the rgb-values
-							int alpha = (int) ((rgb & 0xff000000l) >> 24);
-							int r = ((rgb & 0x00ff0000) >> 16);
-							int g = ((rgb & 0x0000ff00) >> 8);
-							int b = ((rgb & 0x000000ff));
-
-							// apply brightness filter
-							r = (int) (r * brightness);
-							g = (int) (g * brightness);
-							b = (int) (b * brightness);
-
-							// convert to YCbCr
-							double Y = r * 0.299 + g * 0.587 + b * 0.114;
-							double Cb = r * -0.168736 + g * -0.331264 + b * 0.5;
-							double Cr = r * 0.5 + g * -0.418688 + b * -0.081312;
-
-							// apply contrast filter
-							Y = (Y + brightness - 127) * contrast + 127;
-							Cb = Cb * contrast;
-							Cr = Cr * contrast;
-
-							// convert back to RGB
-							r = (int) (Y + (Cr * 1.402));
-							g = (int) (Y + (Cb * -0.344136) + (Cr * -0.714136));
-							b = (int) (Y + (Cb * 1.772));
-
-							// check sizes of return values
-							if (alpha > 255) {
-								alpha = 255;
-							} else if (alpha < 0) {
-								alpha = 0;
-							}
-							if (g > 255) {
-								g = 255;
-							} else if (g < 0) {
-								g = 0;
-							}
-							if (r > 255) {
-								r = 255;
-							} else if (r < 0) {
-								r = 0;
-							}
-							if (b > 255) {
-								b = 255;
-							} else if (b < 0) {
-								b = 0;
-							}
-
-							rgb = ((alpha & 0xff) << 24) | ((r & 0xff) << 16) | ((g & 0xff) << 8) | (b & 0xff);
-							out.setRGB(x, y, rgb);
+				final double br = brightness;
+				final double co = contrast;
+				return new PixelKernel() {
+					@Override
+					public void filter(int[] src, int[] dst, int width, int height, int y0, int y1)
+						{
+						for (int i = y0 * width, end = y1 * width; i < end; i++) {
+							dst[i] = adjust(src[i],br,co);
+						}
 						}
+				};
+		}
+
+			private static int adjust(int rgb, double brightness, double contrast) {
+				// get the rgb-values
+				int alpha = (int) ((rgb & 0xff000000l) >> 24);
+				int r = ((rgb & 0x00ff0000) >> 16);
+				int g = ((rgb & 0x0000ff00) >> 8);
+				int b = ((rgb & 0x000000ff));
+
+				// apply brightness filter
+				r = (int) (r * brightness);
+				g = (int) (g * brightness);
+				b = (int) (b * brightness);
+
+				// convert to YCbCr
+				double Y = r * 0.299 + g * 0.587 + b * 0.114;
+				double Cb = r * -0.168736 + g * -0.331264 + b * 0.5;
+				double Cr = r * 0.5 + g * -0.418688 + b * -0.081312;
+
+				// apply contrast filter
+				Y = (Y + brightness - 127) * contrast + 127;
+				Cb = Cb * contrast;
+				Cr = Cr * contrast;
+
+				// convert back to RGB
+				r = (int) (Y + (Cr * 1.402));
+				g = (int) (Y + (Cb * -0.344136) + (Cr * -0.714136));
+				b = (int) (Y + (Cb * 1.772));
+
+				// check sizes of return values
+				if (alpha > 255) {
+					alpha = 255;
+				} else if (alpha < 0) {
+					alpha = 0;
 				}
-				return out;
+				if (g > 255) {
+					g = 255;
+				} else if (g < 0) {
+					g = 0;
+				}
+				if (r > 255) {
+					r = 255;
+				} else if (r < 0) {
+					r = 0;
+				}
+				if (b > 255) {
+					b = 255;
+				} else if (b < 0) {
+					b = 0;
+				}
+
+				return ((alpha & 0xff) << 24) | ((r & 0xff) << 16) | ((g & 0xff) << 8) | (b & 0xff);
 		}
 
 
 		@Override
-		public BufferedImage getAppliedImage(BufferedImage img)
+		protected PixelKernel createKernel()
 			{
-				return this.applyBrightnessAndContrast(img,brightnessSlider.getValue(),
-						contrastSlider.getValue());
+				return createKernel(brightnessSlider.getValue(),contrastSlider.getValue());
 			}
 
 		@Override
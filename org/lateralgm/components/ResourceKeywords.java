@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.components;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.swing.SwingUtilities;
+
+import org.lateralgm.file.ProjectFile;
+import org.lateralgm.file.ProjectFile.ResourceHolder;
+import org.lateralgm.file.ResourceList;
+import org.lateralgm.file.ResourceList.MembershipEvent;
+import org.lateralgm.joshedit.CompletionMenu;
+import org.lateralgm.joshedit.CompletionMenu.Completion;
+import org.lateralgm.joshedit.DefaultTokenMarker;
+import org.lateralgm.joshedit.DefaultTokenMarker.KeywordSet;
+import org.lateralgm.main.LGM;
+import org.lateralgm.main.UpdateSource;
+import org.lateralgm.main.UpdateSource.UpdateEvent;
+import org.lateralgm.main.UpdateSource.UpdateListener;
+import org.lateralgm.main.UpdateSource.UpdateTrigger;
+import org.lateralgm.resources.Resource;
+import org.lateralgm.resources.ResourceReference;
+import org.lateralgm.resources.Script;
+
+/**
+ * The names of the resources of the current project, shared by all code editors for
+ * highlighting and completion. The names are read once per project and then kept up to date from
+ * the resources the lists report as added or removed and from the resources that were renamed,
+ * so that a change only touches the names it concerns. The names are kept sorted without regard
+ * to case, so that the names starting with what is being completed are found by a range lookup.
+ * Editors are notified through {@link #updateSource} once the names have changed.
+ */
+final class ResourceKeywords implements UpdateListener
+	{
+	/** Orders names without regard to case, then by case so that distinct names stay apart. */
+	static final Comparator<String> ORDER = new Comparator<String>()
+		{
+			public int compare(String a, String b)
+				{
+				int c = String.CASE_INSENSITIVE_ORDER.compare(a,b);
+				return c != 0 ? c : a.compareTo(b);
+				}
+		};
+
+	private static final Color PURPLE = new Color(138,54,186);
+	private static final Color FUNCTION = new Color(0,100,150);
+
+	private final UpdateTrigger updateTrigger = new UpdateTrigger();
+	public final UpdateSource updateSource = new UpdateSource(this,updateTrigger);
+
+	private ProjectFile file;
+	/** The name each resource is counted under, so that a rename can take back the old one. */
+	private final IdentityHashMap<Resource<?,?>,String> names = new IdentityHashMap<Resource<?,?>,String>();
+	/** How many resources go by each name, as several may share one. */
+	private final HashMap<String,Integer> scripts = new HashMap<String,Integer>();
+	private final HashMap<String,Integer> others = new HashMap<String,Integer>();
+	private final TreeMap<String,Integer> sorted = new TreeMap<String,Integer>(ORDER);
+	/** The resource and script name sets added to each token marker. */
+	private final IdentityHashMap<DefaultTokenMarker,KeywordSet[]> markers =
+			new IdentityHashMap<DefaultTokenMarker,KeywordSet[]>();
+
+	/**
+	 * Adds the resource and script names to the given token marker, unless it already has them.
+	 * The marker is kept up to date from then on.
+	 */
+	void attach(DefaultTokenMarker marker)
+		{
+		sync();
+		if (markers.containsKey(marker)) return;
+		KeywordSet[] sets = { marker.addKeywordSet("Resource Names",PURPLE,Font.PLAIN), //$NON-NLS-1$
+				marker.addKeywordSet("Script Names",FUNCTION,Font.PLAIN) }; //$NON-NLS-1$
+		sets[0].words.addAll(others.keySet());
+		sets[1].words.addAll(scripts.keySet());
+		markers.put(marker,sets);
+		}
+
+	/** Adds a completion for each resource name starting with the given prefix, in any case. */
+	void complete(String prefix, List<Completion> list)
+		{
+		sync();
+		for (String name : sorted.tailMap(prefix.toUpperCase()).keySet())
+			{
+			if (!startsWith(name,prefix)) break;
+			list.add(new CompletionMenu.WordCompletion(name));
+			}
+		}
+
+	static boolean startsWith(String s, String prefix)
+		{
+		return s.regionMatches(true,0,prefix,0,prefix.length());
+		}
+
+	/** Reads the names again when another project was opened since they were last read. */
+	private void sync()
+		{
+		if (file == LGM.currentFile) return;
+		if (file != null) file.updateSource.removeListener(this);
+		file = LGM.currentFile;
+		for (Resource<?,?> res : names.keySet().toArray(new Resource<?,?>[names.size()]))
+			untrack(res);
+		for (ResourceHolder<?> h : file.resMap.values())
+			if (h instanceof ResourceList<?>) for (Resource<?,?> res : (ResourceList<?>) h)
+				track(res);
+		file.updateSource.addListener(this);
+		}
+
+	public void updated(final UpdateEvent e)
+		{
+		if (!SwingUtilities.isEventDispatchThread())
+			{
+			SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+						{
+						updated(e);
+						}
+				});
+			return;
+			}
+		if (file != LGM.currentFile) return;
+		boolean changed = false;
+		if (e instanceof MembershipEvent)
+			{
+			MembershipEvent me = (MembershipEvent) e;
+			for (Resource<?,?> res : me.removed)
+				changed |= untrack(res);
+			for (Resource<?,?> res : me.added)
+				changed |= track(res);
+			}
+		else if (e.source.owner instanceof ResourceReference<?>)
+			{
+			// Most of these are edits other than a rename, which only cost a comparison
+			Resource<?,?> res = ((ResourceReference<?>) e.source.owner).get();
+			String name = names.get(res);
+			if (name != null && !name.equals(res.getName()))
+				{
+				untrack(res);
+				track(res);
+				changed = true;
+				}
+			}
+		if (changed) updateTrigger.fire();
+		}
+
+	private boolean track(Resource<?,?> res)
+		{
+		String name = res.getName();
+		if (name == null || names.containsKey(res)) return false;
+		names.put(res,name);
+		boolean script = res instanceof Script;
+		if (count(script ? scripts : others,name,1))
+			for (KeywordSet[] sets : markers.values())
+				sets[script ? 1 : 0].words.add(name);
+		count(sorted,name,1);
+		return true;
+		}
+
+	private boolean untrack(Resource<?,?> res)
+		{
+		String name = names.remove(res);
+		if (name == null) return false;
+		boolean script = res instanceof Script;
+		if (count(script ? scripts : others,name,-1))
+			for (KeywordSet[] sets : markers.values())
+				sets[script ? 1 : 0].words.remove(name);
+		count(sorted,name,-1);
+		return true;
+		}
+
+	/** Counts a name in or out, returning whether it was the first or last of its name. */
+	private static boolean count(Map<String,Integer> counts, String name, int delta)
+		{
+		Integer c = counts.get(name);
+		int n = (c == null ? 0 : c) + delta;
+		if (n <= 0)
+			counts.remove(name);
+		else
+			counts.put(name,n);
+		return c == null || n <= 0;
+		}
+	}
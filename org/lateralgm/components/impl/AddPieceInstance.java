@@ -19,7 +19,8 @@ import org.lateralgm.resources.sub.Tile;
 import org.lateralgm.resources.Room.Piece;
 import org.lateralgm.subframes.RoomFrame;
 
-public class AddPieceInstance extends AbstractUndoableEdit
+public class AddPieceInstance extends AbstractUndoableEdit implements
+		BoundedUndoManager.SizedEdit
 	{
 	private static final long serialVersionUID = 1L;
 
@@ -50,18 +51,30 @@ public class AddPieceInstance extends AbstractUndoableEdit
 		if (piece instanceof Instance)
 			{
 			roomFrame.res.instances.add(index,(Instance) piece);
-			roomFrame.oList.setSelectedValue(piece,true);
-			roomFrame.fireObjUpdate();
+			// Skip selecting during a room transaction, the list is only notified when it ends
+			if (!roomFrame.res.isUpdating())
+				{
+				roomFrame.oList.setSelectedValue(piece,true);
+				roomFrame.fireObjUpdate();
+				}
 			}
 		else
 			{
 			roomFrame.res.tiles.add(index,(Tile) piece);
-			roomFrame.tList.setSelectedValue(piece,true);
-			roomFrame.fireTileUpdate();
+			if (!roomFrame.res.isUpdating())
+				{
+				roomFrame.tList.setSelectedValue(piece,true);
+				roomFrame.fireTileUpdate();
+				}
 			}
 
 		}
 
+	public long getSize()
+		{
+		return RemovePieceInstance.sizeOf(piece);
+		}
+
 	public boolean canUndo()
 		{
 		return true;
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.components.impl;
+
+import java.util.IdentityHashMap;
+
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * An undo manager that bounds its history by the memory its edits retain as well as by their
+ * count. When the edits grow past the memory limit, the oldest undoable edits are dropped first,
+ * keeping at least the latest one, and then the redoable edits furthest from the current state.
+ * Edits report their size by implementing {@link SizedEdit}; any other edit is counted as
+ * {@link #DEFAULT_EDIT_SIZE} bytes.
+ */
+public class BoundedUndoManager extends UndoManager
+	{
+	private static final long serialVersionUID = 1L;
+
+	/** The size assumed for an edit which does not report its own. */
+	public static final long DEFAULT_EDIT_SIZE = 64;
+
+	/** An edit that can estimate how many bytes it keeps alive. */
+	public static interface SizedEdit extends UndoableEdit
+		{
+		long getSize();
+		}
+
+	private final IdentityHashMap<UndoableEdit,Long> sizes = new IdentityHashMap<UndoableEdit,Long>();
+	private long maxSize;
+	private long size;
+
+	/**
+	 * @param limit the maximum number of edits, or -1 for no limit
+	 * @param maxSize the maximum number of bytes the edits may retain, or -1 for no limit
+	 */
+	public BoundedUndoManager(int limit, long maxSize)
+		{
+		setLimit(limit);
+		this.maxSize = maxSize;
+		}
+
+	public static long sizeOf(UndoableEdit edit)
+		{
+		return edit instanceof SizedEdit ? ((SizedEdit) edit).getSize() : DEFAULT_EDIT_SIZE;
+		}
+
+	public synchronized long getMaxSize()
+		{
+		return maxSize;
+		}
+
+	public synchronized void setMaxSize(long maxSize)
+		{
+		this.maxSize = maxSize;
+		trimForSize();
+		}
+
+	/** Returns the estimated number of bytes retained by the edits in the history. */
+	public synchronized long getSize()
+		{
+		return size;
+		}
+
+	@Override
+	public synchronized boolean addEdit(UndoableEdit anEdit)
+		{
+		// Counted before it is added, as adding it discards the redoable edits through trimEdits
+		long s = sizeOf(anEdit);
+		sizes.put(anEdit,s);
+		size += s;
+		if (!super.addEdit(anEdit))
+			{
+			sizes.remove(anEdit);
+			size -= s;
+			return false;
+			}
+		UndoableEdit last = lastEdit();
+		if (last != anEdit && sizes.remove(anEdit) != null)
+			{
+			// Absorbed by an edit still in progress, which now holds its size
+			Long l = sizes.get(last);
+			if (l != null)
+				sizes.put(last,l + s);
+			else
+				size -= s;
+			}
+		trimForSize();
+		return true;
+		}
+
+	@Override
+	public synchronized void discardAllEdits()
+		{
+		super.discardAllEdits();
+		sizes.clear();
+		size = 0;
+		}
+
+	@Override
+	protected void trimEdits(int from, int to)
+		{
+		for (int i = from; i <= to; i++)
+			{
+			Long s = sizes.remove(edits.elementAt(i));
+			if (s != null) size -= s;
+			}
+		super.trimEdits(from,to);
+		}
+
+	private void trimForSize()
+		{
+		if (maxSize < 0 || size <= maxSize) return;
+		UndoableEdit u = editToBeUndone();
+		int next = u == null ? 0 : edits.indexOf(u) + 1;
+		long s = size;
+		int drop = 0;
+		while (s > maxSize && drop < next - 1)
+			s -= sizes.get(edits.elementAt(drop++));
+		if (drop > 0) trimEdits(0,drop - 1);
+		next -= drop;
+		int end = edits.size();
+		while (s > maxSize && end > next)
+			s -= sizes.get(edits.elementAt(--end));
+		if (end < edits.size()) trimEdits(end,edits.size() - 1);
+		}
+	}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.components.impl;
+
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoableEdit;
+
+import org.lateralgm.resources.Room;
+
+/**
+ * Records several edits of the pieces of a room as one undoable action, and undoes or redoes
+ * them inside a room transaction, so that the lists and the room editor are only notified once.
+ */
+public class CompoundPieceEdit extends CompoundEdit implements BoundedUndoManager.SizedEdit
+	{
+	private static final long serialVersionUID = 1L;
+
+	private final Room room;
+
+	public CompoundPieceEdit(Room room)
+		{
+		this.room = room;
+		}
+
+	public long getSize()
+		{
+		long size = BoundedUndoManager.DEFAULT_EDIT_SIZE;
+		for (UndoableEdit e : edits)
+			size += BoundedUndoManager.sizeOf(e);
+		return size;
+		}
+
+	@Override
+	public void undo() throws CannotUndoException
+		{
+		room.beginUpdate();
+		try
+			{
+			super.undo();
+			}
+		finally
+			{
+			room.endUpdate();
+			}
+		}
+
+	@Override
+	public void redo() throws CannotRedoException
+		{
+		room.beginUpdate();
+		try
+			{
+			super.redo();
+			}
+		finally
+			{
+			room.endUpdate();
+			}
+		}
+	}
@@ -23,10 +23,11 @@
 
 package org.lateralgm.components.impl;
 
-import java.util.Enumeration;
+import java.util.Arrays;
 
 import javax.swing.Icon;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 
 public class DefaultNode extends DefaultMutableTreeNode
@@ -38,6 +39,10 @@ public class DefaultNode extends DefaultMutableTreeNode
 
 	protected boolean isVisible = true;
 	protected Icon icon;
+	/** The indices of the visible children, or null when they have to be found again. */
+	private int[] visibleChildren;
+	/** Counts the changes to the children and names of all nodes, see {@link #getTreeRevision}. */
+	private static int treeRevision;
 
 	public Icon getIcon() {
 		return icon;
@@ -52,6 +57,8 @@ public class DefaultNode extends DefaultMutableTreeNode
 	}
 
 	public void setVisible(boolean visible) {
+		if (visible != isVisible && parent instanceof DefaultNode)
+			((DefaultNode) parent).visibleChildren = null;
 		this.isVisible = visible;
 	}
 
@@ -59,6 +66,29 @@ public class DefaultNode extends DefaultMutableTreeNode
 		return this.isVisible;
 	}
 
+	/**
+	 * Returns a number that changes whenever a node is added to or removed from any node, or is
+	 * renamed, so that an index of the tree can tell when it is out of date.
+	 */
+	public static int getTreeRevision() {
+		return treeRevision;
+	}
+
+	//NOTE: Children that are not DefaultNode based are counted as visible.
+	private int[] visibleChildren() {
+		if (visibleChildren == null) {
+			int count = children == null ? 0 : children.size();
+			int[] v = new int[count];
+			int n = 0;
+			for (int i = 0; i < count; i++) {
+				Object node = children.elementAt(i);
+				if (!(node instanceof DefaultNode) || ((DefaultNode) node).isVisible()) v[n++] = i;
+			}
+			visibleChildren = n == count ? v : Arrays.copyOf(v,n);
+		}
+		return visibleChildren;
+	}
+
 	public TreeNode getChildAt(int index, boolean filterIsActive) {
 		if (!filterIsActive) {
 			return super.getChildAt(index);
@@ -66,46 +96,48 @@ public class DefaultNode extends DefaultMutableTreeNode
 		if (children == null) {
 			throw new ArrayIndexOutOfBoundsException("node has no children");
 		}
-
-		int realIndex = -1;
-		int visibleIndex = -1;
-		//NOTE: If you really wanted to be safe you could check the cast of e.nextElement()
-		//and count every node that is not DefaultNode based as visible.
-		//For now we know we are safe though.
-		Enumeration<?> e = children.elements();
-		while (e.hasMoreElements()) {
-			DefaultNode node = (DefaultNode) e.nextElement();
-			if (node.isVisible()) {
-				visibleIndex++;
-			}
-			realIndex++;
-			if (visibleIndex == index) {
-				return (TreeNode) children.elementAt(realIndex);
-			}
+		int[] v = visibleChildren();
+		if (index < 0 || index >= v.length) {
+			throw new ArrayIndexOutOfBoundsException("index unmatched");
 		}
-
-		throw new ArrayIndexOutOfBoundsException("index unmatched");
-		//return (TreeNode)children.elementAt(index);
+		return (TreeNode) children.elementAt(v[index]);
 	}
 
 	public int getChildCount(boolean filterIsActive) {
 		if (!filterIsActive) {
 			return super.getChildCount();
 		}
-		if (children == null) {
-			return 0;
-		}
+		return visibleChildren().length;
+	}
 
-		int count = 0;
-		Enumeration<?> e = children.elements();
-		while (e.hasMoreElements()) {
-			DefaultNode node = (DefaultNode) e.nextElement();
-			if (node.isVisible()) {
-				count++;
-			}
+	/** Returns the index of the given child among the visible children, or -1 if it is hidden. */
+	public int getIndex(TreeNode child, boolean filterIsActive) {
+		int index = getIndex(child);
+		if (!filterIsActive || index < 0) {
+			return index;
 		}
+		index = Arrays.binarySearch(visibleChildren(),index);
+		return index < 0 ? -1 : index;
+	}
+
+	@Override
+	public void insert(MutableTreeNode newChild, int childIndex) {
+		super.insert(newChild,childIndex);
+		visibleChildren = null;
+		treeRevision++;
+	}
+
+	@Override
+	public void remove(int childIndex) {
+		super.remove(childIndex);
+		visibleChildren = null;
+		treeRevision++;
+	}
 
-		return count;
+	@Override
+	public void setUserObject(Object userObject) {
+		super.setUserObject(userObject);
+		treeRevision++;
 	}
 
 	public DefaultNode(String name)
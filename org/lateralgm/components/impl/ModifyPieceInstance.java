@@ -24,7 +24,8 @@ import org.lateralgm.resources.Room.Piece;
 import org.lateralgm.resources.sub.Instance;
 import org.lateralgm.subframes.RoomFrame;
 
-public class ModifyPieceInstance extends AbstractUndoableEdit
+public class ModifyPieceInstance extends AbstractUndoableEdit implements
+		BoundedUndoManager.SizedEdit
 	{
 	public enum Type
 		{
@@ -94,6 +95,14 @@ public class ModifyPieceInstance extends AbstractUndoableEdit
 			}
 		}
 
+	public long getSize()
+		{
+		long size = BoundedUndoManager.DEFAULT_EDIT_SIZE;
+		if (oldVal instanceof String) size += 2 * ((String) oldVal).length();
+		if (newVal instanceof String) size += 2 * ((String) newVal).length();
+		return size;
+		}
+
 	@Override
 	public boolean canUndo()
 		{
@@ -19,7 +19,8 @@ import org.lateralgm.resources.sub.Tile;
 import org.lateralgm.resources.Room.Piece;
 import org.lateralgm.subframes.RoomFrame;
 
-public class RemovePieceInstance extends AbstractUndoableEdit
+public class RemovePieceInstance extends AbstractUndoableEdit implements
+		BoundedUndoManager.SizedEdit
 	{
 	private static final long serialVersionUID = 1L;
 
@@ -39,14 +40,21 @@ public class RemovePieceInstance extends AbstractUndoableEdit
 		if (piece instanceof Instance)
 			{
 			roomFrame.res.instances.add(index,(Instance) piece);
-			roomFrame.oList.setSelectedValue(piece,true);
-			roomFrame.fireObjUpdate();
+			// Within a room transaction the list has not been told about the piece yet
+			if (!roomFrame.res.isUpdating())
+				{
+				roomFrame.oList.setSelectedValue(piece,true);
+				roomFrame.fireObjUpdate();
+				}
 			}
 		else
 			{
 			roomFrame.res.tiles.add(index,(Tile) piece);
-			roomFrame.tList.setSelectedValue(piece,true);
-			roomFrame.fireTileUpdate();
+			if (!roomFrame.res.isUpdating())
+				{
+				roomFrame.tList.setSelectedValue(piece,true);
+				roomFrame.fireTileUpdate();
+				}
 			}
 
 		}
@@ -59,6 +67,23 @@ public class RemovePieceInstance extends AbstractUndoableEdit
 			roomFrame.res.tiles.remove(index);
 		}
 
+	/** Estimates the bytes taken by a piece, counting the creation code of an instance. */
+	static long sizeOf(Piece piece)
+		{
+		long size = 160;
+		if (piece instanceof Instance)
+			{
+			String code = ((Instance) piece).getCreationCode();
+			if (code != null) size += 2 * code.length();
+			}
+		return size;
+		}
+
+	public long getSize()
+		{
+		return sizeOf(piece);
+		}
+
 	public boolean canUndo()
 		{
 		return true;
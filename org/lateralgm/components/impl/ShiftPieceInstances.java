@@ -1,8 +1,6 @@
 /**
  * Record the effect of shifting piece (objects/tiles) instances for the undo
  *
- * I don't know why, but before moving a piece, the piece must be selected in the list.
- *
  * Copyright (C) 2014, egofree
  *
  * This file is part of LateralGM.
@@ -41,76 +39,52 @@ public class ShiftPieceInstances extends AbstractUndoableEdit
 		this.tilesTabIsSelected = tilesTabIsSelected;
 		}
 
-	@Override
-	public void undo() throws CannotUndoException
+	/**
+	 * Shifts all the tiles or all the instances of a room, in a single room transaction so that
+	 * the lists and the room editor are only notified once.
+	 */
+	public static void shift(Room room, boolean tiles, int horizontalShift, int verticalShift)
 		{
-		Room room = roomFrame.getRoomEditor().getRoom();
-
-		// If we are shifting tiles
-		if (tilesTabIsSelected)
+		room.beginUpdate();
+		try
 			{
-
-			for (Tile tile : room.tiles)
+			// If we are shifting tiles
+			if (tiles)
 				{
-				// Select the tile in the list, otherwise it is sometimes not correctly selected
-				roomFrame.tList.setSelectedValue(tile,false);
-
-				Point newPosition = new Point(tile.getPosition().x - horizontalShift,tile.getPosition().y
-						- verticalShift);
-				tile.setPosition(newPosition);
+				for (Tile tile : room.tiles)
+					{
+					Point position = tile.getPosition();
+					tile.setPosition(new Point(position.x + horizontalShift,position.y + verticalShift));
+					}
 				}
-
-			}
-		else
-			// Shift the objects
-			{
-
-			for (Instance instance : room.instances)
+			else
+				// Shift the objects
 				{
-				// Select the instance in the list, otherwise it is sometimes not correctly selected
-				roomFrame.oList.setSelectedValue(instance,false);
-
-				Point newPosition = new Point(instance.getPosition().x - horizontalShift,
-						instance.getPosition().y - verticalShift);
-				instance.setPosition(newPosition);
+				for (Instance instance : room.instances)
+					{
+					Point position = instance.getPosition();
+					instance.setPosition(new Point(position.x + horizontalShift,position.y + verticalShift));
+					}
 				}
 			}
+		finally
+			{
+			room.endUpdate();
+			}
 		}
 
 	@Override
-	public void redo() throws CannotRedoException
+	public void undo() throws CannotUndoException
 		{
 		Room room = roomFrame.getRoomEditor().getRoom();
+		shift(room,tilesTabIsSelected,-horizontalShift,-verticalShift);
+		}
 
-		// If we are shifting tiles
-		if (tilesTabIsSelected)
-			{
-
-			for (Tile tile : room.tiles)
-				{
-				// Select the tile in the list, otherwise it is sometimes not correctly selected
-				roomFrame.tList.setSelectedValue(tile,false);
-
-				Point newPosition = new Point(tile.getPosition().x + horizontalShift,tile.getPosition().y
-						+ verticalShift);
-				tile.setPosition(newPosition);
-				}
-
-			}
-		else
-			// Shift the objects
-			{
-
-			for (Instance instance : room.instances)
-				{
-				// Select the instance in the list, otherwise it is sometimes not correctly selected
-				roomFrame.oList.setSelectedValue(instance,false);
-
-				Point newPosition = new Point(instance.getPosition().x + horizontalShift,
-						instance.getPosition().y + verticalShift);
-				instance.setPosition(newPosition);
-				}
-			}
+	@Override
+	public void redo() throws CannotRedoException
+		{
+		Room room = roomFrame.getRoomEditor().getRoom();
+		shift(room,tilesTabIsSelected,horizontalShift,verticalShift);
 		}
 
 	@Override
@@ -35,6 +35,7 @@ import javax.swing.undo.CompoundEdit;
 import javax.swing.undo.UndoableEdit;
 
 import org.lateralgm.components.impl.AddPieceInstance;
+import org.lateralgm.components.impl.CompoundPieceEdit;
 import org.lateralgm.components.impl.ModifyPieceInstance;
 import org.lateralgm.components.impl.RemovePieceInstance;
 import org.lateralgm.components.impl.ModifyPieceInstance.Type;
@@ -48,9 +49,7 @@ import org.lateralgm.resources.Room;
 import org.lateralgm.resources.Room.PRoom;
 import org.lateralgm.resources.Room.Piece;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.Tile;
-import org.lateralgm.resources.sub.Tile.PTile;
 import org.lateralgm.resources.sub.View;
 import org.lateralgm.resources.sub.View.PView;
 import org.lateralgm.subframes.CodeFrame;
@@ -66,7 +65,7 @@ public class RoomEditor extends VisualPanel
 	{
 	private static final long serialVersionUID = 1L;
 
-	public static final int ZOOM_MIN = -1;
+	public static final int ZOOM_MIN = -14;
 	public static final int ZOOM_MAX = 2;
 
 	private final Room room;
@@ -306,34 +305,42 @@ public class RoomEditor extends VisualPanel
 		boolean deleteUnderlyingInstances = properties.get(PRoomEditor.DELETE_UNDERLYING_OBJECTS);
 
 		// Stores several actions in one compound action for the undo
-		CompoundEdit compoundEdit = new CompoundEdit();
+		CompoundEdit compoundEdit = new CompoundPieceEdit(room);
 
-		// If the 'Delete underlying' option is checked, delete all instances for the selected region
-		if (deleteUnderlyingInstances)
-			frame.deleteInstancesInSelection(
-					new Rectangle(mousePosition.x,mousePosition.y,roomVisual.getSelectionImageWidth(),
-							roomVisual.getSelectionImageHeight()),compoundEdit);
+		room.beginUpdate();
+		try
+			{
+			// If the 'Delete underlying' option is checked, delete all instances for the selected region
+			if (deleteUnderlyingInstances)
+				frame.deleteInstancesInSelection(
+						new Rectangle(mousePosition.x,mousePosition.y,roomVisual.getSelectionImageWidth(),
+								roomVisual.getSelectionImageHeight()),compoundEdit);
 
-		for (Instance instance : selectedInstances)
+			for (Instance instance : selectedInstances)
+				{
+				Point position = instance.getPosition();
+				// Get the relative position of the instance inside the selected region
+				Point newPosition = new Point(position.x - selectedPiecesOrigin.x + mousePosition.x,
+						position.y - selectedPiecesOrigin.y + mousePosition.y);
+
+				Instance newInstance = room.addInstance();
+				newInstance.setObject(instance.getObject());
+				newInstance.setRotation(instance.getRotation());
+				newInstance.setScale(instance.getScale());
+				newInstance.setColor(instance.getColor());
+				newInstance.setAlpha(instance.getAlpha());
+				newInstance.setCode(instance.getCode());
+				newInstance.setCreationCode(instance.getCreationCode());
+				newInstance.setPosition(newPosition);
+
+				// Record the effect of adding a new instance for the undo
+				UndoableEdit edit = new AddPieceInstance(frame,newInstance,room.instances.size() - 1);
+				compoundEdit.addEdit(edit);
+				}
+			}
+		finally
 			{
-			Point position = instance.getPosition();
-			// Get the relative position of the instance inside the selected region
-			Point newPosition = new Point(position.x - selectedPiecesOrigin.x + mousePosition.x,
-					position.y - selectedPiecesOrigin.y + mousePosition.y);
-
-			Instance newInstance = room.addInstance();
-			newInstance.properties.put(PInstance.OBJECT,instance.properties.get(PInstance.OBJECT));
-			newInstance.setRotation(instance.getRotation());
-			newInstance.setScale(instance.getScale());
-			newInstance.setColor(instance.getColor());
-			newInstance.setAlpha(instance.getAlpha());
-			newInstance.setCode(instance.getCode());
-			newInstance.setCreationCode(instance.getCreationCode());
-			newInstance.setPosition(newPosition);
-
-			// Record the effect of adding a new instance for the undo
-			UndoableEdit edit = new AddPieceInstance(frame,newInstance,room.instances.size() - 1);
-			compoundEdit.addEdit(edit);
+			room.endUpdate();
 			}
 
 		// Save the action for the undo
@@ -348,32 +355,40 @@ public class RoomEditor extends VisualPanel
 		boolean deleteUnderlyingTiles = properties.get(PRoomEditor.DELETE_UNDERLYING_TILES);
 
 		// Stores several actions in one compound action for the undo
-		CompoundEdit compoundEdit = new CompoundEdit();
+		CompoundEdit compoundEdit = new CompoundPieceEdit(room);
 
-		// If the 'Delete underlying' option is checked, delete all tiles for the selected region
-		if (deleteUnderlyingTiles)
-			frame.deleteTilesInSelection(
-					new Rectangle(mousePosition.x,mousePosition.y,roomVisual.getSelectionImageWidth(),
-							roomVisual.getSelectionImageHeight()),compoundEdit);
+		room.beginUpdate();
+		try
+			{
+			// If the 'Delete underlying' option is checked, delete all tiles for the selected region
+			if (deleteUnderlyingTiles)
+				frame.deleteTilesInSelection(
+						new Rectangle(mousePosition.x,mousePosition.y,roomVisual.getSelectionImageWidth(),
+								roomVisual.getSelectionImageHeight()),compoundEdit);
 
-		for (Tile tile : selectedTiles)
+			for (Tile tile : selectedTiles)
+				{
+				Point position = tile.getPosition();
+				// Get the relative position of the tile inside the selected region
+				Point newPosition = new Point(position.x - selectedPiecesOrigin.x + mousePosition.x,
+						position.y - selectedPiecesOrigin.y + mousePosition.y);
+
+				Tile newTile = new Tile(room,LGM.currentFile);
+				newTile.setBackground(tile.getBackground());
+				newTile.setBackgroundPosition(tile.getBackgroundPosition());
+				newTile.setPosition(newPosition);
+				newTile.setSize(tile.getSize());
+				newTile.setDepth(tile.getDepth());
+				room.tiles.add(newTile);
+
+				// Record the effect of adding a new tile for the undo
+				UndoableEdit edit = new AddPieceInstance(frame,newTile,room.tiles.size() - 1);
+				compoundEdit.addEdit(edit);
+				}
+			}
+		finally
 			{
-			Point position = tile.getPosition();
-			// Get the relative position of the tile inside the selected region
-			Point newPosition = new Point(position.x - selectedPiecesOrigin.x + mousePosition.x,
-					position.y - selectedPiecesOrigin.y + mousePosition.y);
-
-			Tile newTile = new Tile(room,LGM.currentFile);
-			newTile.properties.put(PTile.BACKGROUND,tile.properties.get(PTile.BACKGROUND));
-			newTile.setBackgroundPosition(tile.getBackgroundPosition());
-			newTile.setPosition(newPosition);
-			newTile.setSize(tile.getSize());
-			newTile.setDepth(tile.getDepth());
-			room.tiles.add(newTile);
-
-			// Record the effect of adding a new tile for the undo
-			UndoableEdit edit = new AddPieceInstance(frame,newTile,room.tiles.size() - 1);
-			compoundEdit.addEdit(edit);
+			room.endUpdate();
 			}
 
 		// Save the action for the undo
@@ -399,7 +414,7 @@ public class RoomEditor extends VisualPanel
 	public void releaseCursor(Point lastPosition)
 		{
 		// Stores several actions in one compound action for the undo
-		CompoundEdit compoundEdit = new CompoundEdit();
+		CompoundEdit compoundEdit = new CompoundPieceEdit(room);
 		UndoableEdit edit = null;
 
 		// If the piece was moved
@@ -569,7 +584,7 @@ public class RoomEditor extends VisualPanel
 			if (bkg == null) return; //I'd rather just break out of this IF, but this works
 			Background b = bkg.get();
 			Tile t = new Tile(room,LGM.currentFile);
-			t.properties.put(PTile.BACKGROUND,bkg);
+			t.setBackground(bkg);
 			t.setBackgroundPosition(new Point(frame.tSelect.tx,frame.tSelect.ty));
 			t.setPosition(position);
 
@@ -589,7 +604,7 @@ public class RoomEditor extends VisualPanel
 			ResourceReference<GmObject> obj = frame.oNew.getSelected();
 			if (obj == null) return; //I'd rather just break out of this IF, but this works
 			Instance instance = room.addInstance();
-			instance.properties.put(PInstance.OBJECT,obj);
+			instance.setObject(obj);
 			instance.setPosition(position);
 
 			setCursor(instance);
@@ -866,10 +881,10 @@ public class RoomEditor extends VisualPanel
 			if (mc != null)
 				{
 				String idt = Messages.getString("RoomFrame.STAT_ID") //$NON-NLS-1$
-						+ tile.properties.get(PTile.ID);
+						+ tile.getID();
 				if (mc.isLocked()) idt += " X"; //$NON-NLS-1$
 				frame.statId.setText(idt);
-				ResourceReference<Background> rb = tile.properties.get(PTile.BACKGROUND);
+				ResourceReference<Background> rb = tile.getBackground();
 				Background b = deRef(rb);
 				String name = b == null ? Messages.getString("RoomFrame.NO_BACKGROUND") : b.getName();
 				idt = Messages.getString("RoomFrame.STAT_TILESET") + name; //$NON-NLS-1$
@@ -885,10 +900,10 @@ public class RoomEditor extends VisualPanel
 			if (instance != null)
 				{
 				String idt = Messages.getString("RoomFrame.STAT_ID") //$NON-NLS-1$
-						+ instance.properties.get(PInstance.ID);
+						+ instance.getID();
 				if (mc.isLocked()) idt += " X"; //$NON-NLS-1$
 				frame.statId.setText(idt);
-				ResourceReference<GmObject> or = instance.properties.get(PInstance.OBJECT);
+				ResourceReference<GmObject> or = instance.getObject();
 				GmObject o = deRef(or);
 				String name = o == null ? Messages.getString("RoomFrame.NO_OBJECT") : o.getName();
 				idt = Messages.getString("RoomFrame.STAT_OBJECT") + name; //$NON-NLS-1$
@@ -1078,7 +1093,7 @@ public class RoomEditor extends VisualPanel
 				// get the first instance in the room
 				for (Instance instance : room.instances)
 					{
-					ResourceReference<GmObject> instanceObject = instance.properties.get(PInstance.OBJECT);
+					ResourceReference<GmObject> instanceObject = instance.getObject();
 
 					if (instanceObject == objectToFollowReference)
 						{
@@ -1097,8 +1112,8 @@ public class RoomEditor extends VisualPanel
 
 					// Get the instance position
 					Point instancePosition = new Point(0,0);
-					instancePosition.x = (Integer) instanceToFollow.properties.get(PInstance.X);
-					instancePosition.y = (Integer) instanceToFollow.properties.get(PInstance.Y);
+					instancePosition.x = instanceToFollow.getPosition().x;
+					instancePosition.y = instanceToFollow.getPosition().y;
 
 					viewPosition.x = instancePosition.x - viewWidth / 2;
 					viewPosition.y = instancePosition.y - viewHeight / 2;
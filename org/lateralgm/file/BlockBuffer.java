@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.file;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * A byte array output stream whose contents can be read in place and which can deflate data
+ * straight into its own array, so that neither serialized nor compressed blocks have to be
+ * copied out with {@link #toByteArray()}. Instances are reused through {@link CodecPool}.
+ */
+final class BlockBuffer extends ByteArrayOutputStream
+	{
+	/**
+	 * The room given to the deflater per call. This must not vary, or the output at compression
+	 * level 0 would depend on the buffer; it matches what the encoder has always used.
+	 */
+	private static final int DEFLATE_STEP = 131072;
+
+	BlockBuffer()
+		{
+		super(CodecPool.BUFFER_SIZE);
+		}
+
+	/** Returns the backing array, which holds {@link #size()} valid bytes. */
+	byte[] array()
+		{
+		return buf;
+		}
+
+	int capacity()
+		{
+		return buf.length;
+		}
+
+	/** Replaces the contents with the given data compressed into a zlib stream. */
+	void deflate(byte[] data, int off, int len, int level)
+		{
+		reset();
+		Deflater deflater = CodecPool.takeDeflater(level);
+		try
+			{
+			deflater.setInput(data,off,len);
+			deflater.finish();
+			while (!deflater.finished())
+				{
+				// always offer the same amount of room; stored blocks are split according to it
+				if (buf.length - count < DEFLATE_STEP)
+					buf = Arrays.copyOf(buf,Math.max(buf.length * 2,count + DEFLATE_STEP));
+				count += deflater.deflate(buf,count,DEFLATE_STEP);
+				}
+			}
+		finally
+			{
+			CodecPool.release(deflater,level);
+			}
+		}
+	}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.file;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the inflaters, deflaters and buffers used to read and write GM binary projects around
+ * for reuse. Projects hold thousands of small compressed blocks, and creating native zlib state
+ * and scratch buffers for every one of them churns both native memory and the young generation.
+ * All methods may be called from any thread. Counts how often something was reused instead of
+ * allocated, which the reader and writer reset at the start of every load and save.
+ */
+public final class CodecPool
+	{
+	/** Size of scratch buffers, and the initial size of block buffers. */
+	static final int BUFFER_SIZE = 65536;
+	/** Block buffers that grew larger than this are dropped rather than kept for reuse. */
+	private static final int MAX_BLOCK_CAPACITY = 4 << 20;
+	/** Maximum number of idle objects of each kind, enough for every deflater thread. */
+	private static final int MAX_IDLE = Math.max(4,Runtime.getRuntime().availableProcessors() * 2);
+
+	private static final int INFLATER = 0, DEFLATER = 1, BUFFER = 2, BLOCK = 3;
+
+	private static final ArrayDeque<Inflater> inflaters = new ArrayDeque<Inflater>();
+	/** Deflaters by compression level, as changing the level of a deflater may change its output. */
+	private static final Map<Integer,ArrayDeque<Deflater>> deflaters = new HashMap<Integer,ArrayDeque<Deflater>>();
+	private static final ArrayDeque<byte[]> buffers = new ArrayDeque<byte[]>();
+	private static final ArrayDeque<BlockBuffer> blocks = new ArrayDeque<BlockBuffer>();
+
+	private static final AtomicIntegerArray created = new AtomicIntegerArray(4);
+	private static final AtomicIntegerArray reused = new AtomicIntegerArray(4);
+
+	private CodecPool()
+		{
+		}
+
+	static Inflater takeInflater()
+		{
+		Inflater inflater;
+		synchronized (inflaters)
+			{
+			inflater = inflaters.poll();
+			}
+		return count(INFLATER,inflater) ? inflater : new Inflater();
+		}
+
+	/** Returns an inflater to the pool. It must not be used afterwards. */
+	static void release(Inflater inflater)
+		{
+		inflater.reset();
+		synchronized (inflaters)
+			{
+			if (inflaters.size() < MAX_IDLE)
+				{
+				inflaters.push(inflater);
+				return;
+				}
+			}
+		inflater.end();
+		}
+
+	static Deflater takeDeflater(int level)
+		{
+		Deflater deflater = null;
+		synchronized (deflaters)
+			{
+			ArrayDeque<Deflater> idle = deflaters.get(level);
+			if (idle != null) deflater = idle.poll();
+			}
+		return count(DEFLATER,deflater) ? deflater : new Deflater(level);
+		}
+
+	/** Returns a deflater created with the given level to the pool. It must not be used afterwards. */
+	static void release(Deflater deflater, int level)
+		{
+		deflater.reset();
+		synchronized (deflaters)
+			{
+			ArrayDeque<Deflater> idle = deflaters.get(level);
+			if (idle == null)
+				{
+				idle = new ArrayDeque<Deflater>();
+				deflaters.put(level,idle);
+				}
+			if (idle.size() < MAX_IDLE)
+				{
+				idle.push(deflater);
+				return;
+				}
+			}
+		deflater.end();
+		}
+
+	/** Takes a scratch array of {@link #BUFFER_SIZE} bytes with undefined contents. */
+	static byte[] takeBuffer()
+		{
+		byte[] buffer;
+		synchronized (buffers)
+			{
+			buffer = buffers.poll();
+			}
+		return count(BUFFER,buffer) ? buffer : new byte[BUFFER_SIZE];
+		}
+
+	static void release(byte[] buffer)
+		{
+		synchronized (buffers)
+			{
+			if (buffers.size() < MAX_IDLE) buffers.push(buffer);
+			}
+		}
+
+	/** Takes an empty block buffer. */
+	static BlockBuffer takeBlock()
+		{
+		BlockBuffer block;
+		synchronized (blocks)
+			{
+			block = blocks.poll();
+			}
+		return count(BLOCK,block) ? block : new BlockBuffer();
+		}
+
+	static void release(BlockBuffer block)
+		{
+		if (block.capacity() > MAX_BLOCK_CAPACITY) return;
+		block.reset();
+		synchronized (blocks)
+			{
+			if (blocks.size() < MAX_IDLE) blocks.push(block);
+			}
+		}
+
+	private static boolean count(int kind, Object pooled)
+		{
+		(pooled == null ? created : reused).incrementAndGet(kind);
+		return pooled != null;
+		}
+
+	public static void resetStatistics()
+		{
+		for (int i = 0; i < 4; i++)
+			{
+			created.set(i,0);
+			reused.set(i,0);
+			}
+		}
+
+	/** Returns how many allocations were avoided by reuse since the statistics were last reset. */
+	public static int getAllocationsAvoided()
+		{
+		int n = 0;
+		for (int i = 0; i < 4; i++)
+			n += reused.get(i);
+		return n;
+		}
+
+	/** Returns how many objects had to be created since the statistics were last reset. */
+	public static int getAllocations()
+		{
+		int n = 0;
+		for (int i = 0; i < 4; i++)
+			n += created.get(i);
+		return n;
+		}
+	}
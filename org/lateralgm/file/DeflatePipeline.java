@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.file;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Serializes and deflates independent blocks of a GM8.x project on a pool of worker threads,
+ * while writing the finished blocks to the output strictly in the order they were submitted.
+ * Each block is written exactly as {@link GmStreamEncoder#beginDeflate()} and
+ * {@link GmStreamEncoder#endDeflate()} would write it, so the output does not depend on the
+ * number of threads.
+ */
+final class DeflatePipeline
+	{
+	interface Block
+		{
+		/** Serializes the uncompressed contents of the block. Runs on a worker thread. */
+		void write(GmStreamEncoder out) throws IOException;
+		}
+
+	private final GmStreamEncoder out;
+	private final ExecutorService pool;
+	private final int window;
+	private final Queue<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+
+	DeflatePipeline(GmStreamEncoder out, int threads)
+		{
+		this.out = out;
+		window = threads * 2;
+		pool = Executors.newFixedThreadPool(threads,new ThreadFactory()
+			{
+				private int count;
+
+				public Thread newThread(Runnable r)
+					{
+					Thread t = new Thread(r,"Deflater " + (++count)); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+					}
+			});
+		}
+
+	/**
+	 * Queues a block. Once more blocks are in flight than there are workers to keep busy,
+	 * this waits for the oldest one and writes it, keeping memory use bounded.
+	 */
+	void submit(final Block block) throws IOException
+		{
+		final int level = out.getCompressionLevel();
+		final Charset charset = out.getCharset();
+		pending.add(pool.submit(new Callable<byte[]>()
+			{
+				public byte[] call() throws IOException
+					{
+					BlockBuffer data = CodecPool.takeBlock();
+					try
+						{
+						GmStreamEncoder enc = new GmStreamEncoder(data);
+						enc.setCharset(charset);
+						enc.setCompressionLevel(level);
+						block.write(enc);
+						enc.flush();
+						return GmStreamEncoder.deflate(data.array(),0,data.size(),level);
+						}
+					finally
+						{
+						CodecPool.release(data);
+						}
+					}
+			}));
+		while (pending.size() > window)
+			writeNext();
+		}
+
+	/** Writes all remaining blocks. */
+	void finish() throws IOException
+		{
+		while (!pending.isEmpty())
+			writeNext();
+		}
+
+	/** Releases the workers, abandoning any blocks that have not been written yet. */
+	void shutdown()
+		{
+		pool.shutdownNow();
+		}
+
+	private void writeNext() throws IOException
+		{
+		byte[] compressed;
+		try
+			{
+			compressed = pending.remove().get();
+			}
+		catch (InterruptedException e)
+			{
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+			}
+		catch (ExecutionException e)
+			{
+			Throwable t = e.getCause();
+			if (t instanceof IOException) throw (IOException) t;
+			if (t instanceof RuntimeException) throw (RuntimeException) t;
+			if (t instanceof Error) throw (Error) t;
+			throw new IOException(t);
+			}
+		out.write4(compressed.length);
+		out.write(compressed);
+		}
+	}
@@ -96,15 +96,14 @@ import org.lateralgm.resources.sub.Event;
 import org.lateralgm.resources.sub.GlyphMetric;
 import org.lateralgm.resources.sub.GlyphMetric.PGlyphMetric;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.MainEvent;
 import org.lateralgm.resources.sub.Moment;
 import org.lateralgm.resources.sub.PathPoint;
 import org.lateralgm.resources.sub.ShapePoint;
 import org.lateralgm.resources.sub.Tile;
-import org.lateralgm.resources.sub.Tile.PTile;
 import org.lateralgm.resources.sub.View;
 import org.lateralgm.resources.sub.View.PView;
+import org.lateralgm.util.LazyImage;
 import org.lateralgm.util.PropertyMap;
 
 import org.w3c.dom.Document;
@@ -128,11 +127,27 @@ public final class GMXFileReader
 	private static DocumentBuilderFactory documentBuilderFactory;
 	private static DocumentBuilder documentBuilder;
 
+	/**
+	 * Number of worker threads used to parse resource documents and decode their images and
+	 * sounds ahead of the reader. Values of 1 or less read everything on the calling thread.
+	 */
+	public static int loaderThreads = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Whether sprite and background images are left on disk and only decoded once they are
+	 * first requested, rather than all being decoded while the project is read.
+	 */
+	public static boolean lazyImages = true;
+	/**
+	 * Whether object and room documents are read with a streaming parser rather than parsed into
+	 * a DOM tree first, which keeps large rooms from needing several times their size in memory.
+	 */
+	public static boolean streaming = true;
+
 	private GMXFileReader()
 		{
 		}
 
-	private static Queue<PostponedRef> postpone = new LinkedList<PostponedRef>();
+	static Queue<PostponedRef> postpone = new LinkedList<PostponedRef>();
 
 	static interface PostponedRef
 		{
@@ -162,6 +177,28 @@ public final class GMXFileReader
 			}
 		}
 
+	/** Sets the background of a tile, which keeps its properties in fields rather than a map. */
+	static class TilePostponedRef implements PostponedRef
+		{
+		ResourceList<Background> list;
+		String name;
+		Tile tile;
+
+		TilePostponedRef(ResourceList<Background> list, Tile tile, String name)
+			{
+			this.list = list;
+			this.tile = tile;
+			this.name = name;
+			}
+
+		public boolean invoke()
+			{
+			Background temp = list.get(name);
+			if (temp != null) tile.setBackground(temp.reference);
+			return temp != null;
+			}
+		}
+
 	private static Document parseDocumentUnchecked(ProjectFile f, String path) throws GmFormatException
 		{
 		Document doc = null;
@@ -180,6 +217,35 @@ public final class GMXFileReader
 		return doc;
 		}
 
+	private static Document readDocument(ProjectFileContext c, String path)
+		{
+		if (c.preloader == null) return parseDocumentChecked(c.f,path);
+		try
+			{
+			Document doc = c.preloader.getDocument(path);
+			return doc != null ? doc : parseDocumentChecked(c.f,path);
+			}
+		catch (GmFormatException e)
+			{
+			interfaceProvider.handleException(e);
+			}
+		return null;
+		}
+
+	private static BufferedImage readImage(ProjectFileContext c, File file) throws IOException
+		{
+		if (c.preloader != null && c.preloader.isLoaded(file.getPath()))
+			return (BufferedImage) c.preloader.take(file.getPath());
+		return ImageIO.read(file);
+		}
+
+	private static byte[] readData(ProjectFileContext c, String path) throws IOException
+		{
+		if (c.preloader != null && c.preloader.isLoaded(path))
+			return (byte[]) c.preloader.take(path);
+		return Util.readFully(path);
+		}
+
 	private static Document parseDocumentChecked(ProjectFile f, String path)
 		{
 			Document doc = null;
@@ -202,6 +268,7 @@ public final class GMXFileReader
 		RefList<Timeline> timeids;
 		RefList<GmObject> objids;
 		RefList<Room> rmids;
+		GMXPreloader preloader;
 
 		public ProjectFileContext(ProjectFile f, Document d, RefList<Timeline> timeids,
 				RefList<GmObject> objids, RefList<Room> rmids)
@@ -258,12 +325,16 @@ public final class GMXFileReader
 		RefList<Timeline> timeids = new RefList<Timeline>(Timeline.class); // timeline ids
 		RefList<GmObject> objids = new RefList<GmObject>(GmObject.class); // object ids
 		RefList<Room> rmids = new RefList<Room>(Room.class); // room id
+		GMXPreloader preloader = null;
 
 		try
 			{
 			Document document = GMXFileReader.parseDocumentUnchecked(file, uri.toString());
 
 			ProjectFileContext c = new ProjectFileContext(file,document,timeids,objids,rmids);
+			if (loaderThreads > 1)
+				c.preloader = preloader = new GMXPreloader(file,document,documentBuilderFactory,
+						loaderThreads,!lazyImages,streaming);
 
 			interfaceProvider.setProgress(0,"ProgressDialog.SPRITES"); //$NON-NLS-1$
 			readGroup(c,root,Sprite.class);
@@ -304,6 +375,13 @@ public final class GMXFileReader
 				i.invoke();
 			postpone.clear();
 
+			// Everything now matches the files it was read from
+			for (ResourceHolder<?> h : file.resMap.values())
+				if (h instanceof ResourceList<?>) for (Resource<?,?> r : (ResourceList<?>) h)
+					r.markClean();
+			file.cleanDirectory = file.getDirectory();
+			file.cleanNames = file.getResourceNames();
+
 			interfaceProvider.setProgress(160,"ProgressDialog.FINISHED"); //$NON-NLS-1$
 			}
 		catch (Exception e)
@@ -313,6 +391,7 @@ public final class GMXFileReader
 			}
 		finally
 			{
+			if (preloader != null) preloader.shutdown();
 			try
 				{
 				if (stream != null)
@@ -610,7 +689,7 @@ public final class GMXFileReader
 		node.add(rnode);
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document sprdoc = GMXFileReader.parseDocumentChecked(f, path + ".sprite.gmx"); //$NON-NLS-1$
+		Document sprdoc = readDocument(c,path + ".sprite.gmx"); //$NON-NLS-1$
 		if (sprdoc == null) return;
 
 		spr.put(PSprite.TRANSPARENT,false);
@@ -649,23 +728,27 @@ public final class GMXFileReader
 		spr.put(PSprite.FOR3D,
 				Integer.parseInt(sprdoc.getElementsByTagName("For3D").item(0).getTextContent()) != 0); //$NON-NLS-1$
 
-		// TODO: Just extra metadata stored in the GMX by studio
-		//int width = Integer.parseInt(sprdoc.getElementsByTagName("width").item(0).getTextContent());
-		//int height = Integer.parseInt(sprdoc.getElementsByTagName("height").item(0).getTextContent());
+		// NOTE: Just extra metadata stored in the GMX by studio, but it lets us
+		// know the size of the subimages without decoding them
+		int width = readDimension(sprdoc,"width"); //$NON-NLS-1$
+		int height = readDimension(sprdoc,"height"); //$NON-NLS-1$
 
 		// iterate and load the sprites subimages
 		NodeList frList = sprdoc.getElementsByTagName("frame"); //$NON-NLS-1$
 		path = f.getDirectory() + "/sprites/"; //$NON-NLS-1$
+		List<LazyImage> lazyFrames = new ArrayList<LazyImage>(frList.getLength());
 		for (int ii = 0; ii < frList.getLength(); ii++)
 			{
 			Node fnode = frList.item(ii);
 			BufferedImage img = null;
 			File imgfile = new File(path + Util.getPOSIXPath(fnode.getTextContent()));
-			if (imgfile.exists())
+			if (imgfile.exists() && lazyImages)
+				lazyFrames.add(new LazyImage(imgfile,width,height));
+			else if (imgfile.exists())
 				{
 				try
 					{
-					img = ImageIO.read(imgfile);
+					img = readImage(c,imgfile);
 					spr.subImages.add(img);
 					}
 				catch (IOException e)
@@ -674,6 +757,22 @@ public final class GMXFileReader
 					}
 				}
 			}
+		spr.subImages.addLazy(lazyFrames);
+		}
+
+	private static int readDimension(Document doc, String tag)
+		{
+		Node node = doc.getElementsByTagName(tag).item(0);
+		if (node == null) return -1;
+		try
+			{
+			int v = Integer.parseInt(node.getTextContent().trim());
+			return v > 0 ? v : -1;
+			}
+		catch (NumberFormatException e)
+			{
+			return -1;
+			}
 		}
 
 	private static void readSound(ProjectFileContext c, ResNode node, Node cNode)
@@ -688,7 +787,7 @@ public final class GMXFileReader
 		snd.setNode(rnode);
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document snddoc = GMXFileReader.parseDocumentChecked(f, path + ".sound.gmx"); //$NON-NLS-1$
+		Document snddoc = readDocument(c,path + ".sound.gmx"); //$NON-NLS-1$
 		if (snddoc == null) return;
 
 		snd.put(PSound.FILE_NAME,snddoc.getElementsByTagName("origname").item(0).getTextContent()); //$NON-NLS-1$
@@ -727,7 +826,7 @@ public final class GMXFileReader
 			fname = f.getDirectory() + "/sound/audio/" + fname;
 			try
 				{
-				snd.data = Util.readFully(fname);
+				snd.getData().set(readData(c,fname));
 				}
 			catch (IOException e)
 				{
@@ -747,7 +846,7 @@ public final class GMXFileReader
 		node.add(rnode);
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document bkgdoc = GMXFileReader.parseDocumentChecked(f, path + ".background.gmx"); //$NON-NLS-1$
+		Document bkgdoc = readDocument(c,path + ".background.gmx"); //$NON-NLS-1$
 		if (bkgdoc == null) return;
 
 		bkg.put(PBackground.USE_AS_TILESET,
@@ -774,19 +873,22 @@ public final class GMXFileReader
 		bkg.put(PBackground.FOR3D,
 				Integer.parseInt(bkgdoc.getElementsByTagName("For3D").item(0).getTextContent()) != 0); //$NON-NLS-1$
 
-		// NOTE: Just extra metadata stored in the GMX by studio
-		//int width = Integer.parseInt(bkgdoc.getElementsByTagName("width").item(0).getTextContent());
-		//int height = Integer.parseInt(bkgdoc.getElementsByTagName("height").item(0).getTextContent());
+		// NOTE: Just extra metadata stored in the GMX by studio, but it lets us
+		// know the size of the image without decoding it
+		int width = readDimension(bkgdoc,"width"); //$NON-NLS-1$
+		int height = readDimension(bkgdoc,"height"); //$NON-NLS-1$
 
 		path = f.getDirectory() + "/background/"; //$NON-NLS-1$
 		Node fnode = bkgdoc.getElementsByTagName("data").item(0); //$NON-NLS-1$
 		BufferedImage img = null;
 		File imgfile = new File(path + Util.getPOSIXPath(fnode.getTextContent()));
-		if (imgfile.exists())
+		if (imgfile.exists() && lazyImages)
+			bkg.setBackgroundImage(new LazyImage(imgfile,width,height));
+		else if (imgfile.exists())
 			{
 			try
 				{
-				img = ImageIO.read(imgfile);
+				img = readImage(c,imgfile);
 				bkg.setBackgroundImage(img);
 				}
 			catch (IOException e)
@@ -807,7 +909,7 @@ public final class GMXFileReader
 		node.add(rnode);
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document pthdoc = GMXFileReader.parseDocumentChecked(f, path + ".path.gmx"); //$NON-NLS-1$
+		Document pthdoc = readDocument(c,path + ".path.gmx"); //$NON-NLS-1$
 		if (pthdoc == null) return;
 
 		pth.put(PPath.SMOOTH,
@@ -955,7 +1057,7 @@ public final class GMXFileReader
 		node.add(rnode);
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document fntdoc = GMXFileReader.parseDocumentChecked(f, path + ".font.gmx"); //$NON-NLS-1$
+		Document fntdoc = readDocument(c,path + ".font.gmx"); //$NON-NLS-1$
 		if (fntdoc == null) return;
 
 		fnt.put(PFont.FONT_NAME,fntdoc.getElementsByTagName("name").item(0).getTextContent()); //$NON-NLS-1$
@@ -1014,7 +1116,7 @@ public final class GMXFileReader
 		node.add(rnode);
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document tmldoc = GMXFileReader.parseDocumentChecked(f, path + ".timeline.gmx"); //$NON-NLS-1$
+		Document tmldoc = readDocument(c,path + ".timeline.gmx"); //$NON-NLS-1$
 		if (tmldoc == null) return;
 
 		//Iterate the moments and load the actions
@@ -1059,7 +1161,22 @@ public final class GMXFileReader
 
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document objdoc = GMXFileReader.parseDocumentChecked(f, path + ".object.gmx"); //$NON-NLS-1$
+		if (streaming)
+			{
+			try
+				{
+				GMXStreamReader.readGmObject(f,obj,path + ".object.gmx"); //$NON-NLS-1$
+				}
+			catch (GmFormatException e)
+				{
+				interfaceProvider.handleException(e);
+				return;
+				}
+			node.add(new ResNode(obj.getName(),ResNode.STATUS_SECONDARY,GmObject.class,obj.reference));
+			return;
+			}
+
+		Document objdoc = readDocument(c,path + ".object.gmx"); //$NON-NLS-1$
 		if (objdoc == null) return;
 
 		final String sprname = objdoc.getElementsByTagName("spriteName").item(0).getTextContent(); //$NON-NLS-1$
@@ -1205,7 +1322,20 @@ public final class GMXFileReader
 		node.add(rnode);
 		String path = f.getDirectory() + '/' + Util.getPOSIXPath(cNode.getTextContent());
 
-		Document rmndoc = GMXFileReader.parseDocumentChecked(f, path + ".room.gmx"); //$NON-NLS-1$
+		if (streaming)
+			{
+			try
+				{
+				GMXStreamReader.readRoom(f,rmn,path + ".room.gmx"); //$NON-NLS-1$
+				}
+			catch (GmFormatException e)
+				{
+				interfaceProvider.handleException(e);
+				}
+			return;
+			}
+
+		Document rmndoc = readDocument(c,path + ".room.gmx"); //$NON-NLS-1$
 		if (rmndoc == null) return;
 
 		String caption = rmndoc.getElementsByTagName("caption").item(0).getTextContent(); //$NON-NLS-1$
@@ -1458,7 +1588,7 @@ public final class GMXFileReader
 
 						// because of the way this is set up, sprites must be loaded before objects
 						GmObject temp = f.resMap.getList(GmObject.class).get(objname);
-						if (temp != null) inst.properties.put(PInstance.OBJECT,temp.reference);
+						if (temp != null) inst.setObject(temp.reference);
 						NamedNodeMap attribs = inode.getAttributes();
 						int xx = Integer.parseInt(attribs.getNamedItem("x").getNodeValue()); //$NON-NLS-1$
 						int yy = Integer.parseInt(attribs.getNamedItem("y").getNodeValue()); //$NON-NLS-1$
@@ -1475,7 +1605,7 @@ public final class GMXFileReader
 							}
 
 						double rot = Double.parseDouble(attribs.getNamedItem("rotation").getNodeValue()); //$NON-NLS-1$
-						inst.properties.put(PInstance.NAME, inode.getAttributes().getNamedItem("name").getNodeValue()); //$NON-NLS-1$
+						inst.setName(inode.getAttributes().getNamedItem("name").getNodeValue()); //$NON-NLS-1$
 
 						// NOTE: Because LGM still supports GMK, we attempt to preserve the ID which Studio
 						// will remove if it saves over the GMX, so see if the "id" attribute we added is
@@ -1491,7 +1621,7 @@ public final class GMXFileReader
 							instid = ++f.lastInstanceId;
 						}
 
-						inst.properties.put(PInstance.ID, instid);
+						inst.setID(instid);
 
 						inst.setPosition(new Point(xx,yy));
 						inst.setScale(new Point2D.Double(sx,sy));
@@ -1521,15 +1651,15 @@ public final class GMXFileReader
 							Integer.parseInt(attribs.getNamedItem("y").getTextContent()))); //$NON-NLS-1$
 
 					final String bkgname = tnode.getAttributes().getNamedItem("bgName").getTextContent(); //$NON-NLS-1$
-					postpone.add(new DefaultPostponedRef<>(f.resMap.getList(Background.class), tile.properties, PTile.BACKGROUND, bkgname));
+					postpone.add(new TilePostponedRef(f.resMap.getList(Background.class), tile, bkgname));
 
-					tile.properties.put(PTile.NAME, attribs.getNamedItem("name").getNodeValue()); //$NON-NLS-1$
+					tile.setName(attribs.getNamedItem("name").getNodeValue()); //$NON-NLS-1$
 
 					int tileid = Integer.parseInt(attribs.getNamedItem("id").getTextContent()); //$NON-NLS-1$
 					if (tileid > f.lastTileId) {
 						f.lastTileId = tileid;
 					}
-					tile.properties.put(PTile.ID,tileid);
+					tile.setID(tileid);
 
 					tile.setBackgroundPosition(new Point(
 							Integer.parseInt(attribs.getNamedItem("xo").getTextContent()), //$NON-NLS-1$
@@ -1627,7 +1757,7 @@ public final class GMXFileReader
 		File dataFile = new File(filePath);
 		try
 			{
-			inc.data = Files.readAllBytes(dataFile.toPath());
+			inc.getData().set(Files.readAllBytes(dataFile.toPath()));
 			}
 		catch (IOException e)
 			{
@@ -1746,23 +1876,7 @@ public final class GMXFileReader
 				continue;
 				}
 
-			int libid = 0;
-			int actid = 0;
-			byte kind = 0;
-			boolean userelative = false;
-			boolean isquestion = false;
-			boolean isquestiontrue = false;
-			boolean isrelative = false;
-			boolean useapplyto = false;
-			byte exectype = 0;
-
-			String appliesto = ""; //$NON-NLS-1$
-			String functionname = ""; // execInfo for if the action just calls an action function //$NON-NLS-1$
-			String codestring = ""; // execInfo for if the action executes code //$NON-NLS-1$
-
-			Argument[] args = null;
-
-			LibAction la = null;
+			ActionProperties act = new ActionProperties();
 
 			NodeList propList = actNode.getChildNodes();
 			for (int ii = 0; ii < propList.getLength(); ii++)
@@ -1774,55 +1888,7 @@ public final class GMXFileReader
 					continue;
 					}
 
-				if (prop.getNodeName().equals("libid")) //$NON-NLS-1$
-					{
-					libid = Integer.parseInt(prop.getTextContent());
-					}
-				else if (prop.getNodeName().equals("id")) //$NON-NLS-1$
-					{
-					actid = Integer.parseInt(prop.getTextContent());
-					}
-				else if (prop.getNodeName().equals("kind")) //$NON-NLS-1$
-					{
-					kind = Byte.parseByte(prop.getTextContent());
-					}
-				else if (prop.getNodeName().equals("userelative")) //$NON-NLS-1$
-					{
-					userelative = Integer.parseInt(prop.getTextContent()) != 0;
-					}
-				else if (prop.getNodeName().equals("relative")) //$NON-NLS-1$
-					{
-					isrelative = Integer.parseInt(prop.getTextContent()) != 0;
-					}
-				else if (prop.getNodeName().equals("isquestion")) //$NON-NLS-1$
-					{
-					isquestion = Integer.parseInt(prop.getTextContent()) != 0;
-					}
-				else if (prop.getNodeName().equals("isnot")) //$NON-NLS-1$
-					{
-					isquestiontrue = Integer.parseInt(prop.getTextContent()) != 0;
-					}
-				else if (prop.getNodeName().equals("useapplyto")) //$NON-NLS-1$
-					{
-					useapplyto = Integer.parseInt(prop.getTextContent()) != 0;
-					}
-				else if (prop.getNodeName().equals("exetype")) //$NON-NLS-1$
-					{
-					exectype = Byte.parseByte(prop.getTextContent());
-					}
-				else if (prop.getNodeName().equals("whoName")) //$NON-NLS-1$
-					{
-					appliesto = prop.getTextContent();
-					}
-				else if (prop.getNodeName().equals("functionname")) //$NON-NLS-1$
-					{
-					functionname = prop.getTextContent();
-					}
-				else if (prop.getNodeName().equals("codestring")) //$NON-NLS-1$
-					{
-					codestring = prop.getTextContent();
-					}
-				else if (prop.getNodeName().equals("arguments")) //$NON-NLS-1$
+				if (prop.getNodeName().equals("arguments")) //$NON-NLS-1$
 					{
 					NodeList targList = prop.getChildNodes();
 
@@ -1836,151 +1902,236 @@ public final class GMXFileReader
 							}
 						}
 
-					args = new Argument[argList.size()];
+					act.args = new Argument[argList.size()];
 
 					for (int x = 0; x < argList.size(); x++)
 						{
 						Node arg = argList.get(x);
 
-						if (arg.getNodeName().equals("#text")) //$NON-NLS-1$
-							{
-							continue;
-							}
-
-						args[x] = new Argument((byte) 0);
+						act.args[x] = new Argument((byte) 0);
 
 						NodeList argproplist = arg.getChildNodes();
 						for (int xx = 0; xx < argproplist.getLength(); xx++)
 							{
 							Node argprop = argproplist.item(xx);
 
-							if (prop.getNodeName().equals("#text")) //$NON-NLS-1$
+							if (argprop.getNodeName().equals("#text")) //$NON-NLS-1$
 								{
 								continue;
 								}
 
-							final String proptext = argprop.getTextContent();
-							final Argument argument = args[x];
-							if (argprop.getNodeName().equals("kind")) //$NON-NLS-1$
-								{
-								argument.kind = Byte.parseByte(argprop.getTextContent());
-								}
-							else if (argprop.getNodeName().equals("string")) //$NON-NLS-1$
-								{
-								argument.setVal(proptext);
-								}
-							else
-								{
-
-								Class<? extends Resource<?,?>> kindc = Argument.getResourceKind(argument.kind);
-								if (kindc != null && Resource.class.isAssignableFrom(kindc)) try
-									{
-									PostponedRef pr = new PostponedRef()
-										{
-											public boolean invoke()
-												{
-												ResourceHolder<?> rh = f.resMap.get(Argument.getResourceKind(argument.kind));
-												if (rh == null)
-													{
-													return false;
-													}
-												Resource<?,?> temp = null;
-												if (rh instanceof ResourceList<?>)
-													temp = ((ResourceList<?>) rh).get(proptext);
-												else
-													temp = rh.getResource();
-												if (temp != null) argument.setRes(temp.reference);
-												argument.setVal(proptext);
-												return temp != null;
-												}
-										};
-									postpone.add(pr);
-									}
-								catch (NumberFormatException e)
-									{
-									// Trying to ref a resource without a valid id number?
-									// Fallback to strval (already set)
-									}
-								}
+							readArgument(f,act.args[x],argprop.getNodeName(),argprop.getTextContent());
 							}
 						}
 					}
-				}
-
-			la = LibManager.getLibAction(libid,actid);
-			boolean unknownLib = la == null;
-			// The libAction will have a null parent, among other things
-			if (unknownLib)
-				{
-				la = new LibAction();
-				la.id = actid;
-				la.parentId = libid;
-				la.actionKind = kind;
-				// TODO: Maybe make this more agnostic?
-				if (la.actionKind == Action.ACT_CODE)
-					{
-					la = LibManager.codeAction;
-					}
 				else
 					{
-					la.allowRelative = userelative;
-					la.question = isquestion;
-					la.canApplyTo = useapplyto;
-					la.execType = exectype;
-					if (la.execType == Action.EXEC_FUNCTION) la.execInfo = functionname;
-					if (la.execType == Action.EXEC_CODE) la.execInfo = codestring;
-					}
-				if (args != null)
-					{
-					la.libArguments = new LibArgument[args.length];
-					for (int b = 0; b < args.length; b++)
-						{
-						LibArgument argument = new LibArgument();
-						argument.kind = args[b].kind;
-						la.libArguments[b] = argument;
-						}
+					act.put(prop.getNodeName(),prop.getTextContent());
 					}
 				}
 
-			final Action act = container.addAction(la);
-			if (appliesto.equals("self")) //$NON-NLS-1$
+			addAction(f,container,act);
+			}
+		}
+
+	/**
+	 * The properties of an action as they are read from its element, shared by the DOM reader
+	 * and {@link GMXStreamReader}.
+	 */
+	static final class ActionProperties
+		{
+		int libid = 0;
+		int actid = 0;
+		byte kind = 0;
+		boolean userelative = false;
+		boolean isquestion = false;
+		boolean isquestiontrue = false;
+		boolean isrelative = false;
+		boolean useapplyto = false;
+		byte exectype = 0;
+
+		String appliesto = ""; //$NON-NLS-1$
+		String functionname = ""; // execInfo for if the action just calls an action function //$NON-NLS-1$
+		String codestring = ""; // execInfo for if the action executes code //$NON-NLS-1$
+
+		Argument[] args = null;
+
+		/** Sets the property held by a child element of an action, other than its arguments. */
+		void put(String name, String text)
+			{
+			if (name.equals("libid")) //$NON-NLS-1$
 				{
-				act.setAppliesTo(GmObject.OBJECT_SELF);
+				libid = Integer.parseInt(text);
 				}
-			else if (appliesto.equals("other")) //$NON-NLS-1$
+			else if (name.equals("id")) //$NON-NLS-1$
 				{
-				act.setAppliesTo(GmObject.OBJECT_OTHER);
+				actid = Integer.parseInt(text);
 				}
-			else
+			else if (name.equals("kind")) //$NON-NLS-1$
+				{
+				kind = Byte.parseByte(text);
+				}
+			else if (name.equals("userelative")) //$NON-NLS-1$
+				{
+				userelative = Integer.parseInt(text) != 0;
+				}
+			else if (name.equals("relative")) //$NON-NLS-1$
+				{
+				isrelative = Integer.parseInt(text) != 0;
+				}
+			else if (name.equals("isquestion")) //$NON-NLS-1$
+				{
+				isquestion = Integer.parseInt(text) != 0;
+				}
+			else if (name.equals("isnot")) //$NON-NLS-1$
+				{
+				isquestiontrue = Integer.parseInt(text) != 0;
+				}
+			else if (name.equals("useapplyto")) //$NON-NLS-1$
+				{
+				useapplyto = Integer.parseInt(text) != 0;
+				}
+			else if (name.equals("exetype")) //$NON-NLS-1$
+				{
+				exectype = Byte.parseByte(text);
+				}
+			else if (name.equals("whoName")) //$NON-NLS-1$
+				{
+				appliesto = text;
+				}
+			else if (name.equals("functionname")) //$NON-NLS-1$
+				{
+				functionname = text;
+				}
+			else if (name.equals("codestring")) //$NON-NLS-1$
+				{
+				codestring = text;
+				}
+			}
+		}
+
+	/** Reads a child element of an action argument. */
+	static void readArgument(final ProjectFile f, final Argument argument, String name,
+			final String proptext)
+		{
+		if (name.equals("kind")) //$NON-NLS-1$
+			{
+			argument.kind = Byte.parseByte(proptext);
+			}
+		else if (name.equals("string")) //$NON-NLS-1$
+			{
+			argument.setVal(proptext);
+			}
+		else
+			{
+
+			Class<? extends Resource<?,?>> kindc = Argument.getResourceKind(argument.kind);
+			if (kindc != null && Resource.class.isAssignableFrom(kindc)) try
 				{
-				final String objname = appliesto;
 				PostponedRef pr = new PostponedRef()
 					{
 						public boolean invoke()
 							{
-							ResourceList<GmObject> list = f.resMap.getList(GmObject.class);
-							if (list == null)
-								{
-								return false;
-								}
-							GmObject obj = list.get(objname);
-							if (obj == null)
+							ResourceHolder<?> rh = f.resMap.get(Argument.getResourceKind(argument.kind));
+							if (rh == null)
 								{
 								return false;
 								}
-							act.setAppliesTo(obj.reference);
-							return true;
+							Resource<?,?> temp = null;
+							if (rh instanceof ResourceList<?>)
+								temp = ((ResourceList<?>) rh).get(proptext);
+							else
+								temp = rh.getResource();
+							if (temp != null) argument.setRes(temp.reference);
+							argument.setVal(proptext);
+							return temp != null;
 							}
 					};
 				postpone.add(pr);
 				}
+			catch (NumberFormatException e)
+				{
+				// Trying to ref a resource without a valid id number?
+				// Fallback to strval (already set)
+				}
+			}
+		}
 
-			act.setRelative(isrelative);
-			if (args != null && args.length > 0)
+	static void addAction(final ProjectFile f, ActionContainer container, ActionProperties p)
+		{
+		LibAction la = LibManager.getLibAction(p.libid,p.actid);
+		boolean unknownLib = la == null;
+		// The libAction will have a null parent, among other things
+		if (unknownLib)
+			{
+			la = new LibAction();
+			la.id = p.actid;
+			la.parentId = p.libid;
+			la.actionKind = p.kind;
+			// TODO: Maybe make this more agnostic?
+			if (la.actionKind == Action.ACT_CODE)
+				{
+				la = LibManager.codeAction;
+				}
+			else
+				{
+				la.allowRelative = p.userelative;
+				la.question = p.isquestion;
+				la.canApplyTo = p.useapplyto;
+				la.execType = p.exectype;
+				if (la.execType == Action.EXEC_FUNCTION) la.execInfo = p.functionname;
+				if (la.execType == Action.EXEC_CODE) la.execInfo = p.codestring;
+				}
+			if (p.args != null)
 				{
-				act.setArguments(args);
+				la.libArguments = new LibArgument[p.args.length];
+				for (int b = 0; b < p.args.length; b++)
+					{
+					LibArgument argument = new LibArgument();
+					argument.kind = p.args[b].kind;
+					la.libArguments[b] = argument;
+					}
 				}
-			act.setNot(isquestiontrue);
 			}
+
+		final Action act = container.addAction(la);
+		if (p.appliesto.equals("self")) //$NON-NLS-1$
+			{
+			act.setAppliesTo(GmObject.OBJECT_SELF);
+			}
+		else if (p.appliesto.equals("other")) //$NON-NLS-1$
+			{
+			act.setAppliesTo(GmObject.OBJECT_OTHER);
+			}
+		else
+			{
+			final String objname = p.appliesto;
+			PostponedRef pr = new PostponedRef()
+				{
+					public boolean invoke()
+						{
+						ResourceList<GmObject> list = f.resMap.getList(GmObject.class);
+						if (list == null)
+							{
+							return false;
+							}
+						GmObject obj = list.get(objname);
+						if (obj == null)
+							{
+							return false;
+							}
+						act.setAppliesTo(obj.reference);
+						return true;
+						}
+				};
+			postpone.add(pr);
+			}
+
+		act.setRelative(p.isrelative);
+		if (p.args != null && p.args.length > 0)
+			{
+			act.setArguments(p.args);
+			}
+		act.setNot(p.isquestiontrue);
 		}
 	}
@@ -27,6 +27,8 @@ import static org.lateralgm.main.Util.deRef;
 import static org.lateralgm.file.ProjectFile.interfaceProvider;
 
 import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
@@ -38,9 +40,9 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
-import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import javax.imageio.ImageIO;
@@ -57,6 +59,7 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.lateralgm.components.impl.ResNode;
+import org.lateralgm.file.ProjectFile.ResourceHolder;
 import org.lateralgm.file.iconio.ICOFile;
 import org.lateralgm.main.Util;
 import org.lateralgm.resources.Background;
@@ -100,15 +103,14 @@ import org.lateralgm.resources.sub.Event;
 import org.lateralgm.resources.sub.GlyphMetric;
 import org.lateralgm.resources.sub.GlyphMetric.PGlyphMetric;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.MainEvent;
 import org.lateralgm.resources.sub.Moment;
 import org.lateralgm.resources.sub.PathPoint;
 import org.lateralgm.resources.sub.ShapePoint;
 import org.lateralgm.resources.sub.Tile;
-import org.lateralgm.resources.sub.Tile.PTile;
 import org.lateralgm.resources.sub.View;
 import org.lateralgm.resources.sub.View.PView;
+import org.lateralgm.util.LazyImage;
 import org.lateralgm.util.PropertyMap;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -120,6 +122,11 @@ public final class GMXFileWriter
 	private static DocumentBuilder documentBuilder;
 	private static Transformer transformer;
 	public static HashMap<Class<?>,String> tagNames = new HashMap<>(), rootNames = new HashMap<>();
+	/**
+	 * Whether every resource is written, rather than only those marked dirty since the
+	 * project was last read from or written to the same directory.
+	 */
+	public static boolean fullRewrite = false;
 
 	static
 		{
@@ -159,6 +166,7 @@ public final class GMXFileWriter
 		{
 		ProjectFile f;
 		Document dom;
+		boolean incremental;
 
 		public ProjectFileContext(ProjectFile f, Document d)
 			{
@@ -168,7 +176,9 @@ public final class GMXFileWriter
 
 		public ProjectFileContext copy()
 			{
-			return new ProjectFileContext(f,dom);
+			ProjectFileContext c = new ProjectFileContext(f,dom);
+			c.incremental = incremental;
+			return c;
 			}
 		}
 
@@ -208,6 +218,14 @@ public final class GMXFileWriter
 		Document dom = documentBuilder.newDocument();
 
 		ProjectFileContext c = new ProjectFileContext(f,dom);
+		String dir = f.getDirectory();
+		Map<Resource<?,?>,String> names = f.getResourceNames();
+		c.incremental = !fullRewrite && dir.equals(f.cleanDirectory)
+				&& hasSameNames(f.cleanNames,names) && !isAnyRenamed(f);
+		// Until this save completes, the files on disk are not known to match anything
+		f.cleanDirectory = null;
+		f.cleanNames = null;
+		loadDisplacedImages(f);
 		Element root = dom.createElement("assets"); //$NON-NLS-1$
 		interfaceProvider.setProgress(0,"ProgressDialog.SETTINGS"); //$NON-NLS-1$
 		writeConfigurations(c,root,savetime);
@@ -261,9 +279,92 @@ public final class GMXFileWriter
 			// close up the stream and release the lock on the file
 			os.close();
 			}
+		f.cleanDirectory = dir;
+		f.cleanNames = names;
 		interfaceProvider.setProgress(160,"ProgressDialog.FINISHED"); //$NON-NLS-1$
 		}
 
+	/**
+	 * Whether the project holds the same resources under the same names as when the clean files
+	 * were written. Resources refer to each other by name, so once one of them is renamed, deleted
+	 * or added, possibly under a name that was used before, the files of resources that have not
+	 * changed themselves can be out of date as well.
+	 */
+	private static boolean hasSameNames(Map<Resource<?,?>,String> clean,
+			Map<Resource<?,?>,String> names)
+		{
+		if (clean == null || clean.size() != names.size()) return false;
+		for (Map.Entry<Resource<?,?>,String> e : clean.entrySet())
+			{
+			String name = names.get(e.getKey());
+			if (name == null || !name.equals(e.getValue())) return false;
+			}
+		return true;
+		}
+
+	/**
+	 * Some resources are also referred to by id, so a change of id makes clean files out of date
+	 * just as a rename does.
+	 */
+	private static boolean isAnyRenamed(ProjectFile f)
+		{
+		for (ResourceHolder<?> h : f.resMap.values())
+			if (h instanceof ResourceList<?>) for (Resource<?,?> r : (ResourceList<?>) h)
+				if (r.isRenamed()) return true;
+		return false;
+		}
+
+	/**
+	 * Decides whether a resource has to be written to the given file. Resources that are written
+	 * are marked clean right away, so that edits made while the project is being saved mark
+	 * them dirty again.
+	 */
+	private static boolean needsWrite(ProjectFileContext c, Resource<?,?> r, File file)
+		{
+		if (c.incremental && !r.isDirty() && file.exists()) return false;
+		r.markClean();
+		return true;
+		}
+
+	/** Whether an image is backed by the very file it would be written to, so can be left alone. */
+	private static boolean isWritten(LazyImage src, File file)
+		{
+		return src != null && src.peek() == null && file.exists() && isSameFile(src.file,file.getPath());
+		}
+
+	/**
+	 * Decodes any lazily loaded images that would not be written back to the file they are read
+	 * from, e.g. after a rename, a reorder or when saving to another directory. Otherwise the
+	 * writer could overwrite a file before the image it holds has been decoded.
+	 */
+	private static void loadDisplacedImages(ProjectFile f)
+		{
+		String dir = f.getDirectory();
+		for (Sprite spr : f.resMap.getList(Sprite.class))
+			for (int j = 0; j < spr.subImages.size(); j++)
+				{
+				LazyImage src = spr.subImages.getSource(j);
+				if (src != null && !isSameFile(src.file,dir + "/sprites/images/" + spr.getName() + '_' + j //$NON-NLS-1$
+						+ ".png")) //$NON-NLS-1$
+					{
+					spr.subImages.load();
+					break;
+					}
+				}
+		for (Background bkg : f.resMap.getList(Background.class))
+			{
+			LazyImage src = bkg.getBackgroundSource();
+			if (src != null && !isSameFile(src.file,dir + "/background/images/" + bkg.getName() + ".png")) //$NON-NLS-1$ //$NON-NLS-2$
+				bkg.loadBackgroundImage();
+			}
+		}
+
+	private static boolean isSameFile(File file, String path)
+		{
+		return file.getAbsoluteFile().toPath().normalize().equals(
+				new File(Util.getPOSIXPath(path)).getAbsoluteFile().toPath().normalize());
+		}
+
 	private static Element createElement(Document dom, String name, String value)
 		{
 		Element ret = dom.createElement(name);
@@ -271,6 +372,12 @@ public final class GMXFileWriter
 		return ret;
 		}
 
+	private static GMXStreamWriter openDocument(File file) throws IOException
+		{
+		file.getParentFile().mkdirs();
+		return new GMXStreamWriter(file);
+		}
+
 	private static void transformDocumentWrapped(ProjectFile f, Document document, File file) throws GmFormatException
 		{
 		file.getParentFile().mkdirs();
@@ -570,64 +677,78 @@ public final class GMXFileWriter
 		Element res = dom.createElement("sprite"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\sprites\\"; //$NON-NLS-1$
 		res.setTextContent("sprites\\" + spr.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + spr.getName() + ".sprite.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,spr,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File imagesFile = new File(Util.getPOSIXPath(fname + "\\images")); //$NON-NLS-1$
 		imagesFile.mkdirs();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element sprroot = doc.createElement("sprite"); //$NON-NLS-1$
-		doc.appendChild(sprroot);
-
-		sprroot.appendChild(createElement(doc,"xorig",spr.get(PSprite.ORIGIN_X).toString())); //$NON-NLS-1$
-		sprroot.appendChild(createElement(doc,"yorigin",spr.get(PSprite.ORIGIN_Y).toString())); //$NON-NLS-1$
-		sprroot.appendChild(createElement(doc,"colkind", //$NON-NLS-1$
-				ProjectFile.SPRITE_MASK_CODE.get(spr.get(PSprite.SHAPE)).toString()));
-		sprroot.appendChild(createElement(doc,"sepmasks", //$NON-NLS-1$
-				boolToString((Boolean) spr.get(PSprite.SEPARATE_MASK))));
-		sprroot.appendChild(createElement(doc,"bbox_left",spr.get(PSprite.BB_LEFT).toString())); //$NON-NLS-1$
-		sprroot.appendChild(createElement(doc,"bbox_right",spr.get(PSprite.BB_RIGHT).toString())); //$NON-NLS-1$
-		sprroot.appendChild(createElement(doc,"bbox_top",spr.get(PSprite.BB_TOP).toString())); //$NON-NLS-1$
-		sprroot.appendChild(createElement(doc,"bbox_bottom",spr.get(PSprite.BB_BOTTOM).toString())); //$NON-NLS-1$
-		sprroot.appendChild(createElement(doc,"bboxmode", //$NON-NLS-1$
-				ProjectFile.SPRITE_BB_CODE.get(spr.get(PSprite.BB_MODE)).toString()));
-		sprroot.appendChild(createElement(doc,"coltolerance", //$NON-NLS-1$
-				spr.get(PSprite.ALPHA_TOLERANCE).toString()));
-
-		sprroot.appendChild(createElement(doc,"HTile", //$NON-NLS-1$
-				boolToString((Boolean) spr.get(PSprite.TILE_HORIZONTALLY))));
-		sprroot.appendChild(createElement(doc,"VTile", //$NON-NLS-1$
-				boolToString((Boolean) spr.get(PSprite.TILE_VERTICALLY))));
-
-		// TODO: Write texture groups
-
-		sprroot.appendChild(createElement(doc,"For3D", //$NON-NLS-1$
-				boolToString((Boolean) spr.get(PSprite.FOR3D))));
-
-		int width = spr.getWidth(),
-		height = spr.getHeight();
-
-		sprroot.appendChild(createElement(doc,"width",Integer.toString(width))); //$NON-NLS-1$
-		sprroot.appendChild(createElement(doc,"height",Integer.toString(height))); //$NON-NLS-1$
-
-		Element frameroot = doc.createElement("frames"); //$NON-NLS-1$
-		for (int j = 0; j < spr.subImages.size(); j++)
+		GMXStreamWriter out = openDocument(file);
+		try
 			{
-			String framefname = "images\\" + spr.getName() + '_' + j + ".png";  //$NON-NLS-1$//$NON-NLS-2$
-			File outputfile = new File(Util.getPOSIXPath(fname + framefname));
-			Element frameNode = createElement(doc,"frame",framefname); //$NON-NLS-1$
-			frameNode.setAttribute("index",Integer.toString(j)); //$NON-NLS-1$
-			frameroot.appendChild(frameNode);
-			BufferedImage sub = spr.subImages.get(j);
-			// GMX does have a backwards compatibility property for transparency pixel so we write
-			// the image with the transparency removed when that setting is checked
-			ImageIO.write(
-					(Boolean) spr.get(PSprite.TRANSPARENT) ? Util.getTransparentImage(sub) : sub,
-					"png",outputfile); //$NON-NLS-1$
+			out.startElement("sprite"); //$NON-NLS-1$
+			out.element("xorig",spr.get(PSprite.ORIGIN_X).toString()); //$NON-NLS-1$
+			out.element("yorigin",spr.get(PSprite.ORIGIN_Y).toString()); //$NON-NLS-1$
+			out.element("colkind", //$NON-NLS-1$
+					ProjectFile.SPRITE_MASK_CODE.get(spr.get(PSprite.SHAPE)).toString());
+			out.element("sepmasks", //$NON-NLS-1$
+					boolToString((Boolean) spr.get(PSprite.SEPARATE_MASK)));
+			out.element("bbox_left",spr.get(PSprite.BB_LEFT).toString()); //$NON-NLS-1$
+			out.element("bbox_right",spr.get(PSprite.BB_RIGHT).toString()); //$NON-NLS-1$
+			out.element("bbox_top",spr.get(PSprite.BB_TOP).toString()); //$NON-NLS-1$
+			out.element("bbox_bottom",spr.get(PSprite.BB_BOTTOM).toString()); //$NON-NLS-1$
+			out.element("bboxmode", //$NON-NLS-1$
+					ProjectFile.SPRITE_BB_CODE.get(spr.get(PSprite.BB_MODE)).toString());
+			out.element("coltolerance", //$NON-NLS-1$
+					spr.get(PSprite.ALPHA_TOLERANCE).toString());
+
+			out.element("HTile", //$NON-NLS-1$
+					boolToString((Boolean) spr.get(PSprite.TILE_HORIZONTALLY)));
+			out.element("VTile", //$NON-NLS-1$
+					boolToString((Boolean) spr.get(PSprite.TILE_VERTICALLY)));
+
+			// TODO: Write texture groups
+
+			out.element("For3D", //$NON-NLS-1$
+					boolToString((Boolean) spr.get(PSprite.FOR3D)));
+
+			int width = spr.getWidth(),
+			height = spr.getHeight();
+
+			out.element("width",Integer.toString(width)); //$NON-NLS-1$
+			out.element("height",Integer.toString(height)); //$NON-NLS-1$
+
+			boolean transparent = spr.get(PSprite.TRANSPARENT);
+			out.startElement("frames"); //$NON-NLS-1$
+			for (int j = 0; j < spr.subImages.size(); j++)
+				{
+				String framefname = "images\\" + spr.getName() + '_' + j + ".png";  //$NON-NLS-1$//$NON-NLS-2$
+				File outputfile = new File(Util.getPOSIXPath(fname + framefname));
+				out.startElement("frame"); //$NON-NLS-1$
+				out.attribute("index",Integer.toString(j)); //$NON-NLS-1$
+				out.text(framefname);
+				out.endElement();
+				// a frame still backed by its own file is unchanged, unless transparency is to be applied
+				LazyImage src = spr.subImages.getSource(j);
+				if (!transparent && isWritten(src,outputfile)) continue;
+				// a frame that could not be decoded is saved as it was read, not as its blank stand-in
+				if (src != null && src.writeEncoded(outputfile)) continue;
+				BufferedImage sub = spr.subImages.get(j);
+				// GMX does have a backwards compatibility property for transparency pixel so we write
+				// the image with the transparency removed when that setting is checked
+				ImageIO.write(transparent ? Util.getTransparentImage(sub) : sub,
+						"png",outputfile); //$NON-NLS-1$
+				}
+			out.endElement();
+			out.endElement();
+			}
+		finally
+			{
+			out.close();
 			}
-		sprroot.appendChild(frameroot);
-
-		File file = new File(Util.getPOSIXPath(fname + spr.getName() + ".sprite.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
 
 		domRoot.appendChild(res);
 		}
@@ -642,64 +763,73 @@ public final class GMXFileWriter
 		Element res = dom.createElement("sound"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\sound\\"; //$NON-NLS-1$
 		res.setTextContent("sound\\" + snd.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + resNode.getUserObject().toString() + ".sound.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,snd,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File audioFile = new File(Util.getPOSIXPath(fname + "\\audio")); //$NON-NLS-1$
 		audioFile.mkdirs();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element sndroot = doc.createElement("sound"); //$NON-NLS-1$
-		doc.appendChild(sndroot);
-
-		// GMX uses double nested tags for volume, bit rate, sample rate, type, and bit depth
-		// There is an exception to this however. In every one of those tags after volume the
-		// nested tag is singular, where its parent is plural.
-		String fileType = snd.get(PSound.FILE_TYPE).toString();
-		String fileName = snd.getName() + fileType;
-		sndroot.appendChild(createElement(doc,"extension",fileType)); //$NON-NLS-1$
-		sndroot.appendChild(createElement(doc,"origname","sound\\audio\\" + fileName)); //$NON-NLS-1$
-		sndroot.appendChild(createElement(doc,"kind", //$NON-NLS-1$
-				ProjectFile.SOUND_KIND_CODE.get(snd.get(PSound.KIND)).toString()));
-
-		Element volumeRoot = doc.createElement("volume"); //$NON-NLS-1$
-		volumeRoot.appendChild(createElement(doc,"volume", snd.get(PSound.VOLUME).toString())); //$NON-NLS-1$
-		sndroot.appendChild(volumeRoot);
-
-		Element bitRateRoot = doc.createElement("bitRates"); //$NON-NLS-1$
-		bitRateRoot.appendChild(createElement(doc,"bitRate", //$NON-NLS-1$
-			snd.get(PSound.BIT_RATE).toString()));
-		sndroot.appendChild(bitRateRoot);
-
-		Element sampleRateRoot = doc.createElement("sampleRates"); //$NON-NLS-1$
-		sampleRateRoot.appendChild(createElement(doc,"sampleRate", //$NON-NLS-1$
-				snd.get(PSound.SAMPLE_RATE).toString()));
-		sndroot.appendChild(sampleRateRoot);
-
-		Element typesRoot = doc.createElement("types"); //$NON-NLS-1$
-		typesRoot.appendChild(createElement(doc,"type", //$NON-NLS-1$
-			ProjectFile.SOUND_TYPE_CODE.get(snd.get(PSound.TYPE)).toString()));
-		sndroot.appendChild(typesRoot);
-
-		Element bitDepthRoot = doc.createElement("bitDepths"); //$NON-NLS-1$
-		bitDepthRoot.appendChild(createElement(doc,"bitDepth", //$NON-NLS-1$
-				snd.get(PSound.BIT_DEPTH).toString()));
-		sndroot.appendChild(bitDepthRoot);
-
-		sndroot.appendChild(createElement(doc,"pan",snd.get(PSound.PAN).toString())); //$NON-NLS-1$
-		sndroot.appendChild(createElement(doc,"preload", //$NON-NLS-1$
-				boolToString((Boolean) snd.get(PSound.PRELOAD))));
-		sndroot.appendChild(createElement(doc,"compressed", //$NON-NLS-1$
-				boolToString((Boolean) snd.get(PSound.COMPRESSED))));
-		sndroot.appendChild(createElement(doc,"streamed", //$NON-NLS-1$
-				boolToString((Boolean) snd.get(PSound.STREAMED))));
-		sndroot.appendChild(createElement(doc,"uncompressOnLoad", //$NON-NLS-1$
-				boolToString((Boolean) snd.get(PSound.DECOMPRESS_ON_LOAD))));
-		sndroot.appendChild(createElement(doc,"effects",Integer.toString(snd.getEffects()))); //$NON-NLS-1$
-
-		sndroot.appendChild(createElement(doc,"data",fileName)); //$NON-NLS-1$
-		Util.writeFully(Util.getPOSIXPath(fname + "audio/" + fileName),snd.data); //$NON-NLS-1$
-
-		File file = new File(Util.getPOSIXPath(fname + resNode.getUserObject().toString() + ".sound.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
+		GMXStreamWriter out = openDocument(file);
+		try
+			{
+			out.startElement("sound"); //$NON-NLS-1$
+			// GMX uses double nested tags for volume, bit rate, sample rate, type, and bit depth
+			// There is an exception to this however. In every one of those tags after volume the
+			// nested tag is singular, where its parent is plural.
+			String fileType = snd.get(PSound.FILE_TYPE).toString();
+			String fileName = snd.getName() + fileType;
+			out.element("extension",fileType); //$NON-NLS-1$
+			out.element("origname","sound\\audio\\" + fileName); //$NON-NLS-1$
+			out.element("kind", //$NON-NLS-1$
+					ProjectFile.SOUND_KIND_CODE.get(snd.get(PSound.KIND)).toString());
+
+			out.startElement("volume"); //$NON-NLS-1$
+			out.element("volume", snd.get(PSound.VOLUME).toString()); //$NON-NLS-1$
+			out.endElement();
+
+			out.startElement("bitRates"); //$NON-NLS-1$
+			out.element("bitRate", //$NON-NLS-1$
+				snd.get(PSound.BIT_RATE).toString());
+			out.endElement();
+
+			out.startElement("sampleRates"); //$NON-NLS-1$
+			out.element("sampleRate", //$NON-NLS-1$
+					snd.get(PSound.SAMPLE_RATE).toString());
+			out.endElement();
+
+			out.startElement("types"); //$NON-NLS-1$
+			out.element("type", //$NON-NLS-1$
+				ProjectFile.SOUND_TYPE_CODE.get(snd.get(PSound.TYPE)).toString());
+			out.endElement();
+
+			out.startElement("bitDepths"); //$NON-NLS-1$
+			out.element("bitDepth", //$NON-NLS-1$
+					snd.get(PSound.BIT_DEPTH).toString());
+			out.endElement();
+
+			out.element("pan",snd.get(PSound.PAN).toString()); //$NON-NLS-1$
+			out.element("preload", //$NON-NLS-1$
+					boolToString((Boolean) snd.get(PSound.PRELOAD)));
+			out.element("compressed", //$NON-NLS-1$
+					boolToString((Boolean) snd.get(PSound.COMPRESSED)));
+			out.element("streamed", //$NON-NLS-1$
+					boolToString((Boolean) snd.get(PSound.STREAMED)));
+			out.element("uncompressOnLoad", //$NON-NLS-1$
+					boolToString((Boolean) snd.get(PSound.DECOMPRESS_ON_LOAD)));
+			out.element("effects",Integer.toString(snd.getEffects())); //$NON-NLS-1$
+
+			out.element("data",fileName); //$NON-NLS-1$
+			String audio = Util.getPOSIXPath(fname + "audio/" + fileName); //$NON-NLS-1$
+			snd.getData().writeTo(new File(audio));
+			out.endElement();
+			}
+		finally
+			{
+			out.close();
+			}
 
 		domRoot.appendChild(res);
 		}
@@ -714,49 +844,59 @@ public final class GMXFileWriter
 		Element res = dom.createElement("background"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\background\\"; //$NON-NLS-1$
 		res.setTextContent("background\\" + bkg.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + resNode.getUserObject().toString() + ".background.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,bkg,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File imagesFile = new File(Util.getPOSIXPath(fname + "\\images")); //$NON-NLS-1$
 		imagesFile.mkdirs();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element bkgroot = doc.createElement("background"); //$NON-NLS-1$
-		doc.appendChild(bkgroot);
-
-		bkgroot.appendChild(createElement(doc,"istileset", //$NON-NLS-1$
-				boolToString((Boolean) bkg.get(PBackground.USE_AS_TILESET))));
-		bkgroot.appendChild(createElement(doc,"tilewidth", //$NON-NLS-1$
-				bkg.get(PBackground.TILE_WIDTH).toString()));
-		bkgroot.appendChild(createElement(doc,"tileheight", //$NON-NLS-1$
-				bkg.get(PBackground.TILE_HEIGHT).toString()));
-		bkgroot.appendChild(createElement(doc,"tilexoff",bkg.get(PBackground.H_OFFSET).toString())); //$NON-NLS-1$
-		bkgroot.appendChild(createElement(doc,"tileyoff",bkg.get(PBackground.V_OFFSET).toString())); //$NON-NLS-1$
-		bkgroot.appendChild(createElement(doc,"tilehsep",bkg.get(PBackground.H_SEP).toString())); //$NON-NLS-1$
-		bkgroot.appendChild(createElement(doc,"tilevsep",bkg.get(PBackground.V_SEP).toString())); //$NON-NLS-1$
-		bkgroot.appendChild(createElement(doc,"HTile", //$NON-NLS-1$
-				boolToString((Boolean) bkg.get(PBackground.TILE_HORIZONTALLY))));
-		bkgroot.appendChild(createElement(doc,"VTile", //$NON-NLS-1$
-				boolToString((Boolean) bkg.get(PBackground.TILE_VERTICALLY))));
-
-		// TODO: Write texture groups
-
-		bkgroot.appendChild(createElement(doc,"For3D", //$NON-NLS-1$
-				boolToString((Boolean) bkg.get(PBackground.FOR3D))));
-
-		int width = bkg.getWidth(),
-		height = bkg.getHeight();
-
-		bkgroot.appendChild(createElement(doc,"width",Integer.toString(width))); //$NON-NLS-1$
-		bkgroot.appendChild(createElement(doc,"height",Integer.toString(height))); //$NON-NLS-1$
-
-		bkgroot.appendChild(createElement(doc,"data","images\\" + bkg.getName() + ".png")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-		if (width > 0 && height > 0)
+		GMXStreamWriter out = openDocument(file);
+		try
 			{
-			File outputfile = new File(Util.getPOSIXPath(fname + "images\\" + bkg.getName() + ".png")); //$NON-NLS-1$ //$NON-NLS-2$
-			ImageIO.write(bkg.getBackgroundImage(),"png",outputfile); //$NON-NLS-1$
+			out.startElement("background"); //$NON-NLS-1$
+			out.element("istileset", //$NON-NLS-1$
+					boolToString((Boolean) bkg.get(PBackground.USE_AS_TILESET)));
+			out.element("tilewidth", //$NON-NLS-1$
+					bkg.get(PBackground.TILE_WIDTH).toString());
+			out.element("tileheight", //$NON-NLS-1$
+					bkg.get(PBackground.TILE_HEIGHT).toString());
+			out.element("tilexoff",bkg.get(PBackground.H_OFFSET).toString()); //$NON-NLS-1$
+			out.element("tileyoff",bkg.get(PBackground.V_OFFSET).toString()); //$NON-NLS-1$
+			out.element("tilehsep",bkg.get(PBackground.H_SEP).toString()); //$NON-NLS-1$
+			out.element("tilevsep",bkg.get(PBackground.V_SEP).toString()); //$NON-NLS-1$
+			out.element("HTile", //$NON-NLS-1$
+					boolToString((Boolean) bkg.get(PBackground.TILE_HORIZONTALLY)));
+			out.element("VTile", //$NON-NLS-1$
+					boolToString((Boolean) bkg.get(PBackground.TILE_VERTICALLY)));
+
+			// TODO: Write texture groups
+
+			out.element("For3D", //$NON-NLS-1$
+					boolToString((Boolean) bkg.get(PBackground.FOR3D)));
+
+			int width = bkg.getWidth(),
+			height = bkg.getHeight();
+
+			out.element("width",Integer.toString(width)); //$NON-NLS-1$
+			out.element("height",Integer.toString(height)); //$NON-NLS-1$
+
+			out.element("data","images\\" + bkg.getName() + ".png"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			if (width > 0 && height > 0)
+				{
+				File outputfile = new File(Util.getPOSIXPath(fname + "images\\" + bkg.getName() + ".png")); //$NON-NLS-1$ //$NON-NLS-2$
+				LazyImage src = bkg.getBackgroundSource();
+				if (!isWritten(src,outputfile) && (src == null || !src.writeEncoded(outputfile)))
+					ImageIO.write(bkg.getBackgroundImage(),"png",outputfile); //$NON-NLS-1$
+				}
+			out.endElement();
+			}
+		finally
+			{
+			out.close();
 			}
-
-		File file = new File(Util.getPOSIXPath(fname + resNode.getUserObject().toString() + ".background.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
 
 		domRoot.appendChild(res);
 		}
@@ -771,34 +911,42 @@ public final class GMXFileWriter
 		Element res = dom.createElement("path"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\paths\\"; //$NON-NLS-1$
 		res.setTextContent("paths\\" + path.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + path.getName() + ".path.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,path,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File pathsFile = new File(Util.getPOSIXPath(f.getDirectory() + "/paths")); //$NON-NLS-1$
 		pathsFile.mkdir();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element pathroot = doc.createElement("path"); //$NON-NLS-1$
-		doc.appendChild(pathroot);
-
-		int kind = path.get(PPath.SMOOTH) ? 1 : 0;
-		pathroot.appendChild(createElement(doc,"kind",Integer.toString(kind))); //$NON-NLS-1$
-		int closed = path.get(PPath.CLOSED) ? -1 : 0;
-		pathroot.appendChild(createElement(doc,"closed",Integer.toString(closed))); //$NON-NLS-1$
-		pathroot.appendChild(createElement(doc,"precision",path.get(PPath.PRECISION).toString())); //$NON-NLS-1$
-		pathroot.appendChild(createElement(doc,"backroom", //$NON-NLS-1$
-				Integer.toString(getId((ResourceReference<?>)path.get(PPath.BACKGROUND_ROOM)))));
-		pathroot.appendChild(createElement(doc,"hsnap",path.get(PPath.SNAP_X).toString())); //$NON-NLS-1$
-		pathroot.appendChild(createElement(doc,"vsnap",path.get(PPath.SNAP_Y).toString())); //$NON-NLS-1$
-
-		Element rootpoint = doc.createElement("points"); //$NON-NLS-1$
-		pathroot.appendChild(rootpoint);
-		for (PathPoint p : path.points)
+		GMXStreamWriter out = openDocument(file);
+		try
 			{
-			rootpoint.appendChild(createElement(doc,"point", //$NON-NLS-1$
-					p.getX() + "," + p.getY() + ',' + p.getSpeed())); //$NON-NLS-1$
+			out.startElement("path"); //$NON-NLS-1$
+			int kind = path.get(PPath.SMOOTH) ? 1 : 0;
+			out.element("kind",Integer.toString(kind)); //$NON-NLS-1$
+			int closed = path.get(PPath.CLOSED) ? -1 : 0;
+			out.element("closed",Integer.toString(closed)); //$NON-NLS-1$
+			out.element("precision",path.get(PPath.PRECISION).toString()); //$NON-NLS-1$
+			out.element("backroom", //$NON-NLS-1$
+					Integer.toString(getId((ResourceReference<?>)path.get(PPath.BACKGROUND_ROOM))));
+			out.element("hsnap",path.get(PPath.SNAP_X).toString()); //$NON-NLS-1$
+			out.element("vsnap",path.get(PPath.SNAP_Y).toString()); //$NON-NLS-1$
+
+			out.startElement("points"); //$NON-NLS-1$
+			for (PathPoint p : path.points)
+				{
+				out.element("point", //$NON-NLS-1$
+						p.getX() + "," + p.getY() + ',' + p.getSpeed()); //$NON-NLS-1$
+				}
+			out.endElement();
+			out.endElement();
+			}
+		finally
+			{
+			out.close();
 			}
-
-		File file = new File(Util.getPOSIXPath(fname + path.getName() + ".path.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
 
 		domRoot.appendChild(res);
 		}
@@ -813,13 +961,18 @@ public final class GMXFileWriter
 		Element res = dom.createElement("script"); //$NON-NLS-1$
 		String fname = "scripts\\" + scr.getName() + ".gml"; //$NON-NLS-1$ //$NON-NLS-2$
 		res.setTextContent(fname);
+		File codeFile = new File(Util.getPOSIXPath(f.getDirectory() + '/' + Util.getPOSIXPath(fname)));
+		if (!needsWrite(c,scr,codeFile))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File file = new File(Util.getPOSIXPath(f.getDirectory() + "/scripts")); //$NON-NLS-1$
 		file.mkdir();
 		Writer out = null;
 		try
 			{
-			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
-					Util.getPOSIXPath(f.getDirectory() + '/' + Util.getPOSIXPath(fname))),"UTF-8")); //$NON-NLS-1$
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(codeFile),"UTF-8")); //$NON-NLS-1$
 			out.write((String) scr.properties.get(PScript.CODE));
 			}
 		finally
@@ -841,13 +994,18 @@ public final class GMXFileWriter
 		String fname = "shaders\\" + shr.getName() + ".shader"; //$NON-NLS-1$ //$NON-NLS-2$
 		res.setTextContent(fname);
 		res.setAttribute("type",shr.properties.get(PShader.TYPE).toString()); //$NON-NLS-1$
+		File codeFile = new File(Util.getPOSIXPath(f.getDirectory() + '/' + fname));
+		if (!needsWrite(c,shr,codeFile))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File file = new File(Util.getPOSIXPath(f.getDirectory() + "/shaders")); //$NON-NLS-1$
 		file.mkdir();
 		Writer out = null;
 		try
 			{
-			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
-					Util.getPOSIXPath(f.getDirectory() + '/' + fname)),"UTF-8"));
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(codeFile),"UTF-8"));
 			String code = shr.properties.get(PShader.VERTEX)
 					+ ('\n' + GMXFileReader.STUPID_SHADER_MARKER)
 					+ shr.properties.get(PShader.FRAGMENT);
@@ -871,65 +1029,71 @@ public final class GMXFileWriter
 		Element res = dom.createElement("font"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\fonts\\"; //$NON-NLS-1$
 		res.setTextContent("fonts\\" + fnt.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + fnt.getName() + ".font.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,fnt,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File fontsFile = new File(Util.getPOSIXPath(fname));
 		fontsFile.mkdirs();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element fntroot = doc.createElement("font"); //$NON-NLS-1$
-		doc.appendChild(fntroot);
-
-		fntroot.appendChild(createElement(doc,"name",fnt.get(PFont.FONT_NAME).toString())); //$NON-NLS-1$
-		fntroot.appendChild(createElement(doc,"size",fnt.get(PFont.SIZE).toString())); //$NON-NLS-1$
-		fntroot.appendChild(createElement(doc,"bold",boolToString((Boolean) fnt.get(PFont.BOLD)))); //$NON-NLS-1$
-		fntroot.appendChild(createElement(doc,"italic", //$NON-NLS-1$
-				boolToString((Boolean) fnt.get(PFont.ITALIC))));
-		fntroot.appendChild(createElement(doc,"charset",fnt.get(PFont.CHARSET).toString())); //$NON-NLS-1$
-		fntroot.appendChild(createElement(doc,"aa",fnt.get(PFont.ANTIALIAS).toString())); //$NON-NLS-1$
-
-		Element rangeroot = doc.createElement("ranges"); //$NON-NLS-1$
-		fntroot.appendChild(rangeroot);
-		for (CharacterRange cr : fnt.characterRanges)
+		GMXStreamWriter out = openDocument(file);
+		try
 			{
-			rangeroot.appendChild(createElement(
-					doc,
-					"range0", //$NON-NLS-1$
-					cr.properties.get(PCharacterRange.RANGE_MIN) + "," //$NON-NLS-1$
-							+ cr.properties.get(PCharacterRange.RANGE_MAX)));
-			}
+			out.startElement("font"); //$NON-NLS-1$
+			out.element("name",fnt.get(PFont.FONT_NAME).toString()); //$NON-NLS-1$
+			out.element("size",fnt.get(PFont.SIZE).toString()); //$NON-NLS-1$
+			out.element("bold",boolToString((Boolean) fnt.get(PFont.BOLD))); //$NON-NLS-1$
+			out.element("italic", //$NON-NLS-1$
+					boolToString((Boolean) fnt.get(PFont.ITALIC)));
+			out.element("charset",fnt.get(PFont.CHARSET).toString()); //$NON-NLS-1$
+			out.element("aa",fnt.get(PFont.ANTIALIAS).toString()); //$NON-NLS-1$
+
+			out.startElement("ranges"); //$NON-NLS-1$
+			for (CharacterRange cr : fnt.characterRanges)
+				{
+				out.element("range0", //$NON-NLS-1$
+						cr.properties.get(PCharacterRange.RANGE_MIN) + "," //$NON-NLS-1$
+								+ cr.properties.get(PCharacterRange.RANGE_MAX));
+				}
+			out.endElement();
 
-		Element glyphroot = doc.createElement("glyphs"); //$NON-NLS-1$
-		fntroot.appendChild(glyphroot);
-		for (GlyphMetric gm : fnt.glyphMetrics)
-			{
-			Element gelement = doc.createElement("glyph"); //$NON-NLS-1$
-			gelement.setAttribute("character",gm.properties.get(PGlyphMetric.CHARACTER).toString()); //$NON-NLS-1$
-			gelement.setAttribute("x",gm.properties.get(PGlyphMetric.X).toString()); //$NON-NLS-1$
-			gelement.setAttribute("y",gm.properties.get(PGlyphMetric.Y).toString()); //$NON-NLS-1$
-			gelement.setAttribute("w",gm.properties.get(PGlyphMetric.W).toString()); //$NON-NLS-1$
-			gelement.setAttribute("h",gm.properties.get(PGlyphMetric.H).toString()); //$NON-NLS-1$
-			gelement.setAttribute("shift",gm.properties.get(PGlyphMetric.SHIFT).toString()); //$NON-NLS-1$
-			gelement.setAttribute("offset",gm.properties.get(PGlyphMetric.OFFSET).toString()); //$NON-NLS-1$
-			glyphroot.appendChild(gelement);
-			}
+			out.startElement("glyphs"); //$NON-NLS-1$
+			for (GlyphMetric gm : fnt.glyphMetrics)
+				{
+				out.startElement("glyph"); //$NON-NLS-1$
+				out.attribute("character",gm.properties.get(PGlyphMetric.CHARACTER).toString()); //$NON-NLS-1$
+				out.attribute("x",gm.properties.get(PGlyphMetric.X).toString()); //$NON-NLS-1$
+				out.attribute("y",gm.properties.get(PGlyphMetric.Y).toString()); //$NON-NLS-1$
+				out.attribute("w",gm.properties.get(PGlyphMetric.W).toString()); //$NON-NLS-1$
+				out.attribute("h",gm.properties.get(PGlyphMetric.H).toString()); //$NON-NLS-1$
+				out.attribute("shift",gm.properties.get(PGlyphMetric.SHIFT).toString()); //$NON-NLS-1$
+				out.attribute("offset",gm.properties.get(PGlyphMetric.OFFSET).toString()); //$NON-NLS-1$
+				out.endElement();
+				}
+			out.endElement();
 
-		// TODO: Move glyph renderer from the plugin to LGM and write glyphs here
-		fntroot.appendChild(createElement(doc,"image",fnt.getName() + ".png")); //$NON-NLS-1$ //$NON-NLS-2$
-		//File outputfile = new File(getUnixPath(fname + fnt.getName() + ".png"));
-		/*
-		try
-			{
-			ImageIO.write(fnt.getBackgroundImage(), "png", outputfile);
+			// TODO: Move glyph renderer from the plugin to LGM and write glyphs here
+			out.element("image",fnt.getName() + ".png"); //$NON-NLS-1$ //$NON-NLS-2$
+			//File outputfile = new File(getUnixPath(fname + fnt.getName() + ".png"));
+			/*
+			try
+				{
+				ImageIO.write(fnt.getBackgroundImage(), "png", outputfile);
+				}
+			catch (IOException e)
+				{
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+				}
+			*/
+			out.endElement();
 			}
-		catch (IOException e)
+		finally
 			{
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			out.close();
 			}
-		*/
-
-		File file = new File(Util.getPOSIXPath(fname + fnt.getName() + ".font.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
 
 		domRoot.appendChild(res);
 		}
@@ -944,26 +1108,34 @@ public final class GMXFileWriter
 		Element res = dom.createElement("timeline"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\timelines\\"; //$NON-NLS-1$
 		res.setTextContent("timelines\\" + timeline.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + timeline.getName() + ".timeline.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,timeline,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File timelinesFile = new File(Util.getPOSIXPath(f.getDirectory() + "/timelines")); //$NON-NLS-1$
 		timelinesFile.mkdir();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element tmlroot = doc.createElement("timeline"); //$NON-NLS-1$
-		doc.appendChild(tmlroot);
-
-		for (Moment mom : timeline.moments)
+		GMXStreamWriter out = openDocument(file);
+		try
 			{
-			Element entroot = doc.createElement("entry"); //$NON-NLS-1$
-			tmlroot.appendChild(entroot);
-			entroot.appendChild(createElement(doc,"step",Integer.toString(mom.stepNo))); //$NON-NLS-1$
-			Element evtroot = doc.createElement("event"); //$NON-NLS-1$
-			entroot.appendChild(evtroot);
-			writeActions(doc,evtroot,mom);
+			out.startElement("timeline"); //$NON-NLS-1$
+			for (Moment mom : timeline.moments)
+				{
+				out.startElement("entry"); //$NON-NLS-1$
+				out.element("step",Integer.toString(mom.stepNo)); //$NON-NLS-1$
+				out.startElement("event"); //$NON-NLS-1$
+				writeActions(out,mom);
+				out.endElement();
+				out.endElement();
+				}
+			out.endElement();
+			}
+		finally
+			{
+			out.close();
 			}
-
-		File file = new File(Util.getPOSIXPath(fname + timeline.getName() + ".timeline.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
 
 		domRoot.appendChild(res);
 		}
@@ -978,84 +1150,93 @@ public final class GMXFileWriter
 		Element res = dom.createElement("object"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\objects\\"; //$NON-NLS-1$
 		res.setTextContent("objects\\" + object.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + object.getName() + ".object.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,object,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File objectsFile = new File(Util.getPOSIXPath(f.getDirectory() + "/objects")); //$NON-NLS-1$
 		objectsFile.mkdir();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element objroot = doc.createElement("object"); //$NON-NLS-1$
-		doc.appendChild(objroot);
-		objroot.appendChild(createElement(doc,"spriteName", //$NON-NLS-1$
-				getName((ResourceReference<?>)object.get(PGmObject.SPRITE))));
-		objroot.appendChild(createElement(doc,"solid", //$NON-NLS-1$
-				boolToString((Boolean) object.get(PGmObject.SOLID))));
-		objroot.appendChild(createElement(doc,"visible", //$NON-NLS-1$
-				boolToString((Boolean) object.get(PGmObject.VISIBLE))));
-		objroot.appendChild(createElement(doc,"depth",object.get(PGmObject.DEPTH).toString())); //$NON-NLS-1$
-		objroot.appendChild(createElement(doc,"persistent", //$NON-NLS-1$
-				boolToString((Boolean) object.get(PGmObject.PERSISTENT))));
-		objroot.appendChild(createElement(doc,"maskName", //$NON-NLS-1$
-				getName((ResourceReference<?>)object.get(PGmObject.MASK))));
-		objroot.appendChild(createElement(doc,"parentName", //$NON-NLS-1$
-				getName((ResourceReference<?>)object.get(PGmObject.PARENT))));
-
-		Element evtroot = doc.createElement("events"); //$NON-NLS-1$
-		for (int i = 0; i < object.mainEvents.size(); i++)
+		GMXStreamWriter out = openDocument(file);
+		try
 			{
-			MainEvent me = object.mainEvents.get(i);
-			for (int k = me.events.size(); k > 0; k--)
+			out.startElement("object"); //$NON-NLS-1$
+			out.element("spriteName", //$NON-NLS-1$
+					getName((ResourceReference<?>)object.get(PGmObject.SPRITE)));
+			out.element("solid", //$NON-NLS-1$
+					boolToString((Boolean) object.get(PGmObject.SOLID)));
+			out.element("visible", //$NON-NLS-1$
+					boolToString((Boolean) object.get(PGmObject.VISIBLE)));
+			out.element("depth",object.get(PGmObject.DEPTH).toString()); //$NON-NLS-1$
+			out.element("persistent", //$NON-NLS-1$
+					boolToString((Boolean) object.get(PGmObject.PERSISTENT)));
+			out.element("maskName", //$NON-NLS-1$
+					getName((ResourceReference<?>)object.get(PGmObject.MASK)));
+			out.element("parentName", //$NON-NLS-1$
+					getName((ResourceReference<?>)object.get(PGmObject.PARENT)));
+
+			out.startElement("events"); //$NON-NLS-1$
+			for (int i = 0; i < object.mainEvents.size(); i++)
 				{
-				Event ev = me.events.get(k - 1);
-				Element evtelement = doc.createElement("event"); //$NON-NLS-1$
-				evtelement.setAttribute("eventtype",Integer.toString(ev.mainId)); //$NON-NLS-1$
-				if (ev.mainId == MainEvent.EV_COLLISION)
-					{
-					evtelement.setAttribute("ename", //$NON-NLS-1$
-							getName((ResourceReference<GmObject>)ev.other));
-					}
-				else
+				MainEvent me = object.mainEvents.get(i);
+				for (int k = me.events.size(); k > 0; k--)
 					{
-					evtelement.setAttribute("enumb",Integer.toString(ev.id)); //$NON-NLS-1$
+					Event ev = me.events.get(k - 1);
+					out.startElement("event"); //$NON-NLS-1$
+					out.attribute("eventtype",Integer.toString(ev.mainId)); //$NON-NLS-1$
+					if (ev.mainId == MainEvent.EV_COLLISION)
+						{
+						out.attribute("ename", //$NON-NLS-1$
+								getName((ResourceReference<GmObject>)ev.other));
+						}
+					else
+						{
+						out.attribute("enumb",Integer.toString(ev.id)); //$NON-NLS-1$
+						}
+					writeActions(out,ev);
+					out.endElement();
 					}
-				evtroot.appendChild(evtelement);
-				writeActions(doc,evtelement,ev);
 				}
+			out.endElement();
+
+			// Physics Properties
+			out.element("PhysicsObject", //$NON-NLS-1$
+					boolToString((Boolean) object.get(PGmObject.PHYSICS_OBJECT)));
+			out.element("PhysicsObjectSensor", //$NON-NLS-1$
+					boolToString((Boolean) object.get(PGmObject.PHYSICS_SENSOR)));
+			out.element("PhysicsObjectShape", //$NON-NLS-1$
+					ProjectFile.SHAPE_CODE.get(object.get(PGmObject.PHYSICS_SHAPE)).toString());
+			out.element("PhysicsObjectDensity", //$NON-NLS-1$
+					Double.toString((Double) object.get(PGmObject.PHYSICS_DENSITY)));
+			out.element("PhysicsObjectRestitution", //$NON-NLS-1$
+					Double.toString((Double) object.get(PGmObject.PHYSICS_RESTITUTION)));
+			out.element("PhysicsObjectGroup", //$NON-NLS-1$
+					Integer.toString((Integer) object.get(PGmObject.PHYSICS_GROUP)));
+			out.element("PhysicsObjectLinearDamping", //$NON-NLS-1$
+					Double.toString((Double) object.get(PGmObject.PHYSICS_DAMPING_LINEAR)));
+			out.element("PhysicsObjectAngularDamping", //$NON-NLS-1$
+					Double.toString((Double) object.get(PGmObject.PHYSICS_DAMPING_ANGULAR)));
+			out.element("PhysicsObjectFriction", //$NON-NLS-1$
+					Double.toString((Double) object.get(PGmObject.PHYSICS_FRICTION)));
+			out.element("PhysicsObjectAwake", //$NON-NLS-1$
+					boolToString((Boolean) object.get(PGmObject.PHYSICS_AWAKE)));
+			out.element("PhysicsObjectKinematic", //$NON-NLS-1$
+					boolToString((Boolean) object.get(PGmObject.PHYSICS_KINEMATIC)));
+
+			out.startElement("PhysicsShapePoints"); //$NON-NLS-1$
+			for (ShapePoint point : object.shapePoints)
+				{
+				out.element("point",point.getX() + "," + point.getY()); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			out.endElement();
+			out.endElement();
 			}
-		objroot.appendChild(evtroot);
-
-		// Physics Properties
-		objroot.appendChild(createElement(doc,"PhysicsObject", //$NON-NLS-1$
-				boolToString((Boolean) object.get(PGmObject.PHYSICS_OBJECT))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectSensor", //$NON-NLS-1$
-				boolToString((Boolean) object.get(PGmObject.PHYSICS_SENSOR))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectShape", //$NON-NLS-1$
-				ProjectFile.SHAPE_CODE.get(object.get(PGmObject.PHYSICS_SHAPE)).toString()));
-		objroot.appendChild(createElement(doc,"PhysicsObjectDensity", //$NON-NLS-1$
-				Double.toString((Double) object.get(PGmObject.PHYSICS_DENSITY))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectRestitution", //$NON-NLS-1$
-				Double.toString((Double) object.get(PGmObject.PHYSICS_RESTITUTION))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectGroup", //$NON-NLS-1$
-				Integer.toString((Integer) object.get(PGmObject.PHYSICS_GROUP))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectLinearDamping", //$NON-NLS-1$
-				Double.toString((Double) object.get(PGmObject.PHYSICS_DAMPING_LINEAR))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectAngularDamping", //$NON-NLS-1$
-				Double.toString((Double) object.get(PGmObject.PHYSICS_DAMPING_ANGULAR))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectFriction", //$NON-NLS-1$
-				Double.toString((Double) object.get(PGmObject.PHYSICS_FRICTION))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectAwake", //$NON-NLS-1$
-				boolToString((Boolean) object.get(PGmObject.PHYSICS_AWAKE))));
-		objroot.appendChild(createElement(doc,"PhysicsObjectKinematic", //$NON-NLS-1$
-				boolToString((Boolean) object.get(PGmObject.PHYSICS_KINEMATIC))));
-
-		Element pointsroot = doc.createElement("PhysicsShapePoints"); //$NON-NLS-1$
-		for (ShapePoint point : object.shapePoints)
+		finally
 			{
-			pointsroot.appendChild(createElement(doc,"point",point.getX() + "," + point.getY())); //$NON-NLS-1$ //$NON-NLS-2$
+			out.close();
 			}
-		objroot.appendChild(pointsroot);
-
-		File file = new File(Util.getPOSIXPath(fname + object.getName() + ".object.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
 
 		domRoot.appendChild(res);
 		}
@@ -1070,186 +1251,195 @@ public final class GMXFileWriter
 		Element res = dom.createElement("room"); //$NON-NLS-1$
 		String fname = f.getDirectory() + "\\rooms\\"; //$NON-NLS-1$
 		res.setTextContent("rooms\\" + room.getName()); //$NON-NLS-1$
+		File file = new File(Util.getPOSIXPath(fname + room.getName() + ".room.gmx")); //$NON-NLS-1$
+		if (!needsWrite(c,room,file))
+			{
+			domRoot.appendChild(res);
+			return;
+			}
 		File roomsFile = new File(Util.getPOSIXPath(f.getDirectory() + "/rooms")); //$NON-NLS-1$
 		roomsFile.mkdir();
 
-		Document doc = documentBuilder.newDocument();
-
-		Element roomroot = doc.createElement("room"); //$NON-NLS-1$
-		doc.appendChild(roomroot);
-
-		roomroot.appendChild(createElement(doc,"caption",room.get(PRoom.CAPTION).toString())); //$NON-NLS-1$
-		roomroot.appendChild(createElement(doc,"width",room.get(PRoom.WIDTH).toString())); //$NON-NLS-1$
-		roomroot.appendChild(createElement(doc,"height",room.get(PRoom.HEIGHT).toString())); //$NON-NLS-1$
-		roomroot.appendChild(createElement(doc,"hsnap",room.get(PRoom.SNAP_X).toString())); //$NON-NLS-1$
-		roomroot.appendChild(createElement(doc,"vsnap",room.get(PRoom.SNAP_Y).toString())); //$NON-NLS-1$
-		roomroot.appendChild(createElement(doc,"isometric", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.ISOMETRIC))));
-		roomroot.appendChild(createElement(doc,"speed",room.get(PRoom.SPEED).toString())); //$NON-NLS-1$
-		roomroot.appendChild(createElement(doc,"persistent", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.PERSISTENT))));
-		roomroot.appendChild(createElement(doc,"colour", //$NON-NLS-1$
-				Integer.toString(Util.getGmColor((Color) room.get(PRoom.BACKGROUND_COLOR)))));
-		roomroot.appendChild(createElement(doc,"showcolour", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.DRAW_BACKGROUND_COLOR))));
-		roomroot.appendChild(createElement(doc,"code",room.get(PRoom.CREATION_CODE).toString())); //$NON-NLS-1$
-		roomroot.appendChild(createElement(doc,"enableViews", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.VIEWS_ENABLED))));
-		roomroot.appendChild(createElement(doc,"clearViewBackground", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.VIEWS_CLEAR))));
-
-		// Write the maker settings, or basically the settings of the editor.
-		Element mkeroot = doc.createElement("makerSettings"); //$NON-NLS-1$
-		mkeroot.appendChild(createElement(doc,"isSet", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.REMEMBER_WINDOW_SIZE))));
-		mkeroot.appendChild(createElement(doc,"w",room.get(PRoom.EDITOR_WIDTH).toString())); //$NON-NLS-1$
-		mkeroot.appendChild(createElement(doc,"h",room.get(PRoom.EDITOR_HEIGHT).toString())); //$NON-NLS-1$
-		mkeroot.appendChild(createElement(doc,"showGrid", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.SHOW_GRID))));
-		mkeroot.appendChild(createElement(doc,"showObjects", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.SHOW_OBJECTS))));
-		mkeroot.appendChild(createElement(doc,"showTiles", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.SHOW_TILES))));
-		mkeroot.appendChild(createElement(doc,"showBackgrounds", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.SHOW_BACKGROUNDS))));
-		mkeroot.appendChild(createElement(doc,"showForegrounds", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.SHOW_FOREGROUNDS))));
-		mkeroot.appendChild(createElement(doc,"showViews", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.SHOW_VIEWS))));
-		mkeroot.appendChild(createElement(doc,"deleteUnderlyingObj", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.DELETE_UNDERLYING_OBJECTS))));
-		mkeroot.appendChild(createElement(doc,"deleteUnderlyingTiles", //$NON-NLS-1$
-				boolToString((Boolean) room.get(PRoom.DELETE_UNDERLYING_TILES))));
-		mkeroot.appendChild(createElement(doc,"page",room.get(PRoom.CURRENT_TAB).toString())); //$NON-NLS-1$
-		mkeroot.appendChild(createElement(doc,"xoffset",room.get(PRoom.SCROLL_BAR_X).toString())); //$NON-NLS-1$
-		mkeroot.appendChild(createElement(doc,"yoffset",room.get(PRoom.SCROLL_BAR_Y).toString())); //$NON-NLS-1$
-		roomroot.appendChild(mkeroot);
-
-		// Write Backgrounds
-		Element backroot = doc.createElement("backgrounds"); //$NON-NLS-1$
-		roomroot.appendChild(backroot);
-		for (BackgroundDef back : room.backgroundDefs)
+		GMXStreamWriter out = openDocument(file);
+		try
 			{
-			PropertyMap<PBackgroundDef> props = back.properties;
-			Element bckelement = doc.createElement("background"); //$NON-NLS-1$
-			backroot.appendChild(bckelement);
-
-			bckelement.setAttribute("visible", //$NON-NLS-1$
-					boolToString((Boolean) props.get(PBackgroundDef.VISIBLE)));
-			bckelement.setAttribute("foreground", //$NON-NLS-1$
-					boolToString((Boolean) props.get(PBackgroundDef.FOREGROUND)));
-			bckelement.setAttribute("name", //$NON-NLS-1$
-					getName((ResourceReference<?>)props.get(PBackgroundDef.BACKGROUND),""));
-			bckelement.setAttribute("x",Integer.toString((Integer) props.get(PBackgroundDef.X))); //$NON-NLS-1$
-			bckelement.setAttribute("y",Integer.toString((Integer) props.get(PBackgroundDef.Y))); //$NON-NLS-1$
-			bckelement.setAttribute("htiled", //$NON-NLS-1$
-					boolToString((Boolean) props.get(PBackgroundDef.TILE_HORIZ)));
-			bckelement.setAttribute("vtiled", //$NON-NLS-1$
-					boolToString((Boolean) props.get(PBackgroundDef.TILE_VERT)));
-			bckelement.setAttribute("hspeed", //$NON-NLS-1$
-					Integer.toString((Integer) props.get(PBackgroundDef.H_SPEED)));
-			bckelement.setAttribute("vspeed", //$NON-NLS-1$
-					Integer.toString((Integer) props.get(PBackgroundDef.V_SPEED)));
-			bckelement.setAttribute("stretch", //$NON-NLS-1$
-					boolToString((Boolean) props.get(PBackgroundDef.STRETCH)));
-			}
+			out.startElement("room"); //$NON-NLS-1$
+			out.element("caption",room.get(PRoom.CAPTION).toString()); //$NON-NLS-1$
+			out.element("width",room.get(PRoom.WIDTH).toString()); //$NON-NLS-1$
+			out.element("height",room.get(PRoom.HEIGHT).toString()); //$NON-NLS-1$
+			out.element("hsnap",room.get(PRoom.SNAP_X).toString()); //$NON-NLS-1$
+			out.element("vsnap",room.get(PRoom.SNAP_Y).toString()); //$NON-NLS-1$
+			out.element("isometric", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.ISOMETRIC)));
+			out.element("speed",room.get(PRoom.SPEED).toString()); //$NON-NLS-1$
+			out.element("persistent", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.PERSISTENT)));
+			out.element("colour", //$NON-NLS-1$
+					Integer.toString(Util.getGmColor((Color) room.get(PRoom.BACKGROUND_COLOR))));
+			out.element("showcolour", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.DRAW_BACKGROUND_COLOR)));
+			out.element("code",room.get(PRoom.CREATION_CODE).toString()); //$NON-NLS-1$
+			out.element("enableViews", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.VIEWS_ENABLED)));
+			out.element("clearViewBackground", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.VIEWS_CLEAR)));
+
+			// Write the maker settings, or basically the settings of the editor.
+			out.startElement("makerSettings"); //$NON-NLS-1$
+			out.element("isSet", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.REMEMBER_WINDOW_SIZE)));
+			out.element("w",room.get(PRoom.EDITOR_WIDTH).toString()); //$NON-NLS-1$
+			out.element("h",room.get(PRoom.EDITOR_HEIGHT).toString()); //$NON-NLS-1$
+			out.element("showGrid", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.SHOW_GRID)));
+			out.element("showObjects", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.SHOW_OBJECTS)));
+			out.element("showTiles", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.SHOW_TILES)));
+			out.element("showBackgrounds", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.SHOW_BACKGROUNDS)));
+			out.element("showForegrounds", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.SHOW_FOREGROUNDS)));
+			out.element("showViews", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.SHOW_VIEWS)));
+			out.element("deleteUnderlyingObj", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.DELETE_UNDERLYING_OBJECTS)));
+			out.element("deleteUnderlyingTiles", //$NON-NLS-1$
+					boolToString((Boolean) room.get(PRoom.DELETE_UNDERLYING_TILES)));
+			out.element("page",room.get(PRoom.CURRENT_TAB).toString()); //$NON-NLS-1$
+			out.element("xoffset",room.get(PRoom.SCROLL_BAR_X).toString()); //$NON-NLS-1$
+			out.element("yoffset",room.get(PRoom.SCROLL_BAR_Y).toString()); //$NON-NLS-1$
+			out.endElement();
+
+			// Write Backgrounds
+			out.startElement("backgrounds"); //$NON-NLS-1$
+			for (BackgroundDef back : room.backgroundDefs)
+				{
+				PropertyMap<PBackgroundDef> props = back.properties;
+				out.startElement("background"); //$NON-NLS-1$
+
+				out.attribute("visible", //$NON-NLS-1$
+						boolToString((Boolean) props.get(PBackgroundDef.VISIBLE)));
+				out.attribute("foreground", //$NON-NLS-1$
+						boolToString((Boolean) props.get(PBackgroundDef.FOREGROUND)));
+				out.attribute("name", //$NON-NLS-1$
+						getName((ResourceReference<?>)props.get(PBackgroundDef.BACKGROUND),""));
+				out.attribute("x",Integer.toString((Integer) props.get(PBackgroundDef.X))); //$NON-NLS-1$
+				out.attribute("y",Integer.toString((Integer) props.get(PBackgroundDef.Y))); //$NON-NLS-1$
+				out.attribute("htiled", //$NON-NLS-1$
+						boolToString((Boolean) props.get(PBackgroundDef.TILE_HORIZ)));
+				out.attribute("vtiled", //$NON-NLS-1$
+						boolToString((Boolean) props.get(PBackgroundDef.TILE_VERT)));
+				out.attribute("hspeed", //$NON-NLS-1$
+						Integer.toString((Integer) props.get(PBackgroundDef.H_SPEED)));
+				out.attribute("vspeed", //$NON-NLS-1$
+						Integer.toString((Integer) props.get(PBackgroundDef.V_SPEED)));
+				out.attribute("stretch", //$NON-NLS-1$
+						boolToString((Boolean) props.get(PBackgroundDef.STRETCH)));
+				out.endElement();
+				}
+			out.endElement();
 
-		// Write Views
-		Element viewroot = doc.createElement("views"); //$NON-NLS-1$
-		roomroot.appendChild(viewroot);
-		for (View view : room.views)
-			{
-			PropertyMap<PView> props = view.properties;
-			Element vwelement = doc.createElement("view"); //$NON-NLS-1$
-			viewroot.appendChild(vwelement);
-
-			vwelement.setAttribute("visible",boolToString((Boolean) props.get(PView.VISIBLE))); //$NON-NLS-1$
-			vwelement.setAttribute("objName", //$NON-NLS-1$
-					getName((ResourceReference<?>) props.get(PView.OBJECT)));
-			vwelement.setAttribute("xview",Integer.toString((Integer) props.get(PView.VIEW_X))); //$NON-NLS-1$
-			vwelement.setAttribute("yview",Integer.toString((Integer) props.get(PView.VIEW_Y))); //$NON-NLS-1$
-			vwelement.setAttribute("wview",Integer.toString((Integer) props.get(PView.VIEW_W))); //$NON-NLS-1$
-			vwelement.setAttribute("hview",Integer.toString((Integer) props.get(PView.VIEW_H))); //$NON-NLS-1$
-			vwelement.setAttribute("xport",Integer.toString((Integer) props.get(PView.PORT_X))); //$NON-NLS-1$
-			vwelement.setAttribute("yport",Integer.toString((Integer) props.get(PView.PORT_Y))); //$NON-NLS-1$
-			vwelement.setAttribute("wport",Integer.toString((Integer) props.get(PView.PORT_W))); //$NON-NLS-1$
-			vwelement.setAttribute("hport",Integer.toString((Integer) props.get(PView.PORT_H))); //$NON-NLS-1$
-			vwelement.setAttribute("hborder",Integer.toString((Integer) props.get(PView.BORDER_H))); //$NON-NLS-1$
-			vwelement.setAttribute("vborder",Integer.toString((Integer) props.get(PView.BORDER_V))); //$NON-NLS-1$
-			vwelement.setAttribute("hspeed",Integer.toString((Integer) props.get(PView.SPEED_H))); //$NON-NLS-1$
-			vwelement.setAttribute("vspeed",Integer.toString((Integer) props.get(PView.SPEED_V))); //$NON-NLS-1$
-			}
+			// Write Views
+			out.startElement("views"); //$NON-NLS-1$
+			for (View view : room.views)
+				{
+				PropertyMap<PView> props = view.properties;
+				out.startElement("view"); //$NON-NLS-1$
+
+				out.attribute("visible",boolToString((Boolean) props.get(PView.VISIBLE))); //$NON-NLS-1$
+				out.attribute("objName", //$NON-NLS-1$
+						getName((ResourceReference<?>) props.get(PView.OBJECT)));
+				out.attribute("xview",Integer.toString((Integer) props.get(PView.VIEW_X))); //$NON-NLS-1$
+				out.attribute("yview",Integer.toString((Integer) props.get(PView.VIEW_Y))); //$NON-NLS-1$
+				out.attribute("wview",Integer.toString((Integer) props.get(PView.VIEW_W))); //$NON-NLS-1$
+				out.attribute("hview",Integer.toString((Integer) props.get(PView.VIEW_H))); //$NON-NLS-1$
+				out.attribute("xport",Integer.toString((Integer) props.get(PView.PORT_X))); //$NON-NLS-1$
+				out.attribute("yport",Integer.toString((Integer) props.get(PView.PORT_Y))); //$NON-NLS-1$
+				out.attribute("wport",Integer.toString((Integer) props.get(PView.PORT_W))); //$NON-NLS-1$
+				out.attribute("hport",Integer.toString((Integer) props.get(PView.PORT_H))); //$NON-NLS-1$
+				out.attribute("hborder",Integer.toString((Integer) props.get(PView.BORDER_H))); //$NON-NLS-1$
+				out.attribute("vborder",Integer.toString((Integer) props.get(PView.BORDER_V))); //$NON-NLS-1$
+				out.attribute("hspeed",Integer.toString((Integer) props.get(PView.SPEED_H))); //$NON-NLS-1$
+				out.attribute("vspeed",Integer.toString((Integer) props.get(PView.SPEED_V))); //$NON-NLS-1$
+				out.endElement();
+				}
+			out.endElement();
 
-		// Write instances
-		Element insroot = doc.createElement("instances"); //$NON-NLS-1$
-		roomroot.appendChild(insroot);
-		for (Instance in : room.instances)
-			{
-			Element inselement = doc.createElement("instance"); //$NON-NLS-1$
-			insroot.appendChild(inselement);
-			inselement.setAttribute("objName", //$NON-NLS-1$
-					getName((ResourceReference<?>) in.properties.get(PInstance.OBJECT)));
-			inselement.setAttribute("x",Integer.toString(in.getPosition().x)); //$NON-NLS-1$
-			inselement.setAttribute("y",Integer.toString(in.getPosition().y)); //$NON-NLS-1$
-			inselement.setAttribute("name",in.getName()); //$NON-NLS-1$
-			inselement.setAttribute("id",Integer.toString(in.getID())); //$NON-NLS-1$
-			inselement.setAttribute("locked",boolToString(in.isLocked())); //$NON-NLS-1$
-			inselement.setAttribute("code",in.getCreationCode()); //$NON-NLS-1$
-			inselement.setAttribute("scaleX",Double.toString(in.getScale().getX())); //$NON-NLS-1$
-			inselement.setAttribute("scaleY",Double.toString(in.getScale().getY())); //$NON-NLS-1$
-			String color = Long.toString(Util.getInstanceColorWithAlpha(in.getColor(),in.getAlpha()));
-			inselement.setAttribute("colour",color); // default white //$NON-NLS-1$
-			inselement.setAttribute("rotation",Double.toString(in.getRotation())); //$NON-NLS-1$
-			}
+			// Write instances
+			out.startElement("instances"); //$NON-NLS-1$
+			for (Instance in : room.instances)
+				{
+				out.startElement("instance"); //$NON-NLS-1$
+				out.attribute("objName", //$NON-NLS-1$
+						getName(in.getObject()));
+				out.attribute("x",Integer.toString(in.getPosition().x)); //$NON-NLS-1$
+				out.attribute("y",Integer.toString(in.getPosition().y)); //$NON-NLS-1$
+				out.attribute("name",in.getName()); //$NON-NLS-1$
+				out.attribute("id",Integer.toString(in.getID())); //$NON-NLS-1$
+				out.attribute("locked",boolToString(in.isLocked())); //$NON-NLS-1$
+				out.attribute("code",in.getCreationCode()); //$NON-NLS-1$
+				out.attribute("scaleX",Double.toString(in.getScale().getX())); //$NON-NLS-1$
+				out.attribute("scaleY",Double.toString(in.getScale().getY())); //$NON-NLS-1$
+				String color = Long.toString(Util.getInstanceColorWithAlpha(in.getColor(),in.getAlpha()));
+				out.attribute("colour",color); // default white //$NON-NLS-1$
+				out.attribute("rotation",Double.toString(in.getRotation())); //$NON-NLS-1$
+				out.endElement();
+				}
+			out.endElement();
 
-		// Write Tiles
-		Element tileroot = doc.createElement("tiles"); //$NON-NLS-1$
-		roomroot.appendChild(tileroot);
-		for (Tile tile : room.tiles)
+			// Write Tiles
+			out.startElement("tiles"); //$NON-NLS-1$
+			for (Tile tile : room.tiles)
+				{
+				out.startElement("tile"); //$NON-NLS-1$
+
+				out.attribute("bgName",getName(tile.getBackground(),"")); //$NON-NLS-1$ //$NON-NLS-2$
+				Point position = tile.getPosition();
+				out.attribute("x",Integer.toString(position.x)); //$NON-NLS-1$
+				out.attribute("y",Integer.toString(position.y)); //$NON-NLS-1$
+				Dimension size = tile.getSize();
+				out.attribute("w",Integer.toString(size.width)); //$NON-NLS-1$
+				out.attribute("h",Integer.toString(size.height)); //$NON-NLS-1$
+				Point offset = tile.getBackgroundPosition();
+				out.attribute("xo",Integer.toString(offset.x)); //$NON-NLS-1$
+				out.attribute("yo",Integer.toString(offset.y)); //$NON-NLS-1$
+				out.attribute("id",Integer.toString(tile.getID())); //$NON-NLS-1$
+				out.attribute("name",tile.getName()); //$NON-NLS-1$
+				out.attribute("depth",Integer.toString(tile.getDepth())); //$NON-NLS-1$
+				out.attribute("locked",boolToString(tile.isLocked())); //$NON-NLS-1$
+				Point2D scale = tile.getScale();
+				out.attribute("scaleX",Double.toString(scale.getX())); //$NON-NLS-1$
+				out.attribute("scaleY",Double.toString(scale.getY())); //$NON-NLS-1$
+				out.attribute("colour",Long.toString(tile.getColor())); //$NON-NLS-1$
+				out.endElement();
+				}
+			out.endElement();
+
+			// Physics properties
+			out.element("PhysicsWorld", //$NON-NLS-1$
+				boolToString((Boolean) room.get(PRoom.PHYSICS_WORLD)));
+			out.element("PhysicsWorldTop", //$NON-NLS-1$
+				Integer.toString((Integer) room.get(PRoom.PHYSICS_TOP)));
+			out.element("PhysicsWorldLeft", //$NON-NLS-1$
+				Integer.toString((Integer) room.get(PRoom.PHYSICS_LEFT)));
+			out.element("PhysicsWorldRight", //$NON-NLS-1$
+				Integer.toString((Integer) room.get(PRoom.PHYSICS_RIGHT)));
+			out.element("PhysicsWorldBottom", //$NON-NLS-1$
+				Integer.toString((Integer) room.get(PRoom.PHYSICS_BOTTOM)));
+			out.element("PhysicsWorldGravityX", //$NON-NLS-1$
+				Double.toString((Double) room.get(PRoom.PHYSICS_GRAVITY_X)));
+			out.element("PhysicsWorldGravityY", //$NON-NLS-1$
+				Double.toString((Double) room.get(PRoom.PHYSICS_GRAVITY_Y)));
+			out.element("PhysicsWorldPixToMeters", //$NON-NLS-1$
+				Double.toString((Double) room.get(PRoom.PHYSICS_PIXTOMETERS)));
+			out.endElement();
+			}
+		finally
 			{
-			PropertyMap<PTile> props = tile.properties;
-			Element tileelement = doc.createElement("tile"); //$NON-NLS-1$
-			tileroot.appendChild(tileelement);
-
-			tileelement.setAttribute("bgName", //$NON-NLS-1$
-					getName((ResourceReference<?>) props.get(PTile.BACKGROUND),""));
-			tileelement.setAttribute("x",Integer.toString((Integer) props.get(PTile.ROOM_X))); //$NON-NLS-1$
-			tileelement.setAttribute("y",Integer.toString((Integer) props.get(PTile.ROOM_Y))); //$NON-NLS-1$
-			tileelement.setAttribute("w",Integer.toString((Integer) props.get(PTile.WIDTH))); //$NON-NLS-1$
-			tileelement.setAttribute("h",Integer.toString((Integer) props.get(PTile.HEIGHT))); //$NON-NLS-1$
-			tileelement.setAttribute("xo",Integer.toString((Integer) props.get(PTile.BG_X))); //$NON-NLS-1$
-			tileelement.setAttribute("yo",Integer.toString((Integer) props.get(PTile.BG_Y))); //$NON-NLS-1$
-			tileelement.setAttribute("id",Integer.toString((Integer) props.get(PTile.ID))); //$NON-NLS-1$
-			tileelement.setAttribute("name",(String) props.get(PTile.NAME)); //$NON-NLS-1$
-			tileelement.setAttribute("depth",Integer.toString(tile.getDepth())); //$NON-NLS-1$
-			tileelement.setAttribute("locked",boolToString(tile.isLocked())); //$NON-NLS-1$
-			Point2D scale = tile.getScale();
-			tileelement.setAttribute("scaleX",Double.toString(scale.getX())); //$NON-NLS-1$
-			tileelement.setAttribute("scaleY",Double.toString(scale.getY())); //$NON-NLS-1$
-			tileelement.setAttribute("colour",Long.toString(tile.getColor())); //$NON-NLS-1$
+			out.close();
 			}
 
-		// Physics properties
-		roomroot.appendChild(createElement(doc,"PhysicsWorld", //$NON-NLS-1$
-			boolToString((Boolean) room.get(PRoom.PHYSICS_WORLD))));
-		roomroot.appendChild(createElement(doc,"PhysicsWorldTop", //$NON-NLS-1$
-			Integer.toString((Integer) room.get(PRoom.PHYSICS_TOP))));
-		roomroot.appendChild(createElement(doc,"PhysicsWorldLeft", //$NON-NLS-1$
-			Integer.toString((Integer) room.get(PRoom.PHYSICS_LEFT))));
-		roomroot.appendChild(createElement(doc,"PhysicsWorldRight", //$NON-NLS-1$
-			Integer.toString((Integer) room.get(PRoom.PHYSICS_RIGHT))));
-		roomroot.appendChild(createElement(doc,"PhysicsWorldBottom", //$NON-NLS-1$
-			Integer.toString((Integer) room.get(PRoom.PHYSICS_BOTTOM))));
-		roomroot.appendChild(createElement(doc,"PhysicsWorldGravityX", //$NON-NLS-1$
-			Double.toString((Double) room.get(PRoom.PHYSICS_GRAVITY_X))));
-		roomroot.appendChild(createElement(doc,"PhysicsWorldGravityY", //$NON-NLS-1$
-			Double.toString((Double) room.get(PRoom.PHYSICS_GRAVITY_Y))));
-		roomroot.appendChild(createElement(doc,"PhysicsWorldPixToMeters", //$NON-NLS-1$
-			Double.toString((Double) room.get(PRoom.PHYSICS_PIXTOMETERS))));
-
-		File file = new File(Util.getPOSIXPath(fname + room.getName() + ".room.gmx")); //$NON-NLS-1$
-		transformDocumentUnchecked(f, doc, file);
-
 		domRoot.appendChild(res);
 		}
 
@@ -1289,8 +1479,9 @@ public final class GMXFileWriter
 		}
 		filePath = f.getDirectory() + "/datafiles/" + filePath; //$NON-NLS-1$
 		File dataFile = new File(filePath);
+		if (!needsWrite(c,include,dataFile)) return;
 		dataFile.getParentFile().mkdirs();
-		Files.write(dataFile.toPath(),include.data);
+		include.getData().writeTo(dataFile);
 		}
 
 	public static void writePackages(ProjectFileContext c, Element root) throws IOException
@@ -1323,73 +1514,73 @@ public final class GMXFileWriter
 		root.appendChild(helpNode);
 		}
 
-	public static void writeActions(Document doc, Element root, ActionContainer container)
+	static void writeActions(GMXStreamWriter out, ActionContainer container) throws IOException
 		{
 		for (Action act : container.actions)
 			{
-			Element actelement = doc.createElement("action"); //$NON-NLS-1$
-			root.appendChild(actelement);
+			out.startElement("action"); //$NON-NLS-1$
 			LibAction la = act.getLibAction();
 
-			actelement.appendChild(createElement(doc,"libid", //$NON-NLS-1$
-					Integer.toString(la.parent != null ? la.parent.id : la.parentId)));
-			actelement.appendChild(createElement(doc,"id",Integer.toString(la.id))); //$NON-NLS-1$
-			actelement.appendChild(createElement(doc,"kind",Integer.toString(la.actionKind))); //$NON-NLS-1$
-			actelement.appendChild(createElement(doc,"userelative",boolToString(la.allowRelative))); //$NON-NLS-1$
-			actelement.appendChild(createElement(doc,"useapplyto",boolToString(la.canApplyTo))); //$NON-NLS-1$
-			actelement.appendChild(createElement(doc,"isquestion",boolToString(la.question))); //$NON-NLS-1$
-			actelement.appendChild(createElement(doc,"exetype",Integer.toString(la.execType))); //$NON-NLS-1$
+			out.element("libid", //$NON-NLS-1$
+					Integer.toString(la.parent != null ? la.parent.id : la.parentId));
+			out.element("id",Integer.toString(la.id)); //$NON-NLS-1$
+			out.element("kind",Integer.toString(la.actionKind)); //$NON-NLS-1$
+			out.element("userelative",boolToString(la.allowRelative)); //$NON-NLS-1$
+			out.element("useapplyto",boolToString(la.canApplyTo)); //$NON-NLS-1$
+			out.element("isquestion",boolToString(la.question)); //$NON-NLS-1$
+			out.element("exetype",Integer.toString(la.execType)); //$NON-NLS-1$
 			String execinfo = "";
 			if (la.execType == Action.EXEC_FUNCTION)
 				{
 				execinfo = la.execInfo;
 				}
-			actelement.appendChild(createElement(doc,"functionname",execinfo)); //$NON-NLS-1$
+			out.element("functionname",execinfo); //$NON-NLS-1$
 			execinfo = ""; //$NON-NLS-1$
 			if (la.execType == Action.EXEC_CODE)
 				{
 				execinfo = la.execInfo;
 				}
-			actelement.appendChild(createElement(doc,"codestring",execinfo)); //$NON-NLS-1$
+			out.element("codestring",execinfo); //$NON-NLS-1$
 
 			ResourceReference<GmObject> at = act.getAppliesTo();
 			if (at != null)
 				{
 				if (at == GmObject.OBJECT_OTHER)
-					actelement.appendChild(createElement(doc,"whoName","other")); //$NON-NLS-1$ //$NON-NLS-2$
+					out.element("whoName","other"); //$NON-NLS-1$ //$NON-NLS-2$
 				else if (at == GmObject.OBJECT_SELF)
-					actelement.appendChild(createElement(doc,"whoName","self")); //$NON-NLS-1$ //$NON-NLS-2$
+					out.element("whoName","self"); //$NON-NLS-1$ //$NON-NLS-2$
 				else
-					actelement.appendChild(createElement(doc,"whoName",getName(at))); //$NON-NLS-1$
+					out.element("whoName",getName(at)); //$NON-NLS-1$
 				}
 			else
-				actelement.appendChild(createElement(doc,"whoName","self")); //$NON-NLS-1$ //$NON-NLS-2$
+				out.element("whoName","self"); //$NON-NLS-1$ //$NON-NLS-2$
 
-			actelement.appendChild(createElement(doc,"relative",boolToString(act.isRelative()))); //$NON-NLS-1$
-			actelement.appendChild(createElement(doc,"isnot",boolToString(act.isNot()))); //$NON-NLS-1$
+			out.element("relative",boolToString(act.isRelative())); //$NON-NLS-1$
+			out.element("isnot",boolToString(act.isNot())); //$NON-NLS-1$
 
 			// Now we write the arguments
-			Element argsroot = doc.createElement("arguments"); //$NON-NLS-1$
-			actelement.appendChild(argsroot);
+			out.startElement("arguments"); //$NON-NLS-1$
 
 			List<Argument> args = act.getArguments();
 			for (Argument arg : args)
 				{
-				Element argelement = doc.createElement("argument"); //$NON-NLS-1$
-				argsroot.appendChild(argelement);
+				out.startElement("argument"); //$NON-NLS-1$
 
-				argelement.appendChild(createElement(doc,"kind",Integer.toString(arg.kind))); //$NON-NLS-1$
+				out.element("kind",Integer.toString(arg.kind)); //$NON-NLS-1$
 				Class<? extends Resource<?,?>> kind = Argument.getResourceKind(arg.kind);
 				if (kind != null && InstantiableResource.class.isAssignableFrom(kind))
 					{
-					argelement.appendChild(createElement(doc,Resource.kindNames.get(kind).toLowerCase(),
-							getName((ResourceReference<?>)arg.getRes())));
+					out.element(Resource.kindNames.get(kind).toLowerCase(),
+							getName((ResourceReference<?>)arg.getRes()));
 					}
 				else
 					{
-					argelement.appendChild(createElement(doc,"string",arg.getVal())); //$NON-NLS-1$
+					out.element("string",arg.getVal()); //$NON-NLS-1$
 					}
+				out.endElement();
 				}
+			out.endElement();
+			out.endElement();
 			}
 		}
 
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.lateralgm.main.Util;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Parses the per-resource documents of a GMX project and decodes their images and sounds
+ * on a bounded pool of worker threads, ahead of the reader that consumes them in tree order.
+ * The reader remains the only thread that touches the ProjectFile, so resource ids and the
+ * tree layout come out exactly as they do from a single-threaded read.
+ */
+final class GMXPreloader
+	{
+	/** Marks a file that was read successfully but decoded to nothing (e.g. ImageIO returned null). */
+	private static final Object NOTHING = new Object();
+
+	private static final String[][] KINDS = { { "sprites","sprite",".sprite.gmx" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			{ "sounds","sound",".sound.gmx" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			{ "backgrounds","background",".background.gmx" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			{ "paths","path",".path.gmx" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			{ "fonts","font",".font.gmx" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			{ "timelines","timeline",".timeline.gmx" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			{ "objects","object",".object.gmx" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			{ "rooms","room",".room.gmx" } }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	private final ProjectFile file;
+	private final DocumentBuilderFactory factory;
+	private final ExecutorService pool;
+	private final int window;
+	private final boolean images;
+
+	private final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+	private final Map<String,Integer> order = new HashMap<String,Integer>();
+	private final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+	private final Map<String,Object> results = new ConcurrentHashMap<String,Object>();
+
+	private final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<DocumentBuilder>();
+
+	/**
+	 * Collects every resource document referenced by the project document. Nothing is read
+	 * until the reader starts asking for documents; at most {@code threads * 4} resources are
+	 * kept loaded ahead of the reader so that memory stays bounded on large projects.
+	 * @param images whether sprite and background images should be decoded as well.
+	 * @param streamed whether objects and rooms are streamed by the reader, and so are skipped.
+	 */
+	GMXPreloader(ProjectFile f, Document project, DocumentBuilderFactory factory, int threads,
+			boolean images, boolean streamed)
+		{
+		this.file = f;
+		this.factory = factory;
+		this.images = images;
+		this.window = threads * 4;
+		pool = Executors.newFixedThreadPool(threads,new ThreadFactory()
+			{
+				private int count;
+
+				public Thread newThread(Runnable r)
+					{
+					Thread t = new Thread(r,"GMX Loader " + (++count)); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+					}
+			});
+
+		String dir = f.getDirectory() + '/';
+		for (String[] kind : KINDS)
+			{
+			if (streamed && (kind[1].equals("object") || kind[1].equals("room"))) continue; //$NON-NLS-1$ //$NON-NLS-2$
+			NodeList list = project.getElementsByTagName(kind[1]);
+			for (int i = 0; i < list.getLength(); i++)
+				{
+				Node node = list.item(i);
+				Node parent = node.getParentNode();
+				if (parent == null || !kind[0].equals(parent.getNodeName())) continue;
+				String path = dir + Util.getPOSIXPath(node.getTextContent()) + kind[2];
+				if (order.containsKey(path)) continue;
+				order.put(path,tasks.size());
+				tasks.add(new ResourceTask(path,kind[1]));
+				}
+			}
+		}
+
+	/**
+	 * Blocks until the given resource document and its payloads have been loaded.
+	 * @return the parsed document, or null if the path was not preloaded and must be read inline.
+	 * @throws GmFormatException if the worker failed to parse the document.
+	 */
+	Document getDocument(String path) throws GmFormatException
+		{
+		Integer index = order.remove(path);
+		if (index == null) return null;
+		while (futures.size() < tasks.size() && futures.size() <= index + window)
+			futures.add(pool.submit(tasks.get(futures.size())));
+		try
+			{
+			futures.get(index).get();
+			}
+		catch (InterruptedException e)
+			{
+			Thread.currentThread().interrupt();
+			throw new GmFormatException(file,e);
+			}
+		catch (ExecutionException e)
+			{
+			throw new GmFormatException(file,"failed to read: " + path,e.getCause()); //$NON-NLS-1$
+			}
+		finally
+			{
+			futures.set(index,null);
+			tasks.set(index,null);
+			}
+		Object o = results.remove(path);
+		if (o instanceof GmFormatException) throw (GmFormatException) o;
+		return (Document) o;
+		}
+
+	boolean isLoaded(String path)
+		{
+		return results.containsKey(path);
+		}
+
+	/**
+	 * Takes a file decoded by a worker, so the reader does not have to touch the disk.
+	 * @return the decoded object, or null if it was read but decoded to nothing.
+	 * @throws IOException the error the worker ran into while reading the file.
+	 */
+	Object take(String path) throws IOException
+		{
+		Object o = results.remove(path);
+		if (o == NOTHING) return null;
+		if (o instanceof IOException) throw (IOException) o;
+		return o;
+		}
+
+	void shutdown()
+		{
+		pool.shutdownNow();
+		results.clear();
+		}
+
+	private DocumentBuilder getBuilder() throws ParserConfigurationException
+		{
+		DocumentBuilder builder = builders.get();
+		if (builder == null)
+			{
+			// DocumentBuilderFactory makes no thread safety guarantees
+			synchronized (factory)
+				{
+				builder = factory.newDocumentBuilder();
+				}
+			builders.set(builder);
+			}
+		return builder;
+		}
+
+	private class ResourceTask implements Callable<Void>
+		{
+		private final String path, tag;
+
+		ResourceTask(String path, String tag)
+			{
+			this.path = path;
+			this.tag = tag;
+			}
+
+		public Void call() throws Exception
+			{
+			Document doc;
+			try
+				{
+				doc = getBuilder().parse(path);
+				}
+			catch (SAXException e)
+				{
+				results.put(path,new GmFormatException(file,"failed to parse: " + path,e)); //$NON-NLS-1$
+				return null;
+				}
+			catch (IOException e)
+				{
+				results.put(path,new GmFormatException(file,"failed to read: " + path,e)); //$NON-NLS-1$
+				return null;
+				}
+
+			String dir = file.getDirectory();
+			if (tag.equals("sprite") && images) //$NON-NLS-1$
+				{
+				NodeList frList = doc.getElementsByTagName("frame"); //$NON-NLS-1$
+				for (int i = 0; i < frList.getLength(); i++)
+					readImage(new File(dir + "/sprites/" //$NON-NLS-1$
+							+ Util.getPOSIXPath(frList.item(i).getTextContent())));
+				}
+			else if (tag.equals("background") && images) //$NON-NLS-1$
+				{
+				Node data = doc.getElementsByTagName("data").item(0); //$NON-NLS-1$
+				if (data != null)
+					readImage(new File(dir + "/background/" + Util.getPOSIXPath(data.getTextContent()))); //$NON-NLS-1$
+				}
+			else if (tag.equals("sound")) //$NON-NLS-1$
+				{
+				Node data = doc.getElementsByTagName("data").item(0); //$NON-NLS-1$
+				if (data != null)
+					{
+					String fname = dir + "/sound/audio/" + data.getTextContent(); //$NON-NLS-1$
+					try
+						{
+						results.put(fname,Util.readFully(fname));
+						}
+					catch (IOException e)
+						{
+						results.put(fname,e);
+						}
+					}
+				}
+			results.put(path,doc);
+			return null;
+			}
+
+		private void readImage(File f)
+			{
+			if (!f.exists()) return;
+			try
+				{
+				Object img = ImageIO.read(f);
+				results.put(f.getPath(),img == null ? NOTHING : img);
+				}
+			catch (IOException e)
+				{
+				results.put(f.getPath(),e);
+				}
+			}
+		}
+	}
@@ -0,0 +1,640 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.file;
+
+import static org.lateralgm.file.GMXFileReader.postpone;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.geom.Point2D;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.lateralgm.file.GMXFileReader.ActionProperties;
+import org.lateralgm.file.GMXFileReader.DefaultPostponedRef;
+import org.lateralgm.file.GMXFileReader.PostponedRef;
+import org.lateralgm.file.GMXFileReader.TilePostponedRef;
+import org.lateralgm.main.Util;
+import org.lateralgm.resources.Background;
+import org.lateralgm.resources.GmObject;
+import org.lateralgm.resources.GmObject.PGmObject;
+import org.lateralgm.resources.Room;
+import org.lateralgm.resources.Room.PRoom;
+import org.lateralgm.resources.Sprite;
+import org.lateralgm.resources.sub.ActionContainer;
+import org.lateralgm.resources.sub.Argument;
+import org.lateralgm.resources.sub.BackgroundDef;
+import org.lateralgm.resources.sub.BackgroundDef.PBackgroundDef;
+import org.lateralgm.resources.sub.Event;
+import org.lateralgm.resources.sub.Instance;
+import org.lateralgm.resources.sub.MainEvent;
+import org.lateralgm.resources.sub.ShapePoint;
+import org.lateralgm.resources.sub.Tile;
+import org.lateralgm.resources.sub.View;
+import org.lateralgm.resources.sub.View.PView;
+
+/**
+ * Reads object and room documents of a GMX project with a StAX cursor, filling in the resource
+ * as elements go by instead of building a DOM tree first. Rooms with many thousands of instances
+ * and tiles are by far the largest documents of a project, and their trees cost several times the
+ * size of the file. The resources come out exactly as {@link GMXFileReader} reads them from a DOM
+ * tree, including the references it postpones until every resource exists.
+ * <p>
+ * To check that both readers still agree after a change to either of them, open a project with
+ * the gmxStreaming preference on and save it to a new directory, then do the same with it off,
+ * and compare the <code>objects</code> and <code>rooms</code> directories of the two copies, e.g.
+ * with <code>diff -r</code>. Saving to a new directory rewrites every file, and the writer only
+ * depends on the resources for these files, so any difference comes from the readers. Projects
+ * with rooms whose instances have no ids are a good test, as ids are then handed out while
+ * reading.
+ */
+final class GMXStreamReader
+	{
+	private static XMLInputFactory factory;
+
+	private GMXStreamReader()
+		{
+		}
+
+	private static synchronized XMLInputFactory getFactory()
+		{
+		if (factory == null)
+			{
+			factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING,Boolean.TRUE);
+			}
+		return factory;
+		}
+
+	/** Something that reads a document, positioned before its first event. */
+	private interface DocumentHandler
+		{
+		void read(XMLStreamReader in) throws XMLStreamException;
+		}
+
+	private static void read(ProjectFile f, String path, DocumentHandler handler)
+			throws GmFormatException
+		{
+		InputStream stream = null;
+		XMLStreamReader in = null;
+		try
+			{
+			stream = new BufferedInputStream(new FileInputStream(path));
+			in = getFactory().createXMLStreamReader(stream);
+			handler.read(in);
+			}
+		catch (XMLStreamException e)
+			{
+			throw new GmFormatException(f,"failed to parse: " + path,e); //$NON-NLS-1$
+			}
+		catch (IOException e)
+			{
+			throw new GmFormatException(f,"failed to read: " + path,e); //$NON-NLS-1$
+			}
+		finally
+			{
+			try
+				{
+				if (in != null) in.close();
+				if (stream != null) stream.close();
+				}
+			catch (XMLStreamException e)
+				{
+				// nothing was written, so there is nothing left to lose
+				}
+			catch (IOException e)
+				{
+				// same as above
+				}
+			}
+		}
+
+	/**
+	 * Advances to the next child of the element the cursor is in.
+	 * @return false once the end of the parent element has been reached instead.
+	 */
+	private static boolean nextElement(XMLStreamReader in) throws XMLStreamException
+		{
+		while (in.hasNext())
+			{
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT) return true;
+			if (event == XMLStreamConstants.END_ELEMENT) return false;
+			}
+		return false;
+		}
+
+	/**
+	 * Reads the text of the element at the cursor and all of its descendants, the way
+	 * {@link org.w3c.dom.Node#getTextContent()} does, leaving the cursor at its end.
+	 */
+	private static String readText(XMLStreamReader in) throws XMLStreamException
+		{
+		String text = null;
+		StringBuilder sb = null;
+		int depth = 1;
+		while (depth > 0)
+			{
+			switch (in.next())
+				{
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (text == null)
+						text = in.getText();
+					else
+						{
+						if (sb == null) sb = new StringBuilder(text);
+						sb.append(in.getTextCharacters(),in.getTextStart(),in.getTextLength());
+						}
+					break;
+				}
+			}
+		if (sb != null) return sb.toString();
+		return text == null ? "" : text; //$NON-NLS-1$
+		}
+
+	/** Moves the cursor to the end of the element it is at. */
+	private static void skip(XMLStreamReader in) throws XMLStreamException
+		{
+		int depth = 1;
+		while (depth > 0)
+			{
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+			}
+		}
+
+	private static int readInt(XMLStreamReader in) throws XMLStreamException
+		{
+		return Integer.parseInt(readText(in));
+		}
+
+	private static boolean readBool(XMLStreamReader in) throws XMLStreamException
+		{
+		return Integer.parseInt(readText(in)) != 0;
+		}
+
+	private static String attr(XMLStreamReader in, String name)
+		{
+		return in.getAttributeValue(null,name);
+		}
+
+	private static int intAttr(XMLStreamReader in, String name)
+		{
+		return Integer.parseInt(in.getAttributeValue(null,name));
+		}
+
+	private static boolean boolAttr(XMLStreamReader in, String name)
+		{
+		return Integer.parseInt(in.getAttributeValue(null,name)) != 0;
+		}
+
+	private static double doubleAttr(XMLStreamReader in, String name)
+		{
+		return Double.parseDouble(in.getAttributeValue(null,name));
+		}
+
+	static void readGmObject(final ProjectFile f, final GmObject obj, String path)
+			throws GmFormatException
+		{
+		read(f,path,new DocumentHandler()
+			{
+				public void read(XMLStreamReader in) throws XMLStreamException
+					{
+					readGmObject(f,obj,in);
+					}
+			});
+		}
+
+	/**
+	 * Like the DOM reader, which looks properties up by tag name anywhere in the document, this
+	 * descends into every element it does not recognize.
+	 */
+	private static void readGmObject(ProjectFile f, GmObject obj, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		boolean hasFriction = false;
+		Boolean awake = null, kinematic = null;
+
+		while (in.hasNext())
+			{
+			if (in.next() != XMLStreamConstants.START_ELEMENT) continue;
+			String name = in.getLocalName();
+			if (name.equals("event")) //$NON-NLS-1$
+				{
+				readEvent(f,obj,in);
+				}
+			else if (name.equals("spriteName")) //$NON-NLS-1$
+				{
+				String sprname = readText(in);
+				if (!sprname.equals("<undefined>")) //$NON-NLS-1$
+					postpone.add(new DefaultPostponedRef<PGmObject>(f.resMap.getList(Sprite.class),
+							obj.properties,PGmObject.SPRITE,sprname));
+				else
+					obj.put(PGmObject.SPRITE,null);
+				}
+			else if (name.equals("maskName")) //$NON-NLS-1$
+				{
+				String mskname = readText(in);
+				if (!mskname.equals("<undefined>")) //$NON-NLS-1$
+					postpone.add(new DefaultPostponedRef<PGmObject>(f.resMap.getList(Sprite.class),
+							obj.properties,PGmObject.MASK,mskname));
+				else
+					obj.put(PGmObject.MASK,null);
+				}
+			else if (name.equals("parentName")) //$NON-NLS-1$
+				{
+				String parname = readText(in);
+				if (!parname.equals("<undefined>") && !parname.equals("self")) //$NON-NLS-1$ //$NON-NLS-2$
+					postpone.add(new DefaultPostponedRef<PGmObject>(f.resMap.getList(GmObject.class),
+							obj.properties,PGmObject.PARENT,parname));
+				else
+					obj.put(PGmObject.PARENT,null);
+				}
+			else if (name.equals("solid")) //$NON-NLS-1$
+				obj.put(PGmObject.SOLID,readBool(in));
+			else if (name.equals("visible")) //$NON-NLS-1$
+				obj.put(PGmObject.VISIBLE,readBool(in));
+			else if (name.equals("depth")) //$NON-NLS-1$
+				obj.put(PGmObject.DEPTH,readInt(in));
+			else if (name.equals("persistent")) //$NON-NLS-1$
+				obj.put(PGmObject.PERSISTENT,readBool(in));
+			else if (name.equals("PhysicsObject")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_OBJECT,readBool(in));
+			else if (name.equals("PhysicsObjectSensor")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_SENSOR,readBool(in));
+			else if (name.equals("PhysicsObjectShape")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_SHAPE,ProjectFile.PHYSICS_SHAPE[readInt(in)]);
+			else if (name.equals("PhysicsObjectDensity")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_DENSITY,Double.parseDouble(readText(in)));
+			else if (name.equals("PhysicsObjectRestitution")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_RESTITUTION,Double.parseDouble(readText(in)));
+			else if (name.equals("PhysicsObjectGroup")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_GROUP,readInt(in));
+			else if (name.equals("PhysicsObjectLinearDamping")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_DAMPING_LINEAR,Double.parseDouble(readText(in)));
+			else if (name.equals("PhysicsObjectAngularDamping")) //$NON-NLS-1$
+				obj.put(PGmObject.PHYSICS_DAMPING_ANGULAR,Double.parseDouble(readText(in)));
+			else if (name.equals("PhysicsObjectFriction")) //$NON-NLS-1$
+				{
+				obj.put(PGmObject.PHYSICS_FRICTION,Double.parseDouble(readText(in)));
+				hasFriction = true;
+				}
+			else if (name.equals("PhysicsObjectAwake")) //$NON-NLS-1$
+				awake = readBool(in);
+			else if (name.equals("PhysicsObjectKinematic")) //$NON-NLS-1$
+				kinematic = readBool(in);
+			else if (name.equals("point")) //$NON-NLS-1$
+				{
+				String[] coords = readText(in).split(","); //$NON-NLS-1$
+				obj.shapePoints.add(new ShapePoint(Integer.parseInt(coords[0]),
+						Integer.parseInt(coords[1])));
+				}
+			}
+
+		// NOTE: Some versions of the format did not have all of the physics properties.
+		// Awake and kinematic are only read along with friction, as the DOM reader does.
+		if (hasFriction)
+			{
+			if (awake != null) obj.put(PGmObject.PHYSICS_AWAKE,awake);
+			if (kinematic != null) obj.put(PGmObject.PHYSICS_KINEMATIC,kinematic);
+			}
+		}
+
+	private static void readEvent(final ProjectFile f, GmObject obj, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		final Event ev = new Event();
+		ev.mainId = intAttr(in,"eventtype"); //$NON-NLS-1$
+		MainEvent me = obj.mainEvents.get(ev.mainId);
+		me.events.add(0,ev);
+		if (ev.mainId == MainEvent.EV_COLLISION)
+			{
+			final String colname = attr(in,"ename"); //$NON-NLS-1$
+			postpone.add(new PostponedRef()
+				{
+					public boolean invoke()
+						{
+						ResourceList<GmObject> list = f.resMap.getList(GmObject.class);
+						if (list == null) return false;
+						GmObject col = list.get(colname);
+						if (col == null) return false;
+						ev.other = col.reference;
+						return true;
+						}
+				});
+			}
+		else
+			{
+			ev.id = intAttr(in,"enumb"); //$NON-NLS-1$
+			}
+		readActions(f,ev,in);
+		}
+
+	/** Reads every child of the element at the cursor as an action. */
+	private static void readActions(ProjectFile f, ActionContainer container, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		while (nextElement(in))
+			{
+			ActionProperties act = new ActionProperties();
+			while (nextElement(in))
+				{
+				String name = in.getLocalName();
+				if (name.equals("arguments")) //$NON-NLS-1$
+					{
+					List<Argument> args = new ArrayList<Argument>();
+					while (nextElement(in))
+						{
+						Argument arg = new Argument((byte) 0);
+						while (nextElement(in))
+							{
+							String propname = in.getLocalName();
+							GMXFileReader.readArgument(f,arg,propname,readText(in));
+							}
+						args.add(arg);
+						}
+					act.args = args.toArray(new Argument[args.size()]);
+					}
+				else
+					{
+					act.put(name,readText(in));
+					}
+				}
+			GMXFileReader.addAction(f,container,act);
+			}
+		}
+
+	static void readRoom(final ProjectFile f, final Room rmn, String path) throws GmFormatException
+		{
+		read(f,path,new DocumentHandler()
+			{
+				public void read(XMLStreamReader in) throws XMLStreamException
+					{
+					while (in.hasNext())
+						if (in.next() == XMLStreamConstants.START_ELEMENT)
+							{
+							readRoom(f,rmn,in);
+							return;
+							}
+					}
+			});
+		}
+
+	private static void readRoom(ProjectFile f, Room rmn, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		while (nextElement(in))
+			{
+			String pname = in.getLocalName();
+			if (pname.equals("caption")) //$NON-NLS-1$
+				rmn.put(PRoom.CAPTION,readText(in));
+			else if (pname.equals("width")) //$NON-NLS-1$
+				rmn.put(PRoom.WIDTH,readInt(in));
+			else if (pname.equals("height")) //$NON-NLS-1$
+				rmn.put(PRoom.HEIGHT,readInt(in));
+			else if (pname.equals("vsnap")) //$NON-NLS-1$
+				rmn.put(PRoom.SNAP_Y,readInt(in));
+			else if (pname.equals("hsnap")) //$NON-NLS-1$
+				rmn.put(PRoom.SNAP_X,readInt(in));
+			else if (pname.equals("isometric")) //$NON-NLS-1$
+				rmn.put(PRoom.ISOMETRIC,readBool(in));
+			else if (pname.equals("speed")) //$NON-NLS-1$
+				rmn.put(PRoom.SPEED,readInt(in));
+			else if (pname.equals("persistent")) //$NON-NLS-1$
+				rmn.put(PRoom.PERSISTENT,readBool(in));
+			else if (pname.equals("colour")) //$NON-NLS-1$
+				rmn.put(PRoom.BACKGROUND_COLOR,Util.convertGmColor(readInt(in)));
+			else if (pname.equals("showcolour")) //$NON-NLS-1$
+				rmn.put(PRoom.DRAW_BACKGROUND_COLOR,readBool(in));
+			else if (pname.equals("code")) //$NON-NLS-1$
+				rmn.put(PRoom.CREATION_CODE,readText(in));
+			else if (pname.equals("enableViews")) //$NON-NLS-1$
+				rmn.put(PRoom.VIEWS_ENABLED,readBool(in));
+			else if (pname.equals("clearViewBackground")) //$NON-NLS-1$
+				rmn.put(PRoom.VIEWS_CLEAR,readBool(in));
+			else if (pname.equals("makerSettings")) //$NON-NLS-1$
+				readMakerSettings(rmn,in);
+			else if (pname.equals("backgrounds")) //$NON-NLS-1$
+				readBackgrounds(f,rmn,in);
+			else if (pname.equals("views")) //$NON-NLS-1$
+				readViews(f,rmn,in);
+			else if (pname.equals("instances")) //$NON-NLS-1$
+				readInstances(f,rmn,in);
+			else if (pname.equals("tiles")) //$NON-NLS-1$
+				readTiles(f,rmn,in);
+			else if (pname.equals("PhysicsWorld")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_WORLD,readBool(in));
+			else if (pname.equals("PhysicsWorldTop")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_TOP,readInt(in));
+			else if (pname.equals("PhysicsWorldLeft")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_LEFT,readInt(in));
+			else if (pname.equals("PhysicsWorldRight")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_RIGHT,readInt(in));
+			else if (pname.equals("PhysicsWorldBottom")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_BOTTOM,readInt(in));
+			else if (pname.equals("PhysicsWorldGravityX")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_GRAVITY_X,Double.parseDouble(readText(in)));
+			else if (pname.equals("PhysicsWorldGravityY")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_GRAVITY_Y,Double.parseDouble(readText(in)));
+			else if (pname.equals("PhysicsWorldPixToMeters")) //$NON-NLS-1$
+				rmn.put(PRoom.PHYSICS_PIXTOMETERS,Double.parseDouble(readText(in)));
+			else
+				skip(in);
+			}
+		}
+
+	private static void readMakerSettings(Room rmn, XMLStreamReader in) throws XMLStreamException
+		{
+		while (nextElement(in))
+			{
+			String mname = in.getLocalName();
+			if (mname.equals("isSet")) //$NON-NLS-1$
+				rmn.put(PRoom.REMEMBER_WINDOW_SIZE,readBool(in));
+			else if (mname.equals("w")) //$NON-NLS-1$
+				rmn.put(PRoom.EDITOR_WIDTH,readInt(in));
+			else if (mname.equals("h")) //$NON-NLS-1$
+				rmn.put(PRoom.EDITOR_HEIGHT,readInt(in));
+			else if (mname.equals("showGrid")) //$NON-NLS-1$
+				rmn.put(PRoom.SHOW_GRID,readBool(in));
+			else if (mname.equals("showObjects")) //$NON-NLS-1$
+				rmn.put(PRoom.SHOW_OBJECTS,readBool(in));
+			else if (mname.equals("showTiles")) //$NON-NLS-1$
+				rmn.put(PRoom.SHOW_TILES,readBool(in));
+			else if (mname.equals("showBackgrounds")) //$NON-NLS-1$
+				rmn.put(PRoom.SHOW_BACKGROUNDS,readBool(in));
+			else if (mname.equals("showForegrounds")) //$NON-NLS-1$
+				rmn.put(PRoom.SHOW_FOREGROUNDS,readBool(in));
+			else if (mname.equals("showViews")) //$NON-NLS-1$
+				rmn.put(PRoom.SHOW_VIEWS,readBool(in));
+			else if (mname.equals("deleteUnderlyingObj")) //$NON-NLS-1$
+				rmn.put(PRoom.DELETE_UNDERLYING_OBJECTS,readBool(in));
+			else if (mname.equals("deleteUnderlyingTiles")) //$NON-NLS-1$
+				rmn.put(PRoom.DELETE_UNDERLYING_TILES,readBool(in));
+			else if (mname.equals("page")) //$NON-NLS-1$
+				rmn.put(PRoom.CURRENT_TAB,readInt(in));
+			else if (mname.equals("xoffset")) //$NON-NLS-1$
+				rmn.put(PRoom.SCROLL_BAR_X,readInt(in));
+			else if (mname.equals("yoffset")) //$NON-NLS-1$
+				rmn.put(PRoom.SCROLL_BAR_Y,readInt(in));
+			else
+				skip(in);
+			}
+		}
+
+	private static void readBackgrounds(ProjectFile f, Room rmn, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		int bkgnum = 0;
+		while (nextElement(in))
+			{
+			BackgroundDef bkg = rmn.backgroundDefs.get(bkgnum++);
+			bkg.properties.put(PBackgroundDef.VISIBLE,boolAttr(in,"visible")); //$NON-NLS-1$
+			postpone.add(new DefaultPostponedRef<PBackgroundDef>(f.resMap.getList(Background.class),
+					bkg.properties,PBackgroundDef.BACKGROUND,attr(in,"name"))); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.FOREGROUND,boolAttr(in,"foreground")); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.TILE_HORIZ,boolAttr(in,"htiled")); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.TILE_VERT,boolAttr(in,"vtiled")); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.STRETCH,boolAttr(in,"stretch")); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.H_SPEED,intAttr(in,"hspeed")); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.V_SPEED,intAttr(in,"vspeed")); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.X,intAttr(in,"x")); //$NON-NLS-1$
+			bkg.properties.put(PBackgroundDef.Y,intAttr(in,"y")); //$NON-NLS-1$
+			skip(in);
+			}
+		}
+
+	private static void readViews(ProjectFile f, Room rmn, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		int viewnum = 0;
+		while (nextElement(in))
+			{
+			View vw = rmn.views.get(viewnum++);
+			vw.properties.put(PView.VISIBLE,boolAttr(in,"visible")); //$NON-NLS-1$
+			postpone.add(new DefaultPostponedRef<PView>(f.resMap.getList(GmObject.class),
+					vw.properties,PView.OBJECT,attr(in,"objName"))); //$NON-NLS-1$
+			vw.properties.put(PView.SPEED_H,intAttr(in,"hspeed")); //$NON-NLS-1$
+			vw.properties.put(PView.SPEED_V,intAttr(in,"vspeed")); //$NON-NLS-1$
+			vw.properties.put(PView.BORDER_H,intAttr(in,"hborder")); //$NON-NLS-1$
+			vw.properties.put(PView.BORDER_V,intAttr(in,"vborder")); //$NON-NLS-1$
+
+			vw.properties.put(PView.PORT_H,intAttr(in,"hport")); //$NON-NLS-1$
+			vw.properties.put(PView.PORT_W,intAttr(in,"wport")); //$NON-NLS-1$
+			vw.properties.put(PView.PORT_X,intAttr(in,"xport")); //$NON-NLS-1$
+			vw.properties.put(PView.PORT_Y,intAttr(in,"yport")); //$NON-NLS-1$
+
+			vw.properties.put(PView.VIEW_H,intAttr(in,"hview")); //$NON-NLS-1$
+			vw.properties.put(PView.VIEW_W,intAttr(in,"wview")); //$NON-NLS-1$
+			vw.properties.put(PView.VIEW_X,intAttr(in,"xview")); //$NON-NLS-1$
+			vw.properties.put(PView.VIEW_Y,intAttr(in,"yview")); //$NON-NLS-1$
+			skip(in);
+			}
+		}
+
+	private static void readInstances(ProjectFile f, Room rmn, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		ResourceList<GmObject> objects = f.resMap.getList(GmObject.class);
+		while (nextElement(in))
+			{
+			if (!in.getLocalName().equals("instance") || in.getAttributeCount() == 0) //$NON-NLS-1$
+				{
+				skip(in);
+				continue;
+				}
+			Instance inst = rmn.addInstance();
+
+			// objects are read before rooms, so the reference can be resolved right away
+			GmObject temp = objects.get(attr(in,"objName")); //$NON-NLS-1$
+			if (temp != null) inst.setObject(temp.reference);
+			int xx = intAttr(in,"x"); //$NON-NLS-1$
+			int yy = intAttr(in,"y"); //$NON-NLS-1$
+			double sx = doubleAttr(in,"scaleX"); //$NON-NLS-1$
+			double sy = doubleAttr(in,"scaleY"); //$NON-NLS-1$
+
+			String colour = attr(in,"colour"); //$NON-NLS-1$
+			if (colour != null)
+				{
+				Color color = Util.convertInstanceColorWithAlpha((int) Long.parseLong(colour));
+				inst.setColor(color);
+				inst.setAlpha(color.getAlpha());
+				}
+
+			double rot = doubleAttr(in,"rotation"); //$NON-NLS-1$
+			inst.setName(attr(in,"name")); //$NON-NLS-1$
+
+			// Preserve the id LGM adds for GMK compatibility, see GMXFileReader.readRoom
+			String id = attr(in,"id"); //$NON-NLS-1$
+			int instid;
+			if (id != null)
+				{
+				instid = Integer.parseInt(id);
+				if (instid > f.lastInstanceId) f.lastInstanceId = instid;
+				}
+			else
+				instid = ++f.lastInstanceId;
+			inst.setID(instid);
+
+			inst.setPosition(new Point(xx,yy));
+			inst.setScale(new Point2D.Double(sx,sy));
+			inst.setRotation(rot);
+			inst.setCreationCode(attr(in,"code")); //$NON-NLS-1$
+			inst.setLocked(boolAttr(in,"locked")); //$NON-NLS-1$
+			skip(in);
+			}
+		}
+
+	private static void readTiles(ProjectFile f, Room rmn, XMLStreamReader in)
+			throws XMLStreamException
+		{
+		ResourceList<Background> backgrounds = f.resMap.getList(Background.class);
+		while (nextElement(in))
+			{
+			Tile tile = new Tile(rmn);
+
+			tile.setPosition(new Point(intAttr(in,"x"),intAttr(in,"y"))); //$NON-NLS-1$ //$NON-NLS-2$
+			postpone.add(new TilePostponedRef(backgrounds,tile,attr(in,"bgName"))); //$NON-NLS-1$
+			tile.setName(attr(in,"name")); //$NON-NLS-1$
+
+			int tileid = intAttr(in,"id"); //$NON-NLS-1$
+			if (tileid > f.lastTileId) f.lastTileId = tileid;
+			tile.setID(tileid);
+
+			tile.setBackgroundPosition(new Point(intAttr(in,"xo"),intAttr(in,"yo"))); //$NON-NLS-1$ //$NON-NLS-2$
+			tile.setSize(new Dimension(intAttr(in,"w"),intAttr(in,"h"))); //$NON-NLS-1$ //$NON-NLS-2$
+			tile.setDepth(intAttr(in,"depth")); //$NON-NLS-1$
+			tile.setLocked(boolAttr(in,"locked")); //$NON-NLS-1$
+			tile.setScale(new Point2D.Double(doubleAttr(in,"scaleX"),doubleAttr(in,"scaleY"))); //$NON-NLS-1$ //$NON-NLS-2$
+			tile.setColor(Long.parseLong(attr(in,"colour"))); //$NON-NLS-1$
+
+			rmn.tiles.add(tile);
+			skip(in);
+			}
+		}
+	}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.file;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a GMX resource document element by element, straight to a buffered file channel,
+ * instead of building a DOM tree and handing it to a Transformer. The output is byte for byte
+ * what the indenting Transformer used by {@link GMXFileWriter} produces: two space indentation,
+ * attributes in the order a DOM keeps them in (sorted by name), empty elements collapsed, and
+ * the same characters escaped. Unlike an {@link javax.xml.stream.XMLStreamWriter}, this also
+ * escapes line breaks and tabs in attributes, such as the creation code of instances, which a
+ * parser would otherwise normalize to spaces.
+ */
+final class GMXStreamWriter implements Closeable
+	{
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	private static final int BUFFER_SIZE = 65536;
+
+	private final Writer out;
+	private final ArrayDeque<String> open = new ArrayDeque<String>();
+	/** Attributes of the start tag that has not been finished yet, or null if there is none. */
+	private Map<String,String> attributes;
+	/** Whether the innermost open element has text content rather than child elements. */
+	private boolean text;
+
+	GMXStreamWriter(File file) throws IOException
+		{
+		FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,StandardOpenOption.WRITE);
+		out = new BufferedWriter(Channels.newWriter(channel,"UTF-8"),BUFFER_SIZE); //$NON-NLS-1$
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"); //$NON-NLS-1$
+		out.write(LINE_SEPARATOR);
+		}
+
+	void startElement(String name) throws IOException
+		{
+		if (attributes != null)
+			{
+			finishStartTag();
+			out.write(LINE_SEPARATOR);
+			}
+		indent(open.size());
+		out.write('<');
+		out.write(name);
+		open.push(name);
+		attributes = new TreeMap<String,String>();
+		text = false;
+		}
+
+	/** Sets an attribute of the element that was just started. */
+	void attribute(String name, String value)
+		{
+		attributes.put(name,value == null ? "" : value); //$NON-NLS-1$
+		}
+
+	/** Writes the text content of the element that was just started. */
+	void text(String value) throws IOException
+		{
+		if (value == null || value.isEmpty()) return;
+		finishStartTag();
+		escape(value,false);
+		text = true;
+		}
+
+	void endElement() throws IOException
+		{
+		String name = open.pop();
+		if (attributes != null)
+			{
+			writeAttributes();
+			out.write("/>"); //$NON-NLS-1$
+			}
+		else
+			{
+			if (!text) indent(open.size());
+			out.write("</"); //$NON-NLS-1$
+			out.write(name);
+			out.write('>');
+			}
+		out.write(LINE_SEPARATOR);
+		attributes = null;
+		text = false;
+		}
+
+	/** Writes an element that holds only text, as {@code GMXFileWriter.createElement} creates. */
+	void element(String name, String value) throws IOException
+		{
+		startElement(name);
+		text(value);
+		endElement();
+		}
+
+	public void close() throws IOException
+		{
+		out.close();
+		}
+
+	private void finishStartTag() throws IOException
+		{
+		writeAttributes();
+		out.write('>');
+		attributes = null;
+		}
+
+	private void writeAttributes() throws IOException
+		{
+		for (Map.Entry<String,String> a : attributes.entrySet())
+			{
+			out.write(' ');
+			out.write(a.getKey());
+			out.write("=\""); //$NON-NLS-1$
+			escape(a.getValue(),true);
+			out.write('"');
+			}
+		}
+
+	private void indent(int depth) throws IOException
+		{
+		for (int i = 0; i < depth; i++)
+			out.write("  "); //$NON-NLS-1$
+		}
+
+	private void escape(String s, boolean attribute) throws IOException
+		{
+		int len = s.length(), start = 0;
+		for (int i = 0; i < len; i++)
+			{
+			char c = s.charAt(i);
+			String rep;
+			int code = -1;
+			if (c == '<')
+				rep = "&lt;"; //$NON-NLS-1$
+			else if (c == '>')
+				rep = "&gt;"; //$NON-NLS-1$
+			else if (c == '&')
+				rep = "&amp;"; //$NON-NLS-1$
+			else if (c == '"' && attribute)
+				rep = "&quot;"; //$NON-NLS-1$
+			else
+				{
+				rep = null;
+				if (c == '\n' || c == '\t')
+					{
+					if (attribute) code = c;
+					}
+				else if (c < 0x20 || (c >= 0x7F && c <= 0x9F && !attribute))
+					code = c;
+				else if (Character.isHighSurrogate(c) && i + 1 < len
+						&& Character.isLowSurrogate(s.charAt(i + 1)))
+					code = Character.toCodePoint(c,s.charAt(++i));
+				if (code < 0) continue;
+				rep = "&#" + code + ';'; //$NON-NLS-1$
+				}
+			int end = code > 0xFFFF ? i - 1 : i;
+			out.write(s,start,end - start);
+			out.write(rep);
+			start = i + 1;
+			}
+		out.write(s,start,len - start);
+		}
+	}
@@ -16,11 +16,17 @@ import static org.lateralgm.file.ProjectFile.interfaceProvider;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.geom.Point2D;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Stack;
@@ -76,20 +82,37 @@ import org.lateralgm.resources.sub.BackgroundDef.PBackgroundDef;
 import org.lateralgm.resources.sub.Constant;
 import org.lateralgm.resources.sub.Event;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.MainEvent;
 import org.lateralgm.resources.sub.Moment;
 import org.lateralgm.resources.sub.PathPoint;
 import org.lateralgm.resources.sub.ShapePoint;
 import org.lateralgm.resources.sub.Tile;
-import org.lateralgm.resources.sub.Tile.PTile;
 import org.lateralgm.resources.sub.Trigger;
 import org.lateralgm.resources.sub.View;
 import org.lateralgm.resources.sub.View.PView;
+import org.lateralgm.util.BinaryData;
+import org.lateralgm.util.LazyData;
 import org.lateralgm.util.PropertyMap;
 
 public final class GmFileReader
 	{
+	/**
+	 * Whether the project is read into a buffer and decoded from there in bulk,
+	 * rather than decoded byte by byte from the stream.
+	 */
+	public static boolean bufferedDecoding = true;
+	/**
+	 * Whether a project read from a local file in buffer mode is memory mapped, so that it is
+	 * paged in as it is decoded instead of being read into the heap first.
+	 */
+	public static boolean memoryMap = true;
+	/**
+	 * Sounds and included files stored with at least this many bytes are left in temporary files
+	 * and only read back once they are needed, instead of being kept on the heap.
+	 * Specify 0 to keep everything on the heap.
+	 */
+	public static int spillThreshold = 1 << 20;
+
 	private GmFileReader()
 		{
 		}
@@ -150,13 +173,29 @@ public final class GmFileReader
 			Charset forceCharset) throws GmFormatException
 		{
 		interfaceProvider.init(200,"ProgressDialog.GMK_LOADING"); //$NON-NLS-1$
+		CodecPool.resetStatistics();
 		GmStreamDecoder in = null;
 		RefList<Timeline> timeids = new RefList<Timeline>(Timeline.class); // timeline ids
 		RefList<GmObject> objids = new RefList<GmObject>(GmObject.class); // object ids
 		RefList<Room> rmids = new RefList<Room>(Room.class); // room id
 		try
 			{
-			in = new GmStreamDecoder(stream);
+			if (bufferedDecoding)
+				{
+				try
+					{
+					if (memoryMap && uri != null && "file".equals(uri.getScheme())) //$NON-NLS-1$
+						in = new GmStreamDecoder(map(new File(uri)));
+					else
+						in = new GmStreamDecoder(readBuffer(stream));
+					}
+				finally
+					{
+					stream.close();
+					}
+				}
+			else
+				in = new GmStreamDecoder(stream);
 			ProjectFileContext c = new ProjectFileContext(file,in,timeids,objids,rmids);
 			int identifier = in.read4();
 			if (identifier != 1234321)
@@ -238,7 +277,7 @@ public final class GmFileReader
 			if (bgVer <= 400) {
 				for (Room rm : file.resMap.getList(Room.class)) {
 					for (Tile tl : rm.tiles) {
-						ResourceReference<Background> bkg = tl.properties.get(PTile.BACKGROUND);
+						ResourceReference<Background> bkg = tl.getBackground();
 						if (bkg!=null && bkg.get()!=null) {
 							bkg.get().properties.put(PBackground.USE_AS_TILESET, true);
 						}
@@ -320,6 +359,64 @@ public final class GmFileReader
 			}
 		}
 
+	/** Reads the rest of a stream into a heap buffer, sized up front where the stream allows. */
+	private static ByteBuffer readBuffer(InputStream stream) throws IOException
+		{
+		byte[] data = new byte[Math.max(stream.available(),8192)];
+		int size = 0;
+		for (int n; (n = stream.read(data,size,data.length - size)) != -1;)
+			{
+			size += n;
+			if (size == data.length)
+				{
+				int b = stream.read();
+				if (b == -1) break;
+				data = Arrays.copyOf(data,data.length * 2);
+				data[size++] = (byte) b;
+				}
+			}
+		return ByteBuffer.wrap(data,0,size);
+		}
+
+	/**
+	 * Maps a project file into memory. Nothing read from the mapping is kept once the project is
+	 * loaded; large payloads are copied out to files of their own by {@link #spill}.
+	 */
+	private static ByteBuffer map(File f) throws IOException
+		{
+		try (FileChannel ch = FileChannel.open(f.toPath(),StandardOpenOption.READ))
+			{
+			return ch.map(MapMode.READ_ONLY,0,ch.size());
+			}
+		}
+
+	/**
+	 * Copies a large payload from the decoder into a temporary file, inflating it on the way
+	 * if it is compressed, so that it does not have to be held on the heap.
+	 * @return the spilled data, or null if the payload is small enough to be read as usual
+	 * and nothing was consumed.
+	 */
+	private static LazyData spill(ProjectFile file, GmStreamDecoder in, int length,
+			boolean compressed) throws IOException,DataFormatException
+		{
+		if (spillThreshold <= 0 || length < spillThreshold) return null;
+		File f = File.createTempFile("lgm",".dat"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.addTempFile(f);
+		try (FileChannel ch = FileChannel.open(f.toPath(),StandardOpenOption.WRITE))
+			{
+			if (compressed)
+				in.inflateTo(length,ch);
+			else
+				in.transferTo(length,ch);
+			return new LazyData(f,(int) ch.size());
+			}
+		catch (IOException | DataFormatException e)
+			{
+			f.delete();
+			throw e;
+			}
+		}
+
 	private static void readSettings(ProjectFileContext c, GameSettings g) throws IOException,GmFormatException,
 			DataFormatException
 		{
@@ -568,7 +665,7 @@ public final class GmFileReader
 			if (ver == 440)
 				{
 				//-1 = no sound
-				if (kind53 != -1) snd.data = in.decompress(in.read4());
+				if (kind53 != -1) readData(f,in,snd.getData(),true);
 				in.skip(8);
 				snd.put(PSound.PRELOAD,!in.readBool());
 				}
@@ -577,14 +674,7 @@ public final class GmFileReader
 				snd.put(PSound.FILE_NAME,in.readStr());
 				if (in.readBool())
 					{
-					if (ver == 600)
-						snd.data = in.decompress(in.read4());
-					else
-						{
-						int s = in.read4();
-						snd.data = new byte[s];
-						in.read(snd.data);
-						}
+					readData(f,in,snd.getData(),ver == 600);
 					}
 				snd.setEffects(in.read4());
 				in.readD(snd.properties,PSound.VOLUME,PSound.PAN);
@@ -594,6 +684,27 @@ public final class GmFileReader
 			}
 		}
 
+	/**
+	 * Reads length prefixed data, such as that of a sound or an included file, leaving it in a
+	 * temporary file if it is large.
+	 */
+	private static void readData(ProjectFile f, GmStreamDecoder in, BinaryData data,
+			boolean compressed) throws IOException,DataFormatException
+		{
+		int s = in.read4();
+		LazyData src = spill(f,in,s,compressed);
+		if (src != null)
+			data.set(src);
+		else if (compressed)
+			data.set(in.decompress(s));
+		else
+			{
+			byte[] b = new byte[s];
+			in.read(b,0,s);
+			data.set(b);
+			}
+		}
+
 	private static void readSprites(ProjectFileContext c) throws IOException,GmFormatException,
 			DataFormatException
 		{
@@ -834,9 +945,8 @@ public final class GmFileReader
 				inc.put(PInclude.FILENAME,filename);
 				if (in.readBool()) //file data exists?
 					{
-					inc.data = in.decompress(in.read4());
-					if (inc.data != null)
-						inc.put(PInclude.SIZE,inc.data.length);
+					readData(f,in,inc.getData(),true);
+					inc.put(PInclude.SIZE,inc.getData().getLength());
 					}
 				inc.put(PInclude.EXPORTACTION,ProjectFile.INCLUDE_EXPORT_ACTION[in.read4()]);
 				//FIXME: Deal with Font Includes
@@ -1072,17 +1182,17 @@ public final class GmFileReader
 				Instance inst = rm.addInstance();
 				inst.setPosition(new Point(in.read4(),in.read4()));
 				GmObject temp = f.resMap.getList(GmObject.class).getUnsafe(in.read4());
-				if (temp != null) inst.properties.put(PInstance.OBJECT,temp.reference);
-				inst.properties.put(PInstance.ID,in.read4());
+				if (temp != null) inst.setObject(temp.reference);
+				inst.setID(in.read4());
 				inst.setCreationCode(in.readStr());
 				if (ver2 >= 810)
 					{
-					in.readD(inst.properties,PInstance.SCALE_X,PInstance.SCALE_Y);
+					inst.setScale(new Point2D.Double(in.readD(),in.readD()));
 					Color color = Util.convertGmColorWithAlpha(in.read4());
 					inst.setColor(color);
 					inst.setAlpha(color.getAlpha());
 					}
-				if (ver2 >= 811) inst.properties.put(PInstance.ROTATION, in.readD());
+				if (ver2 >= 811) inst.setRotation(in.readD());
 				inst.setLocked(in.readBool());
 				}
 			int notiles = in.read4();
@@ -1093,14 +1203,14 @@ public final class GmFileReader
 				Background temp = f.resMap.getList(Background.class).getUnsafe(in.read4());
 				ResourceReference<Background> bkg = null;
 				if (temp != null) bkg = temp.reference;
-				t.properties.put(PTile.BACKGROUND,bkg);
+				t.setBackground(bkg);
 				t.setBackgroundPosition(new Point(in.read4(),in.read4()));
 				t.setSize(new Dimension(in.read4(),in.read4()));
 				t.setDepth(in.read4());
-				t.properties.put(PTile.ID,in.read4());
+				t.setID(in.read4());
 				if (ver2 >= 810)
 					{
-					in.readD(t.properties,PTile.SCALE_X,PTile.SCALE_Y);
+					t.setScale(new Point2D.Double(in.readD(),in.readD()));
 					Color color = Util.convertGmColorWithAlpha(in.read4());
 					t.setColor(color);
 					t.setAlpha(color.getAlpha());
@@ -1162,9 +1272,7 @@ public final class GmFileReader
 			inc.put(PInclude.STORE,store);
 			if (store)
 				{
-				int s = in.read4();
-				inc.data = new byte[s];
-				in.read(inc.data,0,s);
+				readData(f,in,inc.getData(),false);
 				}
 			inc.put(PInclude.EXPORTACTION,ProjectFile.INCLUDE_EXPORT_ACTION[in.read4()]);
 			inc.put(PInclude.EXPORTFOLDER,in.readStr());
@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.zip.Deflater;
 
 import org.lateralgm.components.impl.ResNode;
 import org.lateralgm.file.iconio.ICOFile;
@@ -66,19 +67,26 @@ import org.lateralgm.resources.sub.CharacterRange.PCharacterRange;
 import org.lateralgm.resources.sub.Constant;
 import org.lateralgm.resources.sub.Event;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.MainEvent;
 import org.lateralgm.resources.sub.Moment;
 import org.lateralgm.resources.sub.PathPoint;
 import org.lateralgm.resources.sub.Tile;
-import org.lateralgm.resources.sub.Tile.PTile;
 import org.lateralgm.resources.sub.Trigger;
 import org.lateralgm.resources.sub.View;
 import org.lateralgm.resources.sub.View.PView;
+import org.lateralgm.util.BinaryData;
 import org.lateralgm.util.PropertyMap;
 
 public final class GmFileWriter
 	{
+	/**
+	 * Number of threads sprites, sounds and backgrounds of GM8.x projects are compressed on.
+	 * With 1 they are compressed on the saving thread. The output is the same either way.
+	 */
+	public static int deflateThreads = Runtime.getRuntime().availableProcessors();
+	/** The zlib compression level, from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}. */
+	public static int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
 	private GmFileWriter()
 		{
 		}
@@ -87,9 +95,11 @@ public final class GmFileWriter
 			throws IOException
 		{
 		interfaceProvider.init(200,"ProgressDialog.GMK_SAVING"); //$NON-NLS-1$
+		CodecPool.resetStatistics();
 		f.format = ProjectFile.FormatFlavor.getVersionFlavor(ver);
 		long savetime = System.currentTimeMillis();
 		GmStreamEncoder out = new GmStreamEncoder(os);
+		out.setCompressionLevel(compressionLevel);
 
 		GameSettings gs = f.gameSettings.get(0);
 
@@ -338,154 +348,234 @@ public final class GmFileWriter
 		out.writeD(gs.getLastChanged());
 		}
 
-	public static void writeSounds(ProjectFile f, GmStreamEncoder out, int ver, GameSettings gs) throws IOException
+	public static void writeSounds(ProjectFile f, GmStreamEncoder out, int ver, final GameSettings gs)
+			throws IOException
 		{
-		ver = ver >= 800 ? 800 : ver >= 600 ? 600 : 440;
-		out.write4(ver == 800 ? 800 : 400);
-		out.write4(f.resMap.getList(Sound.class).lastId + 1);
-		for (int i = 0; i <= f.resMap.getList(Sound.class).lastId; i++)
+		final int v = ver >= 800 ? 800 : ver >= 600 ? 600 : 440;
+		out.write4(v == 800 ? 800 : 400);
+		ResourceList<Sound> list = f.resMap.getList(Sound.class);
+		out.write4(list.lastId + 1);
+		DeflatePipeline pipe = v == 800 && deflateThreads > 1 ? new DeflatePipeline(out,deflateThreads)
+				: null;
+		try
 			{
-			if (ver == 800) out.beginDeflate();
-			Sound snd = f.resMap.getList(Sound.class).getUnsafe(i);
-			out.writeBool(snd != null);
-			if (snd != null)
+			for (int i = 0; i <= list.lastId; i++)
 				{
-				out.writeStr(snd.getName());
-				if (ver == 800) out.writeD(gs.getLastChanged());
-				out.write4(ver);
-				out.write4(ProjectFile.SOUND_KIND_CODE.get(snd.get(PSound.KIND)));
-				out.writeStr(snd.properties,PSound.FILE_TYPE,PSound.FILE_NAME);
-				if (snd.data != null)
-					{
-					out.writeBool(true);
-					if (ver == 800)
+				final Sound snd = list.getUnsafe(i);
+				if (pipe != null)
+					pipe.submit(new DeflatePipeline.Block()
 						{
-						out.write4(snd.data.length);
-						out.write(snd.data);
-						}
-					else
-						out.compress(snd.data);
-					}
+							public void write(GmStreamEncoder o) throws IOException
+								{
+								writeSound(o,snd,v,gs);
+								}
+						});
 				else
-					out.writeBool(false);
-				out.write4(snd.getEffects());
-				out.writeD(snd.properties,PSound.VOLUME,PSound.PAN);
-				out.writeBool(snd.properties,PSound.PRELOAD);
+					{
+					if (v == 800) out.beginDeflate();
+					writeSound(out,snd,v,gs);
+					out.endDeflate();
+					}
 				}
-			out.endDeflate();
+			if (pipe != null) pipe.finish();
+			}
+		finally
+			{
+			if (pipe != null) pipe.shutdown();
 			}
 		}
 
-	public static void writeSprites(ProjectFile f, GmStreamEncoder out, int ver, GameSettings gs) throws IOException
+	private static void writeSound(GmStreamEncoder out, Sound snd, int ver, GameSettings gs)
+			throws IOException
 		{
-		ver = ver >= 800 ? 800 : ver >= 542 ? 542 : 400;
-		out.write4(ver == 800 ? 800 : 400);
-		out.write4(f.resMap.getList(Sprite.class).lastId + 1);
-		for (int i = 0; i <= f.resMap.getList(Sprite.class).lastId; i++)
+		out.writeBool(snd != null);
+		if (snd == null) return;
+		out.writeStr(snd.getName());
+		if (ver == 800) out.writeD(gs.getLastChanged());
+		out.write4(ver);
+		out.write4(ProjectFile.SOUND_KIND_CODE.get(snd.get(PSound.KIND)));
+		out.writeStr(snd.properties,PSound.FILE_TYPE,PSound.FILE_NAME);
+		BinaryData data = snd.getData();
+		if (data.exists())
 			{
-			if (ver == 800) out.beginDeflate();
-			Sprite spr = f.resMap.getList(Sprite.class).getUnsafe(i);
-			out.writeBool(spr != null);
-			if (spr != null)
+			out.writeBool(true);
+			if (ver == 800)
 				{
-				out.writeStr(spr.getName());
-				if (ver == 800) out.writeD(gs.getLastChanged());
-				out.write4(ver);
-				if (ver < 800)
-					{
-					out.write4(spr.subImages.getWidth());
-					out.write4(spr.subImages.getHeight());
-					out.write4(spr.properties,PSprite.BB_LEFT,PSprite.BB_RIGHT,PSprite.BB_BOTTOM,
-							PSprite.BB_TOP);
-					out.writeBool(spr.properties,PSprite.TRANSPARENT,PSprite.SMOOTH_EDGES,PSprite.PRELOAD);
-					out.write4(ProjectFile.SPRITE_BB_CODE.get(spr.get(PSprite.BB_MODE)));
-					out.writeBool(spr.get(PSprite.SHAPE) == Sprite.MaskShape.PRECISE);
-					}
-				out.write4(spr.properties,PSprite.ORIGIN_X,PSprite.ORIGIN_Y);
-				out.write4(spr.subImages.size());
-				for (int j = 0; j < spr.subImages.size(); j++)
-					{
-					BufferedImage sub = spr.subImages.get(j);
-					if (ver == 800)
-						{
-						out.write4(800);
-						int w = sub.getWidth();
-						int h = sub.getHeight();
-						out.write4(w);
-						out.write4(h);
-						if (w != 0 && h != 0) out.writeBGRAImage(sub,(Boolean) spr.get(PSprite.TRANSPARENT));
-						}
-					else
+				out.write4(data.getLength());
+				data.writeTo(out);
+				}
+			else
+				out.compress(data.get());
+			}
+		else
+			out.writeBool(false);
+		out.write4(snd.getEffects());
+		out.writeD(snd.properties,PSound.VOLUME,PSound.PAN);
+		out.writeBool(snd.properties,PSound.PRELOAD);
+		}
+
+	public static void writeSprites(ProjectFile f, GmStreamEncoder out, int ver, final GameSettings gs)
+			throws IOException
+		{
+		final int v = ver >= 800 ? 800 : ver >= 542 ? 542 : 400;
+		out.write4(v == 800 ? 800 : 400);
+		ResourceList<Sprite> list = f.resMap.getList(Sprite.class);
+		out.write4(list.lastId + 1);
+		DeflatePipeline pipe = v == 800 && deflateThreads > 1 ? new DeflatePipeline(out,deflateThreads)
+				: null;
+		try
+			{
+			for (int i = 0; i <= list.lastId; i++)
+				{
+				final Sprite spr = list.getUnsafe(i);
+				if (pipe != null)
+					pipe.submit(new DeflatePipeline.Block()
 						{
-						out.write4(10);
-						out.writeZlibImage(sub);
-						}
-					}
-				if (ver >= 800)
+							public void write(GmStreamEncoder o) throws IOException
+								{
+								writeSprite(o,spr,v,gs);
+								}
+						});
+				else
 					{
-					out.write4(ProjectFile.SPRITE_MASK_CODE.get(spr.get(PSprite.SHAPE)));
-					out.write4(spr.properties,PSprite.ALPHA_TOLERANCE);
-					out.writeBool(spr.properties,PSprite.SEPARATE_MASK);
-					out.write4(ProjectFile.SPRITE_BB_CODE.get(spr.get(PSprite.BB_MODE)));
-					out.write4(spr.properties,PSprite.BB_LEFT,PSprite.BB_RIGHT,PSprite.BB_BOTTOM,
-							PSprite.BB_TOP);
+					if (v == 800) out.beginDeflate();
+					writeSprite(out,spr,v,gs);
+					out.endDeflate();
 					}
 				}
-			out.endDeflate();
+			if (pipe != null) pipe.finish();
+			}
+		finally
+			{
+			if (pipe != null) pipe.shutdown();
 			}
 		}
 
-	public static void writeBackgrounds(ProjectFile f, GmStreamEncoder out, int ver, GameSettings gs)
+	private static void writeSprite(GmStreamEncoder out, Sprite spr, int ver, GameSettings gs)
 			throws IOException
 		{
-		ver = ver >= 710 ? 710 : ver >= 543 ? 543 : 400;
-		out.write4(ver == 710 ? 800 : 400);
-		out.write4(f.resMap.getList(Background.class).lastId + 1);
+		out.writeBool(spr != null);
+		if (spr == null) return;
+		out.writeStr(spr.getName());
+		if (ver == 800) out.writeD(gs.getLastChanged());
+		out.write4(ver);
+		if (ver < 800)
+			{
+			out.write4(spr.subImages.getWidth());
+			out.write4(spr.subImages.getHeight());
+			out.write4(spr.properties,PSprite.BB_LEFT,PSprite.BB_RIGHT,PSprite.BB_BOTTOM,
+					PSprite.BB_TOP);
+			out.writeBool(spr.properties,PSprite.TRANSPARENT,PSprite.SMOOTH_EDGES,PSprite.PRELOAD);
+			out.write4(ProjectFile.SPRITE_BB_CODE.get(spr.get(PSprite.BB_MODE)));
+			out.writeBool(spr.get(PSprite.SHAPE) == Sprite.MaskShape.PRECISE);
+			}
+		out.write4(spr.properties,PSprite.ORIGIN_X,PSprite.ORIGIN_Y);
+		out.write4(spr.subImages.size());
+		for (int j = 0; j < spr.subImages.size(); j++)
+			{
+			BufferedImage sub = spr.subImages.get(j);
+			if (ver == 800)
+				{
+				out.write4(800);
+				int w = sub.getWidth();
+				int h = sub.getHeight();
+				out.write4(w);
+				out.write4(h);
+				if (w != 0 && h != 0) out.writeBGRAImage(sub,(Boolean) spr.get(PSprite.TRANSPARENT));
+				}
+			else
+				{
+				out.write4(10);
+				out.writeZlibImage(sub);
+				}
+			}
+		if (ver >= 800)
+			{
+			out.write4(ProjectFile.SPRITE_MASK_CODE.get(spr.get(PSprite.SHAPE)));
+			out.write4(spr.properties,PSprite.ALPHA_TOLERANCE);
+			out.writeBool(spr.properties,PSprite.SEPARATE_MASK);
+			out.write4(ProjectFile.SPRITE_BB_CODE.get(spr.get(PSprite.BB_MODE)));
+			out.write4(spr.properties,PSprite.BB_LEFT,PSprite.BB_RIGHT,PSprite.BB_BOTTOM,
+					PSprite.BB_TOP);
+			}
+		}
 
-		for (int i = 0; i <= f.resMap.getList(Background.class).lastId; i++)
+	public static void writeBackgrounds(ProjectFile f, GmStreamEncoder out, int ver,
+			final GameSettings gs) throws IOException
+		{
+		final int v = ver >= 710 ? 710 : ver >= 543 ? 543 : 400;
+		out.write4(v == 710 ? 800 : 400);
+		ResourceList<Background> list = f.resMap.getList(Background.class);
+		out.write4(list.lastId + 1);
+		DeflatePipeline pipe = v == 710 && deflateThreads > 1 ? new DeflatePipeline(out,deflateThreads)
+				: null;
+		try
 			{
-			if (ver == 710) out.beginDeflate();
-			Background back = f.resMap.getList(Background.class).getUnsafe(i);
-			out.writeBool(back != null);
-			if (back != null)
+			for (int i = 0; i <= list.lastId; i++)
 				{
-				out.writeStr(back.getName());
-				if (ver == 710) out.writeD(gs.getLastChanged());
-				out.write4(ver);
-				if (ver < 710)
-					{
-					out.write4(back.getWidth());
-					out.write4(back.getHeight());
-					out.writeBool(back.properties,PBackground.TRANSPARENT,PBackground.SMOOTH_EDGES,
-							PBackground.PRELOAD,PBackground.USE_AS_TILESET);
-					}
-				else
-					out.writeBool(back.properties,PBackground.USE_AS_TILESET);
-				out.write4(back.properties,PBackground.TILE_WIDTH,PBackground.TILE_HEIGHT,
-						PBackground.H_OFFSET,PBackground.V_OFFSET,PBackground.H_SEP,PBackground.V_SEP);
-				BufferedImage bi = back.getBackgroundImage();
-				if (ver < 710)
-					{
-					if (bi != null)
+				final Background back = list.getUnsafe(i);
+				if (pipe != null)
+					pipe.submit(new DeflatePipeline.Block()
 						{
-						out.writeBool(true);
-						out.write4(10);
-						out.writeZlibImage(bi);
-						}
-					else
-						out.writeBool(false);
-					}
+							public void write(GmStreamEncoder o) throws IOException
+								{
+								writeBackground(o,back,v,gs);
+								}
+						});
 				else
 					{
-					out.write4(800);
-					int w = bi == null ? 0 : bi.getWidth();
-					int h = bi == null ? 0 : bi.getHeight();
-					out.write4(w);
-					out.write4(h);
-					if (w != 0 && h != 0) out.writeBGRAImage(bi,(Boolean) back.get(PBackground.TRANSPARENT));
+					if (v == 710) out.beginDeflate();
+					writeBackground(out,back,v,gs);
+					out.endDeflate();
 					}
 				}
-			out.endDeflate();
+			if (pipe != null) pipe.finish();
+			}
+		finally
+			{
+			if (pipe != null) pipe.shutdown();
+			}
+		}
+
+	private static void writeBackground(GmStreamEncoder out, Background back, int ver,
+			GameSettings gs) throws IOException
+		{
+		out.writeBool(back != null);
+		if (back == null) return;
+		out.writeStr(back.getName());
+		if (ver == 710) out.writeD(gs.getLastChanged());
+		out.write4(ver);
+		if (ver < 710)
+			{
+			out.write4(back.getWidth());
+			out.write4(back.getHeight());
+			out.writeBool(back.properties,PBackground.TRANSPARENT,PBackground.SMOOTH_EDGES,
+					PBackground.PRELOAD,PBackground.USE_AS_TILESET);
+			}
+		else
+			out.writeBool(back.properties,PBackground.USE_AS_TILESET);
+		out.write4(back.properties,PBackground.TILE_WIDTH,PBackground.TILE_HEIGHT,
+				PBackground.H_OFFSET,PBackground.V_OFFSET,PBackground.H_SEP,PBackground.V_SEP);
+		BufferedImage bi = back.getBackgroundImage();
+		if (ver < 710)
+			{
+			if (bi != null)
+				{
+				out.writeBool(true);
+				out.write4(10);
+				out.writeZlibImage(bi);
+				}
+			else
+				out.writeBool(false);
+			}
+		else
+			{
+			out.write4(800);
+			int w = bi == null ? 0 : bi.getWidth();
+			int h = bi == null ? 0 : bi.getHeight();
+			out.write4(w);
+			out.write4(h);
+			if (w != 0 && h != 0) out.writeBGRAImage(bi,(Boolean) back.get(PBackground.TRANSPARENT));
 			}
 		}
 
@@ -704,9 +794,9 @@ public final class GmFileWriter
 					{
 					out.write4(in.getPosition().x);
 					out.write4(in.getPosition().y);
-					ResourceReference<GmObject> or = in.properties.get(PInstance.OBJECT);
+					ResourceReference<GmObject> or = in.getObject();
 					out.writeId(or);
-					out.write4((Integer) in.properties.get(PInstance.ID));
+					out.write4(in.getID());
 					out.writeStr(in.getCreationCode());
 					out.writeBool(in.isLocked());
 					}
@@ -715,14 +805,14 @@ public final class GmFileWriter
 					{
 					out.write4(tile.getPosition().x);
 					out.write4(tile.getPosition().y);
-					ResourceReference<Background> rb = tile.properties.get(PTile.BACKGROUND);
+					ResourceReference<Background> rb = tile.getBackground();
 					out.writeId(rb);
 					out.write4(tile.getBackgroundPosition().x);
 					out.write4(tile.getBackgroundPosition().y);
 					out.write4(tile.getSize().width);
 					out.write4(tile.getSize().height);
 					out.write4(tile.getDepth());
-					out.write4((Integer) tile.properties.get(PTile.ID));
+					out.write4(tile.getID());
 					out.writeBool(tile.isLocked());
 					}
 				out.writeBool(rm.properties,PRoom.REMEMBER_WINDOW_SIZE);
@@ -761,8 +851,8 @@ public final class GmFileWriter
 			out.writeBool(store);
 			if (store)
 				{
-				out.write4(i.data.length);
-				out.write(i.data);
+				out.write4(i.getData().getLength());
+				i.getData().writeTo(out);
 				}
 			out.write4(ProjectFile.INCLUDE_EXPORT_CODE.get(i.get(PInclude.EXPORTACTION)));
 			out.writeStr(i.properties,PInclude.EXPORTFOLDER);
@@ -19,12 +19,15 @@ import java.awt.image.DataBufferByte;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -37,7 +40,17 @@ public class GmStreamDecoder extends StreamDecoder
 	{
 	protected int originalPos = -1;
 	protected InputStream originalStream;
+	/** In buffer mode, the enclosing buffer while an inflated block is being read. */
+	protected ByteBuffer originalBuffer;
+	/** In buffer mode, the compressed size of the block being read. */
+	private int originalLimit;
 	private int[] table = null;
+	/**
+	 * In buffer mode, the still encrypted buffer that was replaced by a decrypted copy when a
+	 * seed was set, and the stream position its current position corresponds to.
+	 */
+	private ByteBuffer encrypted;
+	private int encryptedPos;
 
 	public GmStreamDecoder(InputStream in)
 		{
@@ -54,6 +67,12 @@ public class GmStreamDecoder extends StreamDecoder
 		super(f);
 		}
 
+	/** @see StreamDecoder#StreamDecoder(ByteBuffer) */
+	public GmStreamDecoder(ByteBuffer b)
+		{
+		super(b);
+		}
+
 	public int read(byte b[]) throws IOException
 		{
 		return read(b,0,b.length);
@@ -61,6 +80,8 @@ public class GmStreamDecoder extends StreamDecoder
 
 	public int read(byte b[], int off, int len) throws IOException
 		{
+		// in buffer mode the data is decrypted in bulk as soon as the seed is set
+		if (buffer != null) return super.read(b,off,len);
 		int total = 0;
 		while (true)
 			{
@@ -95,6 +116,7 @@ public class GmStreamDecoder extends StreamDecoder
 
 	public int read() throws IOException
 		{
+		if (buffer != null) return super.read();
 		int t = in.read();
 		if (t == -1)
 			{
@@ -128,14 +150,27 @@ public class GmStreamDecoder extends StreamDecoder
 
 	public String readStr() throws IOException
 		{
-		byte data[] = new byte[read4()];
-		read(data);
-		return new String(data,charset);
+		return readStr(read4());
 		}
 
 	public String readStr1() throws IOException
 		{
-		byte data[] = new byte[read()];
+		return readStr(read());
+		}
+
+	private String readStr(int length) throws IOException
+		{
+		if (buffer != null && buffer.hasArray())
+			{
+			// decode straight from the backing array
+			require(length);
+			int p = buffer.position();
+			String str = new String(buffer.array(),buffer.arrayOffset() + p,length,charset);
+			buffer.position(p + length);
+			pos += length;
+			return str;
+			}
+		byte data[] = new byte[length];
 		read(data);
 		return new String(data,charset);
 		}
@@ -186,26 +221,116 @@ public class GmStreamDecoder extends StreamDecoder
 
 	public byte[] decompress(int length, int initialCapacity) throws IOException,DataFormatException
 		{
-		Inflater decompresser = new Inflater();
-		byte[] compressedData = new byte[length];
-		read(compressedData,0,length);
-		decompresser.setInput(compressedData);
-		byte[] result = new byte[131072];
-		ByteArrayOutputStream baos = new ByteArrayOutputStream(initialCapacity);
-		while (!decompresser.finished())
+		return inflate(readBlock(length),initialCapacity);
+		}
+
+	/**
+	 * Inflates the next zlib block of the given compressed length into a channel, a chunk at a
+	 * time, so that large payloads never have to be held in memory as a whole.
+	 */
+	public void inflateTo(int length, WritableByteChannel out) throws IOException,DataFormatException
+		{
+		ByteBuffer block = readBlock(length);
+		Inflater inflater = CodecPool.takeInflater();
+		byte[] input = block.hasArray() ? null : CodecPool.takeBuffer();
+		byte[] result = CodecPool.takeBuffer();
+		try
+			{
+			while (!inflater.finished())
+				{
+				int n = inflate(inflater,block,input,result,0,result.length);
+				ByteBuffer b = ByteBuffer.wrap(result,0,n);
+				while (b.hasRemaining())
+					out.write(b);
+				}
+			}
+		finally
+			{
+			CodecPool.release(inflater);
+			if (input != null) CodecPool.release(input);
+			CodecPool.release(result);
+			}
+		}
+
+	/**
+	 * Copies the next given number of bytes into a channel. In buffer mode they are written
+	 * straight from the buffer, which for a memory mapped file means they never enter the heap.
+	 */
+	public void transferTo(int length, WritableByteChannel out) throws IOException
+		{
+		if (buffer != null)
+			{
+			ByteBuffer b = readBlock(length);
+			while (b.hasRemaining())
+				out.write(b);
+			return;
+			}
+		byte[] chunk = CodecPool.takeBuffer();
+		try
 			{
-			int len = decompresser.inflate(result);
-			baos.write(result,0,len);
+			while (length > 0)
+				{
+				int n = Math.min(length,chunk.length);
+				read(chunk,0,n);
+				ByteBuffer b = ByteBuffer.wrap(chunk,0,n);
+				while (b.hasRemaining())
+					out.write(b);
+				length -= n;
+				}
 			}
-		decompresser.end();
-		return baos.toByteArray();
+		finally
+			{
+			CodecPool.release(chunk);
+			}
+		}
+
+	/**
+	 * Takes the next given number of bytes as a buffer of their own. In buffer mode this is a
+	 * slice of the underlying buffer rather than a copy.
+	 */
+	private ByteBuffer readBlock(int length) throws IOException
+		{
+		if (buffer == null)
+			{
+			byte[] data = new byte[length];
+			read(data,0,length);
+			return ByteBuffer.wrap(data);
+			}
+		require(length);
+		ByteBuffer block = buffer.slice();
+		block.limit(length);
+		buffer.position(buffer.position() + length);
+		pos += length;
+		return block;
 		}
 
 	public void beginInflate() throws IOException
 		{
 		int limit = read4();
+		if (buffer != null)
+			{
+			ByteBuffer block = readBlock(limit);
+			originalBuffer = buffer;
+			// Like in stream mode, the block starts here and reading goes on after it when done
+			originalPos = pos - limit;
+			originalLimit = limit;
+			pos = 0;
+			try
+				{
+				buffer = ByteBuffer.wrap(inflate(block,limit * 4)).order(ByteOrder.LITTLE_ENDIAN);
+				}
+			catch (DataFormatException e)
+				{
+				buffer = originalBuffer;
+				pos = originalPos + limit;
+				originalBuffer = null;
+				originalPos = -1;
+				throw new IOException(e);
+				}
+			return;
+			}
 		originalStream = in;
-		in = new LimitedInflaterInputStream(originalStream,limit);
+		in = new LimitedInflaterInputStream(originalStream,limit,CodecPool.takeInflater());
 		originalPos = pos;
 		pos = 0;
 		}
@@ -216,10 +341,19 @@ public class GmStreamDecoder extends StreamDecoder
 	 */
 	public void endInflate() throws IOException
 		{
+		if (originalBuffer != null)
+			{
+			// the whole block was consumed up front, just like the stream decoder's finish()
+			buffer = originalBuffer;
+			originalBuffer = null;
+			pos = originalPos + originalLimit;
+			originalPos = -1;
+			}
 		if (originalStream != null)
 			{
 			LimitedInflaterInputStream inf = (LimitedInflaterInputStream) in;
 			inf.finish();
+			CodecPool.release(inf.getInflater());
 			pos = originalPos + (int) inf.getLimit();
 			originalPos = -1;
 			in = originalStream;
@@ -227,6 +361,61 @@ public class GmStreamDecoder extends StreamDecoder
 			}
 		}
 
+	/**
+	 * Inflates a whole zlib block into an array of exactly the inflated size.
+	 * @param estimate the expected inflated size, which the output starts out with
+	 */
+	private static byte[] inflate(ByteBuffer block, int estimate) throws DataFormatException
+		{
+		Inflater inflater = CodecPool.takeInflater();
+		byte[] input = block.hasArray() ? null : CodecPool.takeBuffer();
+		byte[] result = new byte[Math.max(estimate,64)];
+		int size = 0;
+		try
+			{
+			while (!inflater.finished())
+				{
+				if (size == result.length) result = Arrays.copyOf(result,result.length * 2);
+				size += inflate(inflater,block,input,result,size,result.length - size);
+				}
+			}
+		finally
+			{
+			CodecPool.release(inflater);
+			if (input != null) CodecPool.release(input);
+			}
+		return size == result.length ? result : Arrays.copyOf(result,size);
+		}
+
+	/**
+	 * Runs the inflater once, first handing it more of the block if it ran out of input.
+	 * An Inflater only takes arrays, so a block that is not backed by one, such as part of a
+	 * memory mapped file, is copied into the input array a chunk at a time.
+	 */
+	private static int inflate(Inflater inflater, ByteBuffer block, byte[] input, byte[] out,
+			int off, int len) throws DataFormatException
+		{
+		if (inflater.needsInput())
+			{
+			if (!block.hasRemaining())
+				throw new DataFormatException("Unexpected end of ZLIB input stream"); //$NON-NLS-1$
+			if (input == null)
+				{
+				inflater.setInput(block.array(),block.arrayOffset() + block.position(),block.remaining());
+				block.position(block.limit());
+				}
+			else
+				{
+				int n = Math.min(input.length,block.remaining());
+				block.get(input,0,n);
+				inflater.setInput(input,0,n);
+				}
+			}
+		else if (inflater.needsDictionary())
+			throw new DataFormatException("Missing ZLIB preset dictionary"); //$NON-NLS-1$
+		return inflater.inflate(out,off,len);
+		}
+
 	public BufferedImage readZlibImage(int width, int height) throws IOException,DataFormatException
 		{
 		int length = read4();
@@ -283,12 +472,44 @@ public class GmStreamDecoder extends StreamDecoder
 	 */
 	public void setSeed(int s)
 		{
+		if (buffer != null)
+			{
+			// go back to the raw data first, in case a seed was already set
+			if (encrypted != null)
+				{
+				encrypted.position(encrypted.position() + pos - encryptedPos);
+				buffer = encrypted;
+				encrypted = null;
+				}
+			if (s >= 0)
+				{
+				encrypted = buffer;
+				encryptedPos = pos;
+				buffer = decrypt(buffer,makeDecodeTable(s),pos);
+				}
+			return;
+			}
 		if (s >= 0)
 			table = makeDecodeTable(s);
 		else
 			table = null;
 		}
 
+	/**
+	 * Decrypts the remaining contents of a buffer into a new one in a single pass,
+	 * leaving the given buffer untouched.
+	 * @param pos the stream position of the first remaining byte, which the cipher depends on
+	 */
+	private static ByteBuffer decrypt(ByteBuffer src, int[] table, int pos)
+		{
+		ByteBuffer in = src.duplicate();
+		byte[] data = new byte[in.remaining()];
+		in.get(data);
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) (table[data[i] & 0xFF] - pos - i);
+		return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
 	protected static int[] makeDecodeTable(int seed)
 		{
 		int[] encTable = GmStreamEncoder.makeEncodeTable(seed);
@@ -16,7 +16,6 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.WritableRaster;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -36,6 +35,7 @@ public class GmStreamEncoder extends StreamEncoder
 	protected int originalPos = -1;
 	protected OutputStream originalStream;
 	private int[] table = null;
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
 
 	public GmStreamEncoder(OutputStream o)
 		{
@@ -157,26 +157,65 @@ public class GmStreamEncoder extends StreamEncoder
 			write4(noneval);
 		}
 
+	public int getCompressionLevel()
+		{
+		return compressionLevel;
+		}
+
+	/**
+	 * @param level the zlib compression level used by {@link #compress(byte[])}, from
+	 * 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	public void setCompressionLevel(int level)
+		{
+		compressionLevel = level;
+		}
+
 	public void compress(byte[] data) throws IOException
 		{
-		Deflater compresser = new Deflater();
-		compresser.setInput(data);
-		compresser.finish();
-		byte[] buffer = new byte[131072];
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		while (!compresser.finished())
+		compress(data,0,data.length);
+		}
+
+	/** Writes the length of the compressed data followed by the data itself. */
+	public void compress(byte[] data, int off, int len) throws IOException
+		{
+		BlockBuffer compressed = CodecPool.takeBlock();
+		try
+			{
+			compressed.deflate(data,off,len,compressionLevel);
+			write4(compressed.size());
+			write(compressed.array(),0,compressed.size());
+			}
+		finally
+			{
+			CodecPool.release(compressed);
+			}
+		}
+
+	/** Compresses the given data into a zlib stream at the given compression level. */
+	public static byte[] deflate(byte[] data, int level)
+		{
+		return deflate(data,0,data.length,level);
+		}
+
+	public static byte[] deflate(byte[] data, int off, int len, int level)
+		{
+		BlockBuffer compressed = CodecPool.takeBlock();
+		try
+			{
+			compressed.deflate(data,off,len,level);
+			return compressed.toByteArray();
+			}
+		finally
 			{
-			int len = compresser.deflate(buffer);
-			baos.write(buffer,0,len);
+			CodecPool.release(compressed);
 			}
-		write4(baos.size());
-		write(baos.toByteArray());
 		}
 
 	public void beginDeflate()
 		{
 		originalStream = out;
-		out = new ByteArrayOutputStream();
+		out = CodecPool.takeBlock();
 		originalPos = pos;
 		pos = 0;
 		}
@@ -190,12 +229,13 @@ public class GmStreamEncoder extends StreamEncoder
 		if (originalStream != null)
 			{
 			flush();
-			ByteArrayOutputStream baos = (ByteArrayOutputStream) out;
+			BlockBuffer block = (BlockBuffer) out;
 			pos = originalPos;
 			originalPos = -1;
 			out = originalStream;
 			originalStream = null;
-			compress(baos.toByteArray());
+			compress(block.array(),0,block.size());
+			CodecPool.release(block);
 			}
 		}
 
@@ -220,9 +260,10 @@ public class GmStreamEncoder extends StreamEncoder
 			else
 				data[i] = pixels[i] & 0x00FFFFFF; //forcibly drop alpha channel
 
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		ImageIO.write(new BufferedImage(cm,raster,false,null),"bmp",out); //$NON-NLS-1$
-		compress(out.toByteArray());
+		BlockBuffer bmp = CodecPool.takeBlock();
+		ImageIO.write(new BufferedImage(cm,raster,false,null),"bmp",bmp); //$NON-NLS-1$
+		compress(bmp.array(),0,bmp.size());
+		CodecPool.release(bmp);
 		}
 
 	public void writeBGRAImage(BufferedImage image, boolean useTransp) throws IOException
@@ -25,6 +25,7 @@ public class LimitedInflaterInputStream extends InflaterInputStream
 	{
 	protected long limit;
 	private boolean closed = false;
+	private boolean usesDefaultInflater;
 
 	/**
 	 * Creates a new input stream with a default decompressor and buffer size,
@@ -36,6 +37,21 @@ public class LimitedInflaterInputStream extends InflaterInputStream
 		{
 		super(in,new Inflater(),512);
 		this.limit = limit;
+		usesDefaultInflater = true;
+		}
+
+	/**
+	 * Creates a new input stream with the given decompressor and a default buffer size,
+	 * limited to reading up to a given number of compressed bytes. The decompressor is
+	 * left for the caller to end or reuse.
+	 * @param in the input stream
+	 * @param limit the maximum number of compressed bytes that may be read
+	 * @param inf the decompressor
+	 */
+	public LimitedInflaterInputStream(InputStream in, long limit, Inflater inf)
+		{
+		super(in,inf,512);
+		this.limit = limit;
 		}
 
 	/**
@@ -72,7 +88,7 @@ public class LimitedInflaterInputStream extends InflaterInputStream
 			{
 			while (limit > 0 && in.available() > 0)
 				limit -= in.skip(limit);
-			inf.end(); //default inflater assumed
+			if (usesDefaultInflater) inf.end();
 			closed = true;
 			}
 		}
@@ -86,7 +102,7 @@ public class LimitedInflaterInputStream extends InflaterInputStream
 		{
 		if (!closed)
 			{
-			inf.end(); //default inflater assumed
+			if (usesDefaultInflater) inf.end();
 			in.close();
 			closed = true;
 			}
@@ -109,4 +125,9 @@ public class LimitedInflaterInputStream extends InflaterInputStream
 		{
 		return limit;
 		}
+
+	public Inflater getInflater()
+		{
+		return inf;
+		}
 	}
@@ -31,6 +31,7 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -76,9 +77,7 @@ import org.lateralgm.resources.Sprite.MaskShape;
 import org.lateralgm.resources.Timeline;
 import org.lateralgm.resources.sub.Constant;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.Tile;
-import org.lateralgm.resources.sub.Tile.PTile;
 import org.lateralgm.resources.sub.Trigger;
 
 public class ProjectFile implements UpdateListener
@@ -165,6 +164,53 @@ public class ProjectFile implements UpdateListener
 
 	public FormatFlavor format;
 	public URI uri;
+	/**
+	 * The GMX directory whose files match all resources that are not marked dirty,
+	 * or null if a GMX save has to write every resource.
+	 */
+	public String cleanDirectory;
+	/**
+	 * The name of each resource when the files in {@link #cleanDirectory} were last read or
+	 * written, as given by {@link #getResourceNames()}.
+	 */
+	public Map<Resource<?,?>,String> cleanNames;
+
+	/**
+	 * Maps every resource in the lists of this project to its current name. Clean files refer to
+	 * resources by name, so they stay valid only while this map is the same as when they were
+	 * written, which rules out renames, deletions and names taken over by another resource alike.
+	 */
+	private final List<File> tempFiles = new ArrayList<File>();
+
+	/**
+	 * Registers a temporary file holding data of this project, such as a large sound left out of
+	 * memory while reading, to be deleted when the project is closed.
+	 */
+	public synchronized void addTempFile(File f)
+		{
+		f.deleteOnExit();
+		tempFiles.add(f);
+		}
+
+	/**
+	 * Deletes the temporary files of this project once it has been closed. Data left in them can
+	 * no longer be read, so the resources of the project must not be used afterwards.
+	 */
+	public synchronized void close()
+		{
+		for (File f : tempFiles)
+			f.delete();
+		tempFiles.clear();
+		}
+
+	public Map<Resource<?,?>,String> getResourceNames()
+		{
+		Map<Resource<?,?>,String> names = new IdentityHashMap<Resource<?,?>,String>();
+		for (ResourceHolder<?> h : resMap.values())
+			if (h instanceof ResourceList<?>) for (Resource<?,?> r : (ResourceList<?>) h)
+				names.put(r,r.getName());
+		return names;
+		}
 
 	public static interface ResourceHolder<T extends Resource<T,?>>
 		{
@@ -532,9 +578,9 @@ public class ProjectFile implements UpdateListener
 		for (Room r : resMap.getList(Room.class))
 			{
 			for (Instance j : r.instances)
-				j.properties.put(PInstance.ID,++lastInstanceId);
+				j.setID(++lastInstanceId);
 			for (Tile j : r.tiles)
-				j.properties.put(PTile.ID,++lastTileId);
+				j.setID(++lastTileId);
 			}
 		}
 
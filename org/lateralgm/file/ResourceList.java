@@ -11,9 +11,12 @@
 package org.lateralgm.file;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.TreeSet;
 
 import org.lateralgm.file.ProjectFile.ResourceHolder;
@@ -33,7 +36,9 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 	private static final IdComparator COMPARATOR = new IdComparator();
 
 	private final Class<R> type; // used as a workaround for add()
-	private final HashMap<ResourceReference<R>,WeakReference<R>> refMap;
+	private final HashMap<ResourceReference<R>,Entry<R>> refMap;
+	private final Index<Integer> idIndex = new Index<Integer>();
+	private final Index<String> nameIndex = new Index<String>();
 
 	private final UpdateTrigger updateTrigger = new UpdateTrigger();
 	public final UpdateSource updateSource = new UpdateSource(this,updateTrigger);
@@ -42,23 +47,49 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 		{
 		super(COMPARATOR);
 		this.type = type;
-		refMap = new HashMap<ResourceReference<R>,WeakReference<R>>();
+		refMap = new HashMap<ResourceReference<R>,Entry<R>>();
 		}
 
 	public int lastId = -1;
 
-	private boolean doAdd(R res)
+	/** Adds a resource, noting the one it replaces, if any, in the given list. */
+	private boolean doAdd(R res, List<Resource<?,?>> replaced)
 		{
-		WeakReference<R> wr = refMap.get(res.reference);
-		R r0 = wr == null ? null : wr.get();
+		Entry<R> e0 = refMap.get(res.reference);
+		R r0 = e0 == null ? null : e0.get();
 		if (r0 != null)
 			{
 			if (r0 == res) return false;
 			super.remove(r0);
+			unindex(r0,e0);
+			replaced.add(r0);
 			}
 		res.reference.updateSource.addListener(this);
-		refMap.put(res.reference,new WeakReference<R>(res));
-		return super.add(res);
+		Entry<R> e = new Entry<R>(res,res.getId(),res.getName());
+		refMap.put(res.reference,e);
+		if (!super.add(res)) return false;
+		idIndex.add(e.id,res);
+		nameIndex.add(e.name,res);
+		return true;
+		}
+
+	private void unindex(R res, Entry<R> e)
+		{
+		idIndex.remove(e.id,res);
+		nameIndex.remove(e.name,res);
+		}
+
+	/** Moves a resource to its current id and name in the indexes, if either changed. */
+	private void reindex(R res, Entry<R> e)
+		{
+		int id = res.getId();
+		String name = res.getName();
+		if (id == e.id && name.equals(e.name)) return;
+		unindex(res,e);
+		e.id = id;
+		e.name = name;
+		idIndex.add(id,res);
+		nameIndex.add(name,res);
 		}
 
 	/**
@@ -70,9 +101,10 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 		{
 		//don't override id if it's already set
 		if (res.getId() == -1) res.setId(++lastId);
-		if (doAdd(res))
+		List<Resource<?,?>> replaced = new ArrayList<Resource<?,?>>(1);
+		if (doAdd(res,replaced))
 			{
-			updateTrigger.fire();
+			fireMembership(Collections.<Resource<?,?>> singletonList(res),replaced);
 			return true;
 			}
 		return false;
@@ -80,14 +112,15 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 
 	public boolean addAll(Collection<? extends R> c)
 		{
-		boolean r = false;
+		List<Resource<?,?>> added = new ArrayList<Resource<?,?>>();
+		List<Resource<?,?>> replaced = new ArrayList<Resource<?,?>>();
 		for (R res : c)
 			{
 			res.setId(++lastId);
-			r |= doAdd(res);
+			if (doAdd(res,replaced)) added.add(res);
 			}
-		if (r) updateTrigger.fire();
-		return r;
+		if (!added.isEmpty()) fireMembership(added,replaced);
+		return !added.isEmpty();
 		}
 
 	/**
@@ -133,22 +166,13 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 
 	public R getUnsafe(int id)
 		{
-		for (R res : this)
-			{
-			int ri = res.getId();
-			if (ri == id)
-				return res;
-			else if (ri > id) break;
-			}
-		return null;
+		return idIndex.get(id);
 		}
 
 	/** May return null */
 	public R get(String name)
 		{
-		for (R res : this)
-			if (res.getName().equals(name)) return res;
-		return null;
+		return nameIndex.get(name);
 		}
 
 	private boolean doRemove(Resource<?,?> res)
@@ -156,7 +180,8 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 		if (super.remove(res))
 			{
 			res.reference.updateSource.removeListener(this);
-			refMap.remove(res.reference);
+			Entry<R> e = refMap.remove(res.reference);
+			if (e != null) unindex(type.cast(res),e);
 			return true;
 			}
 		return false;
@@ -164,9 +189,11 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 
 	public boolean remove(Object o)
 		{
-		if (doRemove((Resource<?,?>) o))
+		Resource<?,?> res = (Resource<?,?>) o;
+		if (doRemove(res))
 			{
-			updateTrigger.fire();
+			fireMembership(Collections.<Resource<?,?>> emptyList(),
+					Collections.<Resource<?,?>> singletonList(res));
 			return true;
 			}
 		return false;
@@ -174,30 +201,40 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 
 	public boolean removeAll(Collection<?> c)
 		{
-		boolean r = false;
+		List<Resource<?,?>> removed = new ArrayList<Resource<?,?>>();
 		for (Object o : c)
-			r |= doRemove((Resource<?,?>) o);
-		if (r) updateTrigger.fire();
-		return r;
+			if (doRemove((Resource<?,?>) o)) removed.add((Resource<?,?>) o);
+		if (!removed.isEmpty())
+			fireMembership(Collections.<Resource<?,?>> emptyList(),removed);
+		return !removed.isEmpty();
 		}
 
 	public boolean retainAll(Collection<?> c)
 		{
-		boolean r = false;
-		for (R res : this)
-			if (!c.contains(res)) r |= doRemove(res);
-		if (r) updateTrigger.fire();
-		return r;
+		List<Resource<?,?>> removed = new ArrayList<Resource<?,?>>();
+		for (R res : new ArrayList<R>(this))
+			if (!c.contains(res) && doRemove(res)) removed.add(res);
+		if (!removed.isEmpty())
+			fireMembership(Collections.<Resource<?,?>> emptyList(),removed);
+		return !removed.isEmpty();
 		}
 
 	public void clear()
 		{
 		if (size() == 0) return;
+		List<Resource<?,?>> removed = new ArrayList<Resource<?,?>>(this);
 		for (R r : this)
 			r.reference.updateSource.removeListener(this);
 		refMap.clear();
+		idIndex.clear();
+		nameIndex.clear();
 		super.clear();
-		updateTrigger.fire();
+		fireMembership(Collections.<Resource<?,?>> emptyList(),removed);
+		}
+
+	private void fireMembership(List<Resource<?,?>> added, List<Resource<?,?>> removed)
+		{
+		updateTrigger.fire(new MembershipEvent(updateSource,added,removed));
 		}
 
 	public void defragIds()
@@ -211,13 +248,12 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 	public void updated(UpdateEvent e)
 		{
 		assert size() == refMap.size();
-		updateTrigger.fire(e);
 		Object o = e.source.owner;
 		if (o instanceof ResourceReference<?>)
 			{
 			ResourceReference<?> ref = (ResourceReference<?>) o;
-			WeakReference<R> wr = refMap.get(ref);
-			R r0 = wr == null ? null : wr.get();
+			Entry<R> e0 = refMap.get(ref);
+			R r0 = e0 == null ? null : e0.get();
 			if (r0 != null)
 				{
 				Resource<?,?> r = ref.get();
@@ -228,6 +264,7 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 					}
 				else
 					{
+					reindex(r0,e0);
 					// Ensure that the set stays sorted.
 					boolean changed = false;
 					try
@@ -261,6 +298,105 @@ public class ResourceList<R extends InstantiableResource<R,?>> extends TreeSet<R
 					}
 				}
 			}
+		// Only now that the indexes are up to date, as listeners may look the resource up
+		updateTrigger.fire(e);
+		}
+
+	/**
+	 * Fired when resources are added to or removed from the list, listing them so that listeners
+	 * which keep track of the list can apply the difference instead of reading the whole list.
+	 * A resource that replaced another with the same reference is listed in both.
+	 */
+	public static class MembershipEvent extends UpdateEvent
+		{
+		public final List<Resource<?,?>> added, removed;
+
+		public MembershipEvent(UpdateSource s, List<Resource<?,?>> added,
+				List<Resource<?,?>> removed)
+			{
+			super(s);
+			this.added = added;
+			this.removed = removed;
+			}
+		}
+
+	/** The resource a reference was added with, and the id and name it is indexed under. */
+	private static final class Entry<R> extends WeakReference<R>
+		{
+		int id;
+		String name;
+
+		Entry(R res, int id, String name)
+			{
+			super(res);
+			this.id = id;
+			this.name = name;
+			}
+		}
+
+	/**
+	 * A hash index from a key to the resource that comes first in this list among those with
+	 * that key. Keys are expected to be unique, so resources sharing one are only kept aside.
+	 */
+	private final class Index<K>
+		{
+		private final HashMap<K,R> first = new HashMap<K,R>();
+		private final HashMap<K,List<R>> others = new HashMap<K,List<R>>();
+
+		R get(K key)
+			{
+			return first.get(key);
+			}
+
+		void add(K key, R res)
+			{
+			R f = first.put(key,res);
+			if (f == null) return;
+			if (COMPARATOR.compare(f,res) < 0)
+				{
+				first.put(key,f);
+				f = res;
+				}
+			List<R> l = others.get(key);
+			if (l == null)
+				{
+				l = new ArrayList<R>(2);
+				others.put(key,l);
+				}
+			l.add(f);
+			}
+
+		void remove(K key, R res)
+			{
+			List<R> l = others.get(key);
+			if (first.get(key) == res)
+				{
+				if (l == null)
+					{
+					first.remove(key);
+					return;
+					}
+				R min = l.get(0);
+				for (R r : l)
+					if (COMPARATOR.compare(r,min) < 0) min = r;
+				res = min;
+				first.put(key,min);
+				}
+			if (l == null) return;
+			for (int i = 0; i < l.size(); i++)
+				if (l.get(i) == res)
+					{
+					l.remove(i);
+					break;
+					}
+			if (l.isEmpty()) others.remove(key);
+			}
+
+		void clear()
+			{
+			first.clear();
+			others.clear();
+			}
 		}
 
 	private static class IdComparator implements Comparator<InstantiableResource<?,?>>
@@ -15,12 +15,19 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.lateralgm.messages.Messages;
 
 public class StreamDecoder extends InputStream
 	{
 	protected InputStream in;
+	/**
+	 * The data being decoded when this decoder is backed by a buffer rather than a stream,
+	 * in little endian order; null otherwise. Primitives are then read from it in bulk.
+	 */
+	protected ByteBuffer buffer;
 	protected int pos = 0;
 	protected int markPos = 0;
 
@@ -50,6 +57,25 @@ public class StreamDecoder extends InputStream
 		in = new BufferedInputStream(new FileInputStream(f));
 		}
 
+	/**
+	 * Decodes the remaining contents of the given heap or memory mapped buffer.
+	 * The buffer itself is left untouched.
+	 */
+	public StreamDecoder(ByteBuffer b)
+		{
+		buffer = b.slice().order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+	/** Throws the usual end of file error if the buffer does not hold that many more bytes. */
+	protected final void require(int len) throws IOException
+		{
+		if (len < 0 || buffer.remaining() < len)
+			{
+			String error = Messages.format("StreamDecoder.UNEXPECTED_EOF",getPosString()); //$NON-NLS-1$
+			throw new IOException(error);
+			}
+		}
+
 	public int read(byte b[]) throws IOException
 		{
 		return read(b,0,b.length);
@@ -57,6 +83,13 @@ public class StreamDecoder extends InputStream
 
 	public int read(byte b[], int off, int len) throws IOException
 		{
+		if (buffer != null)
+			{
+			require(len);
+			buffer.get(b,off,len);
+			pos += len;
+			return len;
+			}
 		int read = in.read(b,off,len);
 		if (read != len)
 			{
@@ -69,6 +102,12 @@ public class StreamDecoder extends InputStream
 
 	public int read() throws IOException
 		{
+		if (buffer != null)
+			{
+			require(1);
+			pos++;
+			return buffer.get() & 0xFF;
+			}
 		int t = in.read();
 		if (t == -1)
 			{
@@ -81,6 +120,12 @@ public class StreamDecoder extends InputStream
 
 	public int read2() throws IOException
 		{
+		if (buffer != null)
+			{
+			require(2);
+			pos += 2;
+			return buffer.getShort() & 0xFFFF;
+			}
 		int a = read();
 		int b = read();
 		return (a | (b << 8));
@@ -88,6 +133,12 @@ public class StreamDecoder extends InputStream
 
 	public int read3() throws IOException
 		{
+		if (buffer != null)
+			{
+			require(3);
+			pos += 3;
+			return (buffer.get() & 0xFF) | (buffer.get() & 0xFF) << 8 | (buffer.get() & 0xFF) << 16;
+			}
 		int a = read();
 		int b = read();
 		int c = read();
@@ -96,6 +147,12 @@ public class StreamDecoder extends InputStream
 
 	public int read4() throws IOException
 		{
+		if (buffer != null)
+			{
+			require(4);
+			pos += 4;
+			return buffer.getInt();
+			}
 		int a = read();
 		int b = read();
 		int c = read();
@@ -105,6 +162,12 @@ public class StreamDecoder extends InputStream
 
 	public double readD() throws IOException
 		{
+		if (buffer != null)
+			{
+			require(8);
+			pos += 8;
+			return buffer.getDouble();
+			}
 		byte[] b = new byte[8];
 		read(b);
 		long r = b[0] & 0xFF;
@@ -115,11 +178,19 @@ public class StreamDecoder extends InputStream
 
 	public void close() throws IOException
 		{
-		in.close();
+		if (in != null) in.close();
+		buffer = null;
 		}
 
 	public long skip(long length) throws IOException
 		{
+		if (buffer != null)
+			{
+			require((int) Math.min(length,Integer.MAX_VALUE));
+			buffer.position(buffer.position() + (int) length);
+			pos += (int) length;
+			return length;
+			}
 		long total = in.skip(length);
 		while (total < length)
 			{
@@ -131,23 +202,46 @@ public class StreamDecoder extends InputStream
 
 	public InputStream getInputStream()
 		{
-		return in;
+		if (buffer == null) return in;
+		final ByteBuffer b = buffer;
+		return new InputStream()
+			{
+				public int read()
+					{
+					return b.hasRemaining() ? b.get() & 0xFF : -1;
+					}
+
+				public int read(byte[] a, int off, int len)
+					{
+					if (len == 0) return 0;
+					if (!b.hasRemaining()) return -1;
+					len = Math.min(len,b.remaining());
+					b.get(a,off,len);
+					return len;
+					}
+			};
 		}
 
 	public boolean markSupported()
 		{
-		return in.markSupported();
+		return buffer != null || in.markSupported();
 		}
 
 	public synchronized void mark(int readlimit)
 		{
-		in.mark(readlimit);
+		if (buffer != null)
+			buffer.mark();
+		else
+			in.mark(readlimit);
 		markPos = pos;
 		}
 
 	public synchronized void reset() throws IOException
 		{
-		in.reset();
+		if (buffer != null)
+			buffer.reset();
+		else
+			in.reset();
 		pos = markPos;
 		}
 
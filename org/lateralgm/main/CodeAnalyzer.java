@@ -0,0 +1,627 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.main;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.lateralgm.components.CodeTextArea;
+import org.lateralgm.components.MarkerCache;
+import org.lateralgm.file.ProjectFile;
+import org.lateralgm.file.ProjectFile.ResourceHolder;
+import org.lateralgm.file.ResourceList;
+import org.lateralgm.file.ResourceList.MembershipEvent;
+import org.lateralgm.joshedit.DefaultKeywords;
+import org.lateralgm.joshedit.DefaultKeywords.HasKeywords;
+import org.lateralgm.joshedit.DefaultTokenMarker;
+import org.lateralgm.main.UpdateSource.UpdateEvent;
+import org.lateralgm.main.UpdateSource.UpdateListener;
+import org.lateralgm.main.UpdateSource.UpdateTrigger;
+import org.lateralgm.messages.Messages;
+import org.lateralgm.resources.Extension;
+import org.lateralgm.resources.Font;
+import org.lateralgm.resources.GmObject;
+import org.lateralgm.resources.Path;
+import org.lateralgm.resources.Resource;
+import org.lateralgm.resources.ResourceReference;
+import org.lateralgm.resources.Room;
+import org.lateralgm.resources.Script;
+import org.lateralgm.resources.Shader;
+import org.lateralgm.resources.Sound;
+import org.lateralgm.resources.Timeline;
+import org.lateralgm.resources.library.LibAction;
+import org.lateralgm.resources.library.LibManager;
+import org.lateralgm.resources.library.Library;
+import org.lateralgm.resources.sub.Action;
+import org.lateralgm.resources.sub.Argument;
+import org.lateralgm.resources.sub.Event;
+import org.lateralgm.resources.sub.ExtensionFunction;
+import org.lateralgm.resources.sub.Instance;
+import org.lateralgm.resources.sub.MainEvent;
+import org.lateralgm.resources.sub.Moment;
+
+/**
+ * Analyzes the code of the current project in the background, reporting calls to functions that
+ * are neither built in, defined by an action library or extension nor a script, scripts that
+ * share a name, and resources that nothing refers to. A short while after the project or an open
+ * script editor changed, the code of the resources that changed since the last run is gathered
+ * on the event dispatch thread, which only copies references to the strings, and then read on a
+ * worker thread, which keeps what was gathered of the other resources. Each piece of code keeps
+ * the tokens of its lines between runs, keyed by the text of the line, so that only the lines
+ * that changed are read again. The diagnostics are handed back on the event dispatch thread, and
+ * listeners of {@link #updateSource} are notified.
+ */
+public final class CodeAnalyzer implements UpdateListener
+	{
+	public static final CodeAnalyzer INSTANCE = new CodeAnalyzer();
+
+	private static final int DELAY = 400;
+	/**
+	 * The kinds of resource that are only referred to by code and action arguments. Any other
+	 * resource may be used by the properties of another, so it is never reported as unused.
+	 */
+	private static final Class<?>[] CODE_ONLY_KINDS = { Script.class,Sound.class,Font.class,
+			Path.class,Timeline.class,Shader.class };
+	/** Words that may be followed by a parenthesis without being a call. */
+	private static final Set<String> STATEMENTS = new HashSet<String>(Arrays.asList(
+			("if while with repeat switch return until for case not and or xor " //$NON-NLS-1$
+					+ "div mod then do else var").split(" "))); //$NON-NLS-1$ //$NON-NLS-2$
+
+	public enum Kind
+		{
+		UNRESOLVED_NAME,DUPLICATE_SCRIPT,UNUSED_RESOURCE
+		}
+
+	public static final class Diagnostic
+		{
+		public final Kind kind;
+		public final Resource<?,?> resource;
+		/** The code the diagnostic was found in, which is the resource itself for a script. */
+		public final Object source;
+		/** The position of the name in the code, or -1 if it is not about a piece of code. */
+		public final int line, column;
+		public final String name;
+
+		Diagnostic(Kind kind, Resource<?,?> resource, Object source, int line, int column,
+				String name)
+			{
+			this.kind = kind;
+			this.resource = resource;
+			this.source = source;
+			this.line = line;
+			this.column = column;
+			this.name = name;
+			}
+
+		public String getMessage()
+			{
+			return Messages.format("CodeAnalyzer." + kind.name(),name); //$NON-NLS-1$
+			}
+		}
+
+	private final UpdateTrigger updateTrigger = new UpdateTrigger();
+	public final UpdateSource updateSource = new UpdateSource(this,updateTrigger);
+
+	private final Timer timer;
+	private ExecutorService worker;
+	private ProjectFile file;
+	private Set<String> builtins;
+	private final IdentityHashMap<Resource<?,?>,CodeTextArea> editors =
+			new IdentityHashMap<Resource<?,?>,CodeTextArea>();
+	private Map<Resource<?,?>,List<Diagnostic>> diagnostics = Collections.emptyMap();
+	/** The number of the latest run, so that a run knows when it was superseded. */
+	private volatile int latest;
+	/** Whether every resource needs gathering again, as when the project was replaced. */
+	private boolean gatherAll = true;
+	/** The revision of each resource when it was gathered, by the reference to it. */
+	private final IdentityHashMap<ResourceReference<?>,Integer> revisions =
+			new IdentityHashMap<ResourceReference<?>,Integer>();
+	/** The resources to gather again, and those that left the project, since the last run. */
+	private final Set<ResourceReference<?>> changed = Collections.newSetFromMap(
+			new IdentityHashMap<ResourceReference<?>,Boolean>());
+	private final Set<ResourceReference<?>> removed = Collections.newSetFromMap(
+			new IdentityHashMap<ResourceReference<?>,Boolean>());
+
+	// Only used by the worker thread
+	private IdentityHashMap<ResourceReference<?>,Gathered> gathered =
+			new IdentityHashMap<ResourceReference<?>,Gathered>();
+	private IdentityHashMap<Object,Document> documents = new IdentityHashMap<Object,Document>();
+	private Set<String> lastFunctions = Collections.emptySet();
+	private int symbols;
+
+	private CodeAnalyzer()
+		{
+		timer = new Timer(DELAY,new ActionListener()
+			{
+				public void actionPerformed(ActionEvent e)
+					{
+					start();
+					}
+			});
+		timer.setRepeats(false);
+		}
+
+	/**
+	 * Analyzes the text of the given editor instead of the code of its script until it is
+	 * closed, which is signalled by passing a null editor.
+	 */
+	public void setEditor(Script script, CodeTextArea editor)
+		{
+		if (editor == null)
+			editors.remove(script);
+		else
+			editors.put(script,editor);
+		editorChanged(script);
+		}
+
+	/** Analyzes the text of the editor of the given script again, along with the project. */
+	public void editorChanged(Script script)
+		{
+		if (revisions.containsKey(script.reference)) changed.add(script.reference);
+		schedule();
+		}
+
+	/** Analyzes the project again once it has not changed for a short while. */
+	public void schedule()
+		{
+		timer.restart();
+		}
+
+	/** Returns the diagnostics last found for the given resource. */
+	public List<Diagnostic> getDiagnostics(Resource<?,?> res)
+		{
+		List<Diagnostic> list = diagnostics.get(res);
+		return list == null ? Collections.<Diagnostic> emptyList() : list;
+		}
+
+	public void updated(UpdateEvent e)
+		{
+		if (e instanceof MembershipEvent)
+			{
+			// a resource that replaced another with the same reference is listed in both
+			for (Resource<?,?> res : ((MembershipEvent) e).removed)
+				{
+				changed.remove(res.reference);
+				removed.add(res.reference);
+				}
+			for (Resource<?,?> res : ((MembershipEvent) e).added)
+				{
+				removed.remove(res.reference);
+				changed.add(res.reference);
+				}
+			}
+		else if (e.source.owner instanceof ResourceReference<?>)
+			{
+			ResourceReference<?> ref = (ResourceReference<?>) e.source.owner;
+			if (revisions.containsKey(ref)) changed.add(ref);
+			}
+		else
+			gatherAll = true;
+		schedule();
+		}
+
+	/** Gathers the code that changed since the last run and hands it to the worker thread. */
+	private void start()
+		{
+		if (file != LGM.currentFile)
+			{
+			if (file != null) file.updateSource.removeListener(this);
+			file = LGM.currentFile;
+			file.updateSource.addListener(this);
+			gatherAll = true;
+			}
+		if (builtins == null) builtins = findBuiltins();
+		if (worker == null) worker = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+					{
+					Thread t = new Thread(r,"Code Analyzer"); //$NON-NLS-1$
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+					}
+			});
+		Run run = new Run(++latest,gatherAll);
+		if (gatherAll)
+			{
+			gatherAll = false;
+			revisions.clear();
+			for (ResourceHolder<?> h : file.resMap.values())
+				if (h instanceof ResourceList<?>) for (Resource<?,?> res : (ResourceList<?>) h)
+					gather(run,res);
+			}
+		else
+			{
+			for (ResourceReference<?> ref : removed)
+				{
+				revisions.remove(ref);
+				run.changes.put(ref,null);
+				}
+			// Rooms count the changes to their instances in their revision
+			for (Map.Entry<ResourceReference<?>,Integer> e : revisions.entrySet())
+				{
+				Resource<?,?> res = e.getKey().get();
+				if (res != null && res.getRevision() != e.getValue()) changed.add(e.getKey());
+				}
+			for (ResourceReference<?> ref : changed)
+				{
+				Resource<?,?> res = ref.get();
+				if (res != null) gather(run,res);
+				}
+			}
+		changed.clear();
+		removed.clear();
+		worker.execute(run);
+		}
+
+	/** Copies what the worker needs of a resource into the run. */
+	private void gather(Run run, Resource<?,?> res)
+		{
+		Gathered g = new Gathered(res);
+		g.gather(editors.get(res));
+		run.changes.put(res.reference,g);
+		revisions.put(res.reference,res.getRevision());
+		}
+
+	/** The functions of the language and of the action libraries. */
+	private static Set<String> findBuiltins()
+		{
+		Set<String> set = new HashSet<String>();
+		DefaultTokenMarker marker = MarkerCache.getMarker("gml"); //$NON-NLS-1$
+		if (marker instanceof HasKeywords)
+			for (DefaultKeywords.Keyword[] a : ((HasKeywords) marker).getKeywords())
+				for (DefaultKeywords.Keyword k : a)
+					if (k instanceof DefaultKeywords.Function) set.add(k.getName());
+		for (Library l : LibManager.libs)
+			for (LibAction la : l.libActions)
+				if (la.execType == Action.EXEC_FUNCTION) set.add(la.execInfo);
+		return set;
+		}
+
+	/** A piece of code to analyze and the resource it belongs to. */
+	private static final class Source
+		{
+		final Resource<?,?> owner;
+		final Object key;
+		final String code;
+
+		Source(Resource<?,?> owner, Object key, String code)
+			{
+			this.owner = owner;
+			this.key = key;
+			this.code = code == null ? "" : code; //$NON-NLS-1$
+			}
+		}
+
+	/** What the worker needs of a resource, copied on the event dispatch thread. */
+	private static final class Gathered
+		{
+		final Resource<?,?> res;
+		final String name;
+		final List<Source> sources = new ArrayList<Source>();
+		/** The functions the resource defines. */
+		final List<String> functions = new ArrayList<String>(1);
+		/** The resources that action arguments refer to. */
+		final List<Resource<?,?>> referenced = new ArrayList<Resource<?,?>>(0);
+		boolean candidate;
+
+		Gathered(Resource<?,?> res)
+			{
+			this.res = res;
+			name = res.getName();
+			}
+
+		/** @param editor the open editor of a script, whose text is read instead of the code. */
+		void gather(CodeTextArea editor)
+			{
+			for (Class<?> kind : CODE_ONLY_KINDS)
+				if (kind.isInstance(res)) candidate = true;
+			if (res instanceof Script)
+				{
+				String code = editor != null ? editor.getTextCompat() : ((Script) res).getCode();
+				sources.add(new Source(res,res,code));
+				functions.add(name);
+				}
+			else if (res instanceof GmObject)
+				{
+				for (MainEvent me : ((GmObject) res).mainEvents)
+					for (Event ev : me.events)
+						gatherActions(res,ev.actions);
+				}
+			else if (res instanceof Timeline)
+				{
+				for (Moment mom : ((Timeline) res).moments)
+					gatherActions(res,mom.actions);
+				}
+			else if (res instanceof Room)
+				{
+				sources.add(new Source(res,res,((Room) res).getCode()));
+				for (Instance inst : ((Room) res).instances)
+					sources.add(new Source(res,inst,inst.getCode()));
+				}
+			else if (res instanceof Extension)
+				{
+				for (ExtensionFunction f : ((Extension) res).functions)
+					functions.add(f.name);
+				}
+			}
+
+		void gatherActions(Resource<?,?> res, List<Action> actions)
+			{
+			for (Action act : actions)
+				{
+				LibAction la = act.getLibAction();
+				List<Argument> args = act.getArguments();
+				if (la != null && la.actionKind == Action.ACT_CODE && !args.isEmpty())
+					sources.add(new Source(res,act,args.get(0).getVal()));
+				for (Argument arg : args)
+					{
+					Resource<?,?> ares = Util.deRef((ResourceReference<?>) arg.getRes());
+					if (ares != null) referenced.add(ares);
+					}
+				}
+			}
+		}
+
+	private final class Run implements Runnable
+		{
+		final int id;
+		/** Whether the changes replace everything gathered before. */
+		final boolean reset;
+		/** The resources gathered again, or mapped to null if they left the project. */
+		final Map<ResourceReference<?>,Gathered> changes =
+				new IdentityHashMap<ResourceReference<?>,Gathered>();
+
+		Run(int id, boolean reset)
+			{
+			this.id = id;
+			this.reset = reset;
+			}
+
+		public void run()
+			{
+			// Even a superseded run has changes that the runs after it do not repeat
+			if (reset) gathered.clear();
+			for (Map.Entry<ResourceReference<?>,Gathered> e : changes.entrySet())
+				if (e.getValue() == null)
+					gathered.remove(e.getKey());
+				else
+					gathered.put(e.getKey(),e.getValue());
+			if (id != latest) return;
+
+			List<Source> sources = new ArrayList<Source>();
+			Set<String> functions = new HashSet<String>(builtins);
+			Map<String,List<Resource<?,?>>> scripts = new HashMap<String,List<Resource<?,?>>>();
+			List<Gathered> candidates = new ArrayList<Gathered>();
+			Set<Resource<?,?>> referenced =
+					Collections.newSetFromMap(new IdentityHashMap<Resource<?,?>,Boolean>());
+			for (Gathered g : gathered.values())
+				{
+				sources.addAll(g.sources);
+				functions.addAll(g.functions);
+				referenced.addAll(g.referenced);
+				if (g.candidate) candidates.add(g);
+				if (!(g.res instanceof Script)) continue;
+				List<Resource<?,?>> named = scripts.get(g.name);
+				if (named == null)
+					{
+					named = new ArrayList<Resource<?,?>>(1);
+					scripts.put(g.name,named);
+					}
+				named.add(g.res);
+				}
+
+			// Lines already checked need checking again when the functions changed
+			if (!functions.equals(lastFunctions))
+				{
+				lastFunctions = functions;
+				symbols++;
+				}
+			final Map<Resource<?,?>,List<Diagnostic>> found =
+					new IdentityHashMap<Resource<?,?>,List<Diagnostic>>();
+			IdentityHashMap<Object,Document> next = new IdentityHashMap<Object,Document>();
+			Set<String> used = new HashSet<String>();
+			for (Source s : sources)
+				{
+				if (id != latest) return;
+				Document d = documents.get(s.key);
+				if (d == null) d = new Document();
+				d.update(s.code);
+				next.put(s.key,d);
+				used.addAll(d.names);
+				if (builtins.isEmpty()) continue;
+				for (int i = 0; i < d.lines.length; i++)
+					for (Token t : d.lines[i].unresolved(functions,symbols))
+						add(found,new Diagnostic(Kind.UNRESOLVED_NAME,s.owner,s.key,i,t.column,
+								t.name));
+				}
+			documents = next;
+
+			for (Map.Entry<String,List<Resource<?,?>>> e : scripts.entrySet())
+				if (e.getValue().size() > 1) for (Resource<?,?> res : e.getValue())
+					add(found,new Diagnostic(Kind.DUPLICATE_SCRIPT,res,res,-1,-1,e.getKey()));
+			for (Gathered g : candidates)
+				if (!referenced.contains(g.res) && !used.contains(g.name))
+					add(found,new Diagnostic(Kind.UNUSED_RESOURCE,g.res,g.res,-1,-1,g.name));
+
+			SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+						{
+						if (id != latest) return;
+						diagnostics = found;
+						updateTrigger.fire();
+						}
+				});
+			}
+
+		void add(Map<Resource<?,?>,List<Diagnostic>> found, Diagnostic d)
+			{
+			List<Diagnostic> list = found.get(d.resource);
+			if (list == null)
+				{
+				list = new ArrayList<Diagnostic>();
+				found.put(d.resource,list);
+				}
+			list.add(d);
+			}
+		}
+
+	/** The names in a piece of code, and a cache of its lines by their text. */
+	private static final class Document
+		{
+		String code;
+		Line[] lines = new Line[0];
+		Set<String> names = Collections.emptySet();
+		/** The lines read so far, by the text of the line prefixed with the state it starts in. */
+		HashMap<String,Line> cache = new HashMap<String,Line>();
+
+		void update(String code)
+			{
+			if (code.equals(this.code)) return;
+			this.code = code;
+			String[] text = code.split("\r\n|\n|\r",-1); //$NON-NLS-1$
+			HashMap<String,Line> next = new HashMap<String,Line>(text.length * 2);
+			lines = new Line[text.length];
+			Set<String> found = new HashSet<String>();
+			char state = Line.NORMAL;
+			for (int i = 0; i < text.length; i++)
+				{
+				String key = state + text[i];
+				Line line = cache.get(key);
+				if (line == null) line = new Line(text[i],state);
+				next.put(key,line);
+				lines[i] = line;
+				for (Token t : line.tokens)
+					found.add(t.name);
+				state = line.endState;
+				}
+			cache = next;
+			names = found;
+			}
+		}
+
+	private static final class Token
+		{
+		final String name;
+		final int column;
+		final boolean call;
+
+		Token(String name, int column, boolean call)
+			{
+			this.name = name;
+			this.column = column;
+			this.call = call;
+			}
+		}
+
+	/** The names used on a line of code, read once for each text and starting state. */
+	private static final class Line
+		{
+		static final char NORMAL = 'n', COMMENT = 'c', DOUBLE_QUOTED = 'd', SINGLE_QUOTED = 's';
+		static final Token[] NONE = new Token[0];
+
+		final Token[] tokens;
+		final char endState;
+		private Token[] unresolved = NONE;
+		private int checked = -1;
+
+		Line(String text, char state)
+			{
+			List<Token> list = new ArrayList<Token>();
+			int n = text.length();
+			int i = 0;
+			while (i < n)
+				{
+				if (state != NORMAL)
+					{
+					int e = state == COMMENT ? text.indexOf("*/",i) : text.indexOf( //$NON-NLS-1$
+							state == DOUBLE_QUOTED ? '"' : '\'',i);
+					if (e < 0) break;
+					i = e + (state == COMMENT ? 2 : 1);
+					state = NORMAL;
+					continue;
+					}
+				char c = text.charAt(i);
+				char d = i + 1 < n ? text.charAt(i + 1) : 0;
+				if (c == '/' && d == '/') break;
+				if (c == '/' && d == '*')
+					{
+					state = COMMENT;
+					i += 2;
+					}
+				else if (c == '"' || c == '\'')
+					{
+					state = c == '"' ? DOUBLE_QUOTED : SINGLE_QUOTED;
+					i++;
+					}
+				else if (Character.isLetter(c) || c == '_')
+					{
+					int start = i;
+					while (i < n && isNamePart(text.charAt(i)))
+						i++;
+					String name = text.substring(start,i);
+					int p = start - 1;
+					while (p >= 0 && Character.isWhitespace(text.charAt(p)))
+						p--;
+					boolean member = p >= 0 && text.charAt(p) == '.';
+					int q = i;
+					while (q < n && Character.isWhitespace(text.charAt(q)))
+						q++;
+					boolean call = !member && q < n && text.charAt(q) == '('
+							&& !STATEMENTS.contains(name);
+					list.add(new Token(name,start,call));
+					}
+				else if (Character.isDigit(c) || c == '$')
+					{
+					// Numbers, including hexadecimal ones, are not names
+					i++;
+					while (i < n && (isNamePart(text.charAt(i)) || text.charAt(i) == '.'))
+						i++;
+					}
+				else
+					i++;
+				}
+			tokens = list.isEmpty() ? NONE : list.toArray(new Token[list.size()]);
+			endState = state;
+			}
+
+		private static boolean isNamePart(char c)
+			{
+			return Character.isLetterOrDigit(c) || c == '_';
+			}
+
+		/** The calls on this line to unknown functions, checked again only when they changed. */
+		Token[] unresolved(Set<String> functions, int symbols)
+			{
+			if (checked == symbols) return unresolved;
+			List<Token> list = new ArrayList<Token>();
+			for (Token t : tokens)
+				if (t.call && !functions.contains(t.name)) list.add(t);
+			unresolved = list.isEmpty() ? NONE : list.toArray(new Token[list.size()]);
+			checked = symbols;
+			return unresolved;
+			}
+		}
+	}
@@ -60,6 +60,7 @@ import org.lateralgm.components.ErrorDialog;
 import org.lateralgm.components.GmMenuBar;
 import org.lateralgm.components.impl.CustomFileFilter;
 import org.lateralgm.components.impl.ResNode;
+import org.lateralgm.file.CodecPool;
 import org.lateralgm.file.GMXFileReader;
 import org.lateralgm.file.GMXFileWriter;
 import org.lateralgm.file.GmFileReader;
@@ -457,10 +458,30 @@ public class FileChooser
 
 		public void read(InputStream is, ProjectFile file, URI uri, ResNode root) throws ProjectFormatException
 			{
+			GmFileReader.memoryMap = Prefs.gmkMemoryMap;
+			GmFileReader.spillThreshold = Prefs.gmkSpillThreshold;
 			GmFileReader.readProjectFile(is,file,uri,root);
+			appendCodecStatistics();
 			}
 		}
 
+	/**
+	 * Reports to the output how many compression objects and buffers the last GM8.x load or save
+	 * took from the codec pool instead of allocating them.
+	 */
+	static void appendCodecStatistics()
+		{
+		final String text = Messages.format("FileChooser.CODEC_STATS", //$NON-NLS-1$
+				CodecPool.getAllocationsAvoided(),CodecPool.getAllocations());
+		SwingUtilities.invokeLater(new Runnable()
+			{
+				public void run()
+					{
+					OutputManager.append("\n" + text); //$NON-NLS-1$
+					}
+			});
+		}
+
 	protected static class ProjectWriter implements FileWriter
 		{
 		private int ver;
@@ -474,7 +495,11 @@ public class FileChooser
 			{
 				try
 					{
+					GmFileWriter.deflateThreads = Prefs.saveDeflateThreads > 0 ? Prefs.saveDeflateThreads
+							: Runtime.getRuntime().availableProcessors();
+					GmFileWriter.compressionLevel = Math.max(-1,Math.min(9,Prefs.saveCompressionLevel));
 					GmFileWriter.writeProjectFile(out,f,root,ver);
+					appendCodecStatistics();
 					}
 				catch (IOException e)
 					{
@@ -562,6 +587,10 @@ public class FileChooser
 
 	public void read(InputStream in, ProjectFile file, URI uri, ResNode root) throws GmFormatException
 		{
+		GMXFileReader.loaderThreads = Prefs.gmxLoaderThreads > 0 ? Prefs.gmxLoaderThreads
+				: Runtime.getRuntime().availableProcessors();
+		GMXFileReader.lazyImages = Prefs.gmxLazyImages;
+		GMXFileReader.streaming = Prefs.gmxStreaming;
 		GMXFileReader.readProjectFile(in,file,uri,root);
 		}
 
@@ -582,6 +611,7 @@ public class FileChooser
 		{
 		try
 			{
+			GMXFileWriter.fullRewrite = Prefs.gmxFullRewrite;
 			GMXFileWriter.writeProjectFile(out,f,root);
 			}
 		catch (Exception e)
@@ -619,6 +649,7 @@ public class FileChooser
 		{
 		setTitleURI(null);
 		LGM.newRoot();
+		LGM.currentFile.close();
 		LGM.currentFile = new ProjectFile();
 		LGM.populateTree();
 		fc.setSelectedFile(new File(new String()));
@@ -747,7 +778,11 @@ public class FileChooser
 						}
 					openExceptionHelper(e);
 					}
-				if (pf != null) LGM.currentFile = pf;
+				if (pf != null && pf != LGM.currentFile)
+					{
+					LGM.currentFile.close();
+					LGM.currentFile = pf;
+					}
 
 				// TODO: Since project reading still mutates the LGM root
 				// we must always perform this, even when the load fails.
@@ -910,6 +945,7 @@ public class FileChooser
 			sw.get();
 			OutputManager.append("\n" + Messages.getString("FileChooser.PROJECTSAVED") + ": " +
 					new Date().toString() + " " + uri.getPath());
+			Search.index.write(uri);
 			}
 		catch (ExecutionException | InterruptedException e)
 			{
@@ -46,13 +46,13 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
@@ -550,7 +550,8 @@ public final class LGM
 		}
 
 	// cached icon reading from filename
-	private static final HashMap<String,ImageIcon> iconCache = new HashMap<>();
+	// Concurrent because the search threads also look up icons for their results
+	private static final Map<String,ImageIcon> iconCache = new ConcurrentHashMap<>();
 	public static ImageIcon findIcon(String filename)
 		{
 		ImageIcon ico = iconCache.get(filename);
@@ -852,7 +853,12 @@ public final class LGM
 		while (nodes.hasMoreElements())
 			{
 			ResNode node = (ResNode) nodes.nextElement();
-			if (node.frame != null) node.frame.commitChanges(); // update open frames
+			if (node.frame != null)
+				{
+				node.frame.commitChanges(); // update open frames
+				// not all of the data an editor commits reports its changes
+				node.frame.res.markDirty();
+				}
 			}
 		LGM.getExtensionPackages().commitChanges();
 		LGM.getConstantsFrame().commitChanges();
@@ -872,6 +878,7 @@ public final class LGM
 		LGM.tree.setSelectionRow(0);
 
 		// Reload the search tree so that orphaned references can be dumped.
+		Search.cancelSearch();
 		DefaultMutableTreeNode searchRoot = (DefaultMutableTreeNode) searchTree.getModel().getRoot();
 		searchRoot.removeAllChildren();
 		// Reload because root is invisible.
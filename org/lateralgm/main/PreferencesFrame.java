@@ -1290,7 +1290,7 @@ public class PreferencesFrame extends JDialog implements ActionListener
 
 	private static class RoomEditorGroup extends PreferencesGroup
 		{
-		NumberField undoHistorySize;
+		NumberField undoHistorySize, undoHistoryMemory;
 		JCheckBox useFilledRectangleForViews, useInvertedColorForViews, useFilledRectangleForSelection,
 			useInvertedColorForSelection, useFilledRectangleForMultipleSelection,
 			useInvertedColorForMultipleSelection;
@@ -1311,6 +1311,9 @@ public class PreferencesFrame extends JDialog implements ActionListener
 			JLabel undoHistorySizeLabel = new JLabel(
 					Messages.getString("PreferencesFrame.UNDO_HISTORY_SIZE")); //$NON-NLS-1$
 			undoHistorySize = new NumberField(-1,999999);
+			JLabel undoHistoryMemoryLabel = new JLabel(
+					Messages.getString("PreferencesFrame.UNDO_HISTORY_MEMORY")); //$NON-NLS-1$
+			undoHistoryMemory = new NumberField(-1,999999);
 
 			// Views settings
 			JPanel viewsPanel = new JPanel();
@@ -1464,6 +1467,9 @@ public class PreferencesFrame extends JDialog implements ActionListener
 			/*		*/.addComponent(undoHistorySizeLabel)
 			/*		*/.addComponent(undoHistorySize,PREFERRED_SIZE,PREFERRED_SIZE,PREFERRED_SIZE))
 			/*	*/.addGroup(gl.createSequentialGroup()
+			/*		*/.addComponent(undoHistoryMemoryLabel)
+			/*		*/.addComponent(undoHistoryMemory,PREFERRED_SIZE,PREFERRED_SIZE,PREFERRED_SIZE))
+			/*	*/.addGroup(gl.createSequentialGroup()
 			/*		*/.addComponent(selectionPanel,PREFERRED_SIZE,PREFERRED_SIZE,PREFERRED_SIZE)
 			/*		*/.addComponent(multipleSelectionPanel,PREFERRED_SIZE,PREFERRED_SIZE,PREFERRED_SIZE))
 			/*	*/.addComponent(viewsPanel,PREFERRED_SIZE,PREFERRED_SIZE,PREFERRED_SIZE));
@@ -1473,6 +1479,9 @@ public class PreferencesFrame extends JDialog implements ActionListener
 			/*	*/.addGroup(gl.createParallelGroup(Alignment.BASELINE)
 			/*		*/.addComponent(undoHistorySizeLabel)
 			/*		*/.addComponent(undoHistorySize))
+			/*	*/.addGroup(gl.createParallelGroup(Alignment.BASELINE)
+			/*		*/.addComponent(undoHistoryMemoryLabel)
+			/*		*/.addComponent(undoHistoryMemory))
 			/*	*/.addGroup(gl.createParallelGroup()
 			/*		*/.addComponent(selectionPanel)
 			/*		*/.addComponent(multipleSelectionPanel))
@@ -1485,6 +1494,7 @@ public class PreferencesFrame extends JDialog implements ActionListener
 		public void load()
 			{
 			undoHistorySize.setValue(Prefs.undoHistorySize);
+			undoHistoryMemory.setValue(Prefs.undoHistoryMemory);
 			useFilledRectangleForViews.setSelected(Prefs.useFilledRectangleForViews);
 			useInvertedColorForViews.setSelected(Prefs.useInvertedColorForViews);
 			viewInsideColor.setSelectedColor(Util.convertGmColorWithAlpha(Prefs.viewInsideColor));
@@ -1503,6 +1513,7 @@ public class PreferencesFrame extends JDialog implements ActionListener
 		public void save()
 			{
 			PrefsStore.setUndoHistorySize(undoHistorySize.getIntValue());
+			PrefsStore.setUndoHistoryMemory(undoHistoryMemory.getIntValue());
 			PrefsStore.setFilledRectangleForViews(useFilledRectangleForViews.isSelected());
 			PrefsStore.setInvertedColorForViews(useInvertedColorForViews.isSelected());
 			PrefsStore.setViewInsideColor(Util.getGmColorWithAlpha(viewInsideColor.getSelectedColor()));
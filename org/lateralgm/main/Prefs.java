@@ -155,7 +155,20 @@ public final class Prefs
 		useExternalSoundEditor = !str.isEmpty() && !str.toLowerCase().equals("null");
 		externalSoundEditorCommand = str.toLowerCase().equals("system") ? null : str;
 
+		gmxLoaderThreads = getInt("gmxLoaderThreads",0);
+		gmxLazyImages = getBoolean("gmxLazyImages",true);
+		gmxStreaming = getBoolean("gmxStreaming",true);
+		gmxFullRewrite = getBoolean("gmxFullRewrite",false);
+		saveDeflateThreads = getInt("saveDeflateThreads",0);
+		saveCompressionLevel = getInt("saveCompressionLevel",-1);
+		// Windows keeps a mapped file locked until the mapping is garbage collected,
+		// which would get in the way of saving over the project right after opening it
+		gmkMemoryMap = getBoolean("gmkMemoryMap",
+				!System.getProperty("os.name").toLowerCase().startsWith("windows")); //$NON-NLS-1$ //$NON-NLS-2$
+		gmkSpillThreshold = getInt("gmkSpillThreshold",1048576);
+
 		undoHistorySize = getInt("undoHistorySize",100);
+		undoHistoryMemory = getInt("undoHistoryMemory",64);
 		viewInsideColor = getInt("viewInsideColor",Util.getGmColorWithAlpha(Color.WHITE));
 		viewOutsideColor = getInt("viewOutsideColor",Util.getGmColorWithAlpha(Color.BLACK));
 		useFilledRectangleForViews = getBoolean("filledRectangleForViews",false);
@@ -237,8 +250,19 @@ public final class Prefs
 	public static boolean useExternalSoundEditor;
 	public static String externalSoundEditorCommand;
 
+	public static int gmxLoaderThreads;
+	public static boolean gmxLazyImages;
+	public static boolean gmxStreaming;
+	public static boolean gmxFullRewrite;
+	public static int saveDeflateThreads;
+	public static int saveCompressionLevel;
+	public static boolean gmkMemoryMap;
+	public static int gmkSpillThreshold;
+
 	// Room editor settings
 	public static int undoHistorySize;
+	/** The memory the undo history of a room may retain, in megabytes, or -1 for no limit. */
+	public static int undoHistoryMemory;
 	public static int viewInsideColor;
 	public static int viewOutsideColor;
 	public static boolean useFilledRectangleForViews;
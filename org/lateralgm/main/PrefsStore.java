@@ -255,6 +255,12 @@ public final class PrefsStore
 		Prefs.undoHistorySize = undoHistorySize;
 		}
 
+	public static void setUndoHistoryMemory(int undoHistoryMemory)
+		{
+		PREFS.putInt("undoHistoryMemory",undoHistoryMemory);
+		Prefs.undoHistoryMemory = undoHistoryMemory;
+		}
+
 	public static void setFilledRectangleForViews(boolean selected)
 		{
 		PREFS.putBoolean("filledRectangleForViews",selected);
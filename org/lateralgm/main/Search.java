@@ -38,6 +38,7 @@ import javax.swing.JToolBar;
 import javax.swing.JTree;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.GroupLayout.Alignment;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
@@ -65,7 +66,6 @@ import org.lateralgm.resources.sub.Event;
 import org.lateralgm.resources.sub.Instance;
 import org.lateralgm.resources.sub.MainEvent;
 import org.lateralgm.resources.sub.Moment;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.subframes.ActionFrame;
 import org.lateralgm.subframes.CodeFrame;
 import org.lateralgm.subframes.GmObjectFrame;
@@ -82,6 +82,13 @@ public class Search
 	static JCheckBox wholeWordCB, pruneResultsCB;
 	private static JButton closeButton;
 
+	/** Lets searches skip the resources that cannot match, kept up to date between searches. */
+	static final SearchIndex index = new SearchIndex();
+	private static final SearchExecutor executor = new SearchExecutor();
+	private static final TreeFilter treeFilter = new TreeFilter();
+	/** How long typing in the filter box has to pause before the tree is filtered, in ms. */
+	private static final int FILTER_DELAY = 150;
+
 	private Search()
 		{
 		}
@@ -144,6 +151,31 @@ public class Search
 				}
 			return ((TreeNode) parent).getChildCount();
 			}
+
+		public int getIndexOfChild(Object parent, Object child)
+			{
+			if (filterIsActive && parent instanceof ResNode && child instanceof TreeNode)
+				return ((ResNode) parent).getIndex((TreeNode) child,filterIsActive);
+			return super.getIndexOfChild(parent,child);
+			}
+
+		/**
+		 * Tells the listeners that the given children of a node were shown by the filter.
+		 * @param childIndices the indices of the children among the visible children, ascending
+		 */
+		public void visibleNodesWereInserted(TreeNode node, int[] childIndices, Object[] children)
+			{
+			fireTreeNodesInserted(this,getPathToRoot(node),childIndices,children);
+			}
+
+		/**
+		 * Tells the listeners that the given children of a node were hidden by the filter.
+		 * @param childIndices the indices the children had among the visible children, ascending
+		 */
+		public void visibleNodesWereRemoved(TreeNode node, int[] childIndices, Object[] children)
+			{
+			fireTreeNodesRemoved(this,getPathToRoot(node),childIndices,children);
+			}
 		}
 
 	private static boolean expressionMatch(String token, String expression, boolean matchCase,
@@ -207,8 +239,19 @@ public class Search
 			{
 			return false;
 			}
-		DefaultMutableTreeNode firstResult = applyFilterRecursion(children,filter,expression,matchCase,
-				wholeWord);
+		DefaultMutableTreeNode firstResult;
+		if (LGM.root != null && children == LGM.root.getChildren())
+			{
+			// The tree filter reports its changes to the tree itself
+			firstResult = treeFilter.apply(LGM.root,expression,matchCase,wholeWord,filter);
+			if (firstResult != null && selectFirst)
+				{
+				LGM.tree.setSelectionPath(new TreePath(firstResult.getPath()));
+				return true;
+				}
+			return false;
+			}
+		firstResult = applyFilterRecursion(children,filter,expression,matchCase,wholeWord);
 
 		if (firstResult != null && selectFirst)
 			{
@@ -490,394 +533,346 @@ public class Search
 		return resultNodes;
 		}
 
-	public static void searchInResourcesRecursion(DefaultMutableTreeNode node, Pattern pattern)
+	/**
+	 * Searches the code of one resource, returning the node of its results or null if nothing
+	 * matched. The resource is only read, so this may run on a worker thread.
+	 */
+	static SearchResultNode searchInResource(ResNode resNode, Resource<?,?> resderef, Pattern pattern)
 		{
-		int numChildren = node.getChildCount();
-		for (int i = 0; i < numChildren; ++i)
+		SearchResultNode resultRoot = null;
+		if (resNode.kind == Script.class)
 			{
-			DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
-			if (child instanceof ResNode)
+			Script res = (Script) resderef;
+			String code = res.getCode();
+			List<LineMatch> matches = getMatchingLines(code,pattern);
+			if (matches.size() > 0)
 				{
-				ResNode resNode = (ResNode) child;
-				if (resNode.status != ResNode.STATUS_SECONDARY)
+				resultRoot = new SearchResultNode(
+						formatMatchCountText(res.getName(),matches.size()));
+				resultRoot.ref = res.reference;
+				resultRoot.status = ResNode.STATUS_SECONDARY;
+				resultRoot.setIcon(res.getNode().getIcon());
+				for (LineMatch match : matches)
 					{
-					searchInResourcesRecursion(child,pattern);
+					if (match.matchedText.size() > 0)
+						{
+						String text = match.toHighlightableString();
+
+						SearchResultNode resultNode = new SearchResultNode(text);
+						resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
+						resultNode.status = SearchResultNode.STATUS_RESULT;
+						resultNode.data = new Object[] { match.lineNum };
+						resultRoot.add(resultNode);
+						}
 					}
-				else
+				}
+			}
+		else if (resNode.kind == Shader.class)
+			{
+			Shader res = (Shader) resderef;
+			String vcode = res.getVertexCode();
+			String fcode = res.getFragmentCode();
+			List<LineMatch> vertexmatches = getMatchingLines(vcode,pattern);
+			List<LineMatch> fragmentmatches = getMatchingLines(fcode,pattern);
+			if (vertexmatches.size() + fragmentmatches.size() > 0)
+				{
+				resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),
+						vertexmatches.size() + fragmentmatches.size()));
+				resultRoot.ref = res.reference;
+				resultRoot.status = ResNode.STATUS_SECONDARY;
+				resultRoot.setIcon(res.getNode().getIcon());
+
+				SearchResultNode resultGroupNode = new SearchResultNode(formatMatchCountText(
+						Messages.getString("TreeFilter.VERTEX_CODE") + ":",vertexmatches.size()));
+				resultGroupNode.status = SearchResultNode.STATUS_VERTEX_CODE;
+				resultRoot.add(resultGroupNode);
+				for (LineMatch match : vertexmatches)
 					{
-					SearchResultNode resultRoot = null;
-					ResourceReference<?> ref = resNode.getRes();
-
-					if (ref != null)
+					if (match.matchedText.size() > 0)
 						{
-						Resource<?,?> resderef = ref.get();
-						if (resNode.frame != null)
-							{
-							resNode.frame.commitChanges();
-							resderef = resNode.frame.res;
-							}
+						String text = match.toHighlightableString();
 
-						if (resNode.kind == Script.class)
-							{
-							Script res = (Script) resderef;
-							String code = res.getCode();
-							List<LineMatch> matches = getMatchingLines(code,pattern);
-							if (matches.size() > 0)
-								{
-								resultRoot = new SearchResultNode(
-										formatMatchCountText(res.getName(),matches.size()));
-								resultRoot.ref = res.reference;
-								resultRoot.status = ResNode.STATUS_SECONDARY;
-								resultRoot.setIcon(res.getNode().getIcon());
-								for (LineMatch match : matches)
-									{
-									if (match.matchedText.size() > 0)
-										{
-										String text = match.toHighlightableString();
+						SearchResultNode resultNode = new SearchResultNode(text);
+						resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
+						resultNode.status = SearchResultNode.STATUS_RESULT;
+						resultNode.data = new Object[] { match.lineNum };
+						resultGroupNode.add(resultNode);
+						}
+					}
 
-										SearchResultNode resultNode = new SearchResultNode(text);
-										resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
-										resultNode.status = SearchResultNode.STATUS_RESULT;
-										resultNode.data = new Object[] { match.lineNum };
-										resultRoot.add(resultNode);
-										}
-									}
-								}
-							}
-						else if (resNode.kind == Shader.class)
-							{
-							Shader res = (Shader) resderef;
-							String vcode = res.getVertexCode();
-							String fcode = res.getFragmentCode();
-							List<LineMatch> vertexmatches = getMatchingLines(vcode,pattern);
-							List<LineMatch> fragmentmatches = getMatchingLines(fcode,pattern);
-							if (vertexmatches.size() + fragmentmatches.size() > 0)
-								{
-								resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),
-										vertexmatches.size() + fragmentmatches.size()));
-								resultRoot.ref = res.reference;
-								resultRoot.status = ResNode.STATUS_SECONDARY;
-								resultRoot.setIcon(res.getNode().getIcon());
-
-								SearchResultNode resultGroupNode = new SearchResultNode(formatMatchCountText(
-										Messages.getString("TreeFilter.VERTEX_CODE") + ":",vertexmatches.size()));
-								resultGroupNode.status = SearchResultNode.STATUS_VERTEX_CODE;
-								resultRoot.add(resultGroupNode);
-								for (LineMatch match : vertexmatches)
-									{
-									if (match.matchedText.size() > 0)
-										{
-										String text = match.toHighlightableString();
+				resultGroupNode = new SearchResultNode(formatMatchCountText(
+						Messages.getString("TreeFilter.FRAGMENT_CODE") + ":",fragmentmatches.size()));
+				resultGroupNode.status = SearchResultNode.STATUS_FRAGMENT_CODE;
+				resultRoot.add(resultGroupNode);
+				for (LineMatch match : fragmentmatches)
+					{
+					if (match.matchedText.size() > 0)
+						{
+						String text = match.toHighlightableString();
 
-										SearchResultNode resultNode = new SearchResultNode(text);
-										resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
-										resultNode.status = SearchResultNode.STATUS_RESULT;
-										resultNode.data = new Object[] { match.lineNum };
-										resultGroupNode.add(resultNode);
-										}
-									}
+						SearchResultNode resultNode = new SearchResultNode(text);
+						resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
+						resultNode.status = SearchResultNode.STATUS_RESULT;
+						resultNode.data = new Object[] { match.lineNum };
+						resultGroupNode.add(resultNode);
+						}
+					}
+				}
+			}
+		else if (resNode.kind == GmObject.class)
+			{
+			GmObject res = (GmObject) resderef;
 
-								resultGroupNode = new SearchResultNode(formatMatchCountText(
-										Messages.getString("TreeFilter.FRAGMENT_CODE") + ":",fragmentmatches.size()));
-								resultGroupNode.status = SearchResultNode.STATUS_FRAGMENT_CODE;
-								resultRoot.add(resultGroupNode);
-								for (LineMatch match : fragmentmatches)
-									{
-									if (match.matchedText.size() > 0)
-										{
-										String text = match.toHighlightableString();
+			ArrayList<SearchResultNode> meNodes = new ArrayList<>();
+			int matchCount = 0;
+			for (MainEvent me : res.mainEvents)
+				{
+				ArrayList<SearchResultNode> evNodes = new ArrayList<>();
+				int meMatches = 0;
+				int mainid = 0;
+				for (Event ev : me.events)
+					{
+					mainid = ev.mainId;
+					ArrayList<SearchResultNode> actionNodes = new ArrayList<>();
+					int evMatches = 0;
+					List<org.lateralgm.resources.sub.Action> actions = ev.actions;
+					for (int ii = 0; ii < actions.size(); ii++)
+						{
+						org.lateralgm.resources.sub.Action act = actions.get(ii);
+						ArrayList<SearchResultNode> resultNodes =
+								Search.searchInAction(act,pattern);
 
-										SearchResultNode resultNode = new SearchResultNode(text);
-										resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
-										resultNode.status = SearchResultNode.STATUS_RESULT;
-										resultNode.data = new Object[] { match.lineNum };
-										resultGroupNode.add(resultNode);
-										}
-									}
-								}
+						evMatches += resultNodes.size();
+						if (resultNodes.size() > 0)
+							{
+							// Uses the same method of getting the Action name as ActionFrame
+							SearchResultNode actRoot = new SearchResultNode(formatMatchCountText(
+									act.getLibAction().name.replace("_"," "),resultNodes.size()));
+							actRoot.status = SearchResultNode.STATUS_ACTION;
+							actRoot.data = new Object[] { ii };
+							actRoot.setIcon(
+									new ImageIcon(act.getLibAction().actImage.getScaledInstance(16,16,0)));
+							for (SearchResultNode actn : resultNodes)
+								actRoot.add(actn);
+							actionNodes.add(actRoot);
 							}
-						else if (resNode.kind == GmObject.class)
+						}
+					meMatches += evMatches;
+					if (actionNodes.size() > 0)
+						{
+						SearchResultNode evRoot = new SearchResultNode(formatMatchCountText(
+								ev.toString().replaceAll("<","&lt;").replaceAll(">","&gt;"),evMatches));
+						evRoot.status = SearchResultNode.STATUS_EVENT;
+						evRoot.setIcon(LGM.getIconForKey("EventNode.EVENT" + ev.mainId));
+						evRoot.data = new Object[] { ev.mainId,ev.id };
+						for (SearchResultNode resn : actionNodes)
+							evRoot.add(resn);
+						evNodes.add(evRoot);
+						}
+					}
+				matchCount += meMatches;
+				if (evNodes.size() > 0)
+					{
+					if (evNodes.size() > 1)
+						{
+						SearchResultNode meRoot = new SearchResultNode(formatMatchCountText(
+								Messages.getString("MainEvent.EVENT" + mainid),meMatches));
+						meRoot.status = SearchResultNode.STATUS_MAIN_EVENT;
+						meRoot.setIcon(LGM.getIconForKey("EventNode.GROUP" + mainid));
+						for (SearchResultNode resn : evNodes)
 							{
-							GmObject res = (GmObject) resderef;
-
-							ArrayList<SearchResultNode> meNodes = new ArrayList<>();
-							int matchCount = 0;
-							for (MainEvent me : res.mainEvents)
-								{
-								ArrayList<SearchResultNode> evNodes = new ArrayList<>();
-								int meMatches = 0;
-								int mainid = 0;
-								for (Event ev : me.events)
-									{
-									mainid = ev.mainId;
-									ArrayList<SearchResultNode> actionNodes = new ArrayList<>();
-									int evMatches = 0;
-									List<org.lateralgm.resources.sub.Action> actions = ev.actions;
-									for (int ii = 0; ii < actions.size(); ii++)
-										{
-										org.lateralgm.resources.sub.Action act = actions.get(ii);
-										ArrayList<SearchResultNode> resultNodes =
-												Search.searchInAction(act,pattern);
-
-										evMatches += resultNodes.size();
-										if (resultNodes.size() > 0)
-											{
-											// Uses the same method of getting the Action name as ActionFrame
-											SearchResultNode actRoot = new SearchResultNode(formatMatchCountText(
-													act.getLibAction().name.replace("_"," "),resultNodes.size()));
-											actRoot.status = SearchResultNode.STATUS_ACTION;
-											actRoot.data = new Object[] { ii };
-											actRoot.setIcon(
-													new ImageIcon(act.getLibAction().actImage.getScaledInstance(16,16,0)));
-											for (SearchResultNode actn : resultNodes)
-												actRoot.add(actn);
-											actionNodes.add(actRoot);
-											}
-										}
-									meMatches += evMatches;
-									if (actionNodes.size() > 0)
-										{
-										SearchResultNode evRoot = new SearchResultNode(formatMatchCountText(
-												ev.toString().replaceAll("<","&lt;").replaceAll(">","&gt;"),evMatches));
-										evRoot.status = SearchResultNode.STATUS_EVENT;
-										evRoot.setIcon(LGM.getIconForKey("EventNode.EVENT" + ev.mainId));
-										evRoot.data = new Object[] { ev.mainId,ev.id };
-										for (SearchResultNode resn : actionNodes)
-											evRoot.add(resn);
-										evNodes.add(evRoot);
-										}
-									}
-								matchCount += meMatches;
-								if (evNodes.size() > 0)
-									{
-									if (evNodes.size() > 1)
-										{
-										SearchResultNode meRoot = new SearchResultNode(formatMatchCountText(
-												Messages.getString("MainEvent.EVENT" + mainid),meMatches));
-										meRoot.status = SearchResultNode.STATUS_MAIN_EVENT;
-										meRoot.setIcon(LGM.getIconForKey("EventNode.GROUP" + mainid));
-										for (SearchResultNode resn : evNodes)
-											{
-											meRoot.add(resn);
-											}
-										meNodes.add(meRoot);
-										}
-									else
-										{
-										for (SearchResultNode resn : evNodes)
-											{
-											meNodes.add(resn);
-											}
-										}
-									}
-								}
-
-							if (meNodes.size() > 0)
-								{
-								resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),matchCount));
-								resultRoot.ref = res.reference;
-								resultRoot.status = ResNode.STATUS_SECONDARY;
-								resultRoot.setIcon(res.getNode().getIcon());
-								}
-
-							for (SearchResultNode resn : meNodes)
-								resultRoot.add(resn);
+							meRoot.add(resn);
 							}
-						else if (resNode.kind == Timeline.class)
+						meNodes.add(meRoot);
+						}
+					else
+						{
+						for (SearchResultNode resn : evNodes)
 							{
-							Timeline res = (Timeline) resderef;
-
-							ArrayList<SearchResultNode> momentNodes = new ArrayList<>();
-							int matchCount = 0;
-							for (Moment mom : res.moments)
-								{
-								ArrayList<SearchResultNode> actionNodes = new ArrayList<>();
-								int momentMatches = 0;
-								List<org.lateralgm.resources.sub.Action> actions = mom.actions;
-								for (int ii = 0; ii < actions.size(); ii++)
-									{
-									org.lateralgm.resources.sub.Action act = actions.get(ii);
-									ArrayList<SearchResultNode> resultNodes =
-											Search.searchInAction(act,pattern);
+							meNodes.add(resn);
+							}
+						}
+					}
+				}
 
-									momentMatches += resultNodes.size();
-									if (resultNodes.size() > 0)
-										{
-										// Uses the same method of getting the Action name as ActionFrame
-										SearchResultNode actRoot = new SearchResultNode(
-												formatMatchCountText(act.getLibAction().name.replace("_"," "),resultNodes.size()));
-										actRoot.status = SearchResultNode.STATUS_ACTION;
-										actRoot.data = new Object[] { ii };
-										actRoot.setIcon(
-												new ImageIcon(act.getLibAction().actImage.getScaledInstance(16,16,0)));
-										for (SearchResultNode actn : resultNodes)
-											actRoot.add(actn);
-										actionNodes.add(actRoot);
-										}
+			if (meNodes.size() > 0)
+				{
+				resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),matchCount));
+				resultRoot.ref = res.reference;
+				resultRoot.status = ResNode.STATUS_SECONDARY;
+				resultRoot.setIcon(res.getNode().getIcon());
+				}
 
-									}
-								matchCount += momentMatches;
-								if (actionNodes.size() > 0)
-									{
-									SearchResultNode momentRoot = new SearchResultNode(
-											formatMatchCountText(mom.toString(),momentMatches));
-									momentRoot.status = SearchResultNode.STATUS_MOMENT;
-									momentRoot.data = new Object[] { mom.stepNo };
-									momentRoot.setIcon(null);
-									for (SearchResultNode resn : actionNodes)
-										momentRoot.add(resn);
-									momentNodes.add(momentRoot);
-									}
-								}
+			for (SearchResultNode resn : meNodes)
+				resultRoot.add(resn);
+			}
+		else if (resNode.kind == Timeline.class)
+			{
+			Timeline res = (Timeline) resderef;
 
-							if (momentNodes.size() > 0)
-								{
-								resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),matchCount));
-								resultRoot.ref = res.reference;
-								resultRoot.status = ResNode.STATUS_SECONDARY;
-								resultRoot.setIcon(res.getNode().getIcon());
-								}
+			ArrayList<SearchResultNode> momentNodes = new ArrayList<>();
+			int matchCount = 0;
+			for (Moment mom : res.moments)
+				{
+				ArrayList<SearchResultNode> actionNodes = new ArrayList<>();
+				int momentMatches = 0;
+				List<org.lateralgm.resources.sub.Action> actions = mom.actions;
+				for (int ii = 0; ii < actions.size(); ii++)
+					{
+					org.lateralgm.resources.sub.Action act = actions.get(ii);
+					ArrayList<SearchResultNode> resultNodes =
+							Search.searchInAction(act,pattern);
 
-							for (SearchResultNode momn : momentNodes)
-								resultRoot.add(momn);
-							}
-						else if (resNode.kind == Room.class)
-							{
-							Room res = (Room) resderef;
+					momentMatches += resultNodes.size();
+					if (resultNodes.size() > 0)
+						{
+						// Uses the same method of getting the Action name as ActionFrame
+						SearchResultNode actRoot = new SearchResultNode(
+								formatMatchCountText(act.getLibAction().name.replace("_"," "),resultNodes.size()));
+						actRoot.status = SearchResultNode.STATUS_ACTION;
+						actRoot.data = new Object[] { ii };
+						actRoot.setIcon(
+								new ImageIcon(act.getLibAction().actImage.getScaledInstance(16,16,0)));
+						for (SearchResultNode actn : resultNodes)
+							actRoot.add(actn);
+						actionNodes.add(actRoot);
+						}
 
-							ArrayList<SearchResultNode> resultNodes = new ArrayList<>();
-							int matchCount = 0;
+					}
+				matchCount += momentMatches;
+				if (actionNodes.size() > 0)
+					{
+					SearchResultNode momentRoot = new SearchResultNode(
+							formatMatchCountText(mom.toString(),momentMatches));
+					momentRoot.status = SearchResultNode.STATUS_MOMENT;
+					momentRoot.data = new Object[] { mom.stepNo };
+					momentRoot.setIcon(null);
+					for (SearchResultNode resn : actionNodes)
+						momentRoot.add(resn);
+					momentNodes.add(momentRoot);
+					}
+				}
 
-							String code = res.getCode();
-							List<LineMatch> matches = getMatchingLines(code,pattern);
-							matchCount += matches.size();
-							ArrayList<SearchResultNode> codeNodes = new ArrayList<>();
-							for (LineMatch match : matches)
-								{
-								if (match.matchedText.size() > 0)
-									{
-									String text = match.toHighlightableString();
+			if (momentNodes.size() > 0)
+				{
+				resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),matchCount));
+				resultRoot.ref = res.reference;
+				resultRoot.status = ResNode.STATUS_SECONDARY;
+				resultRoot.setIcon(res.getNode().getIcon());
+				}
 
-									SearchResultNode resultNode = new SearchResultNode(text);
-									resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
-									resultNode.status = SearchResultNode.STATUS_RESULT;
-									resultNode.data = new Object[] { match.lineNum };
-									codeNodes.add(resultNode);
-									}
-								}
+			for (SearchResultNode momn : momentNodes)
+				resultRoot.add(momn);
+			}
+		else if (resNode.kind == Room.class)
+			{
+			Room res = (Room) resderef;
 
-							if (codeNodes.size() > 0)
-								{
-								SearchResultNode resultNode = new SearchResultNode(formatMatchCountText(
-										Messages.getString("TreeFilter.CREATION_CODE"),matches.size()));
-								resultNode.setIcon(null);
-								resultNode.status = SearchResultNode.STATUS_ROOM_CREATION;
-								resultNodes.add(resultNode);
-
-								for (SearchResultNode codeNode : codeNodes)
-									resultNode.add(codeNode);
-								}
+			ArrayList<SearchResultNode> resultNodes = new ArrayList<>();
+			int matchCount = 0;
 
-							for (Instance inst : res.instances)
-								{
-								code = inst.getCode();
-								matches = getMatchingLines(code,pattern);
-								matchCount += matches.size();
-								codeNodes = new ArrayList<>();
-								for (LineMatch match : matches)
-									{
-									if (match.matchedText.size() > 0)
-										{
-										String text = match.toHighlightableString();
+			String code = res.getCode();
+			List<LineMatch> matches = getMatchingLines(code,pattern);
+			matchCount += matches.size();
+			ArrayList<SearchResultNode> codeNodes = new ArrayList<>();
+			for (LineMatch match : matches)
+				{
+				if (match.matchedText.size() > 0)
+					{
+					String text = match.toHighlightableString();
 
-										SearchResultNode resultNode = new SearchResultNode(text);
-										resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
-										resultNode.data = new Object[] { match.lineNum };
-										resultNode.status = SearchResultNode.STATUS_RESULT;
-										codeNodes.add(resultNode);
-										}
-									}
+					SearchResultNode resultNode = new SearchResultNode(text);
+					resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
+					resultNode.status = SearchResultNode.STATUS_RESULT;
+					resultNode.data = new Object[] { match.lineNum };
+					codeNodes.add(resultNode);
+					}
+				}
 
-								if (codeNodes.size() > 0)
-									{
-									SearchResultNode resultNode = new SearchResultNode(formatMatchCountText(
-											Messages.getString("TreeFilter.INSTANCE") + " " + inst.getID(),
-											matches.size()));
-
-									Resource<?,?> obj = ((ResourceReference<?>) inst.properties.get(
-											PInstance.OBJECT)).get();
-									resultNode.setIcon(obj == null ? null : obj.getNode().getIcon());
-									resultNode.status = SearchResultNode.STATUS_INSTANCE_CREATION;
-									resultNode.data = new Object[] { inst.getID() };
-									resultNodes.add(resultNode);
-
-									for (SearchResultNode codeNode : codeNodes)
-										resultNode.add(codeNode);
-									}
-								}
+			if (codeNodes.size() > 0)
+				{
+				SearchResultNode resultNode = new SearchResultNode(formatMatchCountText(
+						Messages.getString("TreeFilter.CREATION_CODE"),matches.size()));
+				resultNode.setIcon(null);
+				resultNode.status = SearchResultNode.STATUS_ROOM_CREATION;
+				resultNodes.add(resultNode);
+
+				for (SearchResultNode codeNode : codeNodes)
+					resultNode.add(codeNode);
+				}
 
-							if (resultNodes.size() > 0)
-								{
-								resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),matchCount));
-								resultRoot.ref = res.reference;
-								resultRoot.status = ResNode.STATUS_SECONDARY;
-								resultRoot.setIcon(res.getNode().getIcon());
-								}
+			for (Instance inst : res.instances)
+				{
+				code = inst.getCode();
+				matches = getMatchingLines(code,pattern);
+				matchCount += matches.size();
+				codeNodes = new ArrayList<>();
+				for (LineMatch match : matches)
+					{
+					if (match.matchedText.size() > 0)
+						{
+						String text = match.toHighlightableString();
 
-							for (SearchResultNode resultNode : resultNodes)
-								resultRoot.add(resultNode);
-							}
+						SearchResultNode resultNode = new SearchResultNode(text);
+						resultNode.setIcon(LGM.getIconForKey("TreeFilter.RESULT"));
+						resultNode.data = new Object[] { match.lineNum };
+						resultNode.status = SearchResultNode.STATUS_RESULT;
+						codeNodes.add(resultNode);
+						}
+					}
 
-						if (resultRoot != null)
-							{
-							TreeNode[] paths = resNode.getPath();
-							DefaultMutableTreeNode searchNode = (DefaultMutableTreeNode) LGM.searchTree.getModel().getRoot();
-							// start at 1 because we don't want to copy the root
-							// subtract 1 so we don't consider the node itself
-							for (int n = 1; n < paths.length - 1; n++)
-								{
-								ResNode pathNode = (ResNode) paths[n];
-								boolean found = false;
-								for (int y = 0; y < searchNode.getChildCount(); y++)
-									{
-									DefaultMutableTreeNode childNode = (DefaultMutableTreeNode) searchNode.getChildAt(
-											y);
-									if (childNode.getUserObject() == pathNode.getUserObject())
-										{
-										searchNode = childNode;
-										found = true;
-										break;
-										}
-									}
-								if (!found)
-									{
-									SearchResultNode newSearchNode = new SearchResultNode(pathNode.getUserObject());
-									newSearchNode.status = pathNode.status;
-									searchNode.add(newSearchNode);
-									searchNode = newSearchNode;
-									}
-								if (pathNode == resNode.getParent()) searchNode.add(resultRoot);
-								}
+				if (codeNodes.size() > 0)
+					{
+					SearchResultNode resultNode = new SearchResultNode(formatMatchCountText(
+							Messages.getString("TreeFilter.INSTANCE") + " " + inst.getID(),
+							matches.size()));
+
+					Resource<?,?> obj = inst.getObject().get();
+					resultNode.setIcon(obj == null ? null : obj.getNode().getIcon());
+					resultNode.status = SearchResultNode.STATUS_INSTANCE_CREATION;
+					resultNode.data = new Object[] { inst.getID() };
+					resultNodes.add(resultNode);
 
-							}
-						}
+					for (SearchResultNode codeNode : codeNodes)
+						resultNode.add(codeNode);
 					}
 				}
+
+			if (resultNodes.size() > 0)
+				{
+				resultRoot = new SearchResultNode(formatMatchCountText(res.getName(),matchCount));
+				resultRoot.ref = res.reference;
+				resultRoot.status = ResNode.STATUS_SECONDARY;
+				resultRoot.setIcon(res.getNode().getIcon());
+				}
+
+			for (SearchResultNode resultNode : resultNodes)
+				resultRoot.add(resultNode);
 			}
+		return resultRoot;
 		}
 
 	public static void searchInResources(DefaultMutableTreeNode node, String expression,
 			boolean regex, boolean matchCase, boolean wholeWord)
 		{
+		executor.cancel();
 		DefaultMutableTreeNode searchRoot = (DefaultMutableTreeNode) LGM.searchTree.getModel().getRoot();
 		searchRoot.removeAllChildren();
 		Pattern pattern = Pattern.compile(
 				wholeWord ? "\\b" + Pattern.quote(expression) + "\\b"
 						: regex ? expression : Pattern.quote(expression),
 				matchCase ? 0 : Pattern.CASE_INSENSITIVE);
-		searchInResourcesRecursion(node,pattern);
+		SearchIndex.Query query = new SearchIndex.Query(expression,regex && !wholeWord);
 		// Reload because root is invisible.
 		((DefaultTreeModel) LGM.searchTree.getModel()).reload();
+		// The results are added to the tree by the executor as they are found
+		executor.start(node,pattern,query.grams.length == 0 ? null : query);
+		}
+
+	/** Stops the search in resources that is still running, if any. */
+	public static void cancelSearch()
+		{
+		executor.cancel();
 		}
 
 	static class SearchResultNode extends DefaultMutableTreeNode
@@ -1352,14 +1347,10 @@ public class Search
 				}
 			});
 
-		filterText.getDocument().addDocumentListener(new DocumentListener()
+		// Filter once typing pauses rather than on every keystroke
+		final Timer filterTimer = new Timer(FILTER_DELAY,new ActionListener()
 			{
-			public void changedUpdate(DocumentEvent e)
-				{
-
-				}
-
-			public void removeUpdate(DocumentEvent e)
+			public void actionPerformed(ActionEvent e)
 				{
 				InvisibleTreeModel ml = (InvisibleTreeModel) LGM.tree.getModel();
 				if (ml.isActivatedFilter())
@@ -1369,16 +1360,26 @@ public class Search
 					Search.searchFilter(LGM.root,filterText.getText(),matchCaseCB.isSelected(),
 							wholeWordCB.isSelected(),false);
 				}
+			});
+		filterTimer.setRepeats(false);
+
+		filterText.getDocument().addDocumentListener(new DocumentListener()
+			{
+			public void changedUpdate(DocumentEvent e)
+				{
+
+				}
+
+			public void removeUpdate(DocumentEvent e)
+				{
+				cancelSearch();
+				filterTimer.restart();
+				}
 
 			public void insertUpdate(DocumentEvent e)
 				{
-				InvisibleTreeModel ml = (InvisibleTreeModel) LGM.tree.getModel();
-				if (ml.isActivatedFilter())
-					Search.applyFilter(LGM.root.getChildren(),ml.isActivatedFilter(),filterText.getText(),false,
-							wholeWordCB.isSelected(),true);
-				else
-					Search.searchFilter(LGM.root,filterText.getText(),matchCaseCB.isSelected(),
-							wholeWordCB.isSelected(),false);
+				cancelSearch();
+				filterTimer.restart();
 				}
 			});
 
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.main;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.swing.SwingUtilities;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+
+import org.lateralgm.components.impl.ResNode;
+import org.lateralgm.main.Search.SearchResultNode;
+import org.lateralgm.messages.Messages;
+import org.lateralgm.resources.GmObject;
+import org.lateralgm.resources.Resource;
+import org.lateralgm.resources.ResourceReference;
+import org.lateralgm.resources.Room;
+import org.lateralgm.resources.Script;
+import org.lateralgm.resources.Shader;
+import org.lateralgm.resources.Timeline;
+
+/**
+ * Runs the project-wide search on worker threads, one task per kind of resource, and adds the
+ * results to the search tree in batches as they are found, in the order of the resource tree.
+ * Starting a search cancels the one still running. Open frames are committed and the resources
+ * to search are gathered on the event dispatch thread; a resource that is changed while a worker
+ * reads it is searched again on the event dispatch thread once the workers are done.
+ */
+final class SearchExecutor
+	{
+	private static final Class<?>[] KINDS = { Script.class,Shader.class,GmObject.class,
+			Timeline.class,Room.class };
+
+	private ExecutorService pool;
+	private Run current;
+
+	/** Starts searching the resources below the given node, cancelling the previous search. */
+	void start(DefaultMutableTreeNode root, Pattern pattern, SearchIndex.Query query)
+		{
+		cancel();
+		if (pool == null)
+			{
+			int threads = Math.min(KINDS.length,Runtime.getRuntime().availableProcessors());
+			pool = Executors.newFixedThreadPool(threads,new ThreadFactory()
+				{
+					private int count;
+
+					public Thread newThread(Runnable r)
+						{
+						Thread t = new Thread(r,"Search " + (++count)); //$NON-NLS-1$
+						t.setDaemon(true);
+						t.setPriority(Thread.NORM_PRIORITY - 1);
+						return t;
+						}
+				});
+			}
+		current = new Run(pattern,query);
+		current.collect(root);
+		current.start();
+		}
+
+	/** Stops the running search, if any, keeping the results found so far. */
+	void cancel()
+		{
+		if (current != null) current.cancelled = true;
+		current = null;
+		}
+
+	/** A resource to search and, once searched, the node of its results. */
+	private static final class Found
+		{
+		final ResNode node;
+		final Resource<?,?> res;
+		SearchResultNode result;
+
+		Found(ResNode node, Resource<?,?> res)
+			{
+			this.node = node;
+			this.res = res;
+			}
+		}
+
+	private final class Run implements Runnable
+		{
+		final Pattern pattern;
+		final SearchIndex.Query query;
+		final long startTime = System.currentTimeMillis();
+		final LinkedHashMap<Class<?>,List<Found>> work = new LinkedHashMap<Class<?>,List<Found>>();
+		int total;
+		volatile boolean cancelled;
+
+		final AtomicInteger pending = new AtomicInteger();
+		final AtomicInteger scanned = new AtomicInteger();
+		final ConcurrentLinkedQueue<Found> found = new ConcurrentLinkedQueue<Found>();
+		final ConcurrentLinkedQueue<Found> retry = new ConcurrentLinkedQueue<Found>();
+		final AtomicBoolean flushQueued = new AtomicBoolean();
+
+		/** The position of each node of the resource tree among its siblings. */
+		final IdentityHashMap<TreeNode,Integer> order = new IdentityHashMap<TreeNode,Integer>();
+		/** The resource tree node each node of the search tree stands for. */
+		final IdentityHashMap<TreeNode,TreeNode> sources = new IdentityHashMap<TreeNode,TreeNode>();
+		final IdentityHashMap<TreeNode,SearchResultNode> folders =
+				new IdentityHashMap<TreeNode,SearchResultNode>();
+
+		Run(Pattern pattern, SearchIndex.Query query)
+			{
+			this.pattern = pattern;
+			this.query = query;
+			for (Class<?> kind : KINDS)
+				work.put(kind,new ArrayList<Found>());
+			}
+
+		void collect(DefaultMutableTreeNode node)
+			{
+			int numChildren = node.getChildCount();
+			for (int i = 0; i < numChildren; ++i)
+				{
+				TreeNode child = node.getChildAt(i);
+				if (!(child instanceof ResNode)) continue;
+				ResNode resNode = (ResNode) child;
+				order.put(resNode,i);
+				if (resNode.status != ResNode.STATUS_SECONDARY)
+					{
+					collect(resNode);
+					continue;
+					}
+				List<Found> kind = work.get(resNode.kind);
+				ResourceReference<?> ref = resNode.getRes();
+				if (kind == null || ref == null) continue;
+				Resource<?,?> res = ref.get();
+				if (resNode.frame != null)
+					{
+					resNode.frame.commitChanges();
+					res = resNode.frame.res;
+					}
+				if (res == null) continue;
+				kind.add(new Found(resNode,res));
+				total++;
+				}
+			}
+
+		void start()
+			{
+			if (query != null) Search.index.begin();
+			final List<List<Found>> tasks = new ArrayList<List<Found>>();
+			for (List<Found> kind : work.values())
+				if (!kind.isEmpty()) tasks.add(kind);
+			if (tasks.isEmpty())
+				{
+				finish();
+				return;
+				}
+			pending.set(tasks.size());
+			for (final List<Found> kind : tasks)
+				pool.execute(new Runnable()
+					{
+						public void run()
+							{
+							try
+								{
+								for (Found f : kind)
+									{
+									if (cancelled) break;
+									search(f);
+									}
+								}
+							finally
+								{
+								if (pending.decrementAndGet() == 0) SwingUtilities.invokeLater(new Runnable()
+									{
+										public void run()
+											{
+											finish();
+											}
+									});
+								}
+							}
+					});
+			}
+
+		/** Searches one resource on a worker thread. */
+		void search(Found f)
+			{
+			try
+				{
+				if (query != null && !Search.index.mayMatch(f.res,query)) return;
+				f.result = Search.searchInResource(f.node,f.res,pattern);
+				}
+			catch (RuntimeException e)
+				{
+				// Most likely modified while it was read, so leave it to the event dispatch thread
+				retry.add(f);
+				return;
+				}
+			scanned.incrementAndGet();
+			if (f.result == null) return;
+			found.add(f);
+			if (flushQueued.compareAndSet(false,true)) SwingUtilities.invokeLater(this);
+			}
+
+		/** Adds the results found so far to the search tree. */
+		public void run()
+			{
+			flushQueued.set(false);
+			if (cancelled) return;
+			DefaultTreeModel model = (DefaultTreeModel) LGM.searchTree.getModel();
+			for (Found f = found.poll(); f != null; f = found.poll())
+				insert(model,f);
+			}
+
+		void finish()
+			{
+			if (cancelled) return;
+			run();
+			DefaultTreeModel model = (DefaultTreeModel) LGM.searchTree.getModel();
+			for (Found f = retry.poll(); f != null; f = retry.poll())
+				{
+				scanned.incrementAndGet();
+				f.result = Search.searchInResource(f.node,f.res,pattern);
+				if (f.result != null) insert(model,f);
+				}
+			if (query != null) Search.index.end();
+			current = null;
+			int tab = LGM.getTabIndex(LGM.treeTabs,Messages.getString("TreeFilter.TAB_SEARCHRESULTS")); //$NON-NLS-1$
+			if (tab >= 0)
+				LGM.treeTabs.setToolTipTextAt(tab,Messages.format("TreeFilter.SEARCH_STATS", //$NON-NLS-1$
+						scanned.get(),total,System.currentTimeMillis() - startTime));
+			}
+
+		/** Nodes moved into the tree since the search started are placed after the others. */
+		int position(TreeNode node)
+			{
+			Integer i = order.get(node);
+			return i == null ? Integer.MAX_VALUE : i;
+			}
+
+		/** Adds the results of a resource below copies of the groups it is in. */
+		void insert(DefaultTreeModel model, Found f)
+			{
+			DefaultMutableTreeNode searchNode = (DefaultMutableTreeNode) model.getRoot();
+			TreeNode[] paths = f.node.getPath();
+			// start at 1 because we don't want to copy the root
+			for (int n = 1; n < paths.length; n++)
+				{
+				DefaultMutableTreeNode next;
+				if (n == paths.length - 1)
+					next = f.result;
+				else
+					{
+					next = folders.get(paths[n]);
+					if (next != null)
+						{
+						searchNode = next;
+						continue;
+						}
+					ResNode pathNode = (ResNode) paths[n];
+					SearchResultNode folder = new SearchResultNode(pathNode.getUserObject());
+					folder.status = pathNode.status;
+					folders.put(pathNode,folder);
+					next = folder;
+					}
+				sources.put(next,paths[n]);
+				int at = position(paths[n]);
+				int pos = searchNode.getChildCount();
+				while (pos > 0 && position(sources.get(searchNode.getChildAt(pos - 1))) > at)
+					pos--;
+				searchNode.insert(next,pos);
+				model.nodesWereInserted(searchNode,new int[] { pos });
+				searchNode = next;
+				}
+			}
+		}
+	}
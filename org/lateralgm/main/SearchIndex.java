@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.lateralgm.file.ProjectFile;
+import org.lateralgm.resources.GmObject;
+import org.lateralgm.resources.Resource;
+import org.lateralgm.resources.ResourceReference;
+import org.lateralgm.resources.Room;
+import org.lateralgm.resources.Script;
+import org.lateralgm.resources.Shader;
+import org.lateralgm.resources.Timeline;
+import org.lateralgm.resources.sub.Action;
+import org.lateralgm.resources.sub.Argument;
+import org.lateralgm.resources.sub.Event;
+import org.lateralgm.resources.sub.Instance;
+import org.lateralgm.resources.sub.MainEvent;
+import org.lateralgm.resources.sub.Moment;
+
+/**
+ * An index of the trigrams found in the code of each resource, used by the project-wide search
+ * to skip the resources that cannot contain a match. Every string the search looks at is indexed
+ * on its own, lower cased, so that a trigram of a match is always found in its resource whatever
+ * the case sensitivity of the search.
+ * <p>
+ * An entry is checked against a cheap stamp of the strings of its resource before each search,
+ * and only rebuilt when one of them was replaced. Nested data such as the actions of an object
+ * does not report its changes to the resource, so the index cannot rely on update events alone.
+ * The index is kept next to the project file when it is saved, and entries read back from it are
+ * taken over when a digest of the resource's text still matches. The search threads consult the
+ * index at the same time, each for different resources, so only its maps are guarded.
+ */
+final class SearchIndex
+	{
+	private static final int MAGIC = 0x4C475349; // LGSI
+	private static final int VERSION = 1;
+	private static final String SUFFIX = ".searchindex"; //$NON-NLS-1$
+
+	private final IdentityHashMap<Resource<?,?>,Entry> entries = new IdentityHashMap<Resource<?,?>,Entry>();
+	/** Entries read from disk that no resource has claimed yet, by kind and name. */
+	private final HashMap<String,Entry> stored = new HashMap<String,Entry>();
+	private ProjectFile file;
+	private int generation;
+
+	/** Starts a search of the current project, reading its stored index the first time. */
+	synchronized void begin()
+		{
+		if (file != LGM.currentFile)
+			{
+			file = LGM.currentFile;
+			entries.clear();
+			stored.clear();
+			File f = indexFile(file == null ? null : file.uri);
+			if (f != null && f.isFile()) read(f);
+			}
+		generation++;
+		}
+
+	/** Ends a search, forgetting the resources it did not come across as they no longer exist. */
+	synchronized void end()
+		{
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext())
+			if (it.next().generation != generation) it.remove();
+		}
+
+	/**
+	 * Whether the given resource may contain a match of the given query, bringing its entry up to
+	 * date first.
+	 */
+	boolean mayMatch(Resource<?,?> res, Query query)
+		{
+		Text text = new Text(res);
+		long stamp = text.stamp();
+		Entry e, s = null;
+		int gen;
+		synchronized (this)
+			{
+			e = entries.get(res);
+			gen = generation;
+			if (e == null || e.stamp != stamp) s = stored.remove(key(res));
+			}
+		if (e == null || e.stamp != stamp)
+			{
+			long digest = text.digest();
+			if (s != null && s.digest == digest)
+				e = s;
+			else if (e == null || e.digest != digest) e = new Entry(digest,text.grams());
+			e.stamp = stamp;
+			}
+		e.generation = gen;
+		synchronized (this)
+			{
+			entries.put(res,e);
+			}
+		for (long g : query.grams)
+			if (Arrays.binarySearch(e.grams,g) < 0) return false;
+		return true;
+		}
+
+	/** Writes the index next to the project file at the given location, if it is a local file. */
+	synchronized void write(URI uri)
+		{
+		File f = indexFile(uri);
+		if (f == null || file != LGM.currentFile) return;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(f))))
+			{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(entries.size() + stored.size());
+			for (Map.Entry<Resource<?,?>,Entry> e : entries.entrySet())
+				e.getValue().write(out,key(e.getKey()));
+			for (Map.Entry<String,Entry> e : stored.entrySet())
+				e.getValue().write(out,e.getKey());
+			}
+		catch (IOException ex)
+			{
+			// The index is only a cache, it is rebuilt on the next search
+			f.delete();
+			}
+		}
+
+	private void read(File f)
+		{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(f))))
+			{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+			for (int n = in.readInt(); n > 0; n--)
+				{
+				String key = in.readUTF();
+				long digest = in.readLong();
+				long[] grams = new long[in.readInt()];
+				for (int i = 0; i < grams.length; i++)
+					grams[i] = in.readLong();
+				stored.put(key,new Entry(digest,grams));
+				}
+			}
+		catch (IOException ex)
+			{
+			stored.clear();
+			}
+		}
+
+	private static File indexFile(URI uri)
+		{
+		if (uri == null || !"file".equals(uri.getScheme())) return null; //$NON-NLS-1$
+		File f = new File(uri);
+		return new File(f.getParentFile(),f.getName() + SUFFIX);
+		}
+
+	private static String key(Resource<?,?> res)
+		{
+		return res.getClass().getSimpleName() + '/' + res.getName();
+		}
+
+	private static long gram(char a, char b, char c)
+		{
+		return (long) a << 32 | (long) b << 16 | c;
+		}
+
+	/** The trigrams every match of a search has to contain. */
+	static final class Query
+		{
+		final long[] grams;
+
+		/**
+		 * Works out the trigrams of the given search expression. For a regular expression only the
+		 * literal runs that every match must contain are used, and none at all when it has
+		 * alternatives or flags, in which case every resource is a candidate.
+		 */
+		Query(String expression, boolean regex)
+			{
+			GramSet set = new GramSet();
+			if (!regex)
+				set.add(expression);
+			else if (expression.indexOf('|') < 0 && !expression.contains("(?")) //$NON-NLS-1$
+				{
+				StringBuilder run = new StringBuilder();
+				int depth = 0;
+				for (int i = 0; i < expression.length(); i++)
+					{
+					char c = expression.charAt(i);
+					if (c == '\\' && i + 1 < expression.length())
+						{
+						char n = expression.charAt(++i);
+						if (n == 'Q')
+							{
+							int end = expression.indexOf("\\E",i + 1); //$NON-NLS-1$
+							if (end < 0) end = expression.length();
+							if (depth == 0) run.append(expression,i + 1,end);
+							i = end + 1;
+							}
+						else if (Character.isLetterOrDigit(n))
+							{
+							// Not its own characters, so none of them are required
+							flush(set,run);
+							i = skipEscape(expression,i);
+							}
+						else if (depth == 0) run.append(n);
+						}
+					else if (c == '*' || c == '?' || c == '{')
+						{
+						// The character before is optional, so it ends the run without being part of it
+						if (run.length() > 0) run.setLength(run.length() - 1);
+						flush(set,run);
+						if (c == '{')
+							{
+							int end = expression.indexOf('}',i);
+							i = end < 0 ? expression.length() : end;
+							}
+						}
+					else if (c == '+' || c == '.' || c == '^' || c == '$')
+						flush(set,run);
+					else if (c == '[')
+						{
+						flush(set,run);
+						i = skipClass(expression,i);
+						}
+					else if (c == '(')
+						{
+						flush(set,run);
+						depth++;
+						}
+					else if (c == ')')
+						{
+						// A group may be followed by a quantifier, so nothing inside it is required
+						run.setLength(0);
+						depth = Math.max(0,depth - 1);
+						}
+					else if (depth == 0) run.append(c);
+					}
+				flush(set,run);
+				}
+			grams = set.toArray();
+			}
+
+		private static void flush(GramSet set, StringBuilder run)
+			{
+			set.add(run);
+			run.setLength(0);
+			}
+
+		/**
+		 * Skips the operands of the escape whose letter or digit is at the given index,
+		 * returning the index of its last character.
+		 */
+		private static int skipEscape(String expression, int i)
+			{
+			int len = expression.length();
+			char c = expression.charAt(i);
+			boolean braced = i + 1 < len && expression.charAt(i + 1) == '{';
+			if (braced && "xpPNb".indexOf(c) >= 0) //$NON-NLS-1$
+				{
+				int end = expression.indexOf('}',i);
+				return end < 0 ? len - 1 : end;
+				}
+			switch (c)
+				{
+				case 'x':
+					return Math.min(i + 2,len - 1);
+				case 'u':
+					return Math.min(i + 4,len - 1);
+				case 'c':
+				case 'p':
+				case 'P':
+					return Math.min(i + 1,len - 1);
+				case 'k':
+					{
+					int end = expression.indexOf('>',i);
+					return end < 0 ? len - 1 : end;
+					}
+				case '0':
+					{
+					// Up to three octal digits, the first at most 3 if there are three
+					int end = i;
+					int max = i + 1 < len && expression.charAt(i + 1) <= '3' ? 3 : 2;
+					while (end - i < max && end + 1 < len && expression.charAt(end + 1) >= '0'
+							&& expression.charAt(end + 1) <= '7')
+						end++;
+					return end;
+					}
+				default:
+					if (c >= '1' && c <= '9')
+						{
+						// A back reference, which takes as many digits as follow
+						while (i + 1 < len && Character.isDigit(expression.charAt(i + 1)))
+							i++;
+						}
+					return i;
+				}
+			}
+
+		private static int skipClass(String expression, int i)
+			{
+			int depth = 0;
+			for (i++; i < expression.length(); i++)
+				{
+				char c = expression.charAt(i);
+				if (c == '\\')
+					i++;
+				else if (c == '[')
+					depth++;
+				else if (c == ']' && depth-- == 0) return i;
+				}
+			return i;
+			}
+		}
+
+	private static final class Entry
+		{
+		final long digest;
+		final long[] grams;
+		long stamp;
+		int generation;
+
+		Entry(long digest, long[] grams)
+			{
+			this.digest = digest;
+			this.grams = grams;
+			}
+
+		void write(DataOutputStream out, String key) throws IOException
+			{
+			out.writeUTF(key);
+			out.writeLong(digest);
+			out.writeInt(grams.length);
+			for (long g : grams)
+				out.writeLong(g);
+			}
+		}
+
+	/** Collects the trigrams of strings into a sorted array without duplicates. */
+	private static final class GramSet
+		{
+		private long[] grams = new long[64];
+		private int size;
+
+		void add(CharSequence s)
+			{
+			if (s == null || s.length() < 3) return;
+			char a = Character.toLowerCase(s.charAt(0));
+			char b = Character.toLowerCase(s.charAt(1));
+			for (int i = 2; i < s.length(); i++)
+				{
+				char c = Character.toLowerCase(s.charAt(i));
+				if (size == grams.length) compact();
+				grams[size++] = gram(a,b,c);
+				a = b;
+				b = c;
+				}
+			}
+
+		private void compact()
+			{
+			Arrays.sort(grams,0,size);
+			int n = 0;
+			for (int i = 0; i < size; i++)
+				if (n == 0 || grams[n - 1] != grams[i]) grams[n++] = grams[i];
+			size = n;
+			if (size > grams.length / 2) grams = Arrays.copyOf(grams,grams.length * 2);
+			}
+
+		long[] toArray()
+			{
+			compact();
+			return Arrays.copyOf(grams,size);
+			}
+		}
+
+	/**
+	 * The strings of a resource that the search looks at, in the same order as the search. Both
+	 * the stamp and the digest are computed from them, the stamp from the identity and cached hash
+	 * of each string, so that it only has to read the strings that were replaced.
+	 */
+	private static final class Text
+		{
+		private final Resource<?,?> res;
+		private long stamp, digest;
+		private GramSet grams;
+
+		Text(Resource<?,?> res)
+			{
+			this.res = res;
+			}
+
+		long stamp()
+			{
+			stamp = 1;
+			visit(0);
+			return stamp;
+			}
+
+		long digest()
+			{
+			digest = 0xcbf29ce484222325L;
+			visit(1);
+			return digest;
+			}
+
+		long[] grams()
+			{
+			grams = new GramSet();
+			visit(2);
+			return grams.toArray();
+			}
+
+		private void visit(int mode)
+			{
+			if (res instanceof Script)
+				add(mode,((Script) res).getCode());
+			else if (res instanceof Shader)
+				{
+				add(mode,((Shader) res).getVertexCode());
+				add(mode,((Shader) res).getFragmentCode());
+				}
+			else if (res instanceof GmObject)
+				{
+				for (MainEvent me : ((GmObject) res).mainEvents)
+					for (Event ev : me.events)
+						addActions(mode,ev.actions);
+				}
+			else if (res instanceof Timeline)
+				{
+				for (Moment mom : ((Timeline) res).moments)
+					addActions(mode,mom.actions);
+				}
+			else if (res instanceof Room)
+				{
+				add(mode,((Room) res).getCode());
+				for (Instance inst : ((Room) res).instances)
+					add(mode,inst.getCode());
+				}
+			}
+
+		private void addActions(int mode, List<Action> actions)
+			{
+			for (Action act : actions)
+				for (Argument arg : act.getArguments())
+					{
+					Resource<?,?> ares = Util.deRef((ResourceReference<?>) arg.getRes());
+					add(mode,ares == null ? arg.getVal() : ares.getName());
+					}
+			}
+
+		private void add(int mode, String s)
+			{
+			if (s == null) s = ""; //$NON-NLS-1$
+			switch (mode)
+				{
+				case 0:
+					stamp = stamp * 1000003 + ((long) System.identityHashCode(s) << 32 ^ s.hashCode());
+					break;
+				case 1:
+					// FNV-1a over the characters, with the length so that strings cannot run together
+					for (int i = 0; i < s.length(); i++)
+						digest = (digest ^ s.charAt(i)) * 0x100000001b3L;
+					digest = (digest ^ s.length()) * 0x100000001b3L;
+					break;
+				default:
+					grams.add(s);
+				}
+			}
+		}
+	}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.main;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.tree.TreeNode;
+
+import org.lateralgm.components.impl.DefaultNode;
+import org.lateralgm.components.impl.ResNode;
+import org.lateralgm.main.Search.InvisibleTreeModel;
+
+/**
+ * Filters the resource tree by name. The names are indexed once, lower cased, in the order of
+ * the tree, and the index is only rebuilt after a node was added, removed or renamed. A query
+ * that extends the previous one only tests the nodes the previous one matched. When the tree is
+ * pruned, only the nodes whose visibility changed are reported to the tree, so that it does not
+ * have to lay itself out again.
+ */
+final class TreeFilter
+	{
+	private ResNode root;
+	private int revision;
+	/** The nodes of the tree in preorder, starting with the root. */
+	private ResNode[] nodes;
+	private String[] names, lowerNames;
+	private int[] parents;
+	/** The visibility of each node as it was last applied. */
+	private boolean[] visible;
+	private boolean pruned;
+
+	private String lastExpression;
+	private boolean lastMatchCase, lastWholeWord;
+	private int[] matches;
+	private int matchCount;
+
+	/**
+	 * Shows the nodes whose name matches the given expression, and the groups they are in, and
+	 * hides the others.
+	 * @param prune whether the tree hides the nodes that are not visible
+	 * @return the first matching node, or null if none matched
+	 */
+	ResNode apply(ResNode root, String expression, boolean matchCase, boolean wholeWord,
+			boolean prune)
+		{
+		boolean narrow = true;
+		if (root != this.root || revision != DefaultNode.getTreeRevision())
+			{
+			index(root);
+			narrow = false;
+			}
+		narrow &= lastExpression != null && !wholeWord && !lastWholeWord
+				&& matchCase == lastMatchCase;
+		if (narrow)
+			narrow = matchCase ? expression.contains(lastExpression)
+					: expression.toLowerCase().contains(lastExpression.toLowerCase());
+		match(expression,matchCase,wholeWord,narrow);
+
+		boolean[] shown = new boolean[nodes.length];
+		shown[0] = true;
+		for (int m = 0; m < matchCount; m++)
+			for (int i = matches[m]; i > 0 && !shown[i]; i = parents[i])
+				shown[i] = true;
+
+		InvisibleTreeModel model = (InvisibleTreeModel) LGM.tree.getModel();
+		if (prune && pruned && model.getRoot() == root)
+			update(model,shown);
+		else
+			{
+			for (int i = 1; i < nodes.length; i++)
+				nodes[i].setVisible(shown[i]);
+			if (prune || pruned) LGM.tree.updateUI();
+			}
+		visible = shown;
+		pruned = prune;
+		return matchCount == 0 ? null : nodes[matches[0]];
+		}
+
+	private void index(ResNode root)
+		{
+		this.root = root;
+		revision = DefaultNode.getTreeRevision();
+		List<ResNode> list = new ArrayList<ResNode>();
+		List<Integer> parentList = new ArrayList<Integer>();
+		collect(root,-1,list,parentList);
+		int n = list.size();
+		nodes = list.toArray(new ResNode[n]);
+		names = new String[n];
+		lowerNames = new String[n];
+		parents = new int[n];
+		visible = new boolean[n];
+		for (int i = 0; i < n; i++)
+			{
+			names[i] = nodes[i].toString();
+			lowerNames[i] = names[i].toLowerCase();
+			parents[i] = parentList.get(i);
+			visible[i] = i == 0 || nodes[i].isVisible();
+			}
+		lastExpression = null;
+		}
+
+	private static void collect(ResNode node, int parent, List<ResNode> list,
+			List<Integer> parentList)
+		{
+		int index = list.size();
+		list.add(node);
+		parentList.add(parent);
+		for (int i = 0; i < node.getChildCount(); i++)
+			{
+			TreeNode child = node.getChildAt(i);
+			if (child instanceof ResNode) collect((ResNode) child,index,list,parentList);
+			}
+		}
+
+	/** Finds the matching nodes, only testing the previous matches when narrowing. */
+	private void match(String expression, boolean matchCase, boolean wholeWord, boolean narrow)
+		{
+		String[] tokens = matchCase ? names : lowerNames;
+		if (!matchCase) expression = expression.toLowerCase();
+		int[] found = new int[narrow ? matchCount : nodes.length];
+		int count = 0;
+		int candidates = narrow ? matchCount : nodes.length;
+		for (int c = narrow ? 0 : 1; c < candidates; c++)
+			{
+			int i = narrow ? matches[c] : c;
+			if (wholeWord ? tokens[i].equals(expression) : tokens[i].contains(expression))
+				found[count++] = i;
+			}
+		matches = found;
+		matchCount = count;
+		lastExpression = expression;
+		lastMatchCase = matchCase;
+		lastWholeWord = wholeWord;
+		}
+
+	/**
+	 * Applies the new visibility to a pruned tree, reporting the nodes that were hidden and then
+	 * the nodes that were shown, grouped by their parent. A node whose parent is newly shown or
+	 * hidden is not reported, as it comes and goes with its parent.
+	 */
+	private void update(InvisibleTreeModel model, boolean[] shown)
+		{
+		int n = nodes.length;
+		boolean[] wasOnScreen = new boolean[n], isOnScreen = new boolean[n];
+		wasOnScreen[0] = isOnScreen[0] = true;
+		Map<Integer,List<Integer>> hidden = new LinkedHashMap<Integer,List<Integer>>();
+		Map<Integer,List<Integer>> unhidden = new LinkedHashMap<Integer,List<Integer>>();
+		for (int i = 1; i < n; i++)
+			{
+			int p = parents[i];
+			wasOnScreen[i] = visible[i] && wasOnScreen[p];
+			isOnScreen[i] = shown[i] && isOnScreen[p];
+			if (visible[i] == shown[i]) continue;
+			if (!wasOnScreen[p] || !isOnScreen[p])
+				nodes[i].setVisible(shown[i]);
+			else
+				group(shown[i] ? unhidden : hidden,p,i);
+			}
+
+		for (Map.Entry<Integer,List<Integer>> e : hidden.entrySet())
+			{
+			ResNode parent = nodes[e.getKey()];
+			Object[] removed = nodesAt(e.getValue());
+			int[] indices = visibleIndices(parent,removed);
+			for (Object node : removed)
+				((ResNode) node).setVisible(false);
+			model.visibleNodesWereRemoved(parent,indices,removed);
+			}
+
+		// Show every node first, so that a node is complete by the time the tree is told about it
+		for (List<Integer> children : unhidden.values())
+			for (int i : children)
+				nodes[i].setVisible(true);
+		for (Map.Entry<Integer,List<Integer>> e : unhidden.entrySet())
+			{
+			ResNode parent = nodes[e.getKey()];
+			Object[] inserted = nodesAt(e.getValue());
+			model.visibleNodesWereInserted(parent,visibleIndices(parent,inserted),inserted);
+			}
+		}
+
+	private Object[] nodesAt(List<Integer> indices)
+		{
+		Object[] list = new Object[indices.size()];
+		for (int i = 0; i < list.length; i++)
+			list[i] = nodes[indices.get(i)];
+		return list;
+		}
+
+	/**
+	 * Finds the indices of the given children, listed in order, among the children of their
+	 * parent that are visible. One pass over the children, so that large groups stay cheap.
+	 */
+	private static int[] visibleIndices(ResNode parent, Object[] children)
+		{
+		int[] indices = new int[children.length];
+		int c = 0, visibleIndex = 0;
+		for (int i = 0; i < parent.getChildCount() && c < children.length; i++)
+			{
+			TreeNode child = parent.getChildAt(i);
+			if (child == children[c]) indices[c++] = visibleIndex;
+			if (!(child instanceof DefaultNode) || ((DefaultNode) child).isVisible()) visibleIndex++;
+			}
+		return indices;
+		}
+
+	private static void group(Map<Integer,List<Integer>> groups, int parent, int child)
+		{
+		Integer key = Integer.valueOf(parent);
+		List<Integer> children = groups.get(key);
+		if (children == null)
+			{
+			children = new ArrayList<Integer>();
+			groups.put(key,children);
+			}
+		children.add(child);
+		}
+	}
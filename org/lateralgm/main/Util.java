@@ -21,13 +21,8 @@ import java.awt.Graphics2D;
 import java.awt.GridLayout;
 import java.awt.Image;
 import java.awt.Rectangle;
-import java.awt.Toolkit;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.image.BufferedImage;
-import java.awt.image.FilteredImageSource;
-import java.awt.image.ImageFilter;
-import java.awt.image.ImageProducer;
-import java.awt.image.RGBImageFilter;
 import java.awt.image.WritableRaster;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
@@ -345,18 +340,17 @@ public final class Util
 	public static BufferedImage getTransparentImage(BufferedImage i)
 		{
 		if (i == null) return null;
-		final int t = i.getRGB(0,i.getHeight() - 1) & 0x00FFFFFF;
-		ImageFilter filter = new RGBImageFilter()
-			{
-				@Override
-				public int filterRGB(int x, int y, int rgb)
-					{
-					if ((rgb & 0x00FFFFFF) == t) return t;
-					return rgb;
-					}
-			};
-		ImageProducer ip = new FilteredImageSource(i.getSource(),filter);
-		return toBufferedImage(Toolkit.getDefaultToolkit().createImage(ip));
+		int width = i.getWidth();
+		int height = i.getHeight();
+		final int t = i.getRGB(0,height - 1) & 0x00FFFFFF;
+		BufferedImage dst = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
+		// clear the transparent pixels in a copy, then write it out in one go, so that neither
+		// image has its buffer taken from it and loses its acceleration
+		int[] data = i.getRGB(0,0,width,height,null,0,width);
+		for (int p = 0; p < data.length; p++)
+			if ((data[p] & 0x00FFFFFF) == t) data[p] = t;
+		dst.getRaster().setDataElements(0,0,width,height,data);
+		return dst;
 		}
 
 	private static void createImageReadChooser()
@@ -590,7 +584,7 @@ public final class Util
 		return convertImage(img,BufferedImage.TYPE_BYTE_INDEXED,col);
 		}
 
-	public static void saveImages(ArrayList<BufferedImage> imgs)
+	public static void saveImages(List<BufferedImage> imgs)
 		{
 		if (imgs == null || imgs.size() <= 0)
 			{
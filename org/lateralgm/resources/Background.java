@@ -15,6 +15,7 @@ import java.lang.ref.SoftReference;
 import java.util.EnumMap;
 
 import org.lateralgm.main.Util;
+import org.lateralgm.util.LazyImage;
 import org.lateralgm.util.PropertyMap;
 import org.lateralgm.util.PropertyMap.PropertyUpdateEvent;
 import org.lateralgm.util.PropertyMap.PropertyUpdateListener;
@@ -23,6 +24,7 @@ public class Background extends InstantiableResource<Background,Background.PBack
 		Resource.Viewable
 	{
 	private BufferedImage backgroundImage = null;
+	private LazyImage backgroundSource = null;
 	private SoftReference<BufferedImage> imageCache = null;
 
 	private final BackgroundPropertyListener bpl = new BackgroundPropertyListener();
@@ -54,7 +56,7 @@ public class Background extends InstantiableResource<Background,Background.PBack
 
 	public BufferedImage getDisplayImage()
 		{
-		if (backgroundImage == null) return null;
+		if (backgroundImage == null && backgroundSource == null) return null;
 		BufferedImage bi;
 		if (imageCache != null)
 			{
@@ -64,7 +66,7 @@ public class Background extends InstantiableResource<Background,Background.PBack
 				return bi;
 				}
 			}
-		bi = backgroundImage;
+		bi = getBackgroundImage();
 		if (get(PBackground.TRANSPARENT)) bi = Util.getTransparentImage(bi);
 		imageCache = new SoftReference<BufferedImage>(bi);
 		return bi;
@@ -73,7 +75,9 @@ public class Background extends InstantiableResource<Background,Background.PBack
 	protected void postCopy(Background dest)
 		{
 		super.postCopy(dest);
-		dest.backgroundImage = Util.cloneImage(backgroundImage);
+		// the image is replaced rather than modified in place, so copies can share it
+		dest.backgroundSource = backgroundSource;
+		dest.backgroundImage = backgroundImage;
 		}
 
 	@Override
@@ -85,30 +89,64 @@ public class Background extends InstantiableResource<Background,Background.PBack
 
 	public BufferedImage getBackgroundImage()
 		{
+		if (backgroundSource != null) return backgroundSource.get();
 		return backgroundImage;
 		}
 
 	public void setBackgroundImage(BufferedImage backgroundImage)
 		{
 		this.backgroundImage = backgroundImage;
+		backgroundSource = null;
 		fireUpdate();
 		}
 
+	/** Sets an image that is only decoded from disk once it is first requested. */
+	public void setBackgroundImage(LazyImage backgroundSource)
+		{
+		this.backgroundSource = backgroundSource;
+		backgroundImage = null;
+		fireUpdate();
+		}
+
+	/**
+	 * Returns the lazy source of the background image, or null if the image is held in memory.
+	 * Writers can use this to tell an image that is unchanged since it was read.
+	 */
+	public LazyImage getBackgroundSource()
+		{
+		return backgroundSource;
+		}
+
+	/**
+	 * Replaces a lazy image by its decoded pixels, so it no longer depends on its file. An image
+	 * that could not be decoded stays lazy, as it holds the bytes of its file.
+	 */
+	public void loadBackgroundImage()
+		{
+		if (backgroundSource == null) return;
+		BufferedImage img = backgroundSource.get();
+		if (backgroundSource.isBroken()) return;
+		backgroundImage = img;
+		backgroundSource = null;
+		}
+
 	/** Returns the size of the background image in bytes */
 	public long getSize()
 		{
-		if (backgroundImage != null)
+		if (backgroundImage != null || backgroundSource != null)
 			return this.getWidth() * this.getHeight() * 4;
 		return 0;
 		}
 
 	public int getWidth()
 		{
+		if (backgroundSource != null) return backgroundSource.getWidth();
 		return backgroundImage == null ? 0 : backgroundImage.getWidth();
 		}
 
 	public int getHeight()
 		{
+		if (backgroundSource != null) return backgroundSource.getHeight();
 		return backgroundImage == null ? 0 : backgroundImage.getHeight();
 		}
 
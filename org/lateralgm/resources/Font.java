@@ -51,6 +51,9 @@ public class Font extends InstantiableResource<Font,Font.PFont>
 	public Font(ResourceReference<Font> r)
 		{
 		super(r);
+		characterRanges.updateSource.addListener(dirtyListener);
+		glyphMetrics.updateSource.addListener(dirtyListener);
+		rangeUpdateSource.addListener(dirtyListener);
 		}
 
 	public Font makeInstance(ResourceReference<Font> r)
@@ -79,6 +79,7 @@ public class GmObject extends InstantiableResource<GmObject,GmObject.PGmObject>
 			e[j] = new MainEvent();
 		mainEvents = Collections.unmodifiableList(Arrays.asList(e));
 		properties.updateSource.addListener(opl);
+		shapePoints.updateSource.addListener(dirtyListener);
 		}
 
 	public GmObject makeInstance(ResourceReference<GmObject> r)
@@ -10,11 +10,12 @@ package org.lateralgm.resources;
 
 import java.util.EnumMap;
 
+import org.lateralgm.util.BinaryData;
 import org.lateralgm.util.PropertyMap;
 
 public class Include extends InstantiableResource<Include,Include.PInclude>
 	{
-	public byte[] data = new byte[0];
+	private final BinaryData data = new BinaryData();
 
 	public enum ExportAction
 		{
@@ -46,6 +47,12 @@ public class Include extends InstantiableResource<Include,Include.PInclude>
 		return new Include(ref);
 		}
 
+	/** Returns the file data, which may have been left in a file when loaded. */
+	public BinaryData getData()
+		{
+		return data;
+		}
+
 	@Override
 	protected PropertyMap<PInclude> makePropertyMap()
 		{
@@ -56,6 +63,6 @@ public class Include extends InstantiableResource<Include,Include.PInclude>
 	protected void postCopy(Include dest)
 		{
 		super.postCopy(dest);
-		dest.data = data.clone();
+		data.copyTo(dest.data);
 		}
 	}
@@ -25,6 +25,7 @@ public abstract class InstantiableResource<R extends InstantiableResource<R,P>,
 		extends Resource<R,P>
 	{
 	protected int id = -1; //indicates id not set
+	private int cleanId = -1;
 
 	public InstantiableResource()
 		{
@@ -48,6 +49,20 @@ public abstract class InstantiableResource<R extends InstantiableResource<R,P>,
 		return id;
 		}
 
+	@Override
+	public void markClean()
+		{
+		super.markClean();
+		cleanId = id;
+		}
+
+	/** Also reports a changed id, since some resources are referred to by id. */
+	@Override
+	public boolean isRenamed()
+		{
+		return super.isRenamed() || (cleanId != -1 && cleanId != id);
+		}
+
 	protected void postCopy(R dest)
 		{
 		//Default implementation is to do nothing except copy ID if not set.
@@ -59,6 +74,7 @@ public abstract class InstantiableResource<R extends InstantiableResource<R,P>,
 		 * so as to avoid user-duplicated objects getting a duplicate ID.
 		 */
 		if (dest.id == -1) dest.id = id;
+		if (dest.id == id) ((InstantiableResource<R,P>) dest).cleanId = cleanId;
 		}
 
 	public abstract R makeInstance(ResourceReference<R> ref);
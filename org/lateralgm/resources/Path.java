@@ -36,6 +36,7 @@ public class Path extends InstantiableResource<Path,Path.PPath>
 	public Path(ResourceReference<Path> r)
 		{
 		super(r);
+		points.updateSource.addListener(dirtyListener);
 		}
 
 	public Path makeInstance(ResourceReference<Path> r)
@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.lateralgm.components.impl.ResNode;
+import org.lateralgm.main.UpdateSource.UpdateEvent;
+import org.lateralgm.main.UpdateSource.UpdateListener;
 import org.lateralgm.messages.Messages;
 import org.lateralgm.util.PropertyMap;
 import org.lateralgm.util.PropertyMap.PropertyValidator;
@@ -87,6 +89,36 @@ public abstract class Resource<R extends Resource<R,P>, P extends Enum<P>> imple
 	public final ResourceReference<R> reference;
 	public final PropertyMap<P> properties = makePropertyMap();
 
+	/** Whether this resource may differ from what was last read from or written to disk. */
+	private boolean dirty = true;
+	/** The name this resource had when it was last marked clean. */
+	private String cleanName;
+	/** Counts the changes to data of this resource that is held outside its properties. */
+	private int revision;
+	/**
+	 * Marks this resource dirty whenever a source it is registered with fires an update.
+	 * Subclasses register it with the update sources of their nested data.
+	 */
+	protected final UpdateListener dirtyListener = new UpdateListener()
+		{
+			public void updated(UpdateEvent e)
+				{
+				dirty = true;
+				}
+		};
+	/**
+	 * Records a change whenever a source it is registered with fires an update. Subclasses
+	 * register it with the update sources of nested data that editors let the user change, rather
+	 * than with sources that also report changes of other resources or of the selection.
+	 */
+	protected final UpdateListener changeListener = new UpdateListener()
+		{
+			public void updated(UpdateEvent e)
+				{
+				recordChange();
+				}
+		};
+
 	public static interface Viewable
 		{
 		BufferedImage getDisplayImage();
@@ -104,13 +136,61 @@ public abstract class Resource<R extends Resource<R,P>, P extends Enum<P>> imple
 			reference = new ResourceReference<R>((R) this);
 		else
 			reference = r;
+		properties.updateSource.addListener(dirtyListener);
 		}
 
 	protected void fireUpdate()
 		{
+		dirty = true;
 		reference.updateTrigger.fire();
 		}
 
+	/**
+	 * Whether this resource may have been modified since it was last read from or written to
+	 * disk. Resources start out dirty; the project readers and writers mark them clean.
+	 */
+	public boolean isDirty()
+		{
+		return dirty;
+		}
+
+	public void markDirty()
+		{
+		dirty = true;
+		}
+
+	/** Marks this resource dirty and counts a change of data held outside its properties. */
+	protected void recordChange()
+		{
+		dirty = true;
+		revision++;
+		}
+
+	/**
+	 * Returns a number that changes whenever data of this resource that is held outside its
+	 * properties changes, such as the pieces of a room. Editors compare it to the number they saw
+	 * when they opened, instead of comparing the data itself.
+	 */
+	public int getRevision()
+		{
+		return revision;
+		}
+
+	public void markClean()
+		{
+		dirty = false;
+		cleanName = name;
+		}
+
+	/**
+	 * Whether the name other resources refer to this one by has changed since it was last
+	 * marked clean, meaning that clean resources referring to it are out of date as well.
+	 */
+	public boolean isRenamed()
+		{
+		return cleanName != null && !cleanName.equals(name);
+		}
+
 	public String getName()
 		{
 		return name;
@@ -153,11 +233,32 @@ public abstract class Resource<R extends Resource<R,P>, P extends Enum<P>> imple
 		dest.node = node;
 		dest.setName(getName());
 		postCopy(dest);
+		Resource<R,P> copy = dest;
+		copy.dirty = dirty;
+		copy.cleanName = cleanName;
 		return dest;
 		}
 
 	public abstract R makeInstance(ResourceReference<R> ref);
 
+	/**
+	 * Returns a copy of this resource for an editor to detect changes against, and to revert to
+	 * with {@link #revert(Resource)}. This is a full clone, unless a resource can hold more than it
+	 * can afford to copy whenever an editor opens or saves it.
+	 */
+	public R backup()
+		{
+		return clone();
+		}
+
+	/** Puts the given backup of this resource in its place, see {@link #backup()}. */
+	public void revert(R backup)
+		{
+		// the backup may predate changes that were saved while the editor was open
+		backup.markDirty();
+		backup.updateReference();
+		}
+
 	public void dispose()
 		{
 		reference.set(null);
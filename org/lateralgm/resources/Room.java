@@ -16,8 +16,11 @@ import java.awt.Point;
 import java.awt.geom.Point2D;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.lateralgm.main.LGM;
 import org.lateralgm.main.UpdateSource;
@@ -25,7 +28,6 @@ import org.lateralgm.main.UpdateSource.UpdateEvent;
 import org.lateralgm.main.UpdateSource.UpdateTrigger;
 import org.lateralgm.resources.sub.BackgroundDef;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.Tile;
 import org.lateralgm.resources.sub.View;
 import org.lateralgm.subframes.CodeFrame.CodeHolder;
@@ -48,6 +50,19 @@ public class Room extends InstantiableResource<Room,Room.PRoom> implements CodeH
 	public final UpdateSource instanceUpdateSource = new UpdateSource(this,instanceUpdateTrigger);
 	private final UpdateTrigger tileUpdateTrigger = new UpdateTrigger();
 	public final UpdateSource tileUpdateSource = new UpdateSource(this,tileUpdateTrigger);
+	private int updateDepth;
+	private boolean instancesUpdated, tilesUpdated;
+
+	/*
+	 * A room can hold so many pieces that editors cannot afford to clone it whenever they open or
+	 * save it. Instead, a backup only remembers which pieces the room held, and the values of each
+	 * piece are only copied right before the first of them changes. Null until a backup is taken.
+	 */
+	private List<Instance> backupInstances;
+	private List<Tile> backupTiles;
+	private Map<Piece,Piece> backupPieces;
+	/** Set while pieces are copied, whose changes are neither changes of this room nor backed up. */
+	private boolean copyingPieces;
 
 	public enum PRoom
 		{
@@ -73,12 +88,22 @@ public class Room extends InstantiableResource<Room,Room.PRoom> implements CodeH
 		super(r);
 		BackgroundDef[] b = new BackgroundDef[8];
 		for (int j = 0; j < b.length; j++)
+			{
 			b[j] = new BackgroundDef();
+			b[j].properties.updateSource.addListener(changeListener);
+			}
 		backgroundDefs = Collections.unmodifiableList(Arrays.asList(b));
 		View[] v = new View[8];
 		for (int j = 0; j < v.length; j++)
+			{
 			v[j] = new View();
+			v[j].properties.updateSource.addListener(changeListener);
+			}
 		views = Collections.unmodifiableList(Arrays.asList(v));
+		instances.updateSource.addListener(changeListener);
+		tiles.updateSource.addListener(changeListener);
+		instanceUpdateSource.addListener(dirtyListener);
+		tileUpdateSource.addListener(dirtyListener);
 		}
 
 	@Override
@@ -97,7 +122,7 @@ public class Room extends InstantiableResource<Room,Room.PRoom> implements CodeH
 	public Instance addInstance()
 		{
 		Instance inst = new Instance(this);
-		inst.properties.put(PInstance.ID,++LGM.currentFile.lastInstanceId);
+		inst.setID(++LGM.currentFile.lastInstanceId);
 		instances.add(inst);
 		return inst;
 		}
@@ -125,18 +150,33 @@ public class Room extends InstantiableResource<Room,Room.PRoom> implements CodeH
 	@Override
 	protected void postCopy(Room dest)
 		{
-		super.postCopy(dest);
-		for (Instance inst : instances)
+		copySettings(dest);
+		// the copies may share the reference of this room, and thus report their changes to it
+		copyingPieces = true;
+		try
 			{
-			Instance inst2 = dest.addInstance();
-			inst2.properties.putAll(inst.properties);
+			for (Instance inst : instances)
+				{
+				Instance inst2 = dest.addInstance();
+				inst2.copyFrom(inst);
+				}
+			for (Tile tile : tiles)
+				{
+				Tile tile2 = new Tile(this);
+				tile2.copyFrom(tile);
+				dest.tiles.add(tile2);
+				}
 			}
-		for (Tile tile : tiles)
+		finally
 			{
-			Tile tile2 = new Tile(this);
-			tile2.properties.putAll(tile.properties);
-			dest.tiles.add(tile2);
+			copyingPieces = false;
 			}
+		}
+
+	/** Copies everything but the instances and tiles. */
+	private void copySettings(Room dest)
+		{
+		super.postCopy(dest);
 		int s = views.size();
 		for (int i = 0; i < s; i++)
 			{
@@ -159,14 +199,162 @@ public class Room extends InstantiableResource<Room,Room.PRoom> implements CodeH
 		return new PropertyMap<PRoom>(PRoom.class,this,DEFS);
 		}
 
+	/**
+	 * Starts a transaction on the instances and tiles of this room. Until the matching call to
+	 * {@link #endUpdate()}, list and piece update events are held back, and are then fired as one
+	 * event per list and per update source. Transactions may be nested.
+	 */
+	public void beginUpdate()
+		{
+		updateDepth++;
+		instances.beginUpdate();
+		tiles.beginUpdate();
+		}
+
+	public void endUpdate()
+		{
+		if (updateDepth == 0) throw new IllegalStateException();
+		instances.endUpdate();
+		tiles.endUpdate();
+		if (--updateDepth > 0) return;
+		if (instancesUpdated)
+			{
+			instancesUpdated = false;
+			instanceUpdateTrigger.fire();
+			}
+		if (tilesUpdated)
+			{
+			tilesUpdated = false;
+			tileUpdateTrigger.fire();
+			}
+		}
+
+	public boolean isUpdating()
+		{
+		return updateDepth > 0;
+		}
+
 	public void instanceUpdated(UpdateEvent e)
 		{
-		instanceUpdateTrigger.fire(new UpdateEvent(instanceUpdateSource,e));
+		if (updateDepth > 0)
+			instancesUpdated = true;
+		else
+			instanceUpdateTrigger.fire(new UpdateEvent(instanceUpdateSource,e));
 		}
 
 	public void tileUpdated(UpdateEvent e)
 		{
-		tileUpdateTrigger.fire(new UpdateEvent(tileUpdateSource,e));
+		if (updateDepth > 0)
+			tilesUpdated = true;
+		else
+			tileUpdateTrigger.fire(new UpdateEvent(tileUpdateSource,e));
+		}
+
+	/**
+	 * Called by instances and tiles whenever one of their properties changes, apart from their
+	 * selection, so that editors can tell the room changed without comparing all of its pieces.
+	 * Unlike the piece update sources, this is not held back by transactions, and costs nothing
+	 * but a counter.
+	 */
+	public void pieceChanged()
+		{
+		if (!copyingPieces) recordChange();
+		}
+
+	/**
+	 * Called by instances and tiles right before one of their properties changes, apart from their
+	 * selection, so that the values the piece had when the last backup was taken can be kept.
+	 */
+	public void pieceChanging(Piece p)
+		{
+		if (backupPieces == null || copyingPieces || backupPieces.containsKey(p)) return;
+		copyingPieces = true;
+		try
+			{
+			if (p instanceof Instance)
+				{
+				Instance inst = new Instance(this);
+				inst.copyFrom((Instance) p);
+				backupPieces.put(p,inst);
+				}
+			else if (p instanceof Tile)
+				{
+				Tile tile = new Tile(this);
+				tile.copyFrom((Tile) p);
+				backupPieces.put(p,tile);
+				}
+			}
+		finally
+			{
+			copyingPieces = false;
+			}
+		}
+
+	/**
+	 * Copies the settings of this room, and starts keeping the values of its instances and tiles
+	 * as they change. The backup holds no pieces itself: {@link #revert(Room)} puts back those of
+	 * this room from what was kept.
+	 */
+	@Override
+	public Room backup()
+		{
+		Room dest = makeInstance(reference);
+		dest.properties.putAll(properties);
+		dest.setName(getName());
+		copySettings(dest);
+		backupInstances = new ArrayList<Instance>(instances);
+		backupTiles = new ArrayList<Tile>(tiles);
+		backupPieces = new IdentityHashMap<Piece,Piece>();
+		return dest;
+		}
+
+	/** Puts this room back the way it was when the given backup was taken, in place. */
+	@Override
+	public void revert(Room backup)
+		{
+		beginUpdate();
+		try
+			{
+			properties.putAll(backup.properties);
+			setName(backup.getName());
+			backup.copySettings(this);
+			if (backupPieces != null)
+				{
+				Map<Piece,Piece> changed = backupPieces;
+				backupPieces = null;
+				restore(instances,backupInstances);
+				restore(tiles,backupTiles);
+				for (Map.Entry<Piece,Piece> e : changed.entrySet())
+					{
+					if (e.getKey() instanceof Instance)
+						((Instance) e.getKey()).copyFrom((Instance) e.getValue());
+					else
+						((Tile) e.getKey()).copyFrom((Tile) e.getValue());
+					}
+				backupInstances = null;
+				backupTiles = null;
+				}
+			}
+		finally
+			{
+			endUpdate();
+			}
+		markDirty();
+		}
+
+	/** Makes the list hold the given pieces again, unless it still holds exactly those. */
+	private static <E>void restore(ActiveArrayList<E> list, List<E> backup)
+		{
+		int s = backup.size();
+		if (list.size() == s)
+			{
+			int i = 0;
+			while (i < s && list.get(i) == backup.get(i))
+				i++;
+			if (i == s) return;
+			}
+		list.clear();
+		list.addAll(backup);
 		}
 
 	public interface Piece
@@ -13,11 +13,12 @@ package org.lateralgm.resources;
 import java.util.EnumMap;
 
 import org.lateralgm.file.ProjectFile;
+import org.lateralgm.util.BinaryData;
 import org.lateralgm.util.PropertyMap;
 
 public class Sound extends InstantiableResource<Sound,Sound.PSound>
 	{
-	public byte[] data = new byte[0];
+	private final BinaryData data = new BinaryData();
 
 	public enum SoundKind
 		{
@@ -76,12 +77,17 @@ public class Sound extends InstantiableResource<Sound,Sound.PSound>
 			}
 		}
 
+	/** Returns the sound data, which may have been left in a file when loaded. */
+	public BinaryData getData()
+		{
+		return data;
+		}
+
 	@Override
 	protected void postCopy(Sound dest)
 		{
 		super.postCopy(dest);
-		dest.data = new byte[data.length];
-		System.arraycopy(data,0,dest.data,0,data.length);
+		data.copyTo(dest.data);
 		}
 
 	@Override
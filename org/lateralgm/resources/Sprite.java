@@ -18,9 +18,16 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import javax.imageio.ImageIO;
 
@@ -28,6 +35,8 @@ import org.lateralgm.file.ProjectFile;
 import org.lateralgm.main.LGM;
 import org.lateralgm.main.Util;
 import org.lateralgm.messages.Messages;
+import org.lateralgm.util.ImageBounds;
+import org.lateralgm.util.LazyImage;
 import org.lateralgm.util.PropertyMap;
 import org.lateralgm.util.PropertyMap.PropertyUpdateEvent;
 import org.lateralgm.util.PropertyMap.PropertyUpdateListener;
@@ -154,8 +163,8 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 	public static Rectangle getOverallBounds(ImageList l, boolean transPixel, int tolerance)
 		{
 		Rectangle r = new Rectangle();
-		for (BufferedImage bi : l)
-			getCropBounds(bi,r,transPixel,tolerance);
+		for (Rectangle b : l.getBounds(transPixel,tolerance))
+			union(r,b);
 		if (r.width > 0 && r.height > 0)
 			{
 			r.width--;
@@ -167,83 +176,30 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 	public static void getCropBounds(BufferedImage img, Rectangle u,
 			boolean transPixel, int tolerance)
 		{
-		if (transPixel)
-			getCropBoundsPixel(img,u);
-		else
-			getCropBoundsAlpha(img,u,tolerance);
+		union(u,ImageBounds.getBounds(img,transPixel,tolerance));
 		}
 
 	public static void getCropBoundsAlpha(BufferedImage img, Rectangle u, int tolerance)
 		{
-		int width = img.getWidth();
-		int height = img.getHeight();
-		boolean unz = u.width > 0 && u.height > 0;
-
-		int uy2 = unz ? u.y + u.height - 1 : -1;
-		int y2 = height - 1;
-		y2loop: for (; y2 > uy2; y2--)
-			for (int i = 0; i < width; i++)
-				if (((img.getRGB(i,y2) >> 24) & 0xff) > tolerance) break y2loop;
-
-		int ux2 = unz ? u.x + u.width - 1 : -1;
-		int x2 = width - 1;
-		x2loop: for (; x2 > ux2; x2--)
-			for (int j = 0; j <= y2; j++)
-				if (((img.getRGB(x2,j) >> 24) & 0xff) > tolerance) break x2loop;
-
-		int uy1 = unz ? u.y : y2;
-		int y1 = 0;
-		y1loop: for (; y1 < uy1; y1++)
-			for (int i = 0; i <= x2; i++)
-				if (((img.getRGB(i,y1) >> 24) & 0xff) > tolerance) break y1loop;
-
-		int ux1 = unz ? u.x : x2;
-		int x1 = 0;
-		x1loop: for (; x1 < ux1; x1++)
-			for (int j = y1; j <= y2; j++)
-				if (((img.getRGB(x1,j) >> 24) & 0xff) > tolerance) break x1loop;
-
-		u.x = x1;
-		u.y = y1;
-		u.width = 1 + x2 - x1;
-		u.height = 1 + y2 - y1;
+		union(u,ImageBounds.getBounds(img,false,tolerance));
 		}
 
 	public static void getCropBoundsPixel(BufferedImage img, Rectangle u)
 		{
-		int transparent = img.getRGB(0,img.getHeight() - 1);
-		int width = img.getWidth();
-		int height = img.getHeight();
-		boolean unz = u.width > 0 && u.height > 0;
-
-		int uy2 = unz ? u.y + u.height - 1 : -1;
-		int y2 = height - 1;
-		y2loop: for (; y2 > uy2; y2--)
-			for (int i = 0; i < width; i++)
-				if (img.getRGB(i,y2) != transparent) break y2loop;
-
-		int ux2 = unz ? u.x + u.width - 1 : -1;
-		int x2 = width - 1;
-		x2loop: for (; x2 > ux2; x2--)
-			for (int j = 0; j <= y2; j++)
-				if (img.getRGB(x2,j) != transparent) break x2loop;
-
-		int uy1 = unz ? u.y : y2;
-		int y1 = 0;
-		y1loop: for (; y1 < uy1; y1++)
-			for (int i = 0; i <= x2; i++)
-				if (img.getRGB(i,y1) != transparent) break y1loop;
-
-		int ux1 = unz ? u.x : x2;
-		int x1 = 0;
-		x1loop: for (; x1 < ux1; x1++)
-			for (int j = y1; j <= y2; j++)
-				if (img.getRGB(x1,j) != transparent) break x1loop;
-
-		u.x = x1;
-		u.y = y1;
-		u.width = 1 + x2 - x1;
-		u.height = 1 + y2 - y1;
+		union(u,ImageBounds.getBounds(img,true,0));
+		}
+
+	/** Grows u to hold b, where an empty rectangle holds nothing rather than its location. */
+	private static void union(Rectangle u, Rectangle b)
+		{
+		if (b.width <= 0 || b.height <= 0)
+			{
+			if (u.width <= 0 || u.height <= 0) u.setBounds(0,0,0,0);
+			}
+		else if (u.width <= 0 || u.height <= 0)
+			u.setBounds(b);
+		else
+			u.add(b);
 		}
 
 	public BufferedImage getDisplayImage()
@@ -265,21 +221,41 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 	protected void postCopy(Sprite dest)
 		{
 		super.postCopy(dest);
-		for (int j = 0; j < subImages.size(); j++)
-			dest.subImages.add(Util.cloneImage(subImages.get(j)));
+		// frames are replaced rather than modified in place, so copies share them, whether they
+		// are decoded or lazy, and backing up a sprite for its editor costs no pixels
+		dest.subImages.frames.addAll(subImages.frames);
+		// the bounding box was copied along with the properties
+		dest.fireUpdate(false);
 		}
 
 	@Override
 	protected void fireUpdate()
+		{
+		fireUpdate(true);
+		}
+
+	private void fireUpdate(boolean bounds)
 		{
 		if (imageCache != null) imageCache.clear();
-		updateBoundingBox();
+		if (bounds) updateBoundingBox();
 		super.fireUpdate();
 		}
 
-	public final class ImageList extends ArrayList<BufferedImage>
+	/**
+	 * The subimages of a sprite. Frames may be held in memory or be backed by a
+	 * {@link LazyImage} that is decoded from disk the first time the frame is requested.
+	 */
+	public final class ImageList extends AbstractList<BufferedImage> implements RandomAccess
 		{
-		private static final long serialVersionUID = 1L;
+		/** Either a BufferedImage or a LazyImage for every frame. */
+		private final ArrayList<Object> frames = new ArrayList<Object>();
+		/**
+		 * The visible bounds of frames, keyed by the frame objects above. Frames are replaced
+		 * rather than modified, so editing one frame only costs a scan of that frame.
+		 */
+		private final Map<Object,Rectangle> bounds = new WeakHashMap<Object,Rectangle>();
+		private boolean boundsTransPixel;
+		private int boundsTolerance;
 
 		private ImageList()
 			{
@@ -297,25 +273,171 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 		/** Returns the size of the subimage in bytes */
 		public long getSize(int index)
 			{
-			return this.get(index).getWidth() * this.get(index).getHeight() * 4;
+			return getWidth(index) * getHeight(index) * 4;
+			}
+
+		private int getWidth(int index)
+			{
+			Object o = frames.get(index);
+			if (o instanceof LazyImage) return ((LazyImage) o).getWidth();
+			return ((BufferedImage) o).getWidth();
+			}
+
+		private int getHeight(int index)
+			{
+			Object o = frames.get(index);
+			if (o instanceof LazyImage) return ((LazyImage) o).getHeight();
+			return ((BufferedImage) o).getHeight();
 			}
 
 		public int getWidth()
 			{
-			if (size() > 0) return get(0).getWidth();
+			if (size() > 0) return getWidth(0);
 			return 0;
 			}
 
 		public int getHeight()
 			{
-			if (size() > 0) return get(0).getHeight();
+			if (size() > 0) return getHeight(0);
 			return 0;
 			}
 
+		/**
+		 * Returns the lazy source of the given frame, or null if the frame is held in memory.
+		 * Writers can use this to tell frames that are unchanged since they were read.
+		 */
+		public LazyImage getSource(int index)
+			{
+			Object o = frames.get(index);
+			return o instanceof LazyImage ? (LazyImage) o : null;
+			}
+
+		/**
+		 * Appends frames that are decoded on demand. Unlike the other mutators, this does not
+		 * recompute the bounding box, which would decode every frame; the caller is expected to
+		 * have read the bounding box alongside the frames.
+		 */
+		public void addLazy(Collection<LazyImage> c)
+			{
+			if (c.isEmpty()) return;
+			frames.addAll(c);
+			fireUpdate(false);
+			}
+
+		/**
+		 * Replaces lazy frames by their decoded images, so they no longer depend on their files.
+		 * Frames that could not be decoded stay lazy, as they hold the bytes of their files.
+		 */
+		public void load()
+			{
+			for (int i = 0; i < frames.size(); i++)
+				if (frames.get(i) instanceof LazyImage)
+					{
+					BufferedImage img = ((LazyImage) frames.get(i)).get();
+					if (((LazyImage) frames.get(i)).isBroken()) continue;
+					Rectangle b = bounds.remove(frames.get(i));
+					if (b != null) bounds.put(img,b);
+					frames.set(i,img);
+					}
+			}
+
+		/**
+		 * Returns the visible bounds of every frame, as {@link ImageBounds#getBounds} finds them.
+		 * Only frames that were not scanned before with the same settings are scanned, in parallel
+		 * when there are several of them.
+		 */
+		private Rectangle[] getBounds(boolean transPixel, int tolerance)
+			{
+			if (transPixel != boundsTransPixel || tolerance != boundsTolerance)
+				{
+				bounds.clear();
+				boundsTransPixel = transPixel;
+				boundsTolerance = tolerance;
+				}
+			int n = frames.size();
+			Rectangle[] r = new Rectangle[n];
+			final ArrayList<Object> missing = new ArrayList<Object>();
+			// Frames may be repeated, so the ones already listed are looked up by identity
+			Set<Object> listed = Collections.newSetFromMap(new IdentityHashMap<Object,Boolean>());
+			long pixels = 0;
+			for (int i = 0; i < n; i++)
+				{
+				Object o = frames.get(i);
+				r[i] = bounds.get(o);
+				if (r[i] == null && listed.add(o))
+					{
+					missing.add(o);
+					pixels += (long) getWidth(i) * getHeight(i);
+					}
+				}
+			if (missing.isEmpty()) return r;
+
+			Rectangle[] found = ImageBounds.getBounds(new ImageBounds.Source()
+				{
+					public BufferedImage get(int index)
+						{
+						Object o = missing.get(index);
+						if (o instanceof LazyImage) return ((LazyImage) o).get();
+						return (BufferedImage) o;
+						}
+				},missing.size(),pixels,transPixel,tolerance);
+			for (int i = 0; i < found.length; i++)
+				bounds.put(missing.get(i),found[i]);
+			for (int i = 0; i < n; i++)
+				if (r[i] == null) r[i] = bounds.get(frames.get(i));
+			return r;
+			}
+
+		private BufferedImage peek(int index)
+			{
+			Object o = frames.get(index);
+			if (o instanceof LazyImage) return ((LazyImage) o).peek();
+			return (BufferedImage) o;
+			}
+
+		@Override
+		public BufferedImage get(int index)
+			{
+			Object o = frames.get(index);
+			if (o instanceof LazyImage) return ((LazyImage) o).get();
+			return (BufferedImage) o;
+			}
+
+		@Override
+		public int size()
+			{
+			return frames.size();
+			}
+
+		@Override
+		public int indexOf(Object o)
+			{
+			// A frame that is not decoded cannot be identical to the given image
+			if (o == null) return -1;
+			for (int i = 0; i < frames.size(); i++)
+				if (o.equals(peek(i))) return i;
+			return -1;
+			}
+
+		@Override
+		public int lastIndexOf(Object o)
+			{
+			if (o == null) return -1;
+			for (int i = frames.size() - 1; i >= 0; i--)
+				if (o.equals(peek(i))) return i;
+			return -1;
+			}
+
+		@Override
+		public boolean contains(Object o)
+			{
+			return indexOf(o) >= 0;
+			}
+
 		@Override
 		public boolean add(BufferedImage e)
 			{
-			super.add(e);
+			frames.add(e);
 			fireUpdate();
 			return true;
 			}
@@ -323,14 +445,14 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 		@Override
 		public void add(int index, BufferedImage element)
 			{
-			super.add(index,element);
+			frames.add(index,element);
 			fireUpdate();
 			}
 
 		@Override
 		public boolean addAll(Collection<? extends BufferedImage> c)
 			{
-			boolean u = super.addAll(c);
+			boolean u = frames.addAll(c);
 			if (u) fireUpdate();
 			return u;
 			}
@@ -338,7 +460,7 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 		@Override
 		public boolean addAll(int index, Collection<? extends BufferedImage> c)
 			{
-			boolean u = super.addAll(index,c);
+			boolean u = frames.addAll(index,c);
 			if (u) fireUpdate();
 			return u;
 			}
@@ -354,14 +476,15 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 		@Override
 		public void clear()
 			{
-			super.clear();
+			frames.clear();
 			fireUpdate();
 			}
 
 		@Override
 		public BufferedImage remove(int index)
 			{
-			BufferedImage i = super.remove(index);
+			BufferedImage i = get(index);
+			frames.remove(index);
 			fireUpdate();
 			return i;
 			}
@@ -369,15 +492,26 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 		@Override
 		public boolean remove(Object o)
 			{
-			boolean u = super.remove(o);
-			if (u) fireUpdate();
-			return u;
+			int i = indexOf(o);
+			if (i < 0) return false;
+			frames.remove(i);
+			fireUpdate();
+			return true;
 			}
 
 		@Override
 		public boolean removeAll(Collection<?> c)
 			{
-			boolean u = super.removeAll(c);
+			boolean u = false;
+			for (int i = frames.size() - 1; i >= 0; i--)
+				{
+				BufferedImage img = peek(i);
+				if (img != null && c.contains(img))
+					{
+					frames.remove(i);
+					u = true;
+					}
+				}
 			if (u) fireUpdate();
 			return u;
 			}
@@ -385,14 +519,23 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 		@Override
 		protected void removeRange(int fromIndex, int toIndex)
 			{
-			super.removeRange(fromIndex,toIndex);
+			frames.subList(fromIndex,toIndex).clear();
 			fireUpdate();
 			}
 
 		@Override
 		public boolean retainAll(Collection<?> c)
 			{
-			boolean u = super.retainAll(c);
+			boolean u = false;
+			for (int i = frames.size() - 1; i >= 0; i--)
+				{
+				BufferedImage img = peek(i);
+				if (img == null || !c.contains(img))
+					{
+					frames.remove(i);
+					u = true;
+					}
+				}
 			if (u) fireUpdate();
 			return u;
 			}
@@ -400,9 +543,11 @@ public class Sprite extends InstantiableResource<Sprite,Sprite.PSprite> implemen
 		@Override
 		public BufferedImage set(int index, BufferedImage element)
 			{
-			BufferedImage i = super.set(index,element);
+			Object o = frames.set(index,element);
+			// the caller may have drawn on the frame in place
+			bounds.remove(element);
 			fireUpdate();
-			return i;
+			return o instanceof LazyImage ? ((LazyImage) o).peek() : (BufferedImage) o;
 			}
 		}
 
@@ -33,11 +33,27 @@ import org.lateralgm.util.PropertyMap.PropertyValidator;
 public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 		PropertyValidator<Instance.PInstance>
 	{
+	private static final Random RANDOM = new Random();
+	private static final Color DEFAULT_COLOR = new Color(255,255,255);
+
 	private ResourceReference<?> object = null; //kept for listening purposes
-	public final PropertyMap<PInstance> properties;
 	private final ResourceReference<Room> room;
 
-	private final InstancePropertyListener ipl = new InstancePropertyListener();
+	/*
+	 * Rooms can hold tens of thousands of instances, so their properties are kept in plain fields
+	 * rather than in a property map of boxed values with its own update source. The map is only
+	 * created once something asks for it, such as the instance editor, and from then on it holds
+	 * the values instead of the fields.
+	 */
+	private PropertyMap<PInstance> properties;
+	private int x, y, id, alpha = 255;
+	private double scaleX = 1.0, scaleY = 1.0, rotation;
+	private int color = DEFAULT_COLOR.getRGB();
+	private boolean locked, selected;
+	/** The name, or null for the default name made from {@link #nameSeed}. */
+	private String name;
+	private final int nameSeed;
+	private String creationCode = ""; //$NON-NLS-1$
 
 	private final UpdateTrigger updateTrigger = new UpdateTrigger();
 	public final UpdateSource updateSource = new UpdateSource(this,updateTrigger);
@@ -48,14 +64,56 @@ public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 		}
 
 	private static final EnumMap<PInstance,Object> DEFS = PropertyMap.makeDefaultMap(PInstance.class,
-			0,0,null,"instance",0,"",false,1.0,1.0,new Color(255,255,255),0.0,false,255);
+			0,0,null,"instance",0,"",false,1.0,1.0,DEFAULT_COLOR,0.0,false,255);
 
 	public Instance(Room r)
 		{
 		room = r.reference;
-		properties = new PropertyMap<PInstance>(PInstance.class,this,DEFS);
-		properties.put(PInstance.NAME, "inst_" + String.format("%08X", new Random().nextInt()));
-		properties.updateSource.addListener(ipl);
+		nameSeed = RANDOM.nextInt();
+		}
+
+	/**
+	 * Returns the properties of this instance as a property map, for editors that bind to
+	 * individual properties. Creating the map makes it hold the properties from then on.
+	 */
+	public PropertyMap<PInstance> getProperties()
+		{
+		if (properties == null)
+			{
+			PropertyMap<PInstance> p = new PropertyMap<PInstance>(PInstance.class,this,DEFS);
+			p.put(PInstance.X,x);
+			p.put(PInstance.Y,y);
+			p.put(PInstance.OBJECT,object);
+			p.put(PInstance.NAME,getName());
+			p.put(PInstance.ID,id);
+			p.put(PInstance.CREATION_CODE,creationCode);
+			p.put(PInstance.LOCKED,locked);
+			p.put(PInstance.SCALE_X,scaleX);
+			p.put(PInstance.SCALE_Y,scaleY);
+			p.put(PInstance.COLOR,getColor());
+			p.put(PInstance.ROTATION,rotation);
+			p.put(PInstance.SELECTED,selected);
+			p.put(PInstance.ALPHA,alpha);
+			p.updateSource.addListener(new InstancePropertyListener());
+			properties = p;
+			}
+		return properties;
+		}
+
+	/** Copies every property of the given instance, including its id and name. */
+	public void copyFrom(Instance other)
+		{
+		setPosition(other.getPosition());
+		setObject(other.getObject());
+		setName(other.getName());
+		setID(other.getID());
+		setCreationCode(other.getCreationCode());
+		setLocked(other.isLocked());
+		setScale(other.getScale());
+		setColor(other.getColor());
+		setRotation(other.getRotation());
+		setSelected(other.isSelected());
+		setAlpha(other.getAlpha());
 		}
 
 	protected void fireUpdate(UpdateEvent e)
@@ -66,95 +124,239 @@ public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 		if (r != null) r.instanceUpdated(e);
 		}
 
+	/** Lets the room keep the values of this instance before one of them is changed. */
+	private void propertyChanging(PInstance k)
+		{
+		Room r = room == null ? null : room.get();
+		if (r != null && k != PInstance.SELECTED) r.pieceChanging(this);
+		}
+
+	/** Notifies listeners of a changed property, whether it is held in a field or in the map. */
+	private void propertyChanged(PInstance k)
+		{
+		Room r = room == null ? null : room.get();
+		if (r != null && k != PInstance.SELECTED) r.pieceChanged();
+		switch (k)
+			{
+			case X:
+			case Y:
+				// only the visual of the instance depends on its position, not the room
+				updateTrigger.fire();
+				break;
+			case OBJECT:
+			case NAME:
+			case SELECTED:
+			case SCALE_X:
+			case SCALE_Y:
+			case ROTATION:
+			case COLOR:
+			case ALPHA:
+				fireUpdate(null);
+				break;
+			default:
+				break;
+			}
+		}
+
 	public int getID()
 		{
-		return properties.get(PInstance.ID);
+		if (properties != null) return properties.get(PInstance.ID);
+		return id;
+		}
+
+	public void setID(int id)
+		{
+		if (properties != null)
+			properties.put(PInstance.ID,id);
+		else if (id != this.id)
+			{
+			propertyChanging(PInstance.ID);
+			this.id = id;
+			propertyChanged(PInstance.ID);
+			}
 		}
 
 	@Override
 	public void setName(String name)
 		{
-		properties.put(PInstance.NAME, name);
+		if (properties != null)
+			properties.put(PInstance.NAME,name);
+		else if (name == null || !name.equals(getName()))
+			{
+			propertyChanging(PInstance.NAME);
+			this.name = name;
+			propertyChanged(PInstance.NAME);
+			}
 		}
 
 	@Override
 	public String getName()
 		{
-		return properties.get(PInstance.NAME);
+		if (properties != null) return properties.get(PInstance.NAME);
+		if (name == null) return "inst_" + String.format("%08X",nameSeed); //$NON-NLS-1$ //$NON-NLS-2$
+		return name;
+		}
+
+	@SuppressWarnings("unchecked")
+	public ResourceReference<GmObject> getObject()
+		{
+		if (properties != null) return properties.get(PInstance.OBJECT);
+		return (ResourceReference<GmObject>) object;
+		}
+
+	public void setObject(ResourceReference<GmObject> obj)
+		{
+		if (properties != null)
+			properties.put(PInstance.OBJECT,obj);
+		else if (obj != object)
+			{
+			propertyChanging(PInstance.OBJECT);
+			validate(PInstance.OBJECT,obj);
+			propertyChanged(PInstance.OBJECT);
+			}
 		}
 
 	public Point getPosition()
 		{
-		return new Point((Integer) properties.get(PInstance.X),(Integer) properties.get(PInstance.Y));
+		if (properties != null)
+			return new Point((Integer) properties.get(PInstance.X),(Integer) properties.get(PInstance.Y));
+		return new Point(x,y);
 		}
 
 	public int getAlpha()
 		{
-		return properties.get(PInstance.ALPHA);
+		if (properties != null) return properties.get(PInstance.ALPHA);
+		return alpha;
 		}
 
 	public void setAlpha(int alpha)
 		{
-		properties.put(PInstance.ALPHA,alpha);
+		if (properties != null)
+			properties.put(PInstance.ALPHA,alpha);
+		else if (alpha != this.alpha)
+			{
+			propertyChanging(PInstance.ALPHA);
+			this.alpha = alpha;
+			propertyChanged(PInstance.ALPHA);
+			}
 		}
 
 	public Point2D getScale()
 		{
-		return new Point2D.Double((Double) properties.get(PInstance.SCALE_X),
-				(Double) properties.get(PInstance.SCALE_Y));
+		if (properties != null)
+			return new Point2D.Double((Double) properties.get(PInstance.SCALE_X),
+					(Double) properties.get(PInstance.SCALE_Y));
+		return new Point2D.Double(scaleX,scaleY);
 		}
 
 	public double getRotation()
 		{
-		return properties.get(PInstance.ROTATION);
+		if (properties != null) return properties.get(PInstance.ROTATION);
+		return rotation;
 		}
 
 	public Color getColor()
 		{
-		return properties.get(PInstance.COLOR);
+		if (properties != null) return properties.get(PInstance.COLOR);
+		return color == DEFAULT_COLOR.getRGB() ? DEFAULT_COLOR : new Color(color,true);
 		}
 
 	public Color getAWTColor()
 		{
 		//TODO: Write this properly
-		return properties.get(PInstance.COLOR);
+		return getColor();
 		}
 
 	public void setPosition(Point pos)
 		{
-		properties.put(PInstance.X,pos.x);
-		properties.put(PInstance.Y,pos.y);
+		if (properties != null)
+			{
+			properties.put(PInstance.X,pos.x);
+			properties.put(PInstance.Y,pos.y);
+			return;
+			}
+		if (pos.x != x)
+			{
+			propertyChanging(PInstance.X);
+			x = pos.x;
+			propertyChanged(PInstance.X);
+			}
+		if (pos.y != y)
+			{
+			propertyChanging(PInstance.Y);
+			y = pos.y;
+			propertyChanged(PInstance.Y);
+			}
 		}
 
 	public void setScale(Point2D scale)
 		{
-		properties.put(PInstance.SCALE_X,scale.getX());
-		properties.put(PInstance.SCALE_Y,scale.getY());
+		if (properties != null)
+			{
+			properties.put(PInstance.SCALE_X,scale.getX());
+			properties.put(PInstance.SCALE_Y,scale.getY());
+			return;
+			}
+		if (scale.getX() != scaleX)
+			{
+			propertyChanging(PInstance.SCALE_X);
+			scaleX = scale.getX();
+			propertyChanged(PInstance.SCALE_X);
+			}
+		if (scale.getY() != scaleY)
+			{
+			propertyChanging(PInstance.SCALE_Y);
+			scaleY = scale.getY();
+			propertyChanged(PInstance.SCALE_Y);
+			}
 		}
 
 	public void setRotation(double degrees)
 		{
-		properties.put(PInstance.ROTATION,degrees);
+		if (properties != null)
+			properties.put(PInstance.ROTATION,degrees);
+		else if (degrees != rotation)
+			{
+			propertyChanging(PInstance.ROTATION);
+			rotation = degrees;
+			propertyChanged(PInstance.ROTATION);
+			}
 		}
 
 	public void setSelected(boolean selected)
 		{
-		properties.put(PInstance.SELECTED,selected);
+		if (properties != null)
+			properties.put(PInstance.SELECTED,selected);
+		else if (selected != this.selected)
+			{
+			propertyChanging(PInstance.SELECTED);
+			this.selected = selected;
+			propertyChanged(PInstance.SELECTED);
+			}
 		}
 
 	public boolean isSelected()
 		{
-		return (Boolean) properties.get(PInstance.SELECTED);
+		if (properties != null) return (Boolean) properties.get(PInstance.SELECTED);
+		return selected;
 		}
 
 	public void setColor(Color color)
 		{
-		properties.put(PInstance.COLOR,color);
+		if (properties != null)
+			properties.put(PInstance.COLOR,color);
+		else if (color.getRGB() != this.color)
+			{
+			propertyChanging(PInstance.COLOR);
+			this.color = color.getRGB();
+			propertyChanged(PInstance.COLOR);
+			}
 		}
 
 	public String getCreationCode()
 		{
-		return (String) properties.get(PInstance.CREATION_CODE);
+		if (properties != null) return (String) properties.get(PInstance.CREATION_CODE);
+		return creationCode;
 		}
 
 	public String getCode()
@@ -164,7 +366,17 @@ public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 
 	public void setCreationCode(String creationCode)
 		{
-		properties.put(PInstance.CREATION_CODE,creationCode);
+		// code editors commit an equal copy of the code every time they are checked for changes
+		String c = getCreationCode();
+		if (c == null ? creationCode == null : c.equals(creationCode)) return;
+		if (properties != null)
+			properties.put(PInstance.CREATION_CODE,creationCode);
+		else
+			{
+			propertyChanging(PInstance.CREATION_CODE);
+			this.creationCode = creationCode;
+			propertyChanged(PInstance.CREATION_CODE);
+			}
 		}
 
 	public void setCode(String s)
@@ -179,16 +391,26 @@ public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 
 	public boolean isLocked()
 		{
-		return (Boolean) properties.get(PInstance.LOCKED);
+		if (properties != null) return (Boolean) properties.get(PInstance.LOCKED);
+		return locked;
 		}
 
 	public void setLocked(boolean l)
 		{
-		properties.put(PInstance.LOCKED,l);
+		if (properties != null)
+			properties.put(PInstance.LOCKED,l);
+		else if (l != locked)
+			{
+			propertyChanging(PInstance.LOCKED);
+			locked = l;
+			propertyChanged(PInstance.LOCKED);
+			}
 		}
 
 	public Object validate(PInstance k, Object v)
 		{
+		// values put in the map while it is being created are not changes
+		if (properties != null) propertyChanging(k);
 		if (k == PInstance.OBJECT)
 			{
 			ResourceReference<?> r = (ResourceReference<?>) v;
@@ -211,14 +433,7 @@ public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 		@Override
 		public void updated(PropertyUpdateEvent<PInstance> e)
 			{
-			if (e.key == PInstance.OBJECT) fireUpdate(null);
-			if (e.key == PInstance.NAME) fireUpdate(null);
-			if (e.key == PInstance.SELECTED) fireUpdate(null);
-			if (e.key == PInstance.SCALE_X) fireUpdate(null);
-			if (e.key == PInstance.SCALE_Y) fireUpdate(null);
-			if (e.key == PInstance.ROTATION) fireUpdate(null);
-			if (e.key == PInstance.COLOR)	fireUpdate(null);
-			if (e.key == PInstance.ALPHA) fireUpdate(null);
+			propertyChanged(e.key);
 			}
 		}
 
@@ -227,7 +442,9 @@ public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 		{
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((properties == null) ? 0 : properties.hashCode());
+		result = prime * result + getID();
+		result = prime * result + getPosition().hashCode();
+		result = prime * result + getName().hashCode();
 		return result;
 		}
 
@@ -238,11 +455,11 @@ public class Instance implements Room.Piece,UpdateListener,CodeHolder,
 		if (obj == null) return false;
 		if (!(obj instanceof Instance)) return false;
 		Instance other = (Instance) obj;
-		if (properties == null)
-			{
-			if (other.properties != null) return false;
-			}
-		else if (!properties.equals(other.properties)) return false;
-		return true;
+		return getPosition().equals(other.getPosition()) && getObject() == other.getObject()
+				&& getName().equals(other.getName()) && getID() == other.getID()
+				&& getCreationCode().equals(other.getCreationCode()) && isLocked() == other.isLocked()
+				&& getScale().equals(other.getScale()) && getColor().equals(other.getColor())
+				&& getRotation() == other.getRotation() && isSelected() == other.isSelected()
+				&& getAlpha() == other.getAlpha();
 		}
 	}
@@ -33,11 +33,23 @@ import org.lateralgm.util.PropertyMap.PropertyValidator;
 
 public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PTile>
 	{
+	private static final Random RANDOM = new Random();
+
 	private ResourceReference<?> background = null; //kept for listening purposes
-	public final PropertyMap<PTile> properties;
 	private final ResourceReference<Room> room;
 
-	private final TilePropertyListener tpl = new TilePropertyListener();
+	/*
+	 * As with instances, the properties are kept in plain fields until something asks for the
+	 * property map, which then holds them instead.
+	 */
+	private PropertyMap<PTile> properties;
+	private int bgX, bgY, roomX, roomY, width, height, depth, id, alpha = 255;
+	private long color = 4294967295L;
+	private double scaleX = 1.0, scaleY = 1.0, rotation;
+	private boolean locked, selected;
+	/** The name, or null for the default name made from {@link #nameSeed}. */
+	private String name;
+	private final int nameSeed;
 
 	private final UpdateTrigger updateTrigger = new UpdateTrigger();
 	public final UpdateSource updateSource = new UpdateSource(this,updateTrigger);
@@ -58,15 +70,13 @@ public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PT
 	public Tile(Room r)
 		{
 		room = r.reference;
-		properties = new PropertyMap<PTile>(PTile.class,this,DEFS);
-		properties.put(PTile.NAME, "tile_" + String.format("%08X", new Random().nextInt()));
-		properties.updateSource.addListener(tpl);
+		nameSeed = RANDOM.nextInt();
 		}
 
 	public Tile(Room r, int id)
 		{
 		this(r);
-		properties.put(PTile.ID,id);
+		this.id = id;
 		}
 
 	/**
@@ -78,6 +88,56 @@ public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PT
 		this(r,++f.lastTileId);
 		}
 
+	/**
+	 * Returns the properties of this tile as a property map, for editors that bind to
+	 * individual properties. Creating the map makes it hold the properties from then on.
+	 */
+	public PropertyMap<PTile> getProperties()
+		{
+		if (properties == null)
+			{
+			PropertyMap<PTile> p = new PropertyMap<PTile>(PTile.class,this,DEFS);
+			p.put(PTile.BG_X,bgX);
+			p.put(PTile.BG_Y,bgY);
+			p.put(PTile.ROOM_X,roomX);
+			p.put(PTile.ROOM_Y,roomY);
+			p.put(PTile.WIDTH,width);
+			p.put(PTile.HEIGHT,height);
+			p.put(PTile.DEPTH,depth);
+			p.put(PTile.BACKGROUND,background);
+			p.put(PTile.NAME,getName());
+			p.put(PTile.ID,id);
+			p.put(PTile.LOCKED,locked);
+			p.put(PTile.COLOR,color);
+			p.put(PTile.ALPHA,alpha);
+			p.put(PTile.SCALE_X,scaleX);
+			p.put(PTile.SCALE_Y,scaleY);
+			p.put(PTile.ROTATION,rotation);
+			p.put(PTile.SELECTED,selected);
+			p.updateSource.addListener(new TilePropertyListener());
+			properties = p;
+			}
+		return properties;
+		}
+
+	/** Copies every property of the given tile, including its id and name. */
+	public void copyFrom(Tile other)
+		{
+		setBackgroundPosition(other.getBackgroundPosition());
+		setPosition(other.getPosition());
+		setSize(other.getSize());
+		setDepth(other.getDepth());
+		setBackground(other.getBackground());
+		setName(other.getName());
+		setID(other.getID());
+		setLocked(other.isLocked());
+		setColor(other.getColor());
+		setAlpha(other.getAlpha());
+		setScale(other.getScale());
+		setRotation(other.getRotation());
+		setSelected(other.isSelected());
+		}
+
 	protected void fireUpdate(UpdateEvent e)
 		{
 		if (e == null) e = updateTrigger.getEvent();
@@ -86,129 +146,300 @@ public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PT
 		if (r != null) r.tileUpdated(e);
 		}
 
+	/** Lets the room keep the values of this tile before one of them is changed. */
+	private void propertyChanging(PTile k)
+		{
+		Room r = room == null ? null : room.get();
+		if (r != null && k != PTile.SELECTED) r.pieceChanging(this);
+		}
+
+	/** Notifies listeners of a changed property, whether it is held in a field or in the map. */
+	private void propertyChanged(PTile k)
+		{
+		Room r = room == null ? null : room.get();
+		if (r != null && k != PTile.SELECTED) r.pieceChanged();
+		switch (k)
+			{
+			case DEPTH:
+			case ROOM_X:
+			case ROOM_Y:
+				// only the visual of the tile depends on these, not the room
+				updateTrigger.fire();
+				break;
+			case BACKGROUND:
+			case SELECTED:
+				fireUpdate(null);
+				break;
+			default:
+				break;
+			}
+		}
+
 	public int getID()
 		{
-		return properties.get(PTile.ID);
+		if (properties != null) return properties.get(PTile.ID);
+		return id;
+		}
+
+	public void setID(int id)
+		{
+		if (properties != null)
+			properties.put(PTile.ID,id);
+		else if (id != this.id)
+			{
+			propertyChanging(PTile.ID);
+			this.id = id;
+			propertyChanged(PTile.ID);
+			}
 		}
 
 	@Override
 	public void setName(String name)
 		{
-		properties.put(PTile.NAME, name);
+		if (properties != null)
+			properties.put(PTile.NAME,name);
+		else if (name == null ? this.name != null : !name.equals(this.name))
+			{
+			propertyChanging(PTile.NAME);
+			this.name = name;
+			propertyChanged(PTile.NAME);
+			}
 		}
 
 	@Override
 	public String getName()
 		{
-		return properties.get(PTile.NAME);
+		if (properties != null) return properties.get(PTile.NAME);
+		if (name == null) return "tile_" + String.format("%08X",nameSeed); //$NON-NLS-1$ //$NON-NLS-2$
+		return name;
+		}
+
+	@SuppressWarnings("unchecked")
+	public ResourceReference<Background> getBackground()
+		{
+		if (properties != null) return properties.get(PTile.BACKGROUND);
+		return (ResourceReference<Background>) background;
+		}
+
+	public void setBackground(ResourceReference<Background> bkg)
+		{
+		if (properties != null)
+			properties.put(PTile.BACKGROUND,bkg);
+		else if (bkg != background)
+			{
+			propertyChanging(PTile.BACKGROUND);
+			validate(PTile.BACKGROUND,bkg);
+			propertyChanged(PTile.BACKGROUND);
+			}
 		}
 
 	public Point getBackgroundPosition()
 		{
-		int x = properties.get(PTile.BG_X);
-		int y = properties.get(PTile.BG_Y);
-		return new Point(x,y);
+		if (properties != null)
+			{
+			int x = properties.get(PTile.BG_X);
+			int y = properties.get(PTile.BG_Y);
+			return new Point(x,y);
+			}
+		return new Point(bgX,bgY);
 		}
 
 	public void setBackgroundPosition(Point p)
 		{
-		properties.put(PTile.BG_X,p.x);
-		properties.put(PTile.BG_Y,p.y);
+		if (properties != null)
+			{
+			properties.put(PTile.BG_X,p.x);
+			properties.put(PTile.BG_Y,p.y);
+			}
+		else if (p.x != bgX || p.y != bgY)
+			{
+			propertyChanging(PTile.BG_X);
+			bgX = p.x;
+			bgY = p.y;
+			propertyChanged(PTile.BG_X);
+			}
 		fireUpdate(null);
 		}
 
 	public double getRotation()
 		{
-		return properties.get(PTile.ROTATION);
+		if (properties != null) return properties.get(PTile.ROTATION);
+		return rotation;
 		}
 
 	public void setRotation(double degrees)
 		{
-		properties.put(PTile.ROTATION,degrees);
+		if (properties != null)
+			properties.put(PTile.ROTATION,degrees);
+		else if (degrees != rotation)
+			{
+			propertyChanging(PTile.ROTATION);
+			rotation = degrees;
+			propertyChanged(PTile.ROTATION);
+			}
 		}
 
 	public Point getPosition()
 		{
-		int x = properties.get(PTile.ROOM_X);
-		int y = properties.get(PTile.ROOM_Y);
-		return new Point(x,y);
+		if (properties != null)
+			{
+			int x = properties.get(PTile.ROOM_X);
+			int y = properties.get(PTile.ROOM_Y);
+			return new Point(x,y);
+			}
+		return new Point(roomX,roomY);
 		}
 
 	public void setPosition(Point p)
 		{
-		properties.put(PTile.ROOM_X,p.x);
-		properties.put(PTile.ROOM_Y,p.y);
+		if (properties != null)
+			{
+			properties.put(PTile.ROOM_X,p.x);
+			properties.put(PTile.ROOM_Y,p.y);
+			return;
+			}
+		if (p.x != roomX)
+			{
+			propertyChanging(PTile.ROOM_X);
+			roomX = p.x;
+			propertyChanged(PTile.ROOM_X);
+			}
+		if (p.y != roomY)
+			{
+			propertyChanging(PTile.ROOM_Y);
+			roomY = p.y;
+			propertyChanged(PTile.ROOM_Y);
+			}
 		}
 
 	public void setColor(Color color)
 		{
-		properties.put(PTile.COLOR,color);
+		// the colour is held as an unsigned ARGB value, which getColor() returns
+		setColor(color.getRGB() & 0xFFFFFFFFL);
 		}
 
 	public int getAlpha()
 		{
-		return properties.get(PTile.ALPHA);
+		if (properties != null) return properties.get(PTile.ALPHA);
+		return alpha;
 		}
 
 	public void setAlpha(int alpha)
 		{
-		properties.put(PTile.ALPHA,alpha);
+		if (properties != null)
+			properties.put(PTile.ALPHA,alpha);
+		else if (alpha != this.alpha)
+			{
+			propertyChanging(PTile.ALPHA);
+			this.alpha = alpha;
+			propertyChanged(PTile.ALPHA);
+			}
 		}
 
 	public Dimension getSize()
 		{
-		int w = properties.get(PTile.WIDTH);
-		int h = properties.get(PTile.HEIGHT);
-		return new Dimension(w,h);
+		if (properties != null)
+			{
+			int w = properties.get(PTile.WIDTH);
+			int h = properties.get(PTile.HEIGHT);
+			return new Dimension(w,h);
+			}
+		return new Dimension(width,height);
 		}
 
 	public void setSelected(boolean selected)
 		{
-		properties.put(PTile.SELECTED,selected);
+		if (properties != null)
+			properties.put(PTile.SELECTED,selected);
+		else if (selected != this.selected)
+			{
+			propertyChanging(PTile.SELECTED);
+			this.selected = selected;
+			propertyChanged(PTile.SELECTED);
+			}
 		}
 
 	public boolean isSelected()
 		{
-		return (Boolean) properties.get(PTile.SELECTED);
+		if (properties != null) return (Boolean) properties.get(PTile.SELECTED);
+		return selected;
 		}
 
 	public void setSize(Dimension s)
 		{
-		properties.put(PTile.WIDTH,s.width);
-		properties.put(PTile.HEIGHT,s.height);
+		if (properties != null)
+			{
+			properties.put(PTile.WIDTH,s.width);
+			properties.put(PTile.HEIGHT,s.height);
+			}
+		else if (s.width != width || s.height != height)
+			{
+			propertyChanging(PTile.WIDTH);
+			width = s.width;
+			height = s.height;
+			propertyChanged(PTile.WIDTH);
+			}
 		fireUpdate(null);
 		}
 
 	public void setScale(Point2D scale)
 		{
-		properties.put(PTile.SCALE_X,scale.getX());
-		properties.put(PTile.SCALE_Y,scale.getY());
+		if (properties != null)
+			{
+			properties.put(PTile.SCALE_X,scale.getX());
+			properties.put(PTile.SCALE_Y,scale.getY());
+			}
+		else if (scale.getX() != scaleX || scale.getY() != scaleY)
+			{
+			propertyChanging(PTile.SCALE_X);
+			scaleX = scale.getX();
+			scaleY = scale.getY();
+			propertyChanged(PTile.SCALE_X);
+			}
 		}
 
 	public void setColor(long color)
 		{
-		properties.put(PTile.COLOR,color);
+		if (properties != null)
+			properties.put(PTile.COLOR,color);
+		else if (color != this.color)
+			{
+			propertyChanging(PTile.COLOR);
+			this.color = color;
+			propertyChanged(PTile.COLOR);
+			}
 		}
 
 	public Point2D getScale()
 		{
-		return new Point2D.Double((Double) properties.get(PTile.SCALE_X),
-				(Double) properties.get(PTile.SCALE_Y));
+		if (properties != null)
+			return new Point2D.Double((Double) properties.get(PTile.SCALE_X),
+					(Double) properties.get(PTile.SCALE_Y));
+		return new Point2D.Double(scaleX,scaleY);
 		}
 
 	public long getColor()
 		{
-		return properties.get(PTile.COLOR);
+		if (properties != null) return properties.get(PTile.COLOR);
+		return color;
 		}
 
 	public int getDepth()
 		{
-		return properties.get(PTile.DEPTH);
+		if (properties != null) return properties.get(PTile.DEPTH);
+		return depth;
 		}
 
 	public void setDepth(int d)
 		{
-		properties.put(PTile.DEPTH,d);
+		if (properties != null)
+			properties.put(PTile.DEPTH,d);
+		else if (d != depth)
+			{
+			propertyChanging(PTile.DEPTH);
+			depth = d;
+			propertyChanged(PTile.DEPTH);
+			}
 		}
 
 	public void updated(UpdateEvent e)
@@ -218,16 +449,26 @@ public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PT
 
 	public boolean isLocked()
 		{
-		return properties.get(PTile.LOCKED);
+		if (properties != null) return properties.get(PTile.LOCKED);
+		return locked;
 		}
 
 	public void setLocked(boolean l)
 		{
-		properties.put(PTile.LOCKED,l);
+		if (properties != null)
+			properties.put(PTile.LOCKED,l);
+		else if (l != locked)
+			{
+			propertyChanging(PTile.LOCKED);
+			locked = l;
+			propertyChanged(PTile.LOCKED);
+			}
 		}
 
 	public Object validate(PTile k, Object v)
 		{
+		// values put in the map while it is being created are not changes
+		if (properties != null) propertyChanging(k);
 		if (k == PTile.BACKGROUND)
 			{
 			ResourceReference<?> r = (ResourceReference<?>) v;
@@ -250,8 +491,7 @@ public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PT
 		@Override
 		public void updated(PropertyUpdateEvent<PTile> e)
 			{
-			if (e.key == PTile.BACKGROUND) fireUpdate(null);
-			if (e.key == PTile.SELECTED) fireUpdate(null);
+			propertyChanged(e.key);
 			}
 		}
 
@@ -260,7 +500,9 @@ public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PT
 		{
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((properties == null) ? 0 : properties.hashCode());
+		result = prime * result + getID();
+		result = prime * result + getPosition().hashCode();
+		result = prime * result + getName().hashCode();
 		return result;
 		}
 
@@ -271,11 +513,12 @@ public class Tile implements Room.Piece,UpdateListener,PropertyValidator<Tile.PT
 		if (obj == null) return false;
 		if (!(obj instanceof Tile)) return false;
 		Tile other = (Tile) obj;
-		if (properties == null)
-			{
-			if (other.properties != null) return false;
-			}
-		else if (!properties.equals(other.properties)) return false;
-		return true;
+		return getBackgroundPosition().equals(other.getBackgroundPosition())
+				&& getPosition().equals(other.getPosition()) && getSize().equals(other.getSize())
+				&& getDepth() == other.getDepth() && getBackground() == other.getBackground()
+				&& getName().equals(other.getName()) && getID() == other.getID()
+				&& isLocked() == other.isLocked() && getColor() == other.getColor()
+				&& getAlpha() == other.getAlpha() && getScale().equals(other.getScale())
+				&& getRotation() == other.getRotation() && isSelected() == other.isSelected();
 		}
 	}
@@ -193,7 +193,7 @@ public class IncludeFrame extends InstantiableResourceFrame<Include,Include.PInc
 
 	private void updateStatusLabels()
 		{
-		saveDataBut.setEnabled(res.data != null && res.data.length > 0);
+		saveDataBut.setEnabled(res.getData().getLength() > 0);
 
 		String filePathText = Messages.format("IncludeFrame.ORIGINAL_FILE",res.get(PInclude.FILEPATH)); //$NON-NLS-1$
 		originalNameLabel.setText(filePathText);
@@ -217,13 +217,13 @@ public class IncludeFrame extends InstantiableResourceFrame<Include,Include.PInc
 			res.put(PInclude.FILEPATH,f.getAbsolutePath());
 			try
 				{
-				res.data = Files.readAllBytes(f.toPath());
+				res.getData().set(Files.readAllBytes(f.toPath()));
 				}
 			catch (IOException e)
 				{
 				LGM.showDefaultExceptionHandler(e);
 				}
-			res.put(PInclude.SIZE,res.data.length);
+			res.put(PInclude.SIZE,res.getData().getLength());
 			updateStatusLabels();
 			return;
 			}
@@ -234,7 +234,7 @@ public class IncludeFrame extends InstantiableResourceFrame<Include,Include.PInc
 			File f = fc.getSelectedFile();
 			try
 				{
-				Files.write(f.toPath(),res.data);
+				res.getData().writeTo(f);
 				}
 			catch (IOException e)
 				{
@@ -33,6 +33,8 @@ import javax.swing.JButton;
 import org.lateralgm.components.impl.ResNode;
 import org.lateralgm.components.mdi.RevertableMDIFrame;
 import org.lateralgm.main.LGM;
+import org.lateralgm.main.UpdateSource.UpdateEvent;
+import org.lateralgm.main.UpdateSource.UpdateListener;
 import org.lateralgm.messages.Messages;
 import org.lateralgm.resources.Background;
 import org.lateralgm.resources.Constants;
@@ -63,10 +65,21 @@ public abstract class ResourceFrame<R extends Resource<R,P>, P extends Enum<P>>
 	public final JButton save = new JButton();
 	/** The resource this frame is editing (feel free to change it as you wish) */
 	public R res;
-	/** Backup of res as it was before changes were made */
+	/** Backup of res as it was before changes were made, see {@link Resource#backup()} */
 	public R resOriginal;
 	/** Whether changes were made and reported by the PropertyUpdateListener **/
 	public boolean resChanged;
+	/** The revision of res when resOriginal was taken, see {@link Resource#getRevision()}. */
+	private int revision;
+	/** Whether the properties or the name of res were updated since resOriginal was taken. */
+	private boolean propertiesUpdated;
+	private final UpdateListener propertyJournal = new UpdateListener()
+		{
+			public void updated(UpdateEvent e)
+				{
+				propertiesUpdated = true;
+				}
+		};
 	/** The ResNode this frame is linked to */
 	public final ResNode node;
 
@@ -166,7 +179,9 @@ public abstract class ResourceFrame<R extends Resource<R,P>, P extends Enum<P>>
 		plf = new PropertyLinkFactory<P>(res.properties,this);
 		this.res = res;
 		this.node = node;
-		resOriginal = res.clone();
+		res.properties.updateSource.addListener(propertyJournal);
+		res.reference.updateSource.addListener(propertyJournal);
+		backupResource();
 		setFrameIcon(ResNode.ICON.get(res.getClass()));
 
 		save.setToolTipText(Messages.getString("ResourceFrame.SAVE_TOOLTIP")); //$NON-NLS-1$
@@ -184,8 +199,9 @@ public abstract class ResourceFrame<R extends Resource<R,P>, P extends Enum<P>>
 		commitChanges();
 		//NOTE: Any children that override this should call this.
 		if (frameListener != null && frameListener.resourceChanged()) return true;
-		if (!areResourceFieldsEqual()) return true;
-		return !res.equals(resOriginal);
+		if (res.getRevision() != revision || !areResourceFieldsEqual()) return true;
+		// Nothing but the properties and name are left to compare, and only if they were updated
+		return propertiesUpdated && !res.equals(resOriginal);
 		}
 
 	/** Override to check additional fields other than the Resource<> defaults. */
@@ -208,19 +224,29 @@ public abstract class ResourceFrame<R extends Resource<R,P>, P extends Enum<P>>
 		if (commit) {
 			commitChanges();
 		}
-		resOriginal = res.clone();
+		backupResource();
+		}
+
+	/** Takes a new backup of res, and starts detecting changes against it. */
+	private void backupResource()
+		{
+		resOriginal = res.backup();
+		// cloning renames the copy through the shared reference, which is not a change
+		revision = res.getRevision();
+		propertiesUpdated = false;
 		}
 
 	@Override
 	public void setResourceChanged() {
 		if (frameListener != null) frameListener.setResourceChanged();
 		res.changed = true;
+		res.markDirty();
 	}
 
 	public void revertResource()
 		{
 		if (frameListener != null) frameListener.revertResource();
-		resOriginal.updateReference();
+		res.revert(resOriginal);
 		}
 
 	public abstract void commitChanges();
@@ -265,6 +291,8 @@ public abstract class ResourceFrame<R extends Resource<R,P>, P extends Enum<P>>
 		super.dispose();
 		if (node != null) node.frame = null; // allows a new frame to open
 		save.removeActionListener(this);
+		res.properties.updateSource.removeListener(propertyJournal);
+		res.reference.updateSource.removeListener(propertyJournal);
 		removeAll();
 		plf.removeAllLinks(); // << remove primary property links
 		// remove secondary subresource based property links
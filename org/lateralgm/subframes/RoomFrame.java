@@ -92,7 +92,6 @@ import javax.swing.event.ListSelectionListener;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
 import javax.swing.undo.CompoundEdit;
-import javax.swing.undo.UndoManager;
 import javax.swing.undo.UndoableEdit;
 import javax.swing.undo.UndoableEditSupport;
 
@@ -100,6 +99,8 @@ import org.lateralgm.components.ColorSelect;
 import org.lateralgm.components.NumberField;
 import org.lateralgm.components.ResourceMenu;
 import org.lateralgm.components.impl.AddPieceInstance;
+import org.lateralgm.components.impl.BoundedUndoManager;
+import org.lateralgm.components.impl.CompoundPieceEdit;
 import org.lateralgm.components.impl.EditorScrollPane;
 import org.lateralgm.components.impl.ModifyPieceInstance;
 import org.lateralgm.components.impl.RemovePieceInstance;
@@ -231,7 +232,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 	private JCheckBox vClear;
 
 	// Undo system elements
-	public UndoManager undoManager;
+	public BoundedUndoManager undoManager;
 	public UndoableEditSupport undoSupport;
 	// Save the object's properties for the undo
 	private String pieceOriginalName = null;
@@ -653,13 +654,13 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 			super.getListCellRendererComponent(list,val,ind,selected,focus);
 			if (!(val instanceof Instance)) return this;
 			Instance i = (Instance)val;
-			ResourceReference<GmObject> ro = i.properties.get(PInstance.OBJECT);
+			ResourceReference<GmObject> ro = i.getObject();
 			GmObject o = deRef(ro);
 			String name = o == null ? Messages.getString("RoomFrame.NO_OBJECT") : o.getName(); //$NON-NLS-1$
-			this.setText(name + "  " + i.properties.get(PInstance.ID) + "  " +
-				i.properties.get(PInstance.NAME));
-			this.setText(String.format("%10s %6s %s", name, i.properties.get(PInstance.ID),
-				i.properties.get(PInstance.NAME)));
+			this.setText(name + "  " + i.getID() + "  " +
+				i.getName());
+			this.setText(String.format("%10s %6s %s", name, i.getID(),
+				i.getName()));
 			ResNode rn = o == null ? null : o.getNode();
 			this.setIcon(rn == null ? null : rn.getIcon());
 			return this;
@@ -680,10 +681,10 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 			super.getListCellRendererComponent(list,val,ind,selected,focus);
 			if (!(val instanceof Tile)) return this;
 			Tile t = (Tile)val;
-			ResourceReference<Background> rb = t.properties.get(PTile.BACKGROUND);
+			ResourceReference<Background> rb = t.getBackground();
 			Background bg = deRef(rb);
 			String name = bg == null ? Messages.getString("RoomFrame.NO_BACKGROUND") : bg.getName(); //$NON-NLS-1$
-			this.setText(name + " " + t.properties.get(PTile.ID) + " " + t.properties.get(PTile.NAME));
+			this.setText(name + " " + t.getID() + " " + t.getName());
 			ti.tile = t;
 			this.setIcon(ti);
 			return this;
@@ -705,7 +706,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 
 			public void paintIcon(Component c, Graphics g, int x, int y)
 				{
-				ResourceReference<Background> rb = tile.properties.get(PTile.BACKGROUND);
+				ResourceReference<Background> rb = tile.getBackground();
 				Background bg = deRef(rb);
 				BufferedImage bi = bg == null ? null : bg.getBackgroundImage();
 				if (bi != null)
@@ -1978,8 +1979,8 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 		/*		*/.addComponent(stats))));
 
 		// initialize the undo/redo system
-		undoManager = new UndoManager();
-		undoManager.setLimit(Prefs.undoHistorySize);
+		long undoMemory = Prefs.undoHistoryMemory < 0 ? -1 : Prefs.undoHistoryMemory * 1048576L;
+		undoManager = new BoundedUndoManager(Prefs.undoHistorySize,undoMemory);
 		undoSupport = new UndoableEditSupport();
 		undoSupport.addUndoableEditListener(new UndoAdapter());
 		refreshUndoRedoButtons();
@@ -2035,13 +2036,6 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 			}
 		}
 
-	@Override
-	protected boolean areResourceFieldsEqual()
-		{
-		return (res.backgroundDefs.equals(resOriginal.backgroundDefs)
-				&& res.views.equals(resOriginal.views) && res.instances.equals(resOriginal.instances) && res.tiles.equals(resOriginal.tiles));
-		}
-
 	@Override
 	public void commitChanges()
 		{
@@ -2098,48 +2092,56 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 			Room currentRoom = editor.getRoom();
 
 			// Stores several actions in one compound action for the undo
-			CompoundEdit compoundEdit = new CompoundEdit();
+			CompoundEdit compoundEdit = new CompoundPieceEdit(currentRoom);
 
-			// If the user draw a region
-			if (editor.selection != null)
+			currentRoom.beginUpdate();
+			try
 				{
-				Rectangle selection = editor.selection;
-
-				if (tilesTabIsSelected)
-					deleteTilesInSelection(selection,compoundEdit);
-
-				else
-					deleteInstancesInSelection(selection,compoundEdit);
+				// If the user draw a region
+				if (editor.selection != null)
+					{
+					Rectangle selection = editor.selection;
 
-				}
-			else
-				{
+					if (tilesTabIsSelected)
+						deleteTilesInSelection(selection,compoundEdit);
 
-				if (tilesTabIsSelected)
-					{
-					// Record the effect of removing all tiles for the undo
-					for (int i = currentRoom.tiles.size() - 1; i >= 0; i--)
-						{
-						UndoableEdit edit = new RemovePieceInstance(this,(Piece) currentRoom.tiles.get(i),i);
-						compoundEdit.addEdit(edit);
-						}
+					else
+						deleteInstancesInSelection(selection,compoundEdit);
 
-					// Remove all tiles
-					currentRoom.tiles.clear();
 					}
 				else
 					{
-					// Record the effect of removing all instances for the undo
-					for (int i = currentRoom.instances.size() - 1; i >= 0; i--)
+
+					if (tilesTabIsSelected)
 						{
-						UndoableEdit edit = new RemovePieceInstance(this,(Piece) currentRoom.instances.get(i),i);
-						compoundEdit.addEdit(edit);
+						// Record the effect of removing all tiles for the undo
+						for (int i = currentRoom.tiles.size() - 1; i >= 0; i--)
+							{
+							UndoableEdit edit = new RemovePieceInstance(this,(Piece) currentRoom.tiles.get(i),i);
+							compoundEdit.addEdit(edit);
+							}
+
+						// Remove all tiles
+						currentRoom.tiles.clear();
 						}
+					else
+						{
+						// Record the effect of removing all instances for the undo
+						for (int i = currentRoom.instances.size() - 1; i >= 0; i--)
+							{
+							UndoableEdit edit = new RemovePieceInstance(this,(Piece) currentRoom.instances.get(i),i);
+							compoundEdit.addEdit(edit);
+							}
 
-					// Remove all instances
-					currentRoom.instances.clear();
-					}
+						// Remove all instances
+						currentRoom.instances.clear();
+						}
 
+					}
+				}
+			finally
+				{
+				currentRoom.endUpdate();
 				}
 
 			// Save the action for the undo
@@ -2244,104 +2246,112 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 			Dimension tileDimension = null;
 
 			// Stores several actions in one compound action for the undo
-			CompoundEdit compoundEdit = new CompoundEdit();
+			CompoundEdit compoundEdit = new CompoundPieceEdit(currentRoom);
 
-			// If the tiles tab is selected,
-			if (tilesTabIsSelected)
+			currentRoom.beginUpdate();
+			try
 				{
-				// If the 'Delete underlying' option is checked, delete all tiles for the selected region
-				if (deleteUnderlyingTiles) deleteTilesInSelection(selection,compoundEdit);
+				// If the tiles tab is selected,
+				if (tilesTabIsSelected)
+					{
+					// If the 'Delete underlying' option is checked, delete all tiles for the selected region
+					if (deleteUnderlyingTiles) deleteTilesInSelection(selection,compoundEdit);
 
-				// Get and store the tile's dimension
-				ResourceReference<Background> bkg = taSource.getSelected();
-				Background b = bkg.get();
+					// Get and store the tile's dimension
+					ResourceReference<Background> bkg = taSource.getSelected();
+					Background b = bkg.get();
 
-				if (!(Boolean) b.get(PBackground.USE_AS_TILESET))
-					tileDimension = new Dimension(b.getWidth(),b.getHeight());
-				else
-					tileDimension = new Dimension((Integer) b.get(PBackground.TILE_WIDTH),
-							(Integer) b.get(PBackground.TILE_HEIGHT));
-				}
+					if (!(Boolean) b.get(PBackground.USE_AS_TILESET))
+						tileDimension = new Dimension(b.getWidth(),b.getHeight());
+					else
+						tileDimension = new Dimension((Integer) b.get(PBackground.TILE_WIDTH),
+								(Integer) b.get(PBackground.TILE_HEIGHT));
+					}
 
-			// If object's tab is selected and the 'Delete underlying' option is checked, delete all instances for the selected region
-			if (objectsTabIsSelected && deleteUnderlyingObjects)
-				deleteInstancesInSelection(selection,compoundEdit);
+				// If object's tab is selected and the 'Delete underlying' option is checked, delete all instances for the selected region
+				if (objectsTabIsSelected && deleteUnderlyingObjects)
+					deleteInstancesInSelection(selection,compoundEdit);
 
-			// If snapping is deactivated, use the piece's width for setting its position
-			if (snapToGridMode == false)
-				{
-				if (objectsTabIsSelected)
+				// If snapping is deactivated, use the piece's width for setting its position
+				if (snapToGridMode == false)
 					{
-					ResourceReference<GmObject> instanceObject = oNew.getSelected();
-					BufferedImage image = instanceObject.get().getDisplayImage();
-
-					// If there is no image for this instance, use the default sprite image
-					if (image == null)
+					if (objectsTabIsSelected)
 						{
-						ImageIcon emptySprite = LGM.getIconForKey("Resource.EMPTY_OBJ"); //$NON-NLS-1$
-						cellDimension = new Dimension(emptySprite.getIconWidth(),emptySprite.getIconHeight());
+						ResourceReference<GmObject> instanceObject = oNew.getSelected();
+						BufferedImage image = instanceObject.get().getDisplayImage();
+
+						// If there is no image for this instance, use the default sprite image
+						if (image == null)
+							{
+							ImageIcon emptySprite = LGM.getIconForKey("Resource.EMPTY_OBJ"); //$NON-NLS-1$
+							cellDimension = new Dimension(emptySprite.getIconWidth(),emptySprite.getIconHeight());
+							}
+						else
+							{
+							cellDimension = new Dimension(image.getWidth(),image.getHeight());
+							}
+
 						}
 					else
 						{
-						cellDimension = new Dimension(image.getWidth(),image.getHeight());
+						cellDimension = tileDimension;
 						}
-
 					}
 				else
 					{
-					cellDimension = tileDimension;
+					// Use snapping for setting the piece's position
+					cellDimension = new Dimension(snapX,snapY);
 					}
-				}
-			else
-				{
-				// Use snapping for setting the piece's position
-				cellDimension = new Dimension(snapX,snapY);
-				}
 
-			int numberOfColumns = editor.selection.width / cellDimension.width;
-			int numberOfRows = editor.selection.height / cellDimension.height;
+				int numberOfColumns = editor.selection.width / cellDimension.width;
+				int numberOfRows = editor.selection.height / cellDimension.height;
 
-			// Browse each cell of the selected region
-			for (int i = 0; i < numberOfColumns; i++)
-				for (int j = 0; j < numberOfRows; j++)
-					{
-					// Position of the current piece
-					Point newPosition = new Point(selection.x + (cellDimension.width * i),selection.y
-							+ (cellDimension.height * j));
-
-					// If object's tab is selected, add a new object
-					if (objectsTabIsSelected)
+				// Browse each cell of the selected region
+				for (int i = 0; i < numberOfColumns; i++)
+					for (int j = 0; j < numberOfRows; j++)
 						{
-						Instance newInstance = res.addInstance();
-						newInstance.properties.put(PInstance.OBJECT,oNew.getSelected());
-						newInstance.setPosition(newPosition);
-
-						// Record the effect of adding a new instance for the undo
-						UndoableEdit edit = new AddPieceInstance(this,newInstance,
-								currentRoom.instances.size() - 1);
-						compoundEdit.addEdit(edit);
-						}
+						// Position of the current piece
+						Point newPosition = new Point(selection.x + (cellDimension.width * i),selection.y
+								+ (cellDimension.height * j));
 
-					// If the tile's tab is selected, add a new tile
-					if (tilesTabIsSelected)
-						{
-						ResourceReference<Background> bkg = taSource.getSelected();
+						// If object's tab is selected, add a new object
+						if (objectsTabIsSelected)
+							{
+							Instance newInstance = res.addInstance();
+							newInstance.setObject(oNew.getSelected());
+							newInstance.setPosition(newPosition);
+
+							// Record the effect of adding a new instance for the undo
+							UndoableEdit edit = new AddPieceInstance(this,newInstance,
+									currentRoom.instances.size() - 1);
+							compoundEdit.addEdit(edit);
+							}
 
-						Tile newTile = new Tile(currentRoom,LGM.currentFile);
-						newTile.properties.put(PTile.BACKGROUND,bkg);
-						newTile.setBackgroundPosition(new Point(tSelect.tx,tSelect.ty));
-						newTile.setPosition(newPosition);
-						newTile.setSize(tileDimension);
-						newTile.setDepth((Integer) tileLayer.getSelectedItem());
+						// If the tile's tab is selected, add a new tile
+						if (tilesTabIsSelected)
+							{
+							ResourceReference<Background> bkg = taSource.getSelected();
 
-						currentRoom.tiles.add(newTile);
+							Tile newTile = new Tile(currentRoom,LGM.currentFile);
+							newTile.setBackground(bkg);
+							newTile.setBackgroundPosition(new Point(tSelect.tx,tSelect.ty));
+							newTile.setPosition(newPosition);
+							newTile.setSize(tileDimension);
+							newTile.setDepth((Integer) tileLayer.getSelectedItem());
 
-						// Record the effect of adding a new tile for the undo
-						UndoableEdit edit = new AddPieceInstance(this,newTile,currentRoom.tiles.size() - 1);
-						compoundEdit.addEdit(edit);
-						}
+							currentRoom.tiles.add(newTile);
 
-					}
+							// Record the effect of adding a new tile for the undo
+							UndoableEdit edit = new AddPieceInstance(this,newTile,currentRoom.tiles.size() - 1);
+							compoundEdit.addEdit(edit);
+							}
+
+						}
+				}
+			finally
+				{
+				currentRoom.endUpdate();
+				}
 
 			// Save the action for the undo
 			compoundEdit.end();
@@ -2396,20 +2406,28 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 				Integer depth = (Integer) tileLayer.getSelectedItem();
 
 				// Stores several actions in one compound action for the undo
-				CompoundEdit compoundEdit = new CompoundEdit();
+				CompoundEdit compoundEdit = new CompoundPieceEdit(currentRoom);
 
-				// Remove each tile with the selected layer
-				for (int i = currentRoom.tiles.size() - 1; i >= 0; i--)
+				currentRoom.beginUpdate();
+				try
 					{
-					if (currentRoom.tiles.get(i).getDepth() == depth)
+					// Remove each tile with the selected layer
+					for (int i = currentRoom.tiles.size() - 1; i >= 0; i--)
 						{
-						// Record the effect of removing a tile for the undo
-						UndoableEdit edit = new RemovePieceInstance(this,(Piece) currentRoom.tiles.get(i),i);
-						compoundEdit.addEdit(edit);
+						if (currentRoom.tiles.get(i).getDepth() == depth)
+							{
+							// Record the effect of removing a tile for the undo
+							UndoableEdit edit = new RemovePieceInstance(this,(Piece) currentRoom.tiles.get(i),i);
+							compoundEdit.addEdit(edit);
 
-						currentRoom.tiles.remove(i);
+							currentRoom.tiles.remove(i);
+							}
 						}
 					}
+				finally
+					{
+					currentRoom.endUpdate();
+					}
 
 				// Save the action for the undo
 				compoundEdit.end();
@@ -2449,14 +2467,22 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 				//CompoundEdit compoundEdit = new CompoundEdit();
 
 				// Update each tile with the selected layer
-				for (int i = currentRoom.tiles.size() - 1; i >= 0; i--)
+				currentRoom.beginUpdate();
+				try
 					{
-					final Tile tile = currentRoom.tiles.get(i);
-					if (tile.getDepth() == depth)
+					for (int i = currentRoom.tiles.size() - 1; i >= 0; i--)
 						{
-						tile.setDepth(newDepth);
+						final Tile tile = currentRoom.tiles.get(i);
+						if (tile.getDepth() == depth)
+							{
+							tile.setDepth(newDepth);
+							}
 						}
 					}
+				finally
+					{
+					currentRoom.endUpdate();
+					}
 
 				//TODO: Save the action for the undo
 				//compoundEdit.end();
@@ -2585,35 +2611,8 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 				// If there is a selected piece, deselect it
 				if (selectedPiece != null) selectedPiece.setSelected(false);
 
-				// If the tiles tab is selected, shift the tiles
-				if (tilesTabIsSelected)
-					{
-
-					for (Tile tile : currentRoom.tiles)
-						{
-						// Select the instance in the list, otherwise it is sometimes not correctly selected
-						tList.setSelectedValue(tile,false);
-
-						Point newPosition = new Point(tile.getPosition().x + horizontalShift,
-								tile.getPosition().y + verticalShift);
-						tile.setPosition(newPosition);
-						}
-
-					}
-				else
-					// Shift the objects
-					{
-
-					for (Instance instance : currentRoom.instances)
-						{
-						// Select the instance in the list, otherwise it is sometimes not correctly selected
-						oList.setSelectedValue(instance,false);
-
-						Point newPosition = new Point(instance.getPosition().x + horizontalShift,
-								instance.getPosition().y + verticalShift);
-						instance.setPosition(newPosition);
-						}
-					}
+				// Shift the tiles or the objects
+				ShiftPieceInstances.shift(currentRoom,tilesTabIsSelected,horizontalShift,verticalShift);
 
 				// Record the effect of shifting instances for the undo
 				UndoableEdit edit = new ShiftPieceInstances(this,tilesTabIsSelected,horizontalShift,
@@ -2645,7 +2644,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 
 			// Add the new object instance
 			Instance newObject = res.addInstance();
-			newObject.properties.put(PInstance.OBJECT,oNew.getSelected());
+			newObject.setObject(oNew.getSelected());
 			newObject.setPosition(new Point());
 
 			int numberOfObjects = res.instances.size();
@@ -2737,7 +2736,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 		if (selectedInstance != null)
 			{
 			PropertyLinkFactory<PInstance> iplf = new PropertyLinkFactory<PInstance>(
-					selectedInstance.properties,this);
+					selectedInstance.getProperties(),this);
 			this.addSecondaryPropertyLinkFactory(iplf);
 			loLocked = iplf.make(oLocked,PInstance.LOCKED);
 			loSource = iplf.make(oSource,PInstance.OBJECT);
@@ -2772,7 +2771,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 
 		if (selectedTile != null)
 			{
-			PropertyLinkFactory<PTile> tplf = new PropertyLinkFactory<PTile>(selectedTile.properties,this);
+			PropertyLinkFactory<PTile> tplf = new PropertyLinkFactory<PTile>(selectedTile.getProperties(),this);
 			this.addSecondaryPropertyLinkFactory(tplf);
 			ltDepth = tplf.make(teDepth,PTile.DEPTH);
 			ltLocked = tplf.make(tLocked,PTile.LOCKED);
@@ -2886,7 +2885,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 		Point instancePosition = instance.getPosition();
 
 		// Get the image dimension
-		ResourceReference<GmObject> instanceObject = instance.properties.get(PInstance.OBJECT);
+		ResourceReference<GmObject> instanceObject = instance.getObject();
 
 		BufferedImage instanceImage = null;
 		if (instanceObject != null)
@@ -2919,11 +2918,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 		int zoomLevel = editor.properties.get(PRoomEditor.ZOOM);
 
 		// Viewport scale when zooming out
-		int viewportScale = 0;
-
-		if (zoomLevel == -1) viewportScale = 3;
-
-		if (zoomLevel == 0) viewportScale = 2;
+		int viewportScale = 2 - zoomLevel;
 
 		// If we are zooming out
 		if (zoomLevel < 1)
@@ -2992,7 +2987,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 			{
 			for (Instance instance : currentRoom.instances)
 				{
-				ResourceReference<GmObject> instanceObject = instance.properties.get(PInstance.OBJECT);
+				ResourceReference<GmObject> instanceObject = instance.getObject();
 
 				if (instanceObject == objectToFollowReference)
 					{
@@ -3012,8 +3007,8 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 			{
 			// Get the instance position
 			Point instancePosition = new Point(0,0);
-			instancePosition.x = (Integer) instanceToFollow.properties.get(PInstance.X);
-			instancePosition.y = (Integer) instanceToFollow.properties.get(PInstance.Y);
+			instancePosition.x = instanceToFollow.getPosition().x;
+			instancePosition.y = instanceToFollow.getPosition().y;
 
 			viewPosition.x = instancePosition.x - viewWidth / 2;
 			viewPosition.y = instancePosition.y - viewHeight / 2;
@@ -3080,7 +3075,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 	public CodeFrame openInstanceCodeFrame(Instance inst)
 		{
 		return openCodeFrame(inst,Messages.getString("RoomFrame.TITLE_FORMAT_CREATION"), //$NON-NLS-1$
-				Messages.format("RoomFrame.INSTANCE",inst.properties.get(PInstance.ID))); //$NON-NLS-1$
+				Messages.format("RoomFrame.INSTANCE",inst.getID())); //$NON-NLS-1$
 		}
 
 	public CodeFrame openInstanceCodeFrame(int id, boolean select)
@@ -3089,7 +3084,7 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 		if (inst != null)
 			{
 			return openCodeFrame(inst,Messages.getString("RoomFrame.TITLE_FORMAT_CREATION"), //$NON-NLS-1$
-					Messages.format("RoomFrame.INSTANCE",inst.properties.get(PInstance.ID))); //$NON-NLS-1$
+					Messages.format("RoomFrame.INSTANCE",inst.getID())); //$NON-NLS-1$
 			}
 		return null;
 		}
@@ -3250,6 +3245,8 @@ public class RoomFrame extends InstantiableResourceFrame<Room,PRoom> implements
 		{
 		// refresh undo
 		undo.setEnabled(undoManager.canUndo());
+		undo.setToolTipText(Messages.format("RoomFrame.UNDO_MEMORY", //$NON-NLS-1$
+				(undoManager.getSize() + 1023) / 1024));
 
 		// refresh redo
 		redo.setEnabled(undoManager.canRedo());
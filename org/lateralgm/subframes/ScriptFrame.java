@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.List;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -37,6 +38,10 @@ import org.lateralgm.components.impl.ResNode;
 import org.lateralgm.components.impl.TextAreaFocusTraversalPolicy;
 import org.lateralgm.file.FileChangeMonitor;
 import org.lateralgm.file.FileChangeMonitor.FileUpdateEvent;
+import org.lateralgm.joshedit.Code;
+import org.lateralgm.joshedit.JoshText.LineChangeListener;
+import org.lateralgm.main.CodeAnalyzer;
+import org.lateralgm.main.CodeAnalyzer.Diagnostic;
 import org.lateralgm.main.LGM;
 import org.lateralgm.main.Prefs;
 import org.lateralgm.main.Util;
@@ -54,8 +59,16 @@ public class ScriptFrame extends InstantiableResourceFrame<Script,PScript>
 	public CodeTextArea code;
 	public JButton edit;
 	public JPanel status;
+	private JLabel problems;
 
 	private ScriptEditor editor;
+	private final UpdateListener diagnosticsListener = new UpdateListener()
+		{
+			public void updated(UpdateEvent e)
+				{
+				showDiagnostics();
+				}
+		};
 
 	public ScriptFrame(Script res, ResNode node)
 		{
@@ -107,9 +120,44 @@ public class ScriptFrame extends InstantiableResourceFrame<Script,PScript>
 							+ (code.getCaretColumn() + 1));
 					}
 			});
+		problems = new JLabel();
+		status.add(problems);
 		add(status,BorderLayout.SOUTH);
 
 		setFocusTraversalPolicy(new TextAreaFocusTraversalPolicy(code.text));
+
+		code.text.addLineChangeListener(new LineChangeListener()
+			{
+				public void linesChanged(Code c, int start, int end)
+					{
+					CodeAnalyzer.INSTANCE.editorChanged(res);
+					}
+			});
+		CodeAnalyzer.INSTANCE.updateSource.addListener(diagnosticsListener);
+		CodeAnalyzer.INSTANCE.setEditor(res,code);
+		showDiagnostics();
+		}
+
+	private void showDiagnostics()
+		{
+		List<Diagnostic> list = CodeAnalyzer.INSTANCE.getDiagnostics(res);
+		code.setDiagnostics(list);
+		if (list.isEmpty())
+			{
+			problems.setText(""); //$NON-NLS-1$
+			problems.setToolTipText(null);
+			return;
+			}
+		String count = Messages.format("ScriptFrame.PROBLEMS",list.size()); //$NON-NLS-1$
+		problems.setText(" | " + count); //$NON-NLS-1$
+		StringBuilder sb = new StringBuilder("<html>"); //$NON-NLS-1$
+		for (Diagnostic d : list)
+			{
+			if (d.line >= 0) sb.append(d.line + 1).append(": "); //$NON-NLS-1$
+			String message = d.getMessage().replace("<","&lt;"); //$NON-NLS-1$ //$NON-NLS-2$
+			sb.append(message).append("<br>"); //$NON-NLS-1$
+			}
+		problems.setToolTipText(sb.toString());
 		}
 
 	public void commitChanges()
@@ -121,7 +169,11 @@ public class ScriptFrame extends InstantiableResourceFrame<Script,PScript>
 	public void fireInternalFrameEvent(int id)
 		{
 		if (id == InternalFrameEvent.INTERNAL_FRAME_CLOSED)
+			{
 			LGM.currentFile.updateSource.removeListener(code);
+			CodeAnalyzer.INSTANCE.updateSource.removeListener(diagnosticsListener);
+			CodeAnalyzer.INSTANCE.setEditor(res,null);
+			}
 		super.fireInternalFrameEvent(id);
 		}
 
@@ -378,7 +378,14 @@ public class SoundFrame extends InstantiableResourceFrame<Sound,PSound>
 
 		soundPlayer = new JavaSoundPlayer();
 		updatePositionLabel();
-		data = res.data;
+		try
+			{
+			data = res.getData().get();
+			}
+		catch (IOException e)
+			{
+			LGM.showDefaultExceptionHandler(e);
+			}
 		loadSound();
 
 		pack();
@@ -709,7 +716,8 @@ public class SoundFrame extends InstantiableResourceFrame<Sound,PSound>
 	public void commitChanges()
 		{
 		res.setName(name.getText());
-		res.data = data;
+		// unmodified data may still be backed by a file, which need not be pulled into memory
+		if (modified) res.getData().set(data);
 		}
 
 	public void updateResource(boolean commit)
@@ -871,8 +879,8 @@ public class SoundFrame extends InstantiableResourceFrame<Sound,PSound>
 		if (!fileName.isEmpty()) fileLabel.setToolTipText(fileName);
 
 		long length = 0;
-		if (res.data != null && res.data.length != 0)
-			length = res.data.length;
+		if (res.getData().getLength() != 0)
+			length = res.getData().getLength();
 		else if (data != null)
 			length = data.length;
 
@@ -1197,7 +1197,7 @@ public class SpriteFrame extends InstantiableResourceFrame<Sprite,PSprite> imple
 		updateScrollBars();
 		}
 
-	public ArrayList<BufferedImage> getSelectedImages() {
+	public List<BufferedImage> getSelectedImages() {
 		int[] selected = subList.getSelectedIndices();
 		if (selected.length <= 0) {
 			return res.subImages;
@@ -1239,7 +1239,7 @@ public class SpriteFrame extends InstantiableResourceFrame<Sprite,PSprite> imple
 			}
 		else if (e.getSource() == saveSubimages)
 			{
-			ArrayList<BufferedImage> imgs = getSelectedImages();
+			List<BufferedImage> imgs = getSelectedImages();
 			if (imgs != null) {
 				Util.saveImages(imgs);
 			}
@@ -9,21 +9,30 @@
 package org.lateralgm.ui.swing.visuals;
 
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
-import org.lateralgm.util.BinPlane;
-import org.lateralgm.util.BinPlane.Candidate;
-import org.lateralgm.util.BinPlane.CandidateBin;
-import org.lateralgm.util.BinPlane.Edge;
+import org.lateralgm.util.BinGrid;
+import org.lateralgm.util.BinGrid.Candidate;
+import org.lateralgm.util.BinGrid.Edge;
 
 public class BinVisual extends AbstractVisual implements VisualContainer,BoundedVisual
 	{
 	private static final Rectangle ZERO_RECTANGLE = new Rectangle();
+	/** Visuals smaller than this many screen pixels are painted through {@link DetailVisual}. */
+	private static final int SMALL_PIXELS = 4;
+	/** The number of pixels of layer chunks kept in the cache. */
+	private static final int LAYER_PIXELS = 1 << 23;
 
-	private final BinPlane binPlane;
+	private final BinGrid binGrid;
+	private final BinPainter painter = new BinPainter();
+	private final LayerChunkCache layers = new LayerChunkCache(LAYER_PIXELS);
+	/** How many layered visuals there are at each depth. */
+	private final HashMap<Integer,Integer> layerDepths = new HashMap<Integer,Integer>();
 	private Visual vLeft, vRight, vTop, vBottom;
 	private final Rectangle boxBounds = new Rectangle();
 	private Map<Visual,Candidate> candidates;
@@ -31,7 +40,7 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 	public BinVisual(VisualContainer c, int s, int x, int y)
 		{
 		super(c);
-		binPlane = new BinPlane(s,x,y);
+		binGrid = new BinGrid(s,x,y);
 		}
 
 	@Override
@@ -42,9 +51,10 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 
 	void add(Visual v, Rectangle b, int d)
 		{
-		BinPlane.Candidate c = binPlane.new Candidate();
+		Candidate c = binGrid.new Candidate();
 		c.data = v;
 		c.setDepth(d);
+		countLayer(c,1);
 		if (candidates == null) candidates = new HashMap<Visual,Candidate>();
 		candidates.put(v,c);
 		if (b != null) setBounds(c,b);
@@ -56,6 +66,8 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 		Candidate c = candidates.remove(v);
 		if (c == null) return false;
 		repaint(c.getBounds(null));
+		invalidateLayer(c);
+		countLayer(c,-1);
 		c.remove();
 		Rectangle obb = boxBounds.getBounds();
 		if (v == vLeft) vLeft = null;
@@ -76,7 +88,11 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 		{
 		Candidate c = getCandidate(v);
 		if (c == null) return;
+		invalidateLayer(c);
+		countLayer(c,-1);
 		c.setDepth(d,selected);
+		countLayer(c,1);
+		invalidateLayer(c);
 		Rectangle ob = c.getBounds(null);
 		if (ob != null && !ob.isEmpty()) repaint(ob);
 		}
@@ -96,7 +112,9 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 		Rectangle ob = c.getBounds(null);
 		if (!ob.isEmpty()) repaint(ob);
 		Visual v = (Visual) c.data;
+		invalidateLayer(c);
 		c.setBounds(b);
+		invalidateLayer(c);
 		Rectangle obb = boxBounds.getBounds();
 		if (b.x <= boxBounds.x)
 			{
@@ -131,11 +149,56 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 		repaint(b);
 		}
 
+	private void countLayer(Candidate c, int delta)
+		{
+		if (!(c.data instanceof LayerVisual)) return;
+		Integer d = c.getDepth();
+		Integer n = layerDepths.get(d);
+		int m = (n == null ? 0 : n) + delta;
+		if (m <= 0)
+			layerDepths.remove(d);
+		else
+			layerDepths.put(d,m);
+		}
+
+	/**
+	 * Whether the layer chunks needed to paint the given area, one per bin and depth, fit in the
+	 * cache. Otherwise a full paint would keep evicting chunks it is about to render again, which
+	 * is slower than painting the visuals one by one.
+	 */
+	private boolean layersFit(Rectangle clip)
+		{
+		if (clip == null || clip.isEmpty()) return false;
+		long size = 1L << binGrid.binShift;
+		long columns = binGrid.column(clip.x + clip.width - 1) - binGrid.column(clip.x) + 1;
+		long rows = binGrid.row(clip.y + clip.height - 1) - binGrid.row(clip.y) + 1;
+		return columns * rows * size * size * layerDepths.size() <= LAYER_PIXELS;
+		}
+
+	/** Drops the cached layer images that the given candidate is painted into. */
+	private void invalidateLayer(Candidate c)
+		{
+		if (!(c.data instanceof LayerVisual)) return;
+		Rectangle b = c.getBounds(null);
+		if (b.width <= 0 || b.height <= 0) return;
+		layers.invalidate(c.getDepth(),binGrid.column(b.x),binGrid.row(b.y),
+				binGrid.column(b.x + b.width - 1),binGrid.row(b.y + b.height - 1));
+		}
+
+	/**
+	 * Drops all cached layer images, for when layered visuals change the way they paint without
+	 * changing their bounds or depth.
+	 */
+	public void flushLayers()
+		{
+		layers.clear();
+		}
+
 	private void fixBounds()
 		{
 		if (vLeft == null)
 			{
-			Candidate ec = binPlane.getEdgeCandidate(Edge.LEFT);
+			Candidate ec = binGrid.getEdgeCandidate(Edge.LEFT);
 			int l = ec == null ? 0 : ec.getBounds(null).x;
 			if (ec != null) vLeft = (VisualBox) ec.data;
 			boxBounds.width += boxBounds.x - l;
@@ -143,14 +206,14 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 			}
 		if (vRight == null)
 			{
-			Candidate ec = binPlane.getEdgeCandidate(Edge.RIGHT);
+			Candidate ec = binGrid.getEdgeCandidate(Edge.RIGHT);
 			Rectangle cb = ec == null ? ZERO_RECTANGLE : ec.getBounds(null);
 			if (ec != null) vRight = (VisualBox) ec.data;
 			boxBounds.width = cb.x + cb.width - boxBounds.x;
 			}
 		if (vTop == null)
 			{
-			Candidate ec = binPlane.getEdgeCandidate(Edge.TOP);
+			Candidate ec = binGrid.getEdgeCandidate(Edge.TOP);
 			int t = ec == null ? 0 : ec.getBounds(null).y;
 			if (ec != null) vTop = (VisualBox) ec.data;
 			boxBounds.height += boxBounds.y - t;
@@ -158,7 +221,7 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 			}
 		if (vBottom == null)
 			{
-			Candidate ec = binPlane.getEdgeCandidate(Edge.BOTTOM);
+			Candidate ec = binGrid.getEdgeCandidate(Edge.BOTTOM);
 			Rectangle cb = ec == null ? ZERO_RECTANGLE : ec.getBounds(null);
 			if (ec != null) vBottom = (VisualBox) ec.data;
 			boxBounds.height = cb.y + cb.height - boxBounds.y;
@@ -172,34 +235,92 @@ public class BinVisual extends AbstractVisual implements VisualContainer,Bounded
 
 	public <V extends Visual>Iterator<V> intersect(Rectangle r, Class<V> v)
 		{
-		return new BinPlane.CandidateDataIterator<V>(binPlane.intersect(r,true),v);
+		return intersect(r,v,null);
 		}
 
 	public <V extends Visual>Iterator<V> intersect(Rectangle r, Class<V> v, int depth)
 		{
-		return new BinPlane.CandidateDepthDataIterator<V>(binPlane.intersect(r,true),v,depth);
+		return intersect(r,v,Integer.valueOf(depth));
+		}
+
+	private <V extends Visual>Iterator<V> intersect(Rectangle r, final Class<V> v,
+			final Integer depth)
+		{
+		final ArrayList<V> l = new ArrayList<V>();
+		binGrid.intersect(r,new BinGrid.Visitor()
+			{
+				public void visit(Candidate c)
+					{
+					if (v.isInstance(c.data) && (depth == null || c.getDepth() == depth))
+						l.add(v.cast(c.data));
+					}
+			});
+		return l.iterator();
 		}
 
 	public void paint(Graphics g)
 		{
-		Rectangle clip = g.getClipBounds();
-		Iterator<CandidateBin> cbi = clip == null ? binPlane.all(false)
-				: binPlane.intersect(clip,false);
-		Rectangle b = null;
-		while (cbi.hasNext())
+		painter.graphics = g;
+		painter.clip = g.getClipBounds();
+		double scale = g instanceof Graphics2D ? ((Graphics2D) g).getTransform().getScaleX() : 1;
+		painter.small = scale < 1 ? (int) Math.ceil(SMALL_PIXELS / scale) : 0;
+		painter.layered = layersFit(painter.clip);
+		binGrid.visitBins(painter.clip,painter);
+		painter.graphics = null;
+		painter.clip = null;
+		}
+
+	private class BinPainter implements BinGrid.BinVisitor
+		{
+		Graphics graphics;
+		Rectangle clip;
+		/** The size in room pixels below which visuals are painted small, or 0 for none. */
+		int small;
+		/** Whether layered visuals are painted from their cached chunks. */
+		boolean layered;
+		private final Rectangle bounds = new Rectangle();
+		private final Rectangle bin = new Rectangle();
+		private int column, row;
+		// The chunk already painted in this bin, which only holds one depth
+		private LayerChunkCache.Chunk chunk;
+		private int chunkDepth;
+
+		public void enterBin(int c, int r, int x, int y, int w, int h)
 			{
-			CandidateBin cb = cbi.next();
-			g.clipRect(cb.x,cb.y,cb.w,cb.h);
-			while (cb.iterator.hasNext())
+			column = c;
+			row = r;
+			bin.setBounds(x,y,w,h);
+			chunk = null;
+			graphics.clipRect(x,y,w,h);
+			}
+
+		public void visit(Candidate c)
+			{
+			if (layered && c.data instanceof LayerVisual && ((LayerVisual) c.data).isLayered())
 				{
-				Candidate c = cb.iterator.next();
-				Visual v = (Visual) c.data;
-				b = c.getBounds(b);
-				Graphics g2 = g.create(b.x,b.y,b.width,b.height);
-				v.paint(g2);
-				g2.dispose();
+				int d = c.getDepth();
+				if (chunk == null || chunkDepth != d)
+					{
+					chunk = layers.get(binGrid,d,column,row,bin);
+					chunkDepth = d;
+					chunk.paint(graphics);
+					}
+				if (!chunk.direct) return;
 				}
-			g.setClip(clip);
+			Rectangle b = c.getBounds(bounds);
+			if (b.width < small && b.height < small && c.data instanceof DetailVisual
+					&& ((DetailVisual) c.data).paintSmall(graphics,b)) return;
+			// Most pieces are a single blit, which does not need graphics of their own
+			if (c.data instanceof DetailVisual && ((DetailVisual) c.data).paintShared(graphics,b))
+				return;
+			Graphics g2 = graphics.create(b.x,b.y,b.width,b.height);
+			((Visual) c.data).paint(g2);
+			g2.dispose();
+			}
+
+		public void exitBin()
+			{
+			graphics.setClip(clip);
 			}
 		}
 
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.ui.swing.visuals;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+
+/**
+ * A visual that can paint a cheap stand-in for itself, such as a dot of its average color, when
+ * it is zoomed out to only a few pixels on screen, and that can often be painted with a single
+ * blit rather than on graphics of its own.
+ */
+public interface DetailVisual extends Visual
+	{
+	/**
+	 * Paints the stand-in over the given bounds, on graphics that are not translated to them.
+	 * @return false if the visual has to be painted in full anyway, such as when it is selected.
+	 */
+	boolean paintSmall(Graphics g, Rectangle bounds);
+
+	/**
+	 * Paints the visual over the given bounds, on graphics that are neither translated nor
+	 * clipped to them and that are shared with the other visuals, if it can do so without
+	 * changing their state, such as when it is a single image that fits its bounds.
+	 * @return false if the visual has to be painted on graphics of its own.
+	 */
+	boolean paintShared(Graphics g, Rectangle bounds);
+	}
@@ -25,6 +25,8 @@ public class GridVisual implements Visual
 	{
 	private static final Color GRID_DARK = new Color(0,0,0,96);
 	private static final Color GRID_BRIGHT = new Color(255,255,255,96);
+	/** Grid cells smaller than this many screen pixels are merged until they are not. */
+	private static final int MIN_CELL_PIXELS = 4;
 	private static final WeakHashMap<GraphicsConfiguration,SoftReference<LineImageData>> IMAGE_DATA;
 	static
 		{
@@ -42,6 +44,7 @@ public class GridVisual implements Visual
 	private BufferedImage gridImage;
 
 	private LineImageData imageData;
+	private GridVisual thinned;
 
 	public GridVisual(boolean r, int w, int h)
 		{
@@ -135,11 +138,37 @@ public class GridVisual implements Visual
 			}
 		}
 
+	/**
+	 * Returns by how much the cells must be multiplied to be visible at the scale of the given
+	 * graphics, so that a zoomed out grid shows every other line instead of a solid fill.
+	 */
+	private int getThinning(Graphics g, boolean rx, boolean ry)
+		{
+		if (!(g instanceof Graphics2D)) return 1;
+		double scale = ((Graphics2D) g).getTransform().getScaleX();
+		if (scale >= 1 || scale <= 0) return 1;
+		int cell = Math.min(rx ? width : Integer.MAX_VALUE,ry ? height : Integer.MAX_VALUE);
+		int k = 1;
+		while (cell * k * scale < MIN_CELL_PIXELS && k < 1 << 16)
+			k <<= 1;
+		return k;
+		}
+
 	public void paint(Graphics g)
 		{
 		boolean rx = width >= 2;
 		boolean ry = height >= 2;
 		if (!rx && !ry || (rhombic && (!rx || !ry))) return;
+		int k = getThinning(g,rx,ry);
+		if (k > 1)
+			{
+			int tw = rx ? width * k : width;
+			int th = ry ? height * k : height;
+			if (thinned == null || thinned.rhombic != rhombic || thinned.width != tw
+					|| thinned.height != th) thinned = new GridVisual(rhombic,tw,th);
+			thinned.paint(g);
+			return;
+			}
 		int iw = rx ? width * ((48 + width - 1) / width) : 64;
 		int ih = ry ? height * ((48 + height - 1) / height) : 64;
 		if (gridImage == null
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.ui.swing.visuals;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lateralgm.main.UpdateSource.UpdateEvent;
+import org.lateralgm.main.UpdateSource.UpdateListener;
+import org.lateralgm.resources.Sprite;
+
+/**
+ * A bounded cache of instance images that have already been blended, made translucent, scaled
+ * and rotated, so that painting an instance is a plain blit. Images are kept in least recently
+ * used order until a pixel budget is reached, and are dropped as soon as their sprite fires an
+ * update. The cache is only meant to be used on the event dispatch thread.
+ */
+final class InstanceImageCache
+	{
+	private final long maxPixels;
+	private long pixels;
+	private final LinkedHashMap<Key,BufferedImage> images = new LinkedHashMap<Key,BufferedImage>(
+			64,0.75f,true);
+	private final IdentityHashMap<Sprite,SpriteKeys> sprites =
+			new IdentityHashMap<Sprite,SpriteKeys>();
+
+	InstanceImageCache(long maxPixels)
+		{
+		this.maxPixels = maxPixels;
+		}
+
+	/**
+	 * Returns the image for the given key, rendering it with the given transformation into an
+	 * image of the given size when it is not cached. The transformation is the one the key
+	 * describes, already translated to the image's bounds, or null for none. Returns null if the
+	 * image would be too large to cache, in which case the caller should paint it directly.
+	 */
+	BufferedImage get(Key k, AffineTransform at, int width, int height)
+		{
+		if (at == null && k.alpha == 255 && (k.rgb & 0xFFFFFF) == 0xFFFFFF) return k.source;
+		BufferedImage bi = images.get(k);
+		if (bi != null) return bi;
+		long size = (long) width * height;
+		if (width <= 0 || height <= 0 || size > maxPixels / 4) return null;
+		bi = render(k,at,width,height);
+		images.put(k,bi);
+		pixels += size;
+		SpriteKeys sk = sprites.get(k.sprite);
+		if (sk == null)
+			{
+			sk = new SpriteKeys(k.sprite);
+			sprites.put(k.sprite,sk);
+			k.sprite.reference.updateSource.addListener(sk);
+			}
+		sk.keys.add(k);
+		trim();
+		return bi;
+		}
+
+	private void trim()
+		{
+		Iterator<Map.Entry<Key,BufferedImage>> it = images.entrySet().iterator();
+		while (pixels > maxPixels && it.hasNext())
+			{
+			Map.Entry<Key,BufferedImage> e = it.next();
+			it.remove();
+			release(e.getValue());
+			SpriteKeys sk = sprites.get(e.getKey().sprite);
+			if (sk != null && sk.keys.remove(e.getKey()) && sk.keys.isEmpty()) sk.dispose();
+			}
+		}
+
+	private void release(BufferedImage bi)
+		{
+		pixels -= (long) bi.getWidth() * bi.getHeight();
+		}
+
+	private static BufferedImage render(Key k, AffineTransform at, int width, int height)
+		{
+		BufferedImage src = k.source;
+		if ((k.rgb & 0xFFFFFF) != 0xFFFFFF)
+			{
+			// Same blending as RoomVisual.ColorFilter: mask each color channel by the blend color
+			int w = src.getWidth(), h = src.getHeight();
+			BufferedImage b = new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB);
+			int[] px = ((DataBufferInt) b.getRaster().getDataBuffer()).getData();
+			src.getRGB(0,0,w,h,px,0,w);
+			int mask = 0xFF000000 | k.rgb;
+			for (int i = 0; i < px.length; i++)
+				px[i] &= mask;
+			src = b;
+			}
+		BufferedImage dst = createImage(width,height);
+		Graphics2D g = dst.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		if (k.alpha < 255)
+			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER,
+					(float) (k.alpha / 255.0)));
+		g.drawImage(src,at == null ? new AffineTransform() : at,null);
+		g.dispose();
+		return dst;
+		}
+
+	/** Creates an image in the screen's own format, so that drawing it can be accelerated. */
+	static BufferedImage createImage(int width, int height)
+		{
+		if (GraphicsEnvironment.isHeadless())
+			return new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB_PRE);
+		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDefaultConfiguration();
+		return gc.createCompatibleImage(width,height,Transparency.TRANSLUCENT);
+		}
+
+	/** The keys of one sprite, dropped together when the sprite changes. */
+	private final class SpriteKeys implements UpdateListener
+		{
+		final Sprite sprite;
+		final List<Key> keys = new ArrayList<Key>();
+
+		SpriteKeys(Sprite s)
+			{
+			sprite = s;
+			}
+
+		public void updated(UpdateEvent e)
+			{
+			for (Key k : keys)
+				{
+				BufferedImage bi = images.remove(k);
+				if (bi != null) release(bi);
+				}
+			keys.clear();
+			dispose();
+			}
+
+		void dispose()
+			{
+			sprite.reference.updateSource.removeListener(this);
+			sprites.remove(sprite);
+			}
+		}
+
+	/**
+	 * Identifies a rendered instance image: the sprite and the frame it shows, followed by the
+	 * instance's scale, rotation, the sprite origin it is rotated around, blend color and alpha.
+	 */
+	static final class Key
+		{
+		final Sprite sprite;
+		final BufferedImage source;
+		final double scaleX, scaleY, rotation;
+		final int originX, originY, rgb, alpha;
+		/** Computed once, as the key is looked up each time its instance is painted. */
+		private final int hash;
+
+		Key(Sprite sprite, BufferedImage source, double scaleX, double scaleY, double rotation,
+				int originX, int originY, int rgb, int alpha)
+			{
+			this.sprite = sprite;
+			this.source = source;
+			this.scaleX = scaleX;
+			this.scaleY = scaleY;
+			this.rotation = rotation;
+			this.originX = originX;
+			this.originY = originY;
+			this.rgb = rgb & 0xFFFFFF;
+			this.alpha = alpha;
+			hash = computeHash();
+			}
+
+		@Override
+		public int hashCode()
+			{
+			return hash;
+			}
+
+		private int computeHash()
+			{
+			int h = System.identityHashCode(source);
+			long b = Double.doubleToLongBits(scaleX);
+			h = 31 * h + (int) (b ^ b >>> 32);
+			b = Double.doubleToLongBits(scaleY);
+			h = 31 * h + (int) (b ^ b >>> 32);
+			b = Double.doubleToLongBits(rotation);
+			h = 31 * h + (int) (b ^ b >>> 32);
+			h = 31 * h + originX;
+			h = 31 * h + originY;
+			h = 31 * h + rgb;
+			return 31 * h + alpha;
+			}
+
+		@Override
+		public boolean equals(Object o)
+			{
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return hash == k.hash && sprite == k.sprite && source == k.source
+					&& Double.doubleToLongBits(scaleX) == Double.doubleToLongBits(k.scaleX)
+					&& Double.doubleToLongBits(scaleY) == Double.doubleToLongBits(k.scaleY)
+					&& Double.doubleToLongBits(rotation) == Double.doubleToLongBits(k.rotation)
+					&& originX == k.originX && originY == k.originY && rgb == k.rgb && alpha == k.alpha;
+			}
+		}
+	}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.ui.swing.visuals;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.lateralgm.util.BinGrid;
+import org.lateralgm.util.BinGrid.Candidate;
+
+/**
+ * Keeps the layered visuals of a bin grid pre-rendered, one image per depth and bin, so that a
+ * layer of tiles is painted with one blit per bin rather than one per tile. Chunks are kept in
+ * least recently used order until a pixel budget is reached, and are dropped whenever one of
+ * their visuals is moved, changed or removed. The cache is only meant to be used on the event
+ * dispatch thread.
+ */
+final class LayerChunkCache
+	{
+	private final long maxPixels;
+	private long pixels;
+	private final LinkedHashMap<Long,Chunk> chunks = new LinkedHashMap<Long,Chunk>(64,0.75f,true);
+
+	LayerChunkCache(long maxPixels)
+		{
+		this.maxPixels = maxPixels;
+		}
+
+	private static Long key(int depth, int column, int row)
+		{
+		return Long.valueOf((long) depth << 32 | (column & 0xFFFF) << 16 | row & 0xFFFF);
+		}
+
+	/**
+	 * Returns the chunk of the given depth in the given bin, rendering it when it is not cached.
+	 * @param bin the bounds of the bin, as passed to {@link BinGrid.BinVisitor#enterBin}
+	 */
+	Chunk get(BinGrid grid, int depth, int column, int row, Rectangle bin)
+		{
+		Long k = key(depth,column,row);
+		Chunk c = chunks.get(k);
+		if (c != null) return c;
+		c = render(grid,depth,column,row,bin);
+		chunks.put(k,c);
+		if (c.image != null)
+			{
+			pixels += (long) c.image.getWidth() * c.image.getHeight();
+			trim();
+			}
+		return c;
+		}
+
+	/** Drops the chunks of the given depth in the given range of bins. */
+	void invalidate(int depth, int column0, int row0, int column1, int row1)
+		{
+		for (int r = row0; r <= row1; r++)
+			for (int c = column0; c <= column1; c++)
+				release(chunks.remove(key(depth,c,r)));
+		}
+
+	void clear()
+		{
+		chunks.clear();
+		pixels = 0;
+		}
+
+	private void trim()
+		{
+		Iterator<Chunk> it = chunks.values().iterator();
+		while (pixels > maxPixels && it.hasNext())
+			{
+			Chunk c = it.next();
+			it.remove();
+			release(c);
+			}
+		}
+
+	private void release(Chunk c)
+		{
+		if (c != null && c.image != null)
+			pixels -= (long) c.image.getWidth() * c.image.getHeight();
+		}
+
+	private Chunk render(BinGrid grid, final int depth, int column, int row, Rectangle bin)
+		{
+		final ArrayList<Candidate> layer = new ArrayList<Candidate>();
+		final Rectangle area = new Rectangle();
+		grid.visitBin(column,row,new BinGrid.Visitor()
+			{
+				public void visit(Candidate c)
+					{
+					if (c.getDepth() != depth || !(c.data instanceof LayerVisual)
+							|| !((LayerVisual) c.data).isLayered()) return;
+					Rectangle b = c.getBounds(null);
+					if (layer.isEmpty())
+						area.setBounds(b);
+					else
+						area.add(b);
+					layer.add(c);
+					}
+			});
+		Rectangle a = area.intersection(bin);
+		if (layer.isEmpty() || a.isEmpty()) return new Chunk(a,null,false);
+		// Pieces spread far outside the room would make the outermost chunks huge
+		if ((long) a.width * a.height > maxPixels / 16) return new Chunk(a,null,true);
+		BufferedImage image = InstanceImageCache.createImage(a.width,a.height);
+		Graphics2D g = image.createGraphics();
+		Rectangle b = new Rectangle();
+		for (Candidate c : layer)
+			{
+			c.getBounds(b);
+			b.translate(-a.x,-a.y);
+			if (c.data instanceof DetailVisual && ((DetailVisual) c.data).paintShared(g,b)) continue;
+			Graphics g2 = g.create(b.x,b.y,b.width,b.height);
+			((Visual) c.data).paint(g2);
+			g2.dispose();
+			}
+		g.dispose();
+		return new Chunk(a,image,false);
+		}
+
+	/** The pre-rendered visuals of one depth in one bin. */
+	static final class Chunk
+		{
+		private final int x, y;
+		private final BufferedImage image;
+		/** Whether the visuals could not be cached and have to be painted on their own. */
+		final boolean direct;
+
+		Chunk(Rectangle area, BufferedImage image, boolean direct)
+			{
+			x = area.x;
+			y = area.y;
+			this.image = image;
+			this.direct = direct;
+			}
+
+		void paint(Graphics g)
+			{
+			if (image != null) g.drawImage(image,x,y,null);
+			}
+		}
+	}
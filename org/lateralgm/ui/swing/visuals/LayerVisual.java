@@ -0,0 +1,22 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.ui.swing.visuals;
+
+/**
+ * A visual that rarely changes, such as a tile, and that a {@link BinVisual} may paint once into
+ * a cached image together with the other visuals of the same depth and bin.
+ */
+public interface LayerVisual extends Visual
+	{
+	/**
+	 * @return whether the visual can currently be painted as part of its layer, rather than on its
+	 *         own, such as when it is selected.
+	 */
+	boolean isLayered();
+	}
@@ -17,10 +17,12 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Paint;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
+import java.awt.TexturePaint;
 import java.awt.Toolkit;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
@@ -57,9 +59,7 @@ import org.lateralgm.resources.Sprite.PSprite;
 import org.lateralgm.resources.sub.BackgroundDef;
 import org.lateralgm.resources.sub.BackgroundDef.PBackgroundDef;
 import org.lateralgm.resources.sub.Instance;
-import org.lateralgm.resources.sub.Instance.PInstance;
 import org.lateralgm.resources.sub.Tile;
-import org.lateralgm.resources.sub.Tile.PTile;
 import org.lateralgm.resources.sub.View;
 import org.lateralgm.resources.sub.View.PView;
 import org.lateralgm.util.ActiveArrayList;
@@ -74,6 +74,9 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 			: new BufferedImage(EMPTY_SPRITE.getIconWidth(),EMPTY_SPRITE.getIconHeight(),
 					BufferedImage.TYPE_INT_ARGB);
 
+	/** Rendered instance images shared by all rooms, up to 16M pixels. */
+	private static final InstanceImageCache IMAGE_CACHE = new InstanceImageCache(1 << 24);
+
 	private final BinVisual binVisual;
 	private final GridVisual gridVisual;
 	public final Room room;
@@ -212,7 +215,7 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 				Point newPosition = new Point(position.x - selection.x,position.y - selection.y);
 
 				// Get the instance's image
-				ResourceReference<GmObject> instanceObject = instance.properties.get(PInstance.OBJECT);
+				ResourceReference<GmObject> instanceObject = instance.getObject();
 				BufferedImage instanceImage = instanceObject.get().getDisplayImage();
 
 				// If there is no image, draw a sphere
@@ -279,7 +282,7 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 				{
 				Point newPosition = tile.getPosition();
 				// Get tile's background
-				ResourceReference<Background> background = tile.properties.get(PTile.BACKGROUND);
+				ResourceReference<Background> background = tile.getBackground();
 				BufferedImage backgroundImage = background.get().getDisplayImage();
 				Point tilePosition = tile.getBackgroundPosition();
 				Dimension tileSize = tile.getSize();
@@ -319,6 +322,7 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 	public void setVisibleLayer(Integer layer)
 		{
 		visibleLayer = layer;
+		binVisual.flushLayers();
 		repaint(null);
 		}
 
@@ -521,6 +525,7 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 		if (v ? show.add(s) : show.remove(s))
 			{
 			if (s == Show.GRID && !v) gridVisual.flush(true);
+			if (s == Show.TILES) binVisual.flushLayers();
 			repaint(null);
 			}
 		}
@@ -650,15 +655,59 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 				y = 1 + c.y + ((y + h - 1 - c.y) % h) - h;
 				nrow = 1 + (c.y + c.height - y - 1) / h;
 				}
-			for (int row = 0; row < nrow; row++)
-				for (int col = 0; col < ncol; col++)
-					g.drawImage(bi,(x + w * col),(y + h * row),w,h,null);
+			// When zoomed out over many repeats, fill them in one go with a texture
+			if (ncol * nrow > 64 && g instanceof Graphics2D)
+				{
+				Graphics2D g2 = (Graphics2D) g;
+				Paint op = g2.getPaint();
+				g2.setPaint(new TexturePaint(bi,new Rectangle(x,y,w,h)));
+				g2.fillRect(x,y,w * ncol,h * nrow);
+				g2.setPaint(op);
+				}
+			else
+				for (int row = 0; row < nrow; row++)
+					for (int col = 0; col < ncol; col++)
+						g.drawImage(bi,(x + w * col),(y + h * row),w,h,null);
 			}
 		else
 			g.drawImage(bi,x,y,w,h,null);
 		}
 
-	private abstract class PieceVisual<P extends Piece> extends VisualBox
+	/**
+	 * Averages the color of an image over a sparse sample of its pixels, weighted by their alpha,
+	 * or returns null if the sampled pixels are all transparent.
+	 */
+	private static Color getAverageColor(BufferedImage image)
+		{
+		int w = image.getWidth();
+		int h = image.getHeight();
+		int sx = Math.max(1,w / 16);
+		int sy = Math.max(1,h / 16);
+		long a = 0, r = 0, g = 0, b = 0;
+		int n = 0;
+		for (int y = sy / 2; y < h; y += sy)
+			for (int x = sx / 2; x < w; x += sx)
+				{
+				int c = image.getRGB(x,y);
+				int ca = c >>> 24;
+				a += ca;
+				r += (c >> 16 & 0xFF) * ca;
+				g += (c >> 8 & 0xFF) * ca;
+				b += (c & 0xFF) * ca;
+				n++;
+				}
+		if (a == 0) return null;
+		return new Color((int) (r / a),(int) (g / a),(int) (b / a),(int) (a / n));
+		}
+
+	private static void paintDot(Graphics g, Color c, Rectangle bounds)
+		{
+		if (c == null) return;
+		g.setColor(c);
+		g.fillRect(bounds.x,bounds.y,bounds.width,bounds.height);
+		}
+
+	private abstract class PieceVisual<P extends Piece> extends VisualBox implements DetailVisual
 		{
 		protected final ResourceUpdateListener rul = new ResourceUpdateListener();
 		public final P piece;
@@ -743,23 +792,31 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 	private class InstanceVisual extends PieceVisual<Instance>
 		{
 		private BufferedImage image;
-		private final InstancePropertyListener ipl = new InstancePropertyListener();
 
 		// The instance's local transformation.
 		private AffineTransform at = null;
 
+		// The key of the instance's image already blended and transformed in the shared cache, and
+		// the size it is rendered at, or null to draw it directly. Only the key is kept, so that
+		// the cache can drop the image.
+		private InstanceImageCache.Key renderKey;
+		private int renderWidth, renderHeight;
+
+		// The color to draw the instance with when zoomed far out, once computed.
+		private Color dot;
+		private boolean dotValid;
+
 		public InstanceVisual(Instance i)
 			{
 			super(i);
 			i.updateSource.addListener(rul);
-			i.properties.updateSource.addListener(ipl);
 			invalidate();
 			}
 
 		@Override
 		protected void validate()
 			{
-			ResourceReference<GmObject> ro = piece.properties.get(PInstance.OBJECT);
+			ResourceReference<GmObject> ro = piece.getObject();
 			GmObject o = ro == null ? null : ro.get();
 			ResourceReference<Sprite> rs = null;
 			if (o != null) rs = o.get(PGmObject.SPRITE);
@@ -836,6 +893,20 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 			// the at with only scaling and rotation, and without translation,
 			// will be cached and reused to paint the graphic
 
+			dotValid = false;
+
+			// Unselected instances are drawn from the shared cache of rendered images
+			int alpha = piece.getAlpha();
+			if (piece.isSelected() || image == EMPTY_IMAGE || alpha == 0)
+				renderKey = null;
+			else
+				{
+				renderKey = new InstanceImageCache.Key(s,image,scale.getX(),scale.getY(),angle,originx,
+						originy,piece.getAWTColor().getRGB(),alpha);
+				renderWidth = newWidth;
+				renderHeight = newHeight;
+				}
+
 			newBounds.translate(position.x, position.y);
 			setBounds(newBounds);
 			}
@@ -844,6 +915,14 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 			{
 			if (show.contains(Show.INSTANCES))
 				{
+				BufferedImage rendered = renderKey == null ? null : IMAGE_CACHE.get(renderKey,at,
+						renderWidth,renderHeight);
+				if (rendered != null)
+					{
+					g.drawImage(rendered,0,0,null);
+					return;
+					}
+
 				Graphics2D g2 = (Graphics2D) g;
 
 				g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
@@ -928,47 +1007,64 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 		public void remove()
 			{
 			piece.updateSource.removeListener(rul);
-			piece.properties.updateSource.removeListener(ipl);
 			image = null;
+			renderKey = null;
 			super.remove();
 			}
 
-		class InstancePropertyListener extends PropertyUpdateListener<PInstance>
+		public boolean paintShared(Graphics g, Rectangle bounds)
 			{
-			@Override
-			public void updated(PropertyUpdateEvent<PInstance> e)
+			if (!show.contains(Show.INSTANCES)) return true;
+			BufferedImage rendered = renderKey == null ? null : IMAGE_CACHE.get(renderKey,at,
+					renderWidth,renderHeight);
+			if (rendered == null || rendered.getWidth() > bounds.width
+					|| rendered.getHeight() > bounds.height) return false;
+			g.drawImage(rendered,bounds.x,bounds.y,null);
+			return true;
+			}
+
+		public boolean paintSmall(Graphics g, Rectangle bounds)
+			{
+			int alpha = piece.getAlpha();
+			if (piece.isSelected() || image == EMPTY_IMAGE || alpha == 0) return false;
+			if (!show.contains(Show.INSTANCES)) return true;
+			if (!dotValid)
 				{
-				switch (e.key)
+				Color c = getAverageColor(image);
+				if (c != null)
 					{
-					case X:
-					case Y:
-					case OBJECT:
-						invalidate();
-						break;
-					default:
-						break;
+					// Blend the average color the same way the instance's image is blended
+					int rgb = c.getRGB() & (0xFF000000 | piece.getAWTColor().getRGB());
+					dot = new Color(rgb & 0xFFFFFF | (c.getAlpha() * alpha / 255) << 24,true);
 					}
+				else
+					dot = null;
+				dotValid = true;
 				}
+			paintDot(g,dot,bounds);
+			return true;
 			}
 		}
 
-	private class TileVisual extends PieceVisual<Tile>
+	private class TileVisual extends PieceVisual<Tile> implements LayerVisual
 		{
 		private BufferedImage image;
-		private final TilePropertyListener tpl = new TilePropertyListener();
+
+		// The color to draw the tile with when zoomed far out, once computed.
+		private Color dot;
+		private boolean dotValid;
 
 		public TileVisual(Tile t)
 			{
 			super(t);
 			t.updateSource.addListener(rul);
-			t.properties.updateSource.addListener(tpl);
 			invalidate();
 			}
 
 		@Override
 		protected void validate()
 			{
-			ResourceReference<Background> rb = piece.properties.get(PTile.BACKGROUND);
+			ResourceReference<Background> rb = piece.getBackground();
 			Background b = rb == null ? null : rb.get();
 			BufferedImage bi = b == null ? null : b.getDisplayImage();
 			if (bi == null)
@@ -986,6 +1082,7 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 					image = EMPTY_IMAGE;
 					}
 				}
+			dotValid = false;
 
 			// If the tile is selected use bigger bounds for border
 			if (piece.isSelected())
@@ -1052,27 +1149,37 @@ public class RoomVisual extends AbstractVisual implements BoundedVisual,UpdateLi
 		public void remove()
 			{
 			piece.updateSource.removeListener(rul);
-			piece.properties.updateSource.removeListener(tpl);
 			image = null;
 			super.remove();
 			}
 
-		class TilePropertyListener extends PropertyUpdateListener<PTile>
+		public boolean isLayered()
 			{
-			@Override
-			public void updated(PropertyUpdateEvent<PTile> e)
+			return !piece.isSelected();
+			}
+
+		public boolean paintShared(Graphics g, Rectangle bounds)
+			{
+			if (piece.isSelected()) return false;
+			if (!show.contains(Show.TILES) || (visibleLayer != null && piece.getDepth() != visibleLayer))
+				return true;
+			if (image.getWidth() > bounds.width || image.getHeight() > bounds.height) return false;
+			g.drawImage(image,bounds.x,bounds.y,null);
+			return true;
+			}
+
+		public boolean paintSmall(Graphics g, Rectangle bounds)
+			{
+			if (piece.isSelected()) return false;
+			if (!show.contains(Show.TILES) || (visibleLayer != null && piece.getDepth() != visibleLayer))
+				return true;
+			if (!dotValid)
 				{
-				switch (e.key)
-					{
-					case DEPTH:
-					case ROOM_X:
-					case ROOM_Y:
-						invalidate();
-						break;
-					default:
-						break;
-					}
+				dot = getAverageColor(image);
+				dotValid = true;
 				}
+			paintDot(g,dot,bounds);
+			return true;
 			}
 		}
 
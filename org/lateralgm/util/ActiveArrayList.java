@@ -22,6 +22,8 @@ public class ActiveArrayList<E> extends ArrayList<E>
 	private static final long serialVersionUID = 1L;
 	public final UpdateSource updateSource;
 	private final UpdateTrigger trigger;
+	private int updateDepth;
+	private ListUpdateEvent pending;
 
 	public ActiveArrayList()
 		{
@@ -33,14 +35,14 @@ public class ActiveArrayList<E> extends ArrayList<E>
 		{
 		int i = size();
 		super.add(e);
-		trigger.fire(new ListUpdateEvent(updateSource,Type.ADDED,i,i));
+		fire(Type.ADDED,i,i);
 		return true;
 		}
 
 	public void add(int index, E element)
 		{
 		super.add(index,element);
-		trigger.fire(new ListUpdateEvent(updateSource,Type.ADDED,index,index));
+		fire(Type.ADDED,index,index);
 		}
 
 	@Override
@@ -49,7 +51,7 @@ public class ActiveArrayList<E> extends ArrayList<E>
 		int s = size();
 		if (super.addAll(c))
 			{
-			trigger.fire(new ListUpdateEvent(updateSource,Type.ADDED,s,size() - 1));
+			fire(Type.ADDED,s,size() - 1);
 			return true;
 			}
 		return false;
@@ -61,7 +63,7 @@ public class ActiveArrayList<E> extends ArrayList<E>
 		int s = size();
 		if (super.addAll(index,c))
 			{
-			trigger.fire(new ListUpdateEvent(updateSource,Type.ADDED,index,index + size() - s - 1));
+			fire(Type.ADDED,index,index + size() - s - 1);
 			return true;
 			}
 		return false;
@@ -72,14 +74,14 @@ public class ActiveArrayList<E> extends ArrayList<E>
 		{
 		int s = size();
 		super.clear();
-		if (s > 0) trigger.fire(new ListUpdateEvent(updateSource,Type.REMOVED,0,s - 1));
+		if (s > 0) fire(Type.REMOVED,0,s - 1);
 		}
 
 	@Override
 	public E remove(int index)
 		{
 		E e = super.remove(index);
-		trigger.fire(new ListUpdateEvent(updateSource,Type.REMOVED,index,index));
+		fire(Type.REMOVED,index,index);
 		return e;
 		}
 
@@ -90,7 +92,7 @@ public class ActiveArrayList<E> extends ArrayList<E>
 		if (i >= 0)
 			{
 			super.remove(i);
-			trigger.fire(new ListUpdateEvent(updateSource,Type.REMOVED,i,i));
+			fire(Type.REMOVED,i,i);
 			return true;
 			}
 		return false;
@@ -104,7 +106,7 @@ public class ActiveArrayList<E> extends ArrayList<E>
 		if (s == 1) return remove(c.iterator().next());
 		if (super.removeAll(c))
 			{
-			trigger.fire(new ListUpdateEvent(updateSource,Type.CHANGED,0,Integer.MAX_VALUE));
+			fire(Type.CHANGED,0,Integer.MAX_VALUE);
 			return true;
 			}
 		return false;
@@ -115,7 +117,7 @@ public class ActiveArrayList<E> extends ArrayList<E>
 		{
 		if (super.retainAll(c))
 			{
-			trigger.fire(new ListUpdateEvent(updateSource,Type.CHANGED,0,Integer.MAX_VALUE));
+			fire(Type.CHANGED,0,Integer.MAX_VALUE);
 			return true;
 			}
 		return false;
@@ -124,10 +126,65 @@ public class ActiveArrayList<E> extends ArrayList<E>
 	public E set(int index, E element)
 		{
 		E e = super.set(index,element);
-		trigger.fire(new ListUpdateEvent(updateSource,Type.CHANGED,index,index));
+		fire(Type.CHANGED,index,index);
 		return e;
 		}
 
+	/**
+	 * Suspends update events until the matching call to {@link #endUpdate()}. Calls may be nested.
+	 * The changes made in between are reported as one event: a range if they all added or all
+	 * removed adjacent elements, or a change of the whole list otherwise.
+	 */
+	public void beginUpdate()
+		{
+		updateDepth++;
+		}
+
+	public void endUpdate()
+		{
+		if (updateDepth == 0) throw new IllegalStateException();
+		if (--updateDepth > 0 || pending == null) return;
+		ListUpdateEvent e = pending;
+		pending = null;
+		trigger.fire(e);
+		}
+
+	public boolean isUpdating()
+		{
+		return updateDepth > 0;
+		}
+
+	private void fire(Type t, int from, int to)
+		{
+		if (updateDepth == 0)
+			trigger.fire(new ListUpdateEvent(updateSource,t,from,to));
+		else
+			pending = coalesce(pending,t,from,to);
+		}
+
+	private ListUpdateEvent coalesce(ListUpdateEvent p, Type t, int from, int to)
+		{
+		if (p == null) return new ListUpdateEvent(updateSource,t,from,to);
+		if (p.type == t) switch (t)
+			{
+			case ADDED:
+				// Insertions into or next to the added range keep it contiguous
+				if (from >= p.fromIndex && from <= p.toIndex + 1)
+					return new ListUpdateEvent(updateSource,t,p.fromIndex,p.toIndex + to - from + 1);
+				break;
+			case REMOVED:
+				// Removals spanning the point where the removed range was are contiguous with it
+				if (from <= p.fromIndex && p.fromIndex <= to + 1)
+					return new ListUpdateEvent(updateSource,t,from,p.toIndex + to - p.fromIndex + 1);
+				break;
+			case CHANGED:
+				if (p.toIndex == Integer.MAX_VALUE) return p;
+				return new ListUpdateEvent(updateSource,t,Math.min(from,p.fromIndex),Math.max(to,
+						p.toIndex));
+			}
+		return new ListUpdateEvent(updateSource,Type.CHANGED,0,Integer.MAX_VALUE);
+		}
+
 	@Override
 	public List<E> subList(int fromIndex, int toIndex)
 		{
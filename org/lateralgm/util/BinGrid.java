@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.util;
+
+import java.awt.Rectangle;
+
+/**
+ * A spatial index of rectangles, backed by a flat array of bins sized from the plane dimensions.
+ * Each bin keeps its candidates in an array
+ * sorted by a packed primitive key (selection, then depth from back to front, then insertion
+ * order), so painting a bin is a plain array walk. Candidates outside the plane are kept in the
+ * outermost bins, and queries are answered through visitors rather than iterators, so that no
+ * objects are allocated while looking up or painting pieces.
+ */
+public class BinGrid
+	{
+	/** Maximum number of bins along either axis; larger planes get coarser bins. */
+	private static final int MAX_BINS = 1024;
+	private static final int SERIAL_BITS = 30;
+
+	public final int binShift;
+	private final int columns, rows;
+	private final Bin[] bins;
+	private int serial;
+
+	public static enum Edge
+		{
+		LEFT,RIGHT,TOP,BOTTOM;
+
+		/** How far the given bounds reach towards this edge; larger is further. */
+		int reach(Rectangle b)
+			{
+			switch (this)
+				{
+				case LEFT:
+					return -b.x;
+				case RIGHT:
+					return b.x + b.width;
+				case TOP:
+					return -b.y;
+				default:
+					return b.y + b.height;
+				}
+			}
+
+		public int compareBounds(Rectangle b0, Rectangle b1)
+			{
+			int v0 = reach(b0);
+			int v1 = reach(b1);
+			return v0 > v1 ? 1 : v0 < v1 ? -1 : 0;
+			}
+		}
+
+	public BinGrid(int s, int w, int h)
+		{
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(s,1) - 1);
+		w = Math.max(w,1);
+		h = Math.max(h,1);
+		while (w - 1 >> shift >= MAX_BINS || h - 1 >> shift >= MAX_BINS)
+			shift++;
+		binShift = shift;
+		columns = 1 + (w - 1 >> shift);
+		rows = 1 + (h - 1 >> shift);
+		bins = new Bin[columns * rows];
+		}
+
+	/** Receives the candidates found by a query. */
+	public static interface Visitor
+		{
+		void visit(Candidate c);
+		}
+
+	/**
+	 * Receives candidates bin by bin, in painting order within each bin. The bounds passed to
+	 * {@link #enterBin} are those of the bin, extended to infinity for the outermost bins.
+	 */
+	public static interface BinVisitor extends Visitor
+		{
+		void enterBin(int column, int row, int x, int y, int w, int h);
+
+		void exitBin();
+		}
+
+	/** Returns the column of the bin that holds the given x coordinate. */
+	public int column(int x)
+		{
+		int c = x >> binShift;
+		return c < 0 ? 0 : c >= columns ? columns - 1 : c;
+		}
+
+	/** Returns the row of the bin that holds the given y coordinate. */
+	public int row(int y)
+		{
+		int r = y >> binShift;
+		return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+		}
+
+	/**
+	 * Visits every candidate whose bounds intersect the given rectangle exactly once. Candidates
+	 * are visited bin by bin, and back to front within each bin.
+	 */
+	public void intersect(Rectangle r, Visitor v)
+		{
+		if (r.width <= 0 || r.height <= 0) return;
+		int c0 = column(r.x);
+		int c1 = column(r.x + r.width - 1);
+		int r0 = row(r.y);
+		int r1 = row(r.y + r.height - 1);
+		for (int by = r0; by <= r1; by++)
+			for (int bx = c0; bx <= c1; bx++)
+				{
+				Bin b = bins[bx + by * columns];
+				if (b == null) continue;
+				for (int i = 0; i < b.size; i++)
+					{
+					Candidate c = b.candidates[i];
+					// Only report a candidate in the first bin of the query that it occupies
+					if (Math.max(c.column0,c0) != bx || Math.max(c.row0,r0) != by) continue;
+					if (c.bounds.intersects(r)) v.visit(c);
+					}
+				}
+		}
+
+	/**
+	 * Visits the bins that intersect the given rectangle, or all bins if it is null, along with
+	 * their candidates that intersect it. A candidate is visited in every bin it occupies.
+	 */
+	public void visitBins(Rectangle r, BinVisitor v)
+		{
+		int c0 = 0, c1 = columns - 1, r0 = 0, r1 = rows - 1;
+		if (r != null)
+			{
+			if (r.width <= 0 || r.height <= 0) return;
+			c0 = column(r.x);
+			c1 = column(r.x + r.width - 1);
+			r0 = row(r.y);
+			r1 = row(r.y + r.height - 1);
+			}
+		int s = 1 << binShift;
+		for (int by = r0; by <= r1; by++)
+			for (int bx = c0; bx <= c1; bx++)
+				{
+				Bin b = bins[bx + by * columns];
+				if (b == null || b.size == 0) continue;
+				int x = bx == 0 ? Integer.MIN_VALUE / 2 : bx << binShift;
+				int y = by == 0 ? Integer.MIN_VALUE / 2 : by << binShift;
+				int w = bx == columns - 1 ? Integer.MAX_VALUE / 2 - x : (bx << binShift) + s - x;
+				int h = by == rows - 1 ? Integer.MAX_VALUE / 2 - y : (by << binShift) + s - y;
+				v.enterBin(bx,by,x,y,w,h);
+				for (int i = 0; i < b.size; i++)
+					{
+					Candidate c = b.candidates[i];
+					if (r == null || c.bounds.intersects(r)) v.visit(c);
+					}
+				v.exitBin();
+				}
+		}
+
+	/** Visits every candidate of one bin, in painting order. */
+	public void visitBin(int column, int row, Visitor v)
+		{
+		Bin b = bins[column + row * columns];
+		if (b == null) return;
+		for (int i = 0; i < b.size; i++)
+			v.visit(b.candidates[i]);
+		}
+
+	/** Finds the candidate that reaches furthest towards the given edge, or null if empty. */
+	public Candidate getEdgeCandidate(Edge edge)
+		{
+		boolean vertical = edge == Edge.TOP || edge == Edge.BOTTOM;
+		boolean far = edge == Edge.RIGHT || edge == Edge.BOTTOM;
+		int lines = vertical ? rows : columns;
+		int span = vertical ? columns : rows;
+		// Bins are clamped monotonically, so the outermost non-empty line holds the edge candidate
+		for (int l = 0; l < lines; l++)
+			{
+			int line = far ? lines - 1 - l : l;
+			Candidate ec = null;
+			for (int s = 0; s < span; s++)
+				{
+				Bin b = bins[vertical ? s + line * columns : line + s * columns];
+				if (b == null) continue;
+				for (int i = 0; i < b.size; i++)
+					{
+					Candidate c = b.candidates[i];
+					if (ec == null || edge.compareBounds(c.bounds,ec.bounds) > 0) ec = c;
+					}
+				}
+			if (ec != null) return ec;
+			}
+		return null;
+		}
+
+	public final class Candidate
+		{
+		public Object data;
+		private final Rectangle bounds = new Rectangle();
+		private final int order = serial++ & (1 << SERIAL_BITS) - 1;
+		private int depth;
+		private long key = makeKey(0,false);
+		/** The occupied bin range, empty when column1 is less than column0. */
+		private int column0, row0, column1 = -1, row1 = -1;
+
+		private long makeKey(int depth, boolean selected)
+			{
+			// Selected candidates go last, then higher depths go first, then older candidates
+			long k = (long) Integer.MAX_VALUE - depth << SERIAL_BITS | order;
+			return selected ? k | 1L << 62 : k;
+			}
+
+		public void setDepth(int d)
+			{
+			setDepth(d,false);
+			}
+
+		public void setDepth(int d, boolean selected)
+			{
+			long k = makeKey(d,selected);
+			if (k == key) return;
+			forBins(false);
+			depth = d;
+			key = k;
+			forBins(true);
+			}
+
+		public int getDepth()
+			{
+			return depth;
+			}
+
+		public void setBounds(Rectangle b)
+			{
+			bounds.setBounds(b);
+			int nc0 = 0, nr0 = 0, nc1 = -1, nr1 = -1;
+			if (b.width > 0 && b.height > 0)
+				{
+				nc0 = column(b.x);
+				nr0 = row(b.y);
+				nc1 = column(b.x + b.width - 1);
+				nr1 = row(b.y + b.height - 1);
+				}
+			if (nc0 == column0 && nr0 == row0 && nc1 == column1 && nr1 == row1) return;
+			for (int y = row0; y <= row1; y++)
+				for (int x = column0; x <= column1; x++)
+					if (x < nc0 || x > nc1 || y < nr0 || y > nr1) bins[x + y * columns].remove(this);
+			for (int y = nr0; y <= nr1; y++)
+				for (int x = nc0; x <= nc1; x++)
+					if (x < column0 || x > column1 || y < row0 || y > row1) getBin(x,y).add(this);
+			column0 = nc0;
+			row0 = nr0;
+			column1 = nc1;
+			row1 = nr1;
+			}
+
+		public Rectangle getBounds(Rectangle b)
+			{
+			if (b == null) return bounds.getBounds();
+			b.setBounds(bounds);
+			return b;
+			}
+
+		public void remove()
+			{
+			forBins(false);
+			column0 = row0 = 0;
+			column1 = row1 = -1;
+			bounds.setSize(-1,-1);
+			}
+
+		private void forBins(boolean add)
+			{
+			for (int y = row0; y <= row1; y++)
+				for (int x = column0; x <= column1; x++)
+					if (add)
+						getBin(x,y).add(this);
+					else
+						bins[x + y * columns].remove(this);
+			}
+		}
+
+	private Bin getBin(int x, int y)
+		{
+		int i = x + y * columns;
+		Bin b = bins[i];
+		if (b == null)
+			{
+			b = new Bin();
+			bins[i] = b;
+			}
+		return b;
+		}
+
+	private static final class Bin
+		{
+		private Candidate[] candidates = new Candidate[4];
+		private long[] keys = new long[4];
+		private int size;
+
+		/** Returns the first index whose key is not less than the given key. */
+		private int search(long k)
+			{
+			int lo = 0, hi = size;
+			while (lo < hi)
+				{
+				int mid = lo + hi >>> 1;
+				if (keys[mid] < k)
+					lo = mid + 1;
+				else
+					hi = mid;
+				}
+			return lo;
+			}
+
+		void add(Candidate c)
+			{
+			int i = search(c.key);
+			while (i < size && keys[i] == c.key)
+				i++;
+			if (size == keys.length)
+				{
+				int n = size * 2;
+				Candidate[] nc = new Candidate[n];
+				long[] nk = new long[n];
+				System.arraycopy(candidates,0,nc,0,size);
+				System.arraycopy(keys,0,nk,0,size);
+				candidates = nc;
+				keys = nk;
+				}
+			System.arraycopy(candidates,i,candidates,i + 1,size - i);
+			System.arraycopy(keys,i,keys,i + 1,size - i);
+			candidates[i] = c;
+			keys[i] = c.key;
+			size++;
+			}
+
+		void remove(Candidate c)
+			{
+			for (int i = search(c.key); i < size && keys[i] == c.key; i++)
+				if (candidates[i] == c)
+					{
+					size--;
+					System.arraycopy(candidates,i + 1,candidates,i,size - i);
+					System.arraycopy(keys,i + 1,keys,i,size - i);
+					candidates[size] = null;
+					return;
+					}
+			}
+		}
+	}
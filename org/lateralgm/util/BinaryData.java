@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * The binary data of a resource, such as a sound or an included file. The data is either held in
+ * memory or left in a file as {@link LazyData}, in which case it is only read back when requested
+ * and copied straight from that file when written out.
+ */
+public class BinaryData
+	{
+	private byte[] data = new byte[0];
+	private LazyData source;
+
+	/** Returns the data, reading it back if it was left in a file, or null if there is none. */
+	public byte[] get() throws IOException
+		{
+		if (data == null && source != null) return source.get();
+		return data;
+		}
+
+	public void set(byte[] data)
+		{
+		this.data = data;
+		source = null;
+		}
+
+	/** Sets data that is only read from disk once it is first requested. */
+	public void set(LazyData source)
+		{
+		this.source = source;
+		data = null;
+		}
+
+	/** Returns the file the data was left in, or null if the data is held in memory. */
+	public LazyData getSource()
+		{
+		return data == null ? source : null;
+		}
+
+	public boolean exists()
+		{
+		return data != null || source != null;
+		}
+
+	public int getLength()
+		{
+		if (data == null) return source == null ? 0 : source.length;
+		return data.length;
+		}
+
+	/** Writes the data to the given stream, without reading it into memory if it is in a file. */
+	public void writeTo(OutputStream out) throws IOException
+		{
+		if (getSource() != null)
+			source.writeTo(out);
+		else if (data != null) out.write(data);
+		}
+
+	/** Writes the data to the given file, replacing it if it exists. */
+	public void writeTo(File dest) throws IOException
+		{
+		if (getSource() != null)
+			source.copyTo(dest);
+		else
+			Files.write(dest.toPath(),data == null ? new byte[0] : data);
+		}
+
+	/** Makes the given holder hold a copy of this data. Data left in a file is shared. */
+	public void copyTo(BinaryData dest)
+		{
+		dest.data = data == null ? null : data.clone();
+		dest.source = source;
+		}
+	}
@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.util;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Finds the bounds of the visible pixels of images, as used for the automatic bounding box of
+ * sprites. Rows of the common raster types are read as they are stored, rather than converted
+ * one pixel at a time by {@link BufferedImage#getRGB(int,int)}, and scanned a row at a time,
+ * stopping as soon as the bounds cannot grow any further. Other image types fall back to reading
+ * a row at a time through getRGB.
+ */
+public final class ImageBounds
+	{
+	/** Below this many pixels in total, frames are not worth handing to other threads. */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	private static ExecutorService pool;
+
+	private ImageBounds()
+		{
+		}
+
+	/** Supplies the images to scan. Implementations must be safe to call from any thread. */
+	public interface Source
+		{
+		BufferedImage get(int index);
+		}
+
+	/**
+	 * Returns the smallest rectangle holding every visible pixel of the image, or an empty
+	 * rectangle at 0,0 if there are none.
+	 * @param transPixel whether pixels of the colour of the bottom left pixel are invisible,
+	 *          rather than pixels with an alpha of at most the tolerance.
+	 */
+	public static Rectangle getBounds(BufferedImage img, boolean transPixel, int tolerance)
+		{
+		int w = img.getWidth(), h = img.getHeight();
+		if (w <= 0 || h <= 0) return new Rectangle();
+		Kernel k = kernel(img,transPixel,tolerance);
+
+		int y1 = 0;
+		while (y1 < h && k.first(y1,0,w) < 0)
+			y1++;
+		if (y1 == h) return new Rectangle();
+		int y2 = h - 1;
+		while (y2 > y1 && k.first(y2,0,w) < 0)
+			y2--;
+
+		int x1 = w, x2 = -1;
+		for (int y = y1; y <= y2 && (x1 > 0 || x2 < w - 1); y++)
+			{
+			if (x1 > 0)
+				{
+				int i = k.first(y,0,x1);
+				if (i >= 0) x1 = i;
+				}
+			if (x2 < w - 1)
+				{
+				int i = k.last(y,x2 + 1,w);
+				if (i >= 0) x2 = i;
+				}
+			}
+		return new Rectangle(x1,y1,x2 - x1 + 1,y2 - y1 + 1);
+		}
+
+	/**
+	 * Computes the bounds of several images, as {@link #getBounds(BufferedImage,boolean,int)}
+	 * does, spreading them over a pool of worker threads when there is enough work.
+	 * @param pixels the total number of pixels, used to decide whether to go parallel.
+	 */
+	public static Rectangle[] getBounds(final Source src, int count, long pixels,
+			final boolean transPixel, final int tolerance)
+		{
+		Rectangle[] r = new Rectangle[count];
+		if (count < 2 || pixels < PARALLEL_THRESHOLD)
+			{
+			for (int i = 0; i < count; i++)
+				r[i] = getBounds(src.get(i),transPixel,tolerance);
+			return r;
+			}
+
+		List<Future<Rectangle>> futures = new ArrayList<Future<Rectangle>>(count);
+		ExecutorService p = getPool();
+		for (int i = 0; i < count; i++)
+			{
+			final int index = i;
+			futures.add(p.submit(new Callable<Rectangle>()
+				{
+					public Rectangle call()
+						{
+						return getBounds(src.get(index),transPixel,tolerance);
+						}
+				}));
+			}
+		try
+			{
+			for (int i = 0; i < count; i++)
+				r[i] = futures.get(i).get();
+			}
+		catch (InterruptedException e)
+			{
+			for (Future<Rectangle> f : futures)
+				f.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+			}
+		catch (ExecutionException e)
+			{
+			Throwable t = e.getCause();
+			if (t instanceof RuntimeException) throw (RuntimeException) t;
+			if (t instanceof Error) throw (Error) t;
+			throw new IllegalStateException(t);
+			}
+		return r;
+		}
+
+	private static synchronized ExecutorService getPool()
+		{
+		if (pool == null)
+			pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory()
+						{
+							private int count;
+
+							public Thread newThread(Runnable r)
+								{
+								Thread t = new Thread(r,"Image Bounds " + (++count)); //$NON-NLS-1$
+								t.setDaemon(true);
+								return t;
+								}
+						});
+		return pool;
+		}
+
+	/** Finds visible pixels within a row of an image. */
+	private static abstract class Kernel
+		{
+		/** Returns the first visible column in [from, to) of row y, or -1 if there is none. */
+		abstract int first(int y, int from, int to);
+
+		/** Returns the last visible column in [from, to) of row y, or -1 if there is none. */
+		abstract int last(int y, int from, int to);
+		}
+
+	private static Kernel kernel(BufferedImage img, boolean transPixel, int tolerance)
+		{
+		WritableRaster raster = img.getRaster();
+		SampleModel sm = raster.getSampleModel();
+		switch (img.getType())
+			{
+			case BufferedImage.TYPE_INT_ARGB:
+			case BufferedImage.TYPE_INT_RGB:
+				if (!(sm instanceof SinglePixelPackedSampleModel)) break;
+				{
+				boolean alpha = img.getType() == BufferedImage.TYPE_INT_ARGB;
+				if (transPixel) return new IntPixel(raster,alpha ? 0xFFFFFFFF : 0x00FFFFFF);
+				if (alpha) return new IntAlpha(raster,tolerance);
+				return new Opaque(tolerance);
+				}
+			case BufferedImage.TYPE_4BYTE_ABGR:
+			case BufferedImage.TYPE_3BYTE_BGR:
+				if (!(sm instanceof PixelInterleavedSampleModel)) break;
+				if (transPixel) return new BytePixel(raster);
+				// Rows come back with the samples of each pixel in band order, alpha last
+				if (sm.getNumBands() == 4) return new ByteAlpha(raster,tolerance);
+				return new Opaque(tolerance);
+			default:
+				break;
+			}
+		return transPixel ? new RGBPixel(img) : new RGBAlpha(img,tolerance);
+		}
+
+	/** An image without an alpha channel, so either every pixel is visible or none is. */
+	private static final class Opaque extends Kernel
+		{
+		private final boolean visible;
+
+		Opaque(int tolerance)
+			{
+			visible = 0xFF > tolerance;
+			}
+
+		int first(int y, int from, int to)
+			{
+			return visible && from < to ? from : -1;
+			}
+
+		int last(int y, int from, int to)
+			{
+			return visible && from < to ? to - 1 : -1;
+			}
+		}
+
+	/**
+	 * Reads the data elements of a row at a time from the raster. The backing array of the
+	 * raster is never taken, as doing so would stop the image from being accelerated for good.
+	 */
+	private static abstract class RasterKernel extends Kernel
+		{
+		final WritableRaster raster;
+		final int width;
+		Object row;
+		private int rowY = -1;
+
+		RasterKernel(WritableRaster raster)
+			{
+			this.raster = raster;
+			width = raster.getWidth();
+			}
+
+		void load(int y)
+			{
+			if (rowY != y)
+				{
+				row = raster.getDataElements(0,y,width,1,row);
+				rowY = y;
+				}
+			}
+
+		abstract boolean visible(int x);
+
+		int first(int y, int from, int to)
+			{
+			load(y);
+			for (int x = from; x < to; x++)
+				if (visible(x)) return x;
+			return -1;
+			}
+
+		int last(int y, int from, int to)
+			{
+			load(y);
+			for (int x = to - 1; x >= from; x--)
+				if (visible(x)) return x;
+			return -1;
+			}
+		}
+
+	private static final class IntAlpha extends RasterKernel
+		{
+		private final int tolerance;
+
+		IntAlpha(WritableRaster raster, int tolerance)
+			{
+			super(raster);
+			this.tolerance = tolerance;
+			}
+
+		boolean visible(int x)
+			{
+			return (((int[]) row)[x] >>> 24) > tolerance;
+			}
+		}
+
+	private static final class IntPixel extends RasterKernel
+		{
+		private final int mask, transparent;
+
+		IntPixel(WritableRaster raster, int mask)
+			{
+			super(raster);
+			this.mask = mask;
+			load(raster.getHeight() - 1);
+			transparent = ((int[]) row)[0] & mask;
+			}
+
+		boolean visible(int x)
+			{
+			return (((int[]) row)[x] & mask) != transparent;
+			}
+		}
+
+	private static final class ByteAlpha extends RasterKernel
+		{
+		private final int tolerance;
+
+		ByteAlpha(WritableRaster raster, int tolerance)
+			{
+			super(raster);
+			this.tolerance = tolerance;
+			}
+
+		boolean visible(int x)
+			{
+			return (((byte[]) row)[x * 4 + 3] & 0xFF) > tolerance;
+			}
+		}
+
+	private static final class BytePixel extends RasterKernel
+		{
+		private final int bands;
+		private final byte[] transparent;
+
+		BytePixel(WritableRaster raster)
+			{
+			super(raster);
+			bands = raster.getNumBands();
+			load(raster.getHeight() - 1);
+			transparent = new byte[bands];
+			System.arraycopy(row,0,transparent,0,bands);
+			}
+
+		boolean visible(int x)
+			{
+			byte[] r = (byte[]) row;
+			int i = x * bands;
+			for (int b = 0; b < bands; b++)
+				if (r[i + b] != transparent[b]) return true;
+			return false;
+			}
+		}
+
+	/** Reads rows of any other image through getRGB, one row at a time. */
+	private static abstract class RGBKernel extends Kernel
+		{
+		private final BufferedImage img;
+		private final int[] row;
+		private int rowY = -1;
+
+		RGBKernel(BufferedImage img)
+			{
+			this.img = img;
+			row = new int[img.getWidth()];
+			}
+
+		abstract boolean visible(int rgb);
+
+		private int[] row(int y)
+			{
+			if (rowY != y)
+				{
+				img.getRGB(0,y,row.length,1,row,0,row.length);
+				rowY = y;
+				}
+			return row;
+			}
+
+		int first(int y, int from, int to)
+			{
+			int[] r = row(y);
+			for (int x = from; x < to; x++)
+				if (visible(r[x])) return x;
+			return -1;
+			}
+
+		int last(int y, int from, int to)
+			{
+			int[] r = row(y);
+			for (int x = to - 1; x >= from; x--)
+				if (visible(r[x])) return x;
+			return -1;
+			}
+		}
+
+	private static final class RGBAlpha extends RGBKernel
+		{
+		private final int tolerance;
+
+		RGBAlpha(BufferedImage img, int tolerance)
+			{
+			super(img);
+			this.tolerance = tolerance;
+			}
+
+		boolean visible(int rgb)
+			{
+			return (rgb >>> 24) > tolerance;
+			}
+		}
+
+	private static final class RGBPixel extends RGBKernel
+		{
+		private final int transparent;
+
+		RGBPixel(BufferedImage img)
+			{
+			super(img);
+			transparent = img.getRGB(0,img.getHeight() - 1);
+			}
+
+		boolean visible(int rgb)
+			{
+			return rgb != transparent;
+			}
+		}
+	}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A block of binary data, such as a sound or an included file, that is kept in a file of its own
+ * rather than on the heap and only read back when first requested. The data read back is softly
+ * referenced. The file is never modified, so instances may be shared.
+ */
+public class LazyData
+	{
+	public final File file;
+	public final int length;
+	private SoftReference<byte[]> cache;
+
+	public LazyData(File file, int length)
+		{
+		this.file = file;
+		this.length = length;
+		}
+
+	public synchronized byte[] get() throws IOException
+		{
+		byte[] data = cache == null ? null : cache.get();
+		if (data != null) return data;
+		data = Files.readAllBytes(file.toPath());
+		cache = new SoftReference<byte[]>(data);
+		return data;
+		}
+
+	/** Copies the data to the given stream without keeping it in memory. */
+	public void writeTo(OutputStream out) throws IOException
+		{
+		Files.copy(file.toPath(),out);
+		}
+
+	/** Copies the data to the given file, replacing it if it exists. */
+	public void copyTo(File dest) throws IOException
+		{
+		Files.copy(file.toPath(),dest.toPath(),StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
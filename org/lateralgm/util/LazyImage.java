@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 LateralGM contributors
+ *
+ * This file is part of LateralGM.
+ * LateralGM is free software and comes with ABSOLUTELY NO WARRANTY.
+ * See LICENSE for details.
+ */
+
+package org.lateralgm.util;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+/**
+ * An image that is only decoded from its file when first requested. It is decoded at most once
+ * and then kept, so that the decoded image can be told apart by identity, as the caches of
+ * sprite bounds and rendered instances do.
+ * <p>
+ * An image that cannot be decoded is replaced by a blank one of the recorded size, so that it can
+ * still be shown. Such an image is flagged as broken and keeps the bytes of its file, which
+ * writers save in place of the blank image so that the original data is not lost.
+ */
+public class LazyImage
+	{
+	public final File file;
+	private int width, height;
+	private volatile BufferedImage image;
+	private volatile boolean broken;
+	private byte[] encoded;
+
+	/**
+	 * @param width the width recorded alongside the file, or -1 if unknown.
+	 * @param height the height recorded alongside the file, or -1 if unknown.
+	 */
+	public LazyImage(File file, int width, int height)
+		{
+		this.file = file;
+		this.width = width;
+		this.height = height;
+		}
+
+	/** Returns the decoded image if it was decoded already, without touching the disk. */
+	public BufferedImage peek()
+		{
+		return image;
+		}
+
+	public synchronized BufferedImage get()
+		{
+		BufferedImage img = image;
+		if (img != null) return img;
+		try
+			{
+			img = ImageIO.read(file);
+			}
+		catch (IOException e)
+			{
+			img = null;
+			}
+		if (img == null)
+			{
+			try
+				{
+				encoded = Files.readAllBytes(file.toPath());
+				}
+			catch (IOException e)
+				{
+				// nothing left to preserve
+				}
+			broken = true;
+			img = new BufferedImage(Math.max(width,1),Math.max(height,1),BufferedImage.TYPE_INT_ARGB);
+			}
+		width = img.getWidth();
+		height = img.getHeight();
+		image = img;
+		return img;
+		}
+
+	/**
+	 * Whether the file could not be decoded, so that {@link #get()} returned a blank image that
+	 * does not stand for the actual data.
+	 */
+	public boolean isBroken()
+		{
+		return broken;
+		}
+
+	/**
+	 * Writes the bytes of a broken image, as read from its file, to the given file. Does nothing
+	 * and returns false if the image is not broken or its file could not be read at all.
+	 */
+	public synchronized boolean writeEncoded(File dest) throws IOException
+		{
+		if (!broken || encoded == null) return false;
+		if (!dest.equals(file) || !dest.exists()) Files.write(dest.toPath(),encoded);
+		return true;
+		}
+
+	public synchronized int getWidth()
+		{
+		return width >= 0 ? width : get().getWidth();
+		}
+
+	public synchronized int getHeight()
+		{
+		return height >= 0 ? height : get().getHeight();
+		}
+	}